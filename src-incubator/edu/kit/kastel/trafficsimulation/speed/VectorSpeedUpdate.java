@@ -0,0 +1,39 @@
+package edu.kit.kastel.trafficsimulation.speed;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * this class computes the new speeds of cars with the vector API,
+ * so several cars are updated with one SIMD instruction.
+ * The speed limit of the street is broadcast into every lane. The columns are padded to whole vectors,
+ * so the last vector is computed over the padding instead of updating the rest of the cars one at a time.
+ * That way every street runs the vector loop, even one with a single car. If most streets had fewer cars
+ * than a vector has lanes the loop would be rare and the optimizing compiler might not inline the vector calls,
+ * which then allocate on every call.
+ * This class needs the module {@code jdk.incubator.vector}, so it is compiled separately from the default build.
+ * Use {@link SpeedUpdates#best()} to get an instance.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public final class VectorSpeedUpdate implements SpeedUpdate {
+
+    /** the widest vector shape the cpu supports that is not wider than the padding of the columns */
+    private static final VectorSpecies<Integer> SPECIES
+            = IntVector.SPECIES_PREFERRED.length() <= SpeedUpdates.VECTOR_COLUMN_ALIGNMENT
+                    ? IntVector.SPECIES_PREFERRED : IntVector.SPECIES_512;
+
+    @Override
+    public void computeSpeeds(int[] speeds, int[] accelerations, int[] wantedSpeeds, int count, int maxSpeed,
+            int[] newSpeeds) {
+        IntVector speedLimit = IntVector.broadcast(SPECIES, maxSpeed);
+
+        for (int i = 0; i < count; i += SPECIES.length()) {
+            IntVector speed = IntVector.fromArray(SPECIES, speeds, i);
+            IntVector acceleration = IntVector.fromArray(SPECIES, accelerations, i);
+            IntVector wantedSpeed = IntVector.fromArray(SPECIES, wantedSpeeds, i);
+            speed.add(acceleration).min(wantedSpeed.min(speedLimit)).intoArray(newSpeeds, i);
+        }
+    }
+}
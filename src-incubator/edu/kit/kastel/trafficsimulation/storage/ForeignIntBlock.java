@@ -0,0 +1,88 @@
+package edu.kit.kastel.trafficsimulation.storage;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+
+import edu.kit.kastel.trafficsimulation.memory.MemoryLayout;
+
+/**
+ * this class is a block of integers in a native memory segment outside of the heap.
+ * The integers are stored in the byte order of the cpu. Offsets are computed as longs,
+ * so a block can hold more than 2 GiB, for example the rows of tens of millions of cars.
+ * This class needs the module {@code jdk.incubator.foreign}, so it is compiled separately from the default build.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+final class ForeignIntBlock implements IntBlock {
+
+    /**
+     * the number of bytes a block uses on the heap: the block object with one reference
+     * and the object of the segment with its size, its address and its scope
+     */
+    static final long FOOTPRINT_BYTES = MemoryLayout.object(MemoryLayout.REFERENCE_BYTES)
+            + MemoryLayout.object(2 * Long.BYTES + Integer.BYTES + MemoryLayout.REFERENCE_BYTES);
+
+    /** the number of integers from which a copy between two segments is done by the segments themselves */
+    private static final int BULK_COPY_MIN_COUNT = 64;
+
+    /** the memory of the block */
+    private final MemorySegment segment;
+
+    /** the number of integers of the block */
+    private final int size;
+
+    /**
+     * constructor for a new block on a segment
+     * @param segment the memory of the block, a multiple of four bytes long
+     */
+    ForeignIntBlock(MemorySegment segment) {
+        this.segment = segment;
+        this.size = (int) (segment.byteSize() / Integer.BYTES);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int get(int index) {
+        return MemoryAccess.getIntAtIndex(segment, index);
+    }
+
+    @Override
+    public void set(int index, int value) {
+        MemoryAccess.setIntAtIndex(segment, index, value);
+    }
+
+    @Override
+    public void copy(int from, IntBlock target, int to, int count) {
+        if (count >= BULK_COPY_MIN_COUNT && target instanceof ForeignIntBlock) {
+            //a slice is an object, so short copies in the tick use the loop below instead
+            ((ForeignIntBlock) target).segment.asSlice((long) to * Integer.BYTES, (long) count * Integer.BYTES)
+                    .copyFrom(segment.asSlice((long) from * Integer.BYTES, (long) count * Integer.BYTES));
+            return;
+        }
+        if (target == this && to > from) {
+            //the ranges overlap, so the integers at the end are moved first
+            for (int i = count - 1; i >= 0; i--) {
+                set(to + i, get(from + i));
+            }
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            target.set(to + i, get(from + i));
+        }
+    }
+
+    @Override
+    public int[] array() {
+        return null;
+    }
+
+    @Override
+    public long getFootprintBytes() {
+        return FOOTPRINT_BYTES + segment.byteSize();
+    }
+}
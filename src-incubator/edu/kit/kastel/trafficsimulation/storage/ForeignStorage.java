@@ -0,0 +1,44 @@
+package edu.kit.kastel.trafficsimulation.storage;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+/**
+ * this class stores blocks of integers in native memory with the foreign memory API.
+ * Every block gets an implicit scope, so its memory is freed once the block can not be reached anymore,
+ * like the memory of a direct buffer, and any thread can use it.
+ * This class needs the module {@code jdk.incubator.foreign}, so it is compiled separately from the default build.
+ * Use {@link Storages#offHeap()} to get an instance.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public final class ForeignStorage implements Storage {
+
+    /** the alignment of the segments in bytes, the size of a cache line */
+    static final long SEGMENT_ALIGNMENT = 64;
+
+    /** the block all callers share if they allocate a block of size 0, native segments can not be empty */
+    private static final IntBlock EMPTY = new ForeignIntBlock(MemorySegment
+            .allocateNative(SEGMENT_ALIGNMENT, SEGMENT_ALIGNMENT, ResourceScope.globalScope()).asSlice(0, 0));
+
+    @Override
+    public IntBlock allocate(int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+        //native segments are filled with zeros when they are allocated
+        return new ForeignIntBlock(MemorySegment.allocateNative((long) size * Integer.BYTES, SEGMENT_ALIGNMENT,
+                ResourceScope.newImplicitScope()));
+    }
+
+    @Override
+    public long footprintBytes(int size) {
+        return ForeignIntBlock.FOOTPRINT_BYTES + (long) size * Integer.BYTES;
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return true;
+    }
+}
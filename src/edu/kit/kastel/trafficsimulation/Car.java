@@ -1,168 +1,200 @@
 package edu.kit.kastel.trafficsimulation;
 
+import edu.kit.kastel.trafficsimulation.storage.IntBlock;
+
 /**
- * this class represents a car in the simulation
+ * this class represents a car in the simulation. A graph with the heap storage stores the state of its cars
+ * in the car objects, a graph with the off-heap storage in the rows of its car table,
+ * then the car objects only refer to their rows.
  * 
  * @author uxler
  * @version 1.0
  */
-public class Car {
-
-    /** Current speed of the car */
-    private int currentSpeed;
-    
-    /** Acceleration of the car. */
-    private int acceleration;
-
-    /** Maximum speed */
-    private int wantedSpeed;
-
-    /** The direction the car wants to go to. Starts with 0. */
-    private int wantedDirection = 0;
+public abstract class Car {
 
-    /** The meters the car has left in this tick */
-    private int metersLeftToDriveThisTick;
+    /** the destination of a car that has no destination and follows its wanted direction */
+    public static final int NO_DESTINATION = -1;
 
-    /** True if the car has already crossed a node in this tick or overtook a car */
-    private boolean alreadyCrossedThisTick;
+    /**
+     * Creates a new car on the heap that can be added to a graph.
+     * A graph with the off-heap storage copies it into a car object of its car table.
+     * @param id ID of the car
+     * @param acceleration Acceleration of the car
+     * @param wantedSpeed Maximum speed of the car
+     * @return the new car
+     */
+    public static Car create(int id, int acceleration, int wantedSpeed) {
+        return new HeapCar(id, acceleration, wantedSpeed);
+    }
 
-    /** Position of the car relative to beginning of the street */
-    private int positionOnStreet;
+    /**
+     * Resets the car so the object can be reused for a new car
+     * @param id ID of the new car
+     * @param acceleration Acceleration of the new car
+     * @param wantedSpeed Maximum speed of the new car
+     */
+    public abstract void reuse(int id, int acceleration, int wantedSpeed);
 
-    /** ID of the street the car is on */
-    private int onStreetID;
+    /**
+     * Creates a new car object with the same state as this car
+     * @return the copy of the car
+     */
+    abstract Car copy();
 
-    /** ID of the car */
-    private int id;
+    /**
+     * Returns the block the state of the car is stored in
+     * @return the block of the row of the car or null if the state is stored in the car object
+     */
+    IntBlock getRows() {
+        return null;
+    }
 
-    /** Constructor for a car
-     * @param id ID of the car
-     * @param acceleration Acceleration of the car
-     * @param wantedSpeed Maximum speed of the car
+    /**
+     * Sets the state of this car to the state of another car, which may be stored in another way
+     * @param other the car to copy
      */
-    public Car(int id, int acceleration, int wantedSpeed) {
-        this.id = id;
-        this.acceleration = acceleration;
-        this.wantedSpeed = wantedSpeed;
+    void copyFrom(Car other) {
+        reuse(other.getId(), other.getAcceleration(), other.getWantedSpeed());
+        setOnStreetId(other.getOnStreetId());
+        setPositionOnStreet(other.getPositionOnStreet());
+        setWantedDirection(other.getWantedDirection());
+        setDestination(other.getDestination());
+        setAlreadyCrossedThisTick(other.hasAlreadyCrossedThisTick());
+        //the meters left are set together with the speed and then reduced by the meters already driven
+        applySpeed(other.getCurrentSpeed());
+        droveMeters(other.getCurrentSpeed() - other.getMetersLeftToDrive());
     }
 
     /**
      * Sets the position of the car on the street
      * @param positionOnStreet Position of the car on the street
      */
-    public void setPositionOnStreet(int positionOnStreet) {
-        this.positionOnStreet = positionOnStreet;
-    }
+    public abstract void setPositionOnStreet(int positionOnStreet);
 
     /**
      * Returns the position of the car on the street
      * @return Position of the car on the street
      */
-    public int getPositionOnStreet() {
-        return positionOnStreet;
-    }
+    public abstract int getPositionOnStreet();
 
     /**
      * Change the street the car is on by setting the ID of the street
      * @param onStreetID ID of the street the car is now on
      */
-    public void setOnStreetId(int onStreetID) {
-        this.onStreetID = onStreetID;
-    }
+    public abstract void setOnStreetId(int onStreetID);
 
     /**
      * Returns the ID of the street the car is on
      * @return ID of the street the car is on
      */
-    public int getOnStreetId() {
-        return onStreetID;
-    }
+    public abstract int getOnStreetId();
 
     /**
      * Returns the ID of the car
      * @return ID of the car
      */
-    public int getId() {
-        return id;
-    }
+    public abstract int getId();
 
     /**
      * sets the speed of the car
      * @param speed the speed the car should have 
      */
-    public void setSpeed(int speed) {
-        currentSpeed = speed;
-    }
+    public abstract void setSpeed(int speed);
 
     /**
      * updates the speed of the car by adding the acceleration to the current speed
      * and limiting it to the maximum speed
      * @param speedLimit Maximum speed on the street the car is on
      */
-    public void updateSpeed(int speedLimit) { //y
-        //Increase speed by acceleration
-        currentSpeed = Math.min(currentSpeed + acceleration, Math.min(wantedSpeed, speedLimit));
-        metersLeftToDriveThisTick = currentSpeed;
-    }
+    public abstract void updateSpeed(int speedLimit);
+
+    /**
+     * updates the speed of the car to a speed that was computed in advance
+     * by the speed phase of the street the car is on
+     * @param speed the new speed, computed like in {@link #updateSpeed(int)}
+     */
+    public abstract void applySpeed(int speed);
 
     /**
      * Returns the current speed of the car
      * @return Current speed of the car
      */
-    public int getCurrentSpeed() { 
-        return currentSpeed;
-    }
+    public abstract int getCurrentSpeed();
 
     /**
      * Update the distance the car has left to drive in this tick
      * @param meters Meters the car has driven
      */
-    public void droveMeters(int meters) {
-        metersLeftToDriveThisTick -= meters;
-    }
+    public abstract void droveMeters(int meters);
 
     /**
      * Returns the meters the car has left to drive in this tick
      * @return Meters the car has left to drive in this tick
      */
-    public int getMetersLeftToDrive() {
-        return metersLeftToDriveThisTick;
-    }
+    public abstract int getMetersLeftToDrive();
 
     /**
-     * Increments the direction by one and returns the new direction
-     * @return New direction
+     * Returns the acceleration of the car
+     * @return Acceleration of the car
      */
-    public int getWantedDirection() {
-        return wantedDirection;
-    }
+    public abstract int getAcceleration();
+
+    /**
+     * Returns the speed the car wants to drive at
+     * @return Maximum speed of the car
+     */
+    public abstract int getWantedSpeed();
+
+    /**
+     * Returns the direction the car wants to go to
+     * @return the wanted direction
+     */
+    public abstract int getWantedDirection();
+
+    /**
+     * Sets the direction the car wants to go to. This is used to restore a previously saved state.
+     * @param wantedDirection the wanted direction
+     */
+    public abstract void setWantedDirection(int wantedDirection);
+
+    /**
+     * Returns the ID of the node the car is routed to
+     * @return ID of the destination node or {@link #NO_DESTINATION}
+     */
+    public abstract int getDestination();
+
+    /**
+     * Sets the ID of the node the car is routed to.
+     * Once the car crossed its destination it follows its wanted direction again.
+     * @param destination ID of the destination node or {@link #NO_DESTINATION}
+     */
+    public abstract void setDestination(int destination);
 
     /**
      * Increments the direction by one and returns the new direction
      * @return New direction
      */
-    public int increaseWantedDirection() {
-        wantedDirection++;
-        if (wantedDirection > 3) {
-            wantedDirection = 0;
-        }
-        return wantedDirection;
-    }
+    public abstract int increaseWantedDirection();
 
     /**
      * Sets if the car has already crossed a node or passed a car in this tick
      * @param b True if the car has already crossed a node or passed a car in this tick
      */
-    public void setAlreadyCrossedThisTick(boolean b) {
-        alreadyCrossedThisTick = b;
-    }
+    public abstract void setAlreadyCrossedThisTick(boolean b);
 
     /**
      * Returns if the car has already crossed a node or passed a car in this tick
      * @return True if the car has already crossed a node or passed a car in this tick
      */
-    public boolean hasAlreadyCrossedThisTick() {
-        return alreadyCrossedThisTick;
+    public abstract boolean hasAlreadyCrossedThisTick();
+
+    /**
+     * Returns the hash of the current state of the car
+     * @return the state hash of the car
+     */
+    public long stateHash() {
+        return StateHash.ofCar(getId(), getOnStreetId(), getPositionOnStreet(), getCurrentSpeed(),
+                getWantedDirection(), getDestination());
     }
 
 }
@@ -0,0 +1,339 @@
+package edu.kit.kastel.trafficsimulation;
+
+import java.util.Arrays;
+
+import edu.kit.kastel.trafficsimulation.memory.MemoryLayout;
+import edu.kit.kastel.trafficsimulation.speed.SpeedUpdate;
+import edu.kit.kastel.trafficsimulation.speed.SpeedUpdates;
+import edu.kit.kastel.trafficsimulation.storage.IntBlock;
+import edu.kit.kastel.trafficsimulation.storage.Storage;
+
+/**
+ * This class stores the cars of a street sorted by their position in descending order
+ * (the car closest to the end of the street comes first).
+ * Next to the cars it stores the attributes the speed update needs as columns,
+ * so the new speeds of all cars of a street can be computed in one pass over the columns.
+ * The columns of the attributes are blocks of the storage of the graph, on or off the heap,
+ * only the column of the car objects is always an array on the heap.
+ * The columns are only allocated when the first car is added, until then all queues share empty columns,
+ * so the streets of a large network without traffic do not need memory for their cars.
+ * Afterwards the columns only grow if a street ever holds more cars than physically possible.
+ * Their length is a multiple of {@link SpeedUpdates#getColumnAlignment()},
+ * so the speed update can work on whole vectors.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+final class CarQueue {
+
+    /** the memory a queue without its own columns uses: six reference fields, three int fields and a long field */
+    static final long EMPTY_FOOTPRINT_BYTES
+            = MemoryLayout.object(6 * MemoryLayout.REFERENCE_BYTES + 3 * Integer.BYTES + Long.BYTES);
+
+    /** the car column all queues share until their first car is added */
+    private static final Car[] NO_CARS = new Car[0];
+
+    /** the cars in descending order of their position */
+    Car[] cars;
+
+    /** the position of every car */
+    IntBlock positions;
+
+    /** the current speed of every car */
+    IntBlock speeds;
+
+    /** the acceleration of every car */
+    IntBlock accelerations;
+
+    /** the speed every car wants to drive at */
+    IntBlock wantedSpeeds;
+
+    /** the index after the last car */
+    int size;
+
+    /** the sum of the speeds of all cars in the queue */
+    long speedSum;
+
+    /** the number of cars in the queue with speed 0 */
+    int stoppedCount;
+
+    /** the storage the value columns are allocated in */
+    private Storage storage;
+
+    /** the number of cars the columns are allocated for when the first car is added */
+    private final int capacity;
+
+    /**
+     * constructor for a new empty queue, the columns are allocated when the first car is added
+     * @param capacity the number of cars the queue can hold without growing
+     * @param storage the storage the value columns are allocated in
+     */
+    CarQueue(int capacity, Storage storage) {
+        this.capacity = alignCapacity(capacity);
+        this.storage = storage;
+        cars = NO_CARS;
+        positions = storage.allocate(0);
+        speeds = positions;
+        accelerations = positions;
+        wantedSpeeds = positions;
+    }
+
+    /**
+     * Computes the memory the queue uses, without the car objects it refers to.
+     * @return the number of bytes
+     */
+    long getFootprintBytes() {
+        if (cars == NO_CARS) {
+            return EMPTY_FOOTPRINT_BYTES;
+        }
+        return EMPTY_FOOTPRINT_BYTES + MemoryLayout.referenceArray(cars.length) + positions.getFootprintBytes()
+                + speeds.getFootprintBytes() + accelerations.getFootprintBytes() + wantedSpeeds.getFootprintBytes();
+    }
+
+    /**
+     * Rounds a capacity up to the next multiple of the column alignment of the speed update.
+     * @param capacity the number of cars the queue has to hold
+     * @return the number of cars the columns are allocated for
+     */
+    static int alignCapacity(int capacity) {
+        int alignment = SpeedUpdates.getColumnAlignment();
+        return (capacity + alignment - 1) / alignment * alignment;
+    }
+
+    /**
+     * Computes the memory a queue on the heap of the given capacity uses once its columns are allocated,
+     * without the car objects it refers to.
+     * @param capacity the number of cars the queue can hold
+     * @return the number of bytes
+     */
+    static long footprintBytes(int capacity) {
+        return EMPTY_FOOTPRINT_BYTES + MemoryLayout.referenceArray(capacity) + 4 * MemoryLayout.intArray(capacity);
+    }
+
+    /**
+     * Counts the cars starting at an index that are further down the street than the given position.
+     * Because the cars are sorted descending the result is also the index the position would be inserted at.
+     * @param from the first index to consider
+     * @param position the position to compare to
+     * @return the index of the first car at or before the given position
+     */
+    int countCarsAfter(int from, int position) {
+        int low = from;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (positions.get(middle) > position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds a car to the queue. If there already is a car at the position it is replaced.
+     * @param from the first index that is still part of the queue
+     * @param position the position of the car
+     * @param car the car
+     * @return the index the car was stored at
+     */
+    int insert(int from, int position, Car car) {
+        int index = countCarsAfter(from, position);
+        if (index < size && positions.get(index) == position) {
+            //the car at this position is replaced, so it does not count anymore
+            forgetSpeed(speeds.get(index));
+        } else {
+            if (size == cars.length) {
+                grow();
+            }
+            int moved = size - index;
+            System.arraycopy(cars, index, cars, index + 1, moved);
+            positions.copy(index, positions, index + 1, moved);
+            speeds.copy(index, speeds, index + 1, moved);
+            accelerations.copy(index, accelerations, index + 1, moved);
+            wantedSpeeds.copy(index, wantedSpeeds, index + 1, moved);
+            size++;
+        }
+        cars[index] = car;
+        positions.set(index, position);
+        int speed = car.getCurrentSpeed();
+        speeds.set(index, speed);
+        countSpeed(speed);
+        accelerations.set(index, car.getAcceleration());
+        wantedSpeeds.set(index, car.getWantedSpeed());
+        return index;
+    }
+
+    /**
+     * Removes the car at an index from the queue by clearing its slot.
+     * The caller is responsible for not using the slot anymore.
+     * @param index the index of the car
+     */
+    void release(int index) {
+        cars[index] = null;
+        forgetSpeed(speeds.get(index));
+    }
+
+    /**
+     * Removes the car at an index from the queue and closes the gap
+     * @param index the index of the car
+     */
+    void remove(int index) {
+        forgetSpeed(speeds.get(index));
+        int moved = size - index - 1;
+        System.arraycopy(cars, index + 1, cars, index, moved);
+        positions.copy(index + 1, positions, index, moved);
+        speeds.copy(index + 1, speeds, index, moved);
+        accelerations.copy(index + 1, accelerations, index, moved);
+        wantedSpeeds.copy(index + 1, wantedSpeeds, index, moved);
+        size--;
+        cars[size] = null;
+    }
+
+    /**
+     * Closes the gap left by cars at the front of the queue that were released
+     * @param count the number of released cars at the front of the queue
+     */
+    void removeFirst(int count) {
+        int moved = size - count;
+        System.arraycopy(cars, count, cars, 0, moved);
+        positions.copy(count, positions, 0, moved);
+        speeds.copy(count, speeds, 0, moved);
+        accelerations.copy(count, accelerations, 0, moved);
+        wantedSpeeds.copy(count, wantedSpeeds, 0, moved);
+        Arrays.fill(cars, moved, size, null);
+        size = moved;
+    }
+
+    /**
+     * Changes the speed stored for the car at an index
+     * @param index the index of the car
+     * @param speed the new speed
+     */
+    void setSpeed(int index, int speed) {
+        forgetSpeed(speeds.get(index));
+        speeds.set(index, speed);
+        countSpeed(speed);
+    }
+
+    /**
+     * Finds the index of the car at a position
+     * @param from the first index that is still part of the queue
+     * @param position the position of the car
+     * @return the index of the car or -1 if there is no car at the position
+     */
+    int indexOf(int from, int position) {
+        int index = countCarsAfter(from, position);
+        if (index < size && positions.get(index) == position) {
+            return index;
+        }
+        return -1;
+    }
+
+    /**
+     * Removes all cars from the queue
+     */
+    void clear() {
+        Arrays.fill(cars, 0, size, null);
+        size = 0;
+        speedSum = 0;
+        stoppedCount = 0;
+    }
+
+    /**
+     * Adds a speed to the speed sum and the number of stopped cars
+     * @param speed the speed of a car that is added
+     */
+    private void countSpeed(int speed) {
+        speedSum += speed;
+        if (speed == 0) {
+            stoppedCount++;
+        }
+    }
+
+    /**
+     * Removes a speed from the speed sum and the number of stopped cars
+     * @param speed the speed of a car that is removed
+     */
+    private void forgetSpeed(int speed) {
+        speedSum -= speed;
+        if (speed == 0) {
+            stoppedCount--;
+        }
+    }
+
+    /**
+     * Computes the new speed of the cars of the queue with the array kernel of the speed update
+     * if the columns are on the heap, otherwise with its kernel for blocks
+     * @param speedUpdate the speed update
+     * @param maxSpeed the speed limit of the street
+     * @param newSpeeds the block the new speeds are written to, at least as long as the columns
+     */
+    void computeSpeeds(SpeedUpdate speedUpdate, int maxSpeed, IntBlock newSpeeds) {
+        int[] speedArray = speeds.array();
+        int[] newSpeedArray = newSpeeds.array();
+        if (speedArray != null && newSpeedArray != null) {
+            speedUpdate.computeSpeeds(speedArray, accelerations.array(), wantedSpeeds.array(), size, maxSpeed,
+                    newSpeedArray);
+        } else {
+            speedUpdate.computeSpeeds(speeds, accelerations, wantedSpeeds, size, maxSpeed, newSpeeds);
+        }
+    }
+
+    /**
+     * Moves the columns of the queue into newly allocated columns of the same capacity,
+     * so they are placed next to the objects that are allocated at the same time
+     */
+    void relocate() {
+        relocate(storage);
+    }
+
+    /**
+     * Moves the value columns of the queue into newly allocated columns of a storage,
+     * the column of the car objects into a new array
+     * @param storage the storage the value columns are allocated in from now on
+     */
+    void relocate(Storage storage) {
+        this.storage = storage;
+        if (cars == NO_CARS) {
+            positions = storage.allocate(0);
+            speeds = positions;
+            accelerations = positions;
+            wantedSpeeds = positions;
+            return;
+        }
+        resize(cars.length);
+    }
+
+    /**
+     * Allocates the columns for the capacity of the queue when the first car is added, afterwards doubles it
+     */
+    private void grow() {
+        resize(cars == NO_CARS ? capacity : cars.length * 2);
+    }
+
+    /**
+     * Moves the cars into newly allocated columns
+     * @param newCapacity the number of cars the new columns can hold, at least the number of cars
+     */
+    private void resize(int newCapacity) {
+        cars = Arrays.copyOf(cars, newCapacity);
+        positions = copyColumn(positions, newCapacity);
+        speeds = copyColumn(speeds, newCapacity);
+        accelerations = copyColumn(accelerations, newCapacity);
+        wantedSpeeds = copyColumn(wantedSpeeds, newCapacity);
+    }
+
+    /**
+     * Copies the values of the cars of a column into a newly allocated column
+     * @param column the column
+     * @param newCapacity the length of the new column
+     * @return the new column
+     */
+    private IntBlock copyColumn(IntBlock column, int newCapacity) {
+        IntBlock copy = storage.allocate(newCapacity);
+        column.copy(0, copy, 0, size);
+        return copy;
+    }
+}
@@ -0,0 +1,128 @@
+package edu.kit.kastel.trafficsimulation;
+
+import edu.kit.kastel.trafficsimulation.memory.MemoryLayout;
+
+/**
+ * this class represents a source that lets a new car enter a street at a fixed interval.
+ * The new car starts at the beginning of the street with speed 0.
+ * If the beginning of the street is occupied no car enters in this interval.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public class CarSource {
+
+    /** the number of bytes a source uses: six int fields */
+    static final long FOOTPRINT_BYTES = MemoryLayout.object(6 * Integer.BYTES);
+
+    /** the id of the street the cars enter */
+    private final int streetId;
+
+    /** the number of ticks between two cars */
+    private final int interval;
+
+    /** the speed the new cars want to drive at */
+    private final int wantedSpeed;
+
+    /** the acceleration of the new cars */
+    private final int acceleration;
+
+    /** the destination of the new cars or {@link Car#NO_DESTINATION} */
+    private final int destination;
+
+    /** the number of ticks since the last car entered */
+    private int timer = 0;
+
+    /**
+     * constructor for a new source
+     * @param streetId the id of the street the cars enter
+     * @param interval the number of ticks between two cars, at least 1
+     * @param wantedSpeed the speed the new cars want to drive at
+     * @param acceleration the acceleration of the new cars
+     * @param destination the destination of the new cars or {@link Car#NO_DESTINATION}
+     */
+    public CarSource(int streetId, int interval, int wantedSpeed, int acceleration, int destination) {
+        this.streetId = streetId;
+        this.interval = interval;
+        this.wantedSpeed = wantedSpeed;
+        this.acceleration = acceleration;
+        this.destination = destination;
+    }
+
+    /**
+     * method to get the id of the street the cars enter
+     * @return the id of the street
+     */
+    public int getStreetId() {
+        return streetId;
+    }
+
+    /**
+     * method to get the number of ticks between two cars
+     * @return the interval of the source
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * method to get the speed the new cars want to drive at
+     * @return the wanted speed
+     */
+    public int getWantedSpeed() {
+        return wantedSpeed;
+    }
+
+    /**
+     * method to get the acceleration of the new cars
+     * @return the acceleration
+     */
+    public int getAcceleration() {
+        return acceleration;
+    }
+
+    /**
+     * method to get the destination of the new cars
+     * @return the destination or {@link Car#NO_DESTINATION}
+     */
+    public int getDestination() {
+        return destination;
+    }
+
+    /**
+     * method to get the number of ticks since the last car entered
+     * @return the timer of the source
+     */
+    public int getTimer() {
+        return timer;
+    }
+
+    /**
+     * method to set the number of ticks since the last car entered. This is used to restore a saved state.
+     * @param timer the timer of the source
+     */
+    public void setTimer(int timer) {
+        this.timer = timer;
+    }
+
+    /**
+     * method to get the number of ticks until the next car enters, counting the tick it enters in
+     * @return the number of ticks until the next car enters, at least 1
+     */
+    public int getTicksUntilNextCar() {
+        return Math.max(1, interval - timer);
+    }
+
+    /**
+     * method that has to be called every tick
+     * @return true if a car should enter in this tick
+     */
+    public boolean tick() {
+        timer++;
+        if (timer < interval) {
+            return false;
+        }
+        timer = 0;
+        return true;
+    }
+}
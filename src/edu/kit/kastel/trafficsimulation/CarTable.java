@@ -0,0 +1,551 @@
+package edu.kit.kastel.trafficsimulation;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import edu.kit.kastel.trafficsimulation.memory.MemoryLayout;
+import edu.kit.kastel.trafficsimulation.storage.IntBlock;
+import edu.kit.kastel.trafficsimulation.storage.Storage;
+import edu.kit.kastel.trafficsimulation.storage.Storages;
+
+/**
+ * this class stores all cars of a graph in slots and maps the ids of the cars to their slots.
+ * Slots, ids and the car objects of removed cars are kept in free lists and reused,
+ * so adding and removing cars in a long running simulation does not create garbage.
+ * The map from ids to slots uses open addressing with linear probing on two blocks of the storage of the graph.
+ * With the heap storage the state of every car is stored in its car object.
+ * With the off-heap storage it is stored in the row of its slot, all rows are one block outside of the heap,
+ * and the car objects only refer to their rows.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+final class CarTable {
+
+    /** the marker for an empty bucket of the id map */
+    private static final int EMPTY = -1;
+
+    /** the initial number of slots and of buckets of the id map */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** the storage the buckets and the rows are allocated in */
+    private Storage storage = Storages.heap();
+
+    /** the car in every slot, null if the slot is free */
+    private Car[] slots = new Car[INITIAL_CAPACITY];
+
+    /** the rows of the slots, {@link RowCar#ROW_SIZE} integers for every slot, null with the heap storage */
+    private IntBlock rows;
+
+    /** the number of slots that were used at least once, all other slots are free */
+    private int slotLimit = 0;
+
+    /** the number of cars in the table */
+    private int size = 0;
+
+    /** the slots below {@link #slotLimit} that are free, used as a stack */
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+
+    /** the number of entries in {@link #freeSlots} */
+    private int freeSlotCount = 0;
+
+    /** the ids stored in the buckets of the id map */
+    private IntBlock bucketIds = storage.allocate(INITIAL_CAPACITY * 2);
+
+    /** the slot stored in every bucket of the id map, {@link #EMPTY} if the bucket is empty */
+    private IntBlock bucketSlots = newBuckets(INITIAL_CAPACITY * 2);
+
+    /** the car objects of removed cars that can be reused, used as a stack */
+    private Car[] pool = new Car[INITIAL_CAPACITY];
+
+    /** the number of cars in {@link #pool} */
+    private int poolSize = 0;
+
+    /** the ids of removed cars that can be given to new cars, used as a stack */
+    private int[] freeIds = new int[INITIAL_CAPACITY];
+
+    /** the number of entries in {@link #freeIds} */
+    private int freeIdCount = 0;
+
+    /** the smallest id that is larger than every id ever used */
+    private int nextId = 0;
+
+    /**
+     * method to get the memory of the cars in the table and in the pool, of the slots holding them and of their rows
+     * @return the number of bytes, the rows are off the heap
+     */
+    long getCarStateBytes() {
+        long slotBytes = MemoryLayout.referenceArray(slots.length) + MemoryLayout.referenceArray(pool.length);
+        if (rows == null) {
+            return (size + poolSize) * HeapCar.FOOTPRINT_BYTES + slotBytes;
+        }
+        return (size + poolSize) * RowCar.FOOTPRINT_BYTES + rows.getFootprintBytes() + slotBytes;
+    }
+
+    /**
+     * method to get the memory of the map from ids to slots and of the free lists of slots and ids
+     * @return the number of bytes, the buckets are off the heap with the off-heap storage
+     */
+    long getIdMapBytes() {
+        return bucketIds.getFootprintBytes() + bucketSlots.getFootprintBytes()
+                + MemoryLayout.intArray(freeSlots.length) + MemoryLayout.intArray(freeIds.length);
+    }
+
+    /**
+     * method to estimate {@link #getCarStateBytes()} of a table on the heap that was filled with cars and never shrank
+     * @param carCount the number of cars
+     * @return the number of bytes
+     */
+    static long estimateCarStateBytes(int carCount) {
+        return carCount * HeapCar.FOOTPRINT_BYTES + MemoryLayout.referenceArray(capacityFor(carCount))
+                + MemoryLayout.referenceArray(INITIAL_CAPACITY);
+    }
+
+    /**
+     * method to estimate {@link #getIdMapBytes()} of a table on the heap that was filled with cars and never shrank
+     * @param carCount the number of cars
+     * @return the number of bytes
+     */
+    static long estimateIdMapBytes(int carCount) {
+        return 2 * Storages.heap().footprintBytes(2 * capacityFor(carCount))
+                + 2 * MemoryLayout.intArray(INITIAL_CAPACITY);
+    }
+
+    /**
+     * method to get the number of slots a table has after the given number of cars were added,
+     * the slots double whenever they are full
+     * @param carCount the number of cars
+     * @return the number of slots
+     */
+    private static int capacityFor(int carCount) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < carCount) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    /**
+     * method to get the number of cars in the table
+     * @return the number of cars
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * method to get the number of slots that have to be checked to find every car
+     * @return the number of slots that were used at least once
+     */
+    int getSlotLimit() {
+        return slotLimit;
+    }
+
+    /**
+     * method to get the car in a slot
+     * @param slot the slot, smaller than {@link #getSlotLimit()}
+     * @return the car in the slot or null if the slot is free
+     */
+    Car getSlot(int slot) {
+        return slots[slot];
+    }
+
+    /**
+     * method to get a car by its id
+     * @param id the id of the car
+     * @return the car or null if there is no car with the id
+     */
+    Car get(int id) {
+        int slot = bucketSlots.get(findBucket(id));
+        return slot == EMPTY ? null : slots[slot];
+    }
+
+    /**
+     * method to check if there is a car with an id
+     * @param id the id of the car
+     * @return true if there is a car with the id
+     */
+    boolean contains(int id) {
+        return bucketSlots.get(findBucket(id)) != EMPTY;
+    }
+
+    /**
+     * method to add a new car to the table, the car object of a removed car is reused if possible.
+     * A car with the same id is replaced.
+     * @param id the id of the new car
+     * @param acceleration the acceleration of the new car
+     * @param wantedSpeed the speed the new car wants to drive at
+     * @return the car object of the new car, in the storage of the table
+     */
+    Car addNew(int id, int acceleration, int wantedSpeed) {
+        useId(id);
+        int bucket = findBucket(id);
+        int slot = bucketSlots.get(bucket) != EMPTY ? bucketSlots.get(bucket) : takeSlot();
+
+        Car car;
+        if (poolSize > 0) {
+            car = pool[--poolSize];
+            pool[poolSize] = null;
+            if (rows != null) {
+                ((RowCar) car).bindTo(rows, slot * RowCar.ROW_SIZE);
+            }
+            car.reuse(id, acceleration, wantedSpeed);
+        } else if (rows == null) {
+            car = new HeapCar(id, acceleration, wantedSpeed);
+        } else {
+            car = new RowCar(rows, slot * RowCar.ROW_SIZE);
+            car.reuse(id, acceleration, wantedSpeed);
+        }
+        store(bucket, slot, car);
+        return car;
+    }
+
+    /**
+     * method to get an id that is not used by any car. Ids of removed cars are reused first.
+     * @return the free id
+     */
+    int allocateId() {
+        while (freeIdCount > 0) {
+            int id = freeIds[--freeIdCount];
+            //a car with a chosen id may have taken a free id in the meantime
+            if (!contains(id)) {
+                return id;
+            }
+        }
+        return nextId;
+    }
+
+    /**
+     * method to add a car to the table. A car with the same id is replaced.
+     * The car object is only stored if it is stored like the cars of the table, on the heap,
+     * otherwise its state is copied into a car object of the table.
+     * @param car the car to add
+     * @return the car object that is stored in the table
+     */
+    Car add(Car car) {
+        if (rows != null || car.getRows() != null) {
+            Car stored = addNew(car.getId(), car.getAcceleration(), car.getWantedSpeed());
+            stored.copyFrom(car);
+            return stored;
+        }
+
+        int id = car.getId();
+        useId(id);
+        int bucket = findBucket(id);
+        store(bucket, bucketSlots.get(bucket) != EMPTY ? bucketSlots.get(bucket) : takeSlot(), car);
+        return car;
+    }
+
+    /**
+     * method to make sure an id is never given to another car by {@link #allocateId()}
+     * @param id the id of a car that is added
+     */
+    private void useId(int id) {
+        if (id == nextId) {
+            nextId++;
+        } else if (id > nextId) {
+            nextId = id + 1;
+        }
+    }
+
+    /**
+     * method to get a free slot, the slots are doubled if all of them are used
+     * @return the slot
+     */
+    private int takeSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (slotLimit == slots.length) {
+            slots = Arrays.copyOf(slots, slotLimit * 2);
+            if (rows != null) {
+                IntBlock newRows = storage.allocate(slots.length * RowCar.ROW_SIZE);
+                rows.copy(0, newRows, 0, slotLimit * RowCar.ROW_SIZE);
+                bindRows(newRows);
+            }
+        }
+        return slotLimit++;
+    }
+
+    /**
+     * method to put a car into a slot and into the id map
+     * @param bucket the bucket of the id of the car
+     * @param slot the slot, the slot of the car that is replaced if the bucket is not empty
+     * @param car the car
+     */
+    private void store(int bucket, int slot, Car car) {
+        slots[slot] = car;
+        if (bucketSlots.get(bucket) != EMPTY) {
+            return;
+        }
+        bucketIds.set(bucket, car.getId());
+        bucketSlots.set(bucket, slot);
+        size++;
+
+        if (size * 2 > bucketIds.size()) {
+            rehash(bucketIds.size() * 2);
+        }
+    }
+
+    /**
+     * method to let all cars of the table use a block that holds a copy of the rows.
+     * The pooled cars are bound to the first row until they are reused, so they do not keep the old block alive.
+     * @param newRows the block with the copied rows
+     */
+    private void bindRows(IntBlock newRows) {
+        for (int slot = 0; slot < slotLimit; slot++) {
+            if (slots[slot] != null) {
+                ((RowCar) slots[slot]).bindTo(newRows, slot * RowCar.ROW_SIZE);
+            }
+        }
+        for (int i = 0; i < poolSize; i++) {
+            ((RowCar) pool[i]).bindTo(newRows, 0);
+        }
+        rows = newRows;
+    }
+
+    /**
+     * method to move the rows and the buckets into another storage.
+     * The cars are replaced by new car objects for the storage, the pooled car objects are dropped.
+     * @param storage the new storage
+     */
+    void setStorage(Storage storage) {
+        if (storage == this.storage) {
+            return;
+        }
+        this.storage = storage;
+        rows = storage.isOffHeap() ? storage.allocate(slots.length * RowCar.ROW_SIZE) : null;
+        for (int slot = 0; slot < slotLimit; slot++) {
+            if (slots[slot] != null) {
+                Car car = rows == null ? new HeapCar(0, 0, 0) : new RowCar(rows, slot * RowCar.ROW_SIZE);
+                car.copyFrom(slots[slot]);
+                slots[slot] = car;
+            }
+        }
+        Arrays.fill(pool, 0, poolSize, null);
+        poolSize = 0;
+        bucketIds = copyBlock(bucketIds);
+        bucketSlots = copyBlock(bucketSlots);
+    }
+
+    /**
+     * method to copy a block into the storage of the table
+     * @param block the block
+     * @return the copy
+     */
+    private IntBlock copyBlock(IntBlock block) {
+        IntBlock copy = storage.allocate(block.size());
+        block.copy(0, copy, 0, block.size());
+        return copy;
+    }
+
+    /**
+     * method to remove a car from the table. Its slot, its id and the car object are reused later.
+     * @param car the car to remove
+     */
+    void remove(Car car) {
+        int bucket = findBucket(car.getId());
+        int slot = bucketSlots.get(bucket);
+        if (slot == EMPTY) {
+            return;
+        }
+
+        car = slots[slot];
+        slots[slot] = null;
+        freeSlots = push(freeSlots, freeSlotCount++, slot);
+        freeIds = push(freeIds, freeIdCount++, car.getId());
+        if (poolSize == pool.length) {
+            pool = Arrays.copyOf(pool, poolSize * 2);
+        }
+        pool[poolSize++] = car;
+        size--;
+        deleteBucket(bucket);
+    }
+
+    /**
+     * method to store the cars in new slots in the given order, so iterating the slots visits them in that order.
+     * With the off-heap storage the rows are moved into a new block in the same order.
+     * The cars may be new objects for the ids that are already in the table.
+     * @param order all cars of the table, each exactly once
+     */
+    void reorder(Car[] order) {
+        int capacity = Math.max(INITIAL_CAPACITY, slots.length);
+        if (rows != null) {
+            IntBlock newRows = storage.allocate(capacity * RowCar.ROW_SIZE);
+            for (int slot = 0; slot < order.length; slot++) {
+                ((RowCar) order[slot]).moveTo(newRows, slot * RowCar.ROW_SIZE);
+            }
+            for (int i = 0; i < poolSize; i++) {
+                ((RowCar) pool[i]).bindTo(newRows, 0);
+            }
+            rows = newRows;
+        }
+        slots = Arrays.copyOf(order, capacity);
+        slotLimit = order.length;
+        freeSlotCount = 0;
+        emptyBuckets();
+        for (int slot = 0; slot < order.length; slot++) {
+            int bucket = findBucket(order[slot].getId());
+            bucketIds.set(bucket, order[slot].getId());
+            bucketSlots.set(bucket, slot);
+        }
+    }
+
+    /**
+     * method to remove all cars. The car objects are kept for reuse, the ids are forgotten.
+     */
+    void clear() {
+        for (int slot = 0; slot < slotLimit; slot++) {
+            if (slots[slot] != null) {
+                if (poolSize == pool.length) {
+                    pool = Arrays.copyOf(pool, poolSize * 2);
+                }
+                pool[poolSize++] = slots[slot];
+                slots[slot] = null;
+            }
+        }
+        slotLimit = 0;
+        size = 0;
+        freeSlotCount = 0;
+        freeIdCount = 0;
+        nextId = 0;
+        emptyBuckets();
+    }
+
+    /**
+     * method to get the number of integers {@link #saveIds(IntBuffer, int)} writes
+     * @return the size of the saved id state
+     */
+    int getIdStateSize() {
+        return 2 + freeIdCount;
+    }
+
+    /**
+     * method to write the state of the id allocation into a buffer.
+     * The layout is: the next id, the number of free ids and the free ids.
+     * @param target the buffer to write to
+     * @param offset the index of the first integer to write
+     */
+    void saveIds(IntBuffer target, int offset) {
+        target.put(offset, nextId);
+        target.put(offset + 1, freeIdCount);
+        for (int i = 0; i < freeIdCount; i++) {
+            target.put(offset + 2 + i, freeIds[i]);
+        }
+    }
+
+    /**
+     * method to restore the state of the id allocation written by {@link #saveIds(IntBuffer, int)}
+     * @param source the buffer to read from
+     * @param offset the index of the first integer to read
+     * @return the number of integers that were read
+     */
+    int restoreIds(IntBuffer source, int offset) {
+        nextId = source.get(offset);
+        freeIdCount = 0;
+        int count = source.get(offset + 1);
+        for (int i = 0; i < count; i++) {
+            freeIds = push(freeIds, freeIdCount++, source.get(offset + 2 + i));
+        }
+        return 2 + count;
+    }
+
+    /**
+     * method to find the bucket of an id
+     * @param id the id
+     * @return the bucket that contains the id or the empty bucket where it would be stored
+     */
+    private int findBucket(int id) {
+        int mask = bucketIds.size() - 1;
+        int bucket = spread(id) & mask;
+        while (bucketSlots.get(bucket) != EMPTY && bucketIds.get(bucket) != id) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    /**
+     * method to empty a bucket. The following entries of the probe sequence are moved back,
+     * so no markers for deleted entries are needed.
+     * @param bucket the bucket to empty
+     */
+    private void deleteBucket(int bucket) {
+        int mask = bucketIds.size() - 1;
+        int hole = bucket;
+        int next = (hole + 1) & mask;
+        while (bucketSlots.get(next) != EMPTY) {
+            int home = spread(bucketIds.get(next)) & mask;
+            //the entry can fill the hole if its home bucket is not between the hole and itself
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                bucketIds.set(hole, bucketIds.get(next));
+                bucketSlots.set(hole, bucketSlots.get(next));
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        bucketSlots.set(hole, EMPTY);
+    }
+
+    /**
+     * method to move all entries of the id map into new blocks of buckets
+     * @param bucketCount the new number of buckets, a power of two
+     */
+    private void rehash(int bucketCount) {
+        IntBlock oldIds = bucketIds;
+        IntBlock oldSlots = bucketSlots;
+        bucketIds = storage.allocate(bucketCount);
+        bucketSlots = newBuckets(bucketCount);
+        for (int i = 0; i < oldIds.size(); i++) {
+            if (oldSlots.get(i) != EMPTY) {
+                int bucket = findBucket(oldIds.get(i));
+                bucketIds.set(bucket, oldIds.get(i));
+                bucketSlots.set(bucket, oldSlots.get(i));
+            }
+        }
+    }
+
+    /**
+     * method to create a block of empty buckets
+     * @param bucketCount the number of buckets
+     * @return the block of slots of the buckets
+     */
+    private IntBlock newBuckets(int bucketCount) {
+        IntBlock buckets = storage.allocate(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.set(i, EMPTY);
+        }
+        return buckets;
+    }
+
+    /**
+     * method to empty all buckets of the id map
+     */
+    private void emptyBuckets() {
+        for (int i = 0; i < bucketSlots.size(); i++) {
+            bucketSlots.set(i, EMPTY);
+        }
+    }
+
+    /**
+     * method to push a value onto an int stack, growing the stack if it is full
+     * @param stack the stack
+     * @param count the number of values in the stack
+     * @param value the value to push
+     * @return the stack, a new array if it had to grow
+     */
+    private static int[] push(int[] stack, int count, int value) {
+        int[] result = count == stack.length ? Arrays.copyOf(stack, count * 2) : stack;
+        result[count] = value;
+        return result;
+    }
+
+    /**
+     * method to spread the bits of an id so consecutive ids do not form long probe sequences
+     * @param id the id
+     * @return the spread id
+     */
+    private static int spread(int id) {
+        int hash = id * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
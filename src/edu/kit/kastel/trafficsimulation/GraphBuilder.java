@@ -0,0 +1,286 @@
+package edu.kit.kastel.trafficsimulation;
+
+import edu.kit.kastel.trafficsimulation.StreetNodes.StreetNode;
+
+/**
+ * this class checks nodes, streets, cars, sources and sinks and adds them to a graph.
+ * Every element can be given as a line in the format of the .sim files or as typed values.
+ * If an element is not valid an {@link IllegalArgumentException} with the error message is thrown
+ * and the element is not added.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+final class GraphBuilder {
+
+    /**
+     * private constructor, the class only has static methods
+     */
+    private GraphBuilder() {
+    }
+
+    /**
+     * method to add a crossing or roundabout given as a line of the "crossings.sim" file
+     * @param graph the graph
+     * @param line the line
+     */
+    static void addCrossingLine(SimulationGraph graph, String line) {
+        if (!line.matches(TrafficSimulation.CROSSING_INPUT_FORMAT)) {
+            throw invalidLine(line);
+        }
+        String[] subStrings = line.split(":|t");
+        addCrossing(graph, Integer.parseInt(subStrings[0]), Integer.parseInt(subStrings[1]), line);
+    }
+
+    /**
+     * method to add a crossing or roundabout
+     * @param graph the graph
+     * @param nodeId the id of the node
+     * @param greenPhaseDuration the duration of the green phase, 0 for a roundabout
+     * @param line the line the values were read from for the error message or null
+     */
+    static void addCrossing(SimulationGraph graph, int nodeId, int greenPhaseDuration, String line) {
+        if (nodeId < 0 || greenPhaseDuration < 0) {
+            throw invalidLine(line != null ? line : nodeId + ":" + greenPhaseDuration + "t");
+        }
+        graph.addNode(nodeId, greenPhaseDuration);
+    }
+
+    /**
+     * method to add a street given as a line of the "streets.sim" file
+     * @param graph the graph
+     * @param line the line
+     */
+    static void addStreetLine(SimulationGraph graph, String line) {
+        if (!line.matches(TrafficSimulation.STREET_INPUT_FORMAT)) {
+            throw invalidLine(line);
+        }
+        //we know the string is valid so we can just extract the numbers
+        String[] subStrings = line.split("-->|:|m,|x,|max");
+        addStreet(graph, Integer.parseInt(subStrings[0]), Integer.parseInt(subStrings[1]),
+                Integer.parseInt(subStrings[2]), Integer.parseInt(subStrings[3]), Integer.parseInt(subStrings[4]), line);
+    }
+
+    /**
+     * method to get the length of a street given as a line of the "streets.sim" file without adding it
+     * @param line the line
+     * @return the length or -1 if the line is not in the format of a street
+     */
+    static int streetLineLength(String line) {
+        if (!line.matches(TrafficSimulation.STREET_INPUT_FORMAT)) {
+            return -1;
+        }
+        return Integer.parseInt(line.split("-->|:|m,|x,|max")[2]);
+    }
+
+    /**
+     * method to get the street of a car given as a line of the "cars.sim" file without adding it
+     * @param line the line
+     * @return the id of the street or -1 if the line is not in the format of a car
+     */
+    static int carLineStreetId(String line) {
+        if (!line.matches(TrafficSimulation.CAR_INPUT_FORMAT)) {
+            return -1;
+        }
+        return Integer.parseInt(line.split(",")[1]);
+    }
+
+    /**
+     * method to add a street between two existing nodes
+     * @param graph the graph
+     * @param startNodeId the id of the node the street starts at
+     * @param endNodeId the id of the node the street ends at
+     * @param length the length of the street
+     * @param type the type of the street (1 = only one lane, 2 = two lanes)
+     * @param speedLimit the maximum speed allowed on the street
+     * @param line the line the values were read from for the error message or null
+     */
+    static void addStreet(SimulationGraph graph, int startNodeId, int endNodeId, int length, int type, int speedLimit,
+            String line) {
+        boolean lengthIsNotValid
+                = length < TrafficSimulation.STREET_MIN_LENGTH || length > TrafficSimulation.STREET_MAX_LENGTH;
+        boolean speedLimitIsNotValid = speedLimit < TrafficSimulation.STREET_MIN_SPEED_LIMIT
+                || speedLimit > TrafficSimulation.STREET_MAX_SPEED_LIMIT;
+        boolean typeIsNotValid = type != 1 && type != 2;
+
+        if (startNodeId < 0 || endNodeId < 0 || lengthIsNotValid || speedLimitIsNotValid || typeIsNotValid) {
+            throw invalidLine(line != null ? line
+                    : startNodeId + "-->" + endNodeId + ":" + length + "m," + type + "x," + speedLimit + "max");
+        }
+
+        //check if both nodes exist
+        if (!graph.containsNode(startNodeId)) {
+            throw elementError(TrafficSimulation.UNKNOWN_NODE_ERROR, startNodeId);
+        }
+        if (!graph.containsNode(endNodeId)) {
+            throw elementError(TrafficSimulation.UNKNOWN_NODE_ERROR, endNodeId);
+        }
+
+        graph.addStreet(startNodeId, endNodeId, length, type, speedLimit);
+    }
+
+    /**
+     * method to add a car given as a line of the "cars.sim" file
+     * @param graph the graph
+     * @param line the line
+     */
+    static void addCarLine(SimulationGraph graph, String line) {
+        if (!line.matches(TrafficSimulation.CAR_INPUT_FORMAT)) {
+            throw invalidLine(line);
+        }
+        String[] subStrings = line.split(",");
+        int destination = subStrings.length > TrafficSimulation.CAR_DESTINATION_INDEX
+                ? Integer.parseInt(subStrings[TrafficSimulation.CAR_DESTINATION_INDEX]) : Car.NO_DESTINATION;
+        addCar(graph, Integer.parseInt(subStrings[0]), Integer.parseInt(subStrings[1]),
+                Integer.parseInt(subStrings[2]), Integer.parseInt(subStrings[3]), destination, line);
+    }
+
+    /**
+     * method to add a car behind the last car of a street
+     * @param graph the graph
+     * @param carId the id of the car
+     * @param streetId the id of the street
+     * @param wantedSpeed the speed the car wants to drive at
+     * @param acceleration the acceleration of the car
+     * @param destination the id of the destination node or {@link Car#NO_DESTINATION}
+     * @param line the line the values were read from for the error message or null
+     */
+    static void addCar(SimulationGraph graph, int carId, int streetId, int wantedSpeed, int acceleration,
+            int destination, String line) {
+        if (carId < 0 || streetId < 0 || !isValidCar(wantedSpeed, acceleration)) {
+            throw invalidLine(line != null ? line : carLine(carId, streetId, wantedSpeed, acceleration, destination));
+        }
+
+        if (graph.containsCar(carId)) {
+            throw elementError(TrafficSimulation.CAR_ALREADY_EXISTS_ERROR, carId);
+        }
+        if (!graph.containsStreet(streetId)) {
+            throw elementError(TrafficSimulation.UNKNOWN_STREET_ERROR, streetId);
+        }
+        if (!graph.streetIdHasSpaceForCar(streetId)) {
+            throw elementError(TrafficSimulation.STREET_ALREADY_FULL_ERROR, streetId);
+        }
+        if (destination != Car.NO_DESTINATION && graph.getNodeById(destination) == null) {
+            throw elementError(TrafficSimulation.UNKNOWN_NODE_ERROR, destination);
+        }
+
+        Car car = Car.create(carId, acceleration, wantedSpeed);
+        car.setDestination(destination);
+        graph.addCarToStreet(streetId, car);
+    }
+
+    /**
+     * method to add a source given as a line of the "sources.sim" file
+     * @param graph the graph
+     * @param line the line
+     */
+    static void addSourceLine(SimulationGraph graph, String line) {
+        if (!line.matches(TrafficSimulation.SOURCE_INPUT_FORMAT)) {
+            throw invalidLine(line);
+        }
+        String[] subStrings = line.split(":|t,|,");
+        int destination = subStrings.length > TrafficSimulation.CAR_DESTINATION_INDEX
+                ? Integer.parseInt(subStrings[TrafficSimulation.CAR_DESTINATION_INDEX]) : Car.NO_DESTINATION;
+        addSource(graph, Integer.parseInt(subStrings[0]), Integer.parseInt(subStrings[1]),
+                Integer.parseInt(subStrings[2]), Integer.parseInt(subStrings[3]), destination, line);
+    }
+
+    /**
+     * method to add a source that lets new cars enter a street
+     * @param graph the graph
+     * @param streetId the id of the street
+     * @param interval the number of ticks between two cars
+     * @param wantedSpeed the speed the new cars want to drive at
+     * @param acceleration the acceleration of the new cars
+     * @param destination the id of the destination node or {@link Car#NO_DESTINATION}
+     * @param line the line the values were read from for the error message or null
+     */
+    static void addSource(SimulationGraph graph, int streetId, int interval, int wantedSpeed, int acceleration,
+            int destination, String line) {
+        if (interval < 1 || !isValidCar(wantedSpeed, acceleration)) {
+            String canonicalLine = streetId + ":" + interval + "t," + wantedSpeed + "," + acceleration
+                    + (destination == Car.NO_DESTINATION ? "" : "," + destination);
+            throw invalidLine(line != null ? line : canonicalLine);
+        }
+        if (!graph.containsStreet(streetId)) {
+            throw elementError(TrafficSimulation.UNKNOWN_STREET_ERROR, streetId);
+        }
+        if (destination != Car.NO_DESTINATION && graph.getNodeById(destination) == null) {
+            throw elementError(TrafficSimulation.UNKNOWN_NODE_ERROR, destination);
+        }
+
+        graph.addSource(new CarSource(streetId, interval, wantedSpeed, acceleration, destination));
+    }
+
+    /**
+     * method to mark a node given as a line of the "sinks.sim" file as a sink
+     * @param graph the graph
+     * @param line the line
+     */
+    static void addSinkLine(SimulationGraph graph, String line) {
+        if (!line.matches(TrafficSimulation.SINK_INPUT_FORMAT)) {
+            throw invalidLine(line);
+        }
+        addSink(graph, Integer.parseInt(line), line);
+    }
+
+    /**
+     * method to mark a node as a sink where cars leave the graph
+     * @param graph the graph
+     * @param nodeId the id of the node
+     * @param line the line the id was read from for the error message or null
+     */
+    static void addSink(SimulationGraph graph, int nodeId, String line) {
+        StreetNode node = graph.getNodeById(nodeId);
+        if (node == null) {
+            throw elementError(TrafficSimulation.UNKNOWN_NODE_ERROR, line != null ? line : nodeId);
+        }
+        node.setSink(true);
+    }
+
+    /**
+     * method to check if a car with the given attributes is valid
+     * @param wantedSpeed the speed the car wants to drive at
+     * @param acceleration the acceleration of the car
+     * @return true if the wanted speed and the acceleration are in the allowed ranges
+     */
+    static boolean isValidCar(int wantedSpeed, int acceleration) {
+        return wantedSpeed >= TrafficSimulation.MIN_WANTED_SPEED
+                && wantedSpeed <= TrafficSimulation.MAX_WANTED_SPEED
+                && acceleration >= TrafficSimulation.MIN_ACCELERATION
+                && acceleration <= TrafficSimulation.MAX_ACCELERATION;
+    }
+
+    /**
+     * method to get the line of the "cars.sim" file describing a car
+     * @param carId the id of the car
+     * @param streetId the id of the street
+     * @param wantedSpeed the speed the car wants to drive at
+     * @param acceleration the acceleration of the car
+     * @param destination the id of the destination node or {@link Car#NO_DESTINATION}
+     * @return the line
+     */
+    private static String carLine(int carId, int streetId, int wantedSpeed, int acceleration, int destination) {
+        String line = carId + "," + streetId + "," + wantedSpeed + "," + acceleration;
+        return destination == Car.NO_DESTINATION ? line : line + "," + destination;
+    }
+
+    /**
+     * method to create the exception for a line that is not valid
+     * @param line the line
+     * @return the exception
+     */
+    private static IllegalArgumentException invalidLine(String line) {
+        return new IllegalArgumentException(String.format(TrafficSimulation.INVALID_FILE_LINE_ERROR, line));
+    }
+
+    /**
+     * method to create the exception for an element that does not exist, already exists or is full
+     * @param error the format of the error message
+     * @param id the id of the element
+     * @return the exception
+     */
+    private static IllegalArgumentException elementError(String error, Object id) {
+        return new IllegalArgumentException(String.format(error, id));
+    }
+}
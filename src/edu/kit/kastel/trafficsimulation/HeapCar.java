@@ -0,0 +1,191 @@
+package edu.kit.kastel.trafficsimulation;
+
+import edu.kit.kastel.trafficsimulation.memory.MemoryLayout;
+
+/**
+ * this class represents a car whose state is stored in the fields of the car object on the heap.
+ * It is used by graphs with the heap storage and for cars that are not yet added to a graph.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+final class HeapCar extends Car {
+
+    /** the number of bytes a car object uses: nine int fields and one boolean field */
+    static final long FOOTPRINT_BYTES = MemoryLayout.object(9 * Integer.BYTES + 1);
+
+    /** Current speed of the car */
+    private int currentSpeed;
+    
+    /** Acceleration of the car. */
+    private int acceleration;
+
+    /** Maximum speed */
+    private int wantedSpeed;
+
+    /** The direction the car wants to go to. Starts with 0. */
+    private int wantedDirection = 0;
+
+    /** ID of the node the car is routed to or {@link #NO_DESTINATION} */
+    private int destination = NO_DESTINATION;
+
+    /** The meters the car has left in this tick */
+    private int metersLeftToDriveThisTick;
+
+    /** True if the car has already crossed a node in this tick or overtook a car */
+    private boolean alreadyCrossedThisTick;
+
+    /** Position of the car relative to beginning of the street */
+    private int positionOnStreet;
+
+    /** ID of the street the car is on */
+    private int onStreetID;
+
+    /** ID of the car */
+    private int id;
+
+    /** Constructor for a car
+     * @param id ID of the car
+     * @param acceleration Acceleration of the car
+     * @param wantedSpeed Maximum speed of the car
+     */
+    HeapCar(int id, int acceleration, int wantedSpeed) {
+        this.id = id;
+        this.acceleration = acceleration;
+        this.wantedSpeed = wantedSpeed;
+    }
+
+    @Override
+    public void reuse(int id, int acceleration, int wantedSpeed) {
+        this.id = id;
+        this.acceleration = acceleration;
+        this.wantedSpeed = wantedSpeed;
+        currentSpeed = 0;
+        wantedDirection = 0;
+        destination = NO_DESTINATION;
+        metersLeftToDriveThisTick = 0;
+        alreadyCrossedThisTick = false;
+        positionOnStreet = 0;
+        onStreetID = 0;
+    }
+
+    @Override
+    Car copy() {
+        HeapCar copy = new HeapCar(id, acceleration, wantedSpeed);
+        copy.currentSpeed = currentSpeed;
+        copy.wantedDirection = wantedDirection;
+        copy.destination = destination;
+        copy.metersLeftToDriveThisTick = metersLeftToDriveThisTick;
+        copy.alreadyCrossedThisTick = alreadyCrossedThisTick;
+        copy.positionOnStreet = positionOnStreet;
+        copy.onStreetID = onStreetID;
+        return copy;
+    }
+
+    @Override
+    public void setPositionOnStreet(int positionOnStreet) {
+        this.positionOnStreet = positionOnStreet;
+    }
+
+    @Override
+    public int getPositionOnStreet() {
+        return positionOnStreet;
+    }
+
+    @Override
+    public void setOnStreetId(int onStreetID) {
+        this.onStreetID = onStreetID;
+    }
+
+    @Override
+    public int getOnStreetId() {
+        return onStreetID;
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public void setSpeed(int speed) {
+        currentSpeed = speed;
+    }
+
+    @Override
+    public void updateSpeed(int speedLimit) { //y
+        //Increase speed by acceleration
+        currentSpeed = Math.min(currentSpeed + acceleration, Math.min(wantedSpeed, speedLimit));
+        metersLeftToDriveThisTick = currentSpeed;
+    }
+
+    @Override
+    public void applySpeed(int speed) {
+        currentSpeed = speed;
+        metersLeftToDriveThisTick = currentSpeed;
+    }
+
+    @Override
+    public int getCurrentSpeed() { 
+        return currentSpeed;
+    }
+
+    @Override
+    public void droveMeters(int meters) {
+        metersLeftToDriveThisTick -= meters;
+    }
+
+    @Override
+    public int getMetersLeftToDrive() {
+        return metersLeftToDriveThisTick;
+    }
+
+    @Override
+    public int getAcceleration() {
+        return acceleration;
+    }
+
+    @Override
+    public int getWantedSpeed() {
+        return wantedSpeed;
+    }
+
+    @Override
+    public int getWantedDirection() {
+        return wantedDirection;
+    }
+
+    @Override
+    public void setWantedDirection(int wantedDirection) {
+        this.wantedDirection = wantedDirection;
+    }
+
+    @Override
+    public int getDestination() {
+        return destination;
+    }
+
+    @Override
+    public void setDestination(int destination) {
+        this.destination = destination;
+    }
+
+    @Override
+    public int increaseWantedDirection() {
+        wantedDirection++;
+        if (wantedDirection > 3) {
+            wantedDirection = 0;
+        }
+        return wantedDirection;
+    }
+
+    @Override
+    public void setAlreadyCrossedThisTick(boolean b) {
+        alreadyCrossedThisTick = b;
+    }
+
+    @Override
+    public boolean hasAlreadyCrossedThisTick() {
+        return alreadyCrossedThisTick;
+    }
+}
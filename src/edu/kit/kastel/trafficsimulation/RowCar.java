@@ -0,0 +1,224 @@
+package edu.kit.kastel.trafficsimulation;
+
+import edu.kit.kastel.trafficsimulation.memory.MemoryLayout;
+import edu.kit.kastel.trafficsimulation.storage.IntBlock;
+
+/**
+ * this class represents a car whose state is stored in a row of the car table of a graph with the off-heap storage.
+ * The car object only refers to its row, so the car table can move the rows without replacing the car objects.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+final class RowCar extends Car {
+
+    /** the number of integers of the row the state of a car is stored in */
+    static final int ROW_SIZE = 10;
+
+    /** the number of bytes a car object uses: the reference to its rows and the index of its row */
+    static final long FOOTPRINT_BYTES = MemoryLayout.object(MemoryLayout.REFERENCE_BYTES + Integer.BYTES);
+
+    /** the offset of the ID of the car in its row */
+    private static final int ID = 0;
+
+    /** the offset of the ID of the street the car is on in its row */
+    private static final int STREET = 1;
+
+    /** the offset of the position of the car relative to the beginning of the street in its row */
+    private static final int POSITION = 2;
+
+    /** the offset of the current speed of the car in its row */
+    private static final int SPEED = 3;
+
+    /** the offset of the acceleration of the car in its row */
+    private static final int ACCELERATION = 4;
+
+    /** the offset of the maximum speed of the car in its row */
+    private static final int WANTED_SPEED = 5;
+
+    /** the offset of the direction the car wants to go to in its row, it starts with 0 */
+    private static final int WANTED_DIRECTION = 6;
+
+    /** the offset of the ID of the node the car is routed to or {@link #NO_DESTINATION} in its row */
+    private static final int DESTINATION = 7;
+
+    /** the offset of the meters the car has left in this tick in its row */
+    private static final int METERS_LEFT = 8;
+
+    /** the offset of the flag that is 1 if the car has already crossed a node in this tick or overtook a car */
+    private static final int CROSSED = 9;
+
+    /** the block the row of the car is stored in, the rows of the car table */
+    private IntBlock rows;
+
+    /** the index of the first integer of the row of the car in {@link #rows} */
+    private int base;
+
+    /**
+     * Constructor for a car whose state is stored in an existing row
+     * @param rows the block the row is stored in
+     * @param base the index of the first integer of the row
+     */
+    RowCar(IntBlock rows, int base) {
+        this.rows = rows;
+        this.base = base;
+    }
+
+    @Override
+    public void reuse(int id, int acceleration, int wantedSpeed) {
+        rows.set(base + ID, id);
+        rows.set(base + STREET, 0);
+        rows.set(base + POSITION, 0);
+        rows.set(base + SPEED, 0);
+        rows.set(base + ACCELERATION, acceleration);
+        rows.set(base + WANTED_SPEED, wantedSpeed);
+        rows.set(base + WANTED_DIRECTION, 0);
+        rows.set(base + DESTINATION, NO_DESTINATION);
+        rows.set(base + METERS_LEFT, 0);
+        rows.set(base + CROSSED, 0);
+    }
+
+    /**
+     * Creates a new car object for the row of this car. Afterwards only one of both objects must be used.
+     * @return the new car object
+     */
+    @Override
+    Car copy() {
+        return new RowCar(rows, base);
+    }
+
+    @Override
+    IntBlock getRows() {
+        return rows;
+    }
+
+    /**
+     * Copies the state of the car into another row and stores it there from now on
+     * @param rows the block of the new row
+     * @param base the index of the first integer of the new row
+     */
+    void moveTo(IntBlock rows, int base) {
+        this.rows.copy(this.base, rows, base, ROW_SIZE);
+        bindTo(rows, base);
+    }
+
+    /**
+     * Lets the car use a row that already holds its state, for example after the rows were copied to a new block
+     * @param rows the block of the row
+     * @param base the index of the first integer of the row
+     */
+    void bindTo(IntBlock rows, int base) {
+        this.rows = rows;
+        this.base = base;
+    }
+
+    @Override
+    public void setPositionOnStreet(int positionOnStreet) {
+        rows.set(base + POSITION, positionOnStreet);
+    }
+
+    @Override
+    public int getPositionOnStreet() {
+        return rows.get(base + POSITION);
+    }
+
+    @Override
+    public void setOnStreetId(int onStreetID) {
+        rows.set(base + STREET, onStreetID);
+    }
+
+    @Override
+    public int getOnStreetId() {
+        return rows.get(base + STREET);
+    }
+
+    @Override
+    public int getId() {
+        return rows.get(base + ID);
+    }
+
+    @Override
+    public void setSpeed(int speed) {
+        rows.set(base + SPEED, speed);
+    }
+
+    @Override
+    public void updateSpeed(int speedLimit) { //y
+        //Increase speed by acceleration
+        int speed = Math.min(rows.get(base + SPEED) + rows.get(base + ACCELERATION),
+                Math.min(rows.get(base + WANTED_SPEED), speedLimit));
+        rows.set(base + SPEED, speed);
+        rows.set(base + METERS_LEFT, speed);
+    }
+
+    @Override
+    public void applySpeed(int speed) {
+        rows.set(base + SPEED, speed);
+        rows.set(base + METERS_LEFT, speed);
+    }
+
+    @Override
+    public int getCurrentSpeed() { 
+        return rows.get(base + SPEED);
+    }
+
+    @Override
+    public void droveMeters(int meters) {
+        rows.set(base + METERS_LEFT, rows.get(base + METERS_LEFT) - meters);
+    }
+
+    @Override
+    public int getMetersLeftToDrive() {
+        return rows.get(base + METERS_LEFT);
+    }
+
+    @Override
+    public int getAcceleration() {
+        return rows.get(base + ACCELERATION);
+    }
+
+    @Override
+    public int getWantedSpeed() {
+        return rows.get(base + WANTED_SPEED);
+    }
+
+    @Override
+    public int getWantedDirection() {
+        return rows.get(base + WANTED_DIRECTION);
+    }
+
+    @Override
+    public void setWantedDirection(int wantedDirection) {
+        rows.set(base + WANTED_DIRECTION, wantedDirection);
+    }
+
+    @Override
+    public int getDestination() {
+        return rows.get(base + DESTINATION);
+    }
+
+    @Override
+    public void setDestination(int destination) {
+        rows.set(base + DESTINATION, destination);
+    }
+
+    @Override
+    public int increaseWantedDirection() {
+        int wantedDirection = rows.get(base + WANTED_DIRECTION) + 1;
+        if (wantedDirection > 3) {
+            wantedDirection = 0;
+        }
+        rows.set(base + WANTED_DIRECTION, wantedDirection);
+        return wantedDirection;
+    }
+
+    @Override
+    public void setAlreadyCrossedThisTick(boolean b) {
+        rows.set(base + CROSSED, b ? 1 : 0);
+    }
+
+    @Override
+    public boolean hasAlreadyCrossedThisTick() {
+        return rows.get(base + CROSSED) != 0;
+    }
+}
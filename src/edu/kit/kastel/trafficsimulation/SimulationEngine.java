@@ -0,0 +1,1055 @@
+package edu.kit.kastel.trafficsimulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.kit.kastel.trafficsimulation.StreetNodes.StreetNode;
+import edu.kit.kastel.trafficsimulation.cache.ScenarioCache;
+import edu.kit.kastel.trafficsimulation.cache.ScenarioTemplate;
+import edu.kit.kastel.trafficsimulation.history.Checkpoint;
+import edu.kit.kastel.trafficsimulation.history.KeyframeHistory;
+import edu.kit.kastel.trafficsimulation.io.SimulationFileLoader;
+import edu.kit.kastel.trafficsimulation.memory.MemoryReport;
+import edu.kit.kastel.trafficsimulation.profiling.LoadPhaseEvent;
+import edu.kit.kastel.trafficsimulation.realtime.CarSnapshot;
+import edu.kit.kastel.trafficsimulation.realtime.CatchUpPolicy;
+import edu.kit.kastel.trafficsimulation.realtime.PacedSimulation;
+import edu.kit.kastel.trafficsimulation.statistics.NodeStatistics;
+import edu.kit.kastel.trafficsimulation.statistics.StreetStatistics;
+import edu.kit.kastel.trafficsimulation.storage.Storage;
+import edu.kit.kastel.trafficsimulation.storage.Storages;
+import edu.kit.kastel.trafficsimulation.watch.StopCondition;
+
+/**
+ * this class is the typed interface of the simulation for programs that embed it.
+ * It holds the loaded graph and the settings that are applied to every graph that is loaded.
+ * The graph is only reachable through the engine, the command line interface uses the same methods.
+ * The queries take and return primitives or fill arrays given by the caller, so they do not allocate.
+ * Invalid arguments throw an {@link IllegalArgumentException} and calls that need a graph throw an
+ * {@link IllegalStateException} if none is loaded, both with the error message of the command line interface.
+ * The engine is not thread safe, callers that share it have to synchronize.
+ * While a paced run simulates on its own thread, only the car queries and the methods of the paced run
+ * can be used, the car queries then answer from the state after the latest tick of the run.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public class SimulationEngine {
+
+    /** the loaded graph, null if none is loaded */
+    private SimulationGraph graph;
+
+    /** the number of ticks between two keyframes of the history */
+    private int keyframeSpacing = TrafficSimulation.DEFAULT_KEYFRAME_SPACING;
+
+    /** the memory budget of the history in bytes */
+    private long historyBudget = (long) TrafficSimulation.DEFAULT_HISTORY_BUDGET_KIB * TrafficSimulation.BYTES_PER_KIB;
+
+    /** true if the keyframes of the history are stored outside of the heap */
+    private boolean historyOffHeap = false;
+
+    /** true if loaded graphs record a keyframe history, which costs an allocation per keyframe until it is full */
+    private boolean historyEnabled = false;
+
+    /** the storage the state of the cars of loaded graphs is allocated in */
+    private Storage storage = Storages.heap();
+
+    /** true if loaded graphs arrange their storage in breadth-first order of the network */
+    private boolean localityOrder = false;
+
+    /** the minimum length of the streets of loaded graphs that are simulated as queues */
+    private int mesoscopicMinLength = SimulationGraph.NO_MESOSCOPIC_STREETS;
+
+    /** true if loaded graphs search for gridlocks and freeze their streets */
+    private boolean gridlockDetection = true;
+
+    /** true if the commands are replicated between two processes, which can not repeat the timing of paced runs */
+    private volatile boolean replicated = false;
+
+    /** the number of ticks the traffic statistics cover */
+    private int statisticsWindowSize = SimulationGraph.DEFAULT_STATISTICS_WINDOW_SIZE;
+
+    /** the number of graphs that were loaded, it changes whenever another graph replaces the loaded one */
+    private long loadCount = 0;
+
+    /** the latest paced run, null if none was started since the graph was loaded */
+    private PacedSimulation pacedRun;
+
+    /** the templates of recently loaded folders */
+    private final ScenarioCache scenarioCache
+            = new ScenarioCache((long) TrafficSimulation.DEFAULT_SCENARIO_CACHE_BUDGET_KIB * TrafficSimulation.BYTES_PER_KIB);
+
+    /**
+     * method to load a simulation from a folder with the .sim files. The loaded graph is only replaced
+     * if the whole simulation is valid. If the folder was loaded before and its files did not change,
+     * the graph is created from the cached template instead of reading the files.
+     * @param folderPath the path of the folder
+     * @throws IOException if the folder or one of the files can not be read
+     */
+    public void load(String folderPath) throws IOException {
+        requireNotPaced();
+        long[] stamp = ScenarioCache.stampOf(folderPath);
+        ScenarioTemplate template = scenarioCache.get(folderPath, stamp);
+        if (template != null) {
+            LoadPhaseEvent cacheEvent = new LoadPhaseEvent(folderPath, LoadPhaseEvent.CACHED);
+            SimulationGraph newGraph = template.instantiate();
+            newGraph.setStatisticsWindowSize(statisticsWindowSize);
+            cacheEvent.commit();
+            activate(newGraph);
+            return;
+        }
+
+        List<String> streetLines;
+        List<String> crossingLines;
+        List<String> carLines;
+        List<String> sourceLines;
+        List<String> sinkLines;
+        List<String> tileLines;
+
+        LoadPhaseEvent readEvent = new LoadPhaseEvent(folderPath, LoadPhaseEvent.READ);
+        try {
+            SimulationFileLoader loader = new SimulationFileLoader(folderPath);
+            streetLines = loader.loadStreets();
+            crossingLines = loader.loadCrossings();
+            carLines = loader.loadCars();
+            sourceLines = loader.loadSources();
+            sinkLines = loader.loadSinks();
+            tileLines = loader.loadTiles();
+        } finally {
+            readEvent.commit();
+        }
+
+        SimulationGraph newGraph = createGraph();
+        LoadPhaseEvent parseEvent = new LoadPhaseEvent(folderPath, LoadPhaseEvent.PARSE);
+        for (String line : crossingLines) {
+            GraphBuilder.addCrossingLine(newGraph, line);
+        }
+        for (String line : streetLines) {
+            GraphBuilder.addStreetLine(newGraph, line);
+        }
+        TileGrid tiles = TileGrid.parse(tileLines);
+        if (tiles != null) {
+            tiles.addTo(newGraph);
+        }
+        for (String line : carLines) {
+            GraphBuilder.addCarLine(newGraph, line);
+        }
+        for (String line : sourceLines) {
+            GraphBuilder.addSourceLine(newGraph, line);
+        }
+        for (String line : sinkLines) {
+            GraphBuilder.addSinkLine(newGraph, line);
+        }
+        parseEvent.commit();
+
+        //the template has to be taken before the graph is configured and simulated
+        template = ScenarioTemplate.of(newGraph);
+        install(newGraph, folderPath);
+        scenarioCache.put(folderPath, stamp, template);
+    }
+
+    /**
+     * method to load a simulation from a model in memory. The loaded graph is only replaced
+     * if the whole simulation is valid.
+     * @param model the model
+     */
+    public void load(SimulationModel model) {
+        requireNotPaced();
+        SimulationGraph newGraph = createGraph();
+        model.buildInto(newGraph);
+        install(newGraph, null);
+    }
+
+    /**
+     * method to create an empty graph with the settings of the engine
+     * @return the new graph
+     */
+    private SimulationGraph createGraph() {
+        SimulationGraph newGraph = new SimulationGraph();
+        newGraph.setStatisticsWindowSize(statisticsWindowSize);
+        //the storage is chosen before the first car is added, so the cars are never copied
+        newGraph.setStorage(storage);
+        return newGraph;
+    }
+
+    /**
+     * method to check a new graph and make it the loaded graph
+     * @param newGraph the new graph
+     * @param path the folder the graph was loaded from for the profiling event or null
+     */
+    private void install(SimulationGraph newGraph, String path) {
+        LoadPhaseEvent validateEvent = new LoadPhaseEvent(path, LoadPhaseEvent.VALIDATE);
+        boolean valid = newGraph.isValid();
+        validateEvent.commit();
+        if (!valid) {
+            throw new IllegalArgumentException(TrafficSimulation.GRAPH_NOT_VALID_ERROR);
+        }
+        activate(newGraph);
+    }
+
+    /**
+     * method to make a valid graph the loaded graph and apply the settings of the engine to it
+     * @param newGraph the new graph
+     */
+    private void activate(SimulationGraph newGraph) {
+        newGraph.setStorage(storage);
+        newGraph.setLocalityOrder(localityOrder);
+        newGraph.setMesoscopicMinLength(mesoscopicMinLength);
+        newGraph.setGridlockDetection(gridlockDetection);
+        if (historyEnabled) {
+            newGraph.enableHistory(keyframeSpacing, historyBudget, historyOffHeap);
+        }
+        graph = newGraph;
+        pacedRun = null;
+        loadCount++;
+    }
+
+    /**
+     * method to check if a graph is loaded
+     * @return true if a graph is loaded
+     */
+    public boolean isLoaded() {
+        return graph != null;
+    }
+
+    /**
+     * method to let a new car enter a street at its beginning with speed 0
+     * @param streetId the id of the street
+     * @param wantedSpeed the speed the car wants to drive at
+     * @param acceleration the acceleration of the car
+     * @return the id of the new car or -1 if the beginning of the street is occupied
+     */
+    public int injectCar(int streetId, int wantedSpeed, int acceleration) {
+        requireGraph();
+        if (!GraphBuilder.isValidCar(wantedSpeed, acceleration)) {
+            throw new IllegalArgumentException(
+                    String.format(TrafficSimulation.INVALID_INJECTED_CAR_ERROR, wantedSpeed, acceleration));
+        }
+        if (!graph.containsStreet(streetId)) {
+            throw new IllegalArgumentException(String.format(TrafficSimulation.UNKNOWN_STREET_ERROR, streetId));
+        }
+        return graph.injectCar(streetId, wantedSpeed, acceleration, Car.NO_DESTINATION);
+    }
+
+    /**
+     * method to remove a car
+     * @param carId the id of the car
+     */
+    public void removeCar(int carId) {
+        requireGraph();
+        if (!graph.containsCar(carId)) {
+            throw new IllegalArgumentException(String.format(TrafficSimulation.UNKNOWN_CAR_ERROR, carId));
+        }
+        graph.removeCar(carId);
+    }
+
+    /**
+     * method to add a crossing or roundabout. The node is not valid until streets are added to it.
+     * @param nodeId the id of the node
+     * @param greenPhaseDuration the duration of the green phase, 0 for a roundabout
+     */
+    public void addNode(int nodeId, int greenPhaseDuration) {
+        requireGraph();
+        if (graph.containsNode(nodeId)) {
+            throw new IllegalArgumentException(String.format(TrafficSimulation.NODE_ALREADY_EXISTS_ERROR, nodeId));
+        }
+        GraphBuilder.addCrossing(graph, nodeId, greenPhaseDuration, null);
+        graph.afterTopologyChange();
+    }
+
+    /**
+     * method to add a crossing or roundabout given as a line of the "crossings.sim" file
+     * @param line the line
+     */
+    public void addNodeLine(String line) {
+        requireGraph();
+        String nodeId = line.split(":")[0];
+        if (line.matches(TrafficSimulation.CROSSING_INPUT_FORMAT) && graph.containsNode(Integer.parseInt(nodeId))) {
+            throw new IllegalArgumentException(String.format(TrafficSimulation.NODE_ALREADY_EXISTS_ERROR, nodeId));
+        }
+        GraphBuilder.addCrossingLine(graph, line);
+        graph.afterTopologyChange();
+    }
+
+    /**
+     * method to add a street between two existing nodes. Only the two nodes of the street are validated again.
+     * @param startNodeId the id of the node the street starts at
+     * @param endNodeId the id of the node the street ends at
+     * @param length the length of the street
+     * @param type the type of the street (1 = only one lane, 2 = two lanes)
+     * @param speedLimit the maximum speed allowed on the street
+     * @return the id of the new street
+     */
+    public int addStreet(int startNodeId, int endNodeId, int length, int type, int speedLimit) {
+        requireGraph();
+        int streetId = graph.getNextStreetId();
+        GraphBuilder.addStreet(graph, startNodeId, endNodeId, length, type, speedLimit, null);
+        graph.afterTopologyChange();
+        return streetId;
+    }
+
+    /**
+     * method to add a street given as a line of the "streets.sim" file
+     * @param line the line
+     * @return the id of the new street
+     */
+    public int addStreetLine(String line) {
+        requireGraph();
+        int streetId = graph.getNextStreetId();
+        GraphBuilder.addStreetLine(graph, line);
+        graph.afterTopologyChange();
+        return streetId;
+    }
+
+    /**
+     * method to add a car behind the last car of a street
+     * @param carId the id of the car
+     * @param streetId the id of the street
+     * @param wantedSpeed the speed the car wants to drive at
+     * @param acceleration the acceleration of the car
+     * @param destination the id of the destination node or {@link Car#NO_DESTINATION}
+     */
+    public void addCar(int carId, int streetId, int wantedSpeed, int acceleration, int destination) {
+        requireGraph();
+        GraphBuilder.addCar(graph, carId, streetId, wantedSpeed, acceleration, destination, null);
+        if (graph.getHistory() != null) {
+            graph.getHistory().afterModification();
+        }
+    }
+
+    /**
+     * method to add a car given as a line of the "cars.sim" file
+     * @param line the line
+     */
+    public void addCarLine(String line) {
+        requireGraph();
+        GraphBuilder.addCarLine(graph, line);
+        if (graph.getHistory() != null) {
+            graph.getHistory().afterModification();
+        }
+    }
+
+    /**
+     * method to remove a street with all cars and sources on it
+     * @param streetId the id of the street
+     */
+    public void removeStreet(int streetId) {
+        requireGraph();
+        if (!graph.containsStreet(streetId)) {
+            throw new IllegalArgumentException(String.format(TrafficSimulation.UNKNOWN_STREET_ERROR, streetId));
+        }
+        graph.removeStreet(streetId);
+        graph.afterTopologyChange();
+    }
+
+    /**
+     * method to remove a node without streets
+     * @param nodeId the id of the node
+     */
+    public void removeNode(int nodeId) {
+        requireGraph();
+        if (!graph.containsNode(nodeId)) {
+            throw new IllegalArgumentException(String.format(TrafficSimulation.UNKNOWN_NODE_ERROR, nodeId));
+        }
+        if (!graph.removeNode(nodeId)) {
+            throw new IllegalArgumentException(String.format(TrafficSimulation.NODE_HAS_STREETS_ERROR, nodeId));
+        }
+        graph.afterTopologyChange();
+    }
+
+    /**
+     * method to change the duration of the green phase of a crossing
+     * @param nodeId the id of the crossing
+     * @param duration the new duration in ticks, at least 1
+     */
+    public void setGreenPhaseDuration(int nodeId, int duration) {
+        if (duration < 1) {
+            throw new IllegalArgumentException(
+                    String.format(TrafficSimulation.INVALID_EDIT_PARAMETER_ERROR, duration, "green-phase"));
+        }
+        //only crossings have a green phase, roundabouts have a duration of 0
+        if (node(nodeId).getGreenPhaseDuration() == 0) {
+            throw new IllegalArgumentException(String.format(TrafficSimulation.NOT_A_CROSSING_ERROR, nodeId));
+        }
+        graph.setGreenPhaseDuration(nodeId, duration);
+        graph.afterTopologyChange();
+    }
+
+    /**
+     * method to simulate a number of ticks
+     * @param ticks the number of ticks
+     */
+    public void step(long ticks) {
+        requireValidGraph();
+        graph.simulate(ticks);
+    }
+
+    /**
+     * method to simulate at least one tick until a condition is met after a tick
+     * or a maximum number of ticks was simulated
+     * @param condition the condition, it is started on the loaded graph and told about the events of every tick
+     * @param maxTicks the maximum number of ticks
+     * @return the number of simulated ticks
+     */
+    public long simulateUntil(StopCondition condition, long maxTicks) {
+        requireValidGraph();
+        return graph.simulateUntil(condition, maxTicks);
+    }
+
+    /**
+     * method to start simulating at a fixed number of ticks per second on a dedicated thread.
+     * The method returns immediately, the run ends by itself after the given number of ticks.
+     * @param ticksPerSecond the number of ticks per wall-clock second
+     * @param ticks the number of ticks of the run, including ticks that are skipped to catch up
+     * @param policy what the run does when a tick took longer than its period
+     */
+    public void startPaced(int ticksPerSecond, long ticks, CatchUpPolicy policy) {
+        if (replicated) {
+            throw new IllegalStateException(TrafficSimulation.REPLICATED_PACE_ERROR);
+        }
+        requireValidGraph();
+        pacedRun = new PacedSimulation(graph, ticksPerSecond, ticks, policy);
+        pacedRun.start();
+    }
+
+    /**
+     * method to stop the paced run after its current tick. Does nothing if no paced run is simulating.
+     */
+    public void stopPaced() {
+        if (!isPaced()) {
+            return;
+        }
+        try {
+            pacedRun.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * method to check if a paced run is simulating
+     * @return true while the thread of a paced run simulates the loaded graph
+     */
+    public boolean isPaced() {
+        return pacedRun != null && pacedRun.isRunning();
+    }
+
+    /**
+     * method to get the latest paced run with its tick rate, missed deadlines and latencies
+     * @return the latest paced run, which may have ended, or null if none was started since the graph was loaded
+     */
+    public PacedSimulation getPacedRun() {
+        return pacedRun;
+    }
+
+    /**
+     * method to get the current tick of the loaded graph
+     * @return the number of simulated ticks
+     */
+    public long getCurrentTick() {
+        requireGraph();
+        return graph.getCurrentTick();
+    }
+
+    /**
+     * method to get the hash of the state of all cars and nodes of the loaded graph
+     * @return the state hash
+     */
+    public long getStateHash() {
+        requireGraph();
+        return graph.getStateHash();
+    }
+
+    /**
+     * method to get the number of graphs that were loaded
+     * @return the number of graphs that were loaded since the engine was created
+     */
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * method to mark the commands as replicated between a primary and a standby. Paced runs depend on
+     * the wall-clock and are refused while the commands are replicated.
+     * @param replicated true if the commands are replicated
+     */
+    public void setReplicated(boolean replicated) {
+        this.replicated = replicated;
+    }
+
+    /**
+     * method to enable and configure the keyframe history for the loaded graph and all graphs loaded later.
+     * If a graph is loaded its history is restarted at the current tick.
+     * @param keyframeSpacing the number of ticks between two keyframes, at least 1
+     * @param memoryBudget the memory budget of the history in bytes
+     * @param offHeap true if the keyframes should be stored outside of the heap
+     */
+    public void setHistory(int keyframeSpacing, long memoryBudget, boolean offHeap) {
+        requireNotPaced();
+        this.keyframeSpacing = keyframeSpacing;
+        this.historyBudget = memoryBudget;
+        this.historyOffHeap = offHeap;
+        this.historyEnabled = true;
+        if (graph != null) {
+            graph.enableHistory(keyframeSpacing, memoryBudget, offHeap);
+        }
+    }
+
+    /**
+     * method to stop recording the keyframe history for the loaded graph and all graphs loaded later.
+     * The recorded keyframes are discarded.
+     */
+    public void disableHistory() {
+        requireNotPaced();
+        historyEnabled = false;
+        if (graph != null) {
+            graph.disableHistory();
+        }
+    }
+
+    /**
+     * method to choose the order the storage of streets and cars is arranged in,
+     * for the loaded graph and all graphs loaded later
+     * @param localityOrder true for breadth-first order of the network, false for id order
+     */
+    public void setLocalityOrder(boolean localityOrder) {
+        requireNotPaced();
+        this.localityOrder = localityOrder;
+        if (graph != null) {
+            graph.setLocalityOrder(localityOrder);
+        }
+    }
+
+    /**
+     * method to choose if the state of the cars is stored outside of the heap,
+     * for the loaded graph and all graphs loaded later. The storage does not change the result of the simulation.
+     * @param offHeap true for the off-heap storage, false for the heap
+     * @throws IllegalArgumentException if the off-heap storage is not available
+     */
+    public void setOffHeapStorage(boolean offHeap) {
+        requireNotPaced();
+        Storage newStorage = offHeap ? Storages.offHeap() : Storages.heap();
+        if (newStorage == null) {
+            throw new IllegalArgumentException(TrafficSimulation.OFF_HEAP_STORAGE_ERROR);
+        }
+        this.storage = newStorage;
+        if (graph != null) {
+            graph.setStorage(newStorage);
+        }
+    }
+
+    /**
+     * method to choose which streets are simulated as queues instead of with exact car following,
+     * for the loaded graph and all graphs loaded later. The history of the loaded graph restarts at the current tick.
+     * @param minLength the minimum length of the streets that are simulated as queues,
+     *     {@value SimulationGraph#NO_MESOSCOPIC_STREETS} to simulate all streets exactly
+     */
+    public void setMesoscopicMinLength(int minLength) {
+        requireNotPaced();
+        this.mesoscopicMinLength = minLength;
+        if (graph != null) {
+            graph.setMesoscopicMinLength(minLength);
+            graph.afterTopologyChange();
+        }
+    }
+
+    /**
+     * method to choose if gridlocked streets are searched for periodically and left out of the tick,
+     * for the loaded graph and all graphs loaded later. Freezing does not change the result of the simulation.
+     * @param gridlockDetection true if gridlocks should be frozen
+     */
+    public void setGridlockDetection(boolean gridlockDetection) {
+        requireNotPaced();
+        this.gridlockDetection = gridlockDetection;
+        if (graph != null) {
+            graph.setGridlockDetection(gridlockDetection);
+        }
+    }
+
+    /**
+     * method to search the loaded graph for gridlocks now and freeze their streets
+     * @return the ids of the streets of every gridlock, every street waits for the next and the last for the first
+     */
+    public List<int[]> detectGridlocks() {
+        requireGraph();
+        graph.detectGridlocks();
+        return graph.getGridlockCycles();
+    }
+
+    /**
+     * method to get the number of streets of the loaded graph that are frozen
+     * @return the number of streets in gridlocks and of streets waiting for them
+     */
+    public int getFrozenStreetCount() {
+        requireGraph();
+        return graph.getFrozenStreetCount();
+    }
+
+    /**
+     * method to set the number of ticks the traffic statistics cover,
+     * for the loaded graph and all graphs loaded later
+     * @param windowSize the number of ticks, at least 1
+     */
+    public void setStatisticsWindowSize(int windowSize) {
+        requireNotPaced();
+        this.statisticsWindowSize = windowSize;
+        if (graph != null) {
+            graph.setStatisticsWindowSize(windowSize);
+        }
+    }
+
+    /**
+     * method to set the memory budget of the templates of recently loaded folders.
+     * The least recently loaded templates are removed until the rest fits.
+     * @param memoryBudget the maximum number of bytes all templates together may use, 0 disables the cache
+     */
+    public void setScenarioCacheBudget(long memoryBudget) {
+        scenarioCache.setMemoryBudget(memoryBudget);
+    }
+
+    /**
+     * method to compute the memory the loaded graph uses from the sizes of its structures.
+     * This is also possible during a paced run, the sizes may then be one tick old.
+     * @return the footprint of the loaded graph
+     */
+    public MemoryReport getMemoryReport() {
+        if (graph == null) {
+            throw new IllegalStateException(TrafficSimulation.NO_GRAPH_LOADED_ERROR);
+        }
+        return graph.getMemoryReport();
+    }
+
+    /**
+     * method to estimate the memory a simulation will use after it is loaded from a folder.
+     * Only the lines of the files are counted and the lengths of the streets read, nothing is validated
+     * except the tile of the optional tiles file, which is parsed to count the nodes and streets of its grid.
+     * @param folderPath the path of the folder
+     * @return the estimated footprint
+     * @throws IOException if the folder or one of the files can not be read
+     */
+    public MemoryReport estimateMemory(String folderPath) throws IOException {
+        SimulationFileLoader loader = new SimulationFileLoader(folderPath);
+        int[] streetLengths = loader.loadStreets().stream().mapToInt(GraphBuilder::streetLineLength)
+                .filter(length -> length >= 0).toArray();
+        int nodeCount = loader.loadCrossings().size();
+        TileGrid tiles = TileGrid.parse(loader.loadTiles());
+        if (tiles != null) {
+            nodeCount += tiles.getNodeCount();
+            int[] tileStreetLengths = tiles.getStreetLengths();
+            int fileStreetCount = streetLengths.length;
+            streetLengths = Arrays.copyOf(streetLengths, fileStreetCount + tileStreetLengths.length);
+            System.arraycopy(tileStreetLengths, 0, streetLengths, fileStreetCount, tileStreetLengths.length);
+        }
+        List<String> carLines = loader.loadCars();
+        boolean[] streetsWithCars = new boolean[streetLengths.length];
+        for (String line : carLines) {
+            int streetId = GraphBuilder.carLineStreetId(line);
+            if (streetId >= 0 && streetId < streetsWithCars.length) {
+                streetsWithCars[streetId] = true;
+            }
+        }
+        return SimulationGraph.estimateMemoryReport(nodeCount, streetLengths, streetsWithCars, carLines.size(),
+                loader.loadSources().size());
+    }
+
+    /**
+     * method to get the templates of recently loaded folders with their hits and misses
+     * @return the scenario cache
+     */
+    public ScenarioCache getScenarioCache() {
+        return scenarioCache;
+    }
+
+    /**
+     * method to write the state of the loaded graph to a checkpoint file
+     * @param path the path of the checkpoint file
+     * @throws IOException if the file can not be written
+     */
+    public void writeCheckpoint(Path path) throws IOException {
+        requireGraph();
+        Checkpoint.write(graph, path);
+    }
+
+    /**
+     * method to restore the state of the loaded graph from a checkpoint file.
+     * The history is restarted at the restored tick.
+     * @param path the path of the checkpoint file
+     * @throws IOException if the file can not be read or does not belong to the loaded graph
+     */
+    public void restoreCheckpoint(Path path) throws IOException {
+        requireGraph();
+        Checkpoint.read(graph, path);
+        if (historyEnabled) {
+            graph.enableHistory(keyframeSpacing, historyBudget, historyOffHeap);
+        }
+    }
+
+    /**
+     * method to get the number of cars
+     * @return the number of cars in the loaded graph
+     */
+    public int getCarCount() {
+        requireGraph();
+        return graph.getCarCount();
+    }
+
+    /**
+     * method to check if a car exists
+     * @param carId the id of the car
+     * @return true if the loaded graph contains the car
+     */
+    public boolean containsCar(int carId) {
+        if (isPaced()) {
+            return pacedRun.getSnapshot().readValue(carId, CarSnapshot.STREET_INDEX) != CarSnapshot.NO_CAR;
+        }
+        requireGraph();
+        return graph.containsCar(carId);
+    }
+
+    /**
+     * method to get the street a car is on
+     * @param carId the id of the car
+     * @return the id of the street
+     */
+    public int getCarStreet(int carId) {
+        return carValue(carId, CarSnapshot.STREET_INDEX);
+    }
+
+    /**
+     * method to get the position of a car on its street
+     * @param carId the id of the car
+     * @return the position in meters from the start of the street
+     */
+    public int getCarPosition(int carId) {
+        return carValue(carId, CarSnapshot.POSITION_INDEX);
+    }
+
+    /**
+     * method to get the speed of a car
+     * @param carId the id of the car
+     * @return the speed in meters per tick
+     */
+    public int getCarSpeed(int carId) {
+        return carValue(carId, CarSnapshot.SPEED_INDEX);
+    }
+
+    /**
+     * method to read the street, position and speed of a car at once
+     * @param carId the id of the car
+     * @param target the array the values are written to, at {@link CarSnapshot#STREET_INDEX},
+     *     {@link CarSnapshot#POSITION_INDEX} and {@link CarSnapshot#SPEED_INDEX}
+     * @return true if the car exists, false if it does not and the array was not changed
+     */
+    public boolean readCar(int carId, int[] target) {
+        if (isPaced()) {
+            return pacedRun.getSnapshot().readCar(carId, target);
+        }
+        requireGraph();
+        if (!graph.containsCar(carId)) {
+            return false;
+        }
+        Car car = graph.getCarById(carId);
+        target[CarSnapshot.STREET_INDEX] = car.getOnStreetId();
+        target[CarSnapshot.POSITION_INDEX] = car.getPositionOnStreet();
+        target[CarSnapshot.SPEED_INDEX] = car.getCurrentSpeed();
+        return true;
+    }
+
+    /**
+     * method to read the street, position and speed a car had at an earlier tick.
+     * The state is reconstructed from the nearest keyframe of the history.
+     * @param carId the id of the car
+     * @param tick the tick, at most the current tick and at least the oldest tick of the history
+     * @param target the array the values are written to, at {@link CarSnapshot#STREET_INDEX},
+     *     {@link CarSnapshot#POSITION_INDEX} and {@link CarSnapshot#SPEED_INDEX}
+     * @return true if the car existed at the tick, false if it did not and the array was not changed
+     */
+    public boolean readCarAtTick(int carId, long tick, int[] target) {
+        requireGraph();
+        if (tick > graph.getCurrentTick()) {
+            throw new IllegalArgumentException(String.format(TrafficSimulation.TICK_IN_FUTURE_ERROR, tick));
+        }
+        KeyframeHistory history = graph.getHistory();
+        if (history == null) {
+            throw new IllegalArgumentException(TrafficSimulation.NO_HISTORY_ERROR);
+        }
+        if (tick < history.getOldestAvailableTick()) {
+            throw new IllegalArgumentException(String.format(TrafficSimulation.TICK_NOT_AVAILABLE_ERROR, tick,
+                    history.getOldestAvailableTick()));
+        }
+
+        SimulationGraph graphAtTick = history.getGraphAtTick(tick);
+        //cars can enter and leave the graph, so the car has to exist at the requested tick
+        if (!graphAtTick.containsCar(carId)) {
+            return false;
+        }
+        target[CarSnapshot.STREET_INDEX] = graphAtTick.getCarOnStreetId(carId);
+        target[CarSnapshot.POSITION_INDEX] = graphAtTick.getCarPosition(carId);
+        target[CarSnapshot.SPEED_INDEX] = graphAtTick.getCarSpeed(carId);
+        return true;
+    }
+
+    /**
+     * method to fill arrays with the state of all cars. The cars are written in the order of their storage,
+     * which stays the same between two ticks unless cars are added or removed.
+     * An array can be null if its column is not needed.
+     * @param carIds the array for the ids of the cars
+     * @param streetIds the array for the streets the cars are on
+     * @param positions the array for the positions of the cars on their streets
+     * @param speeds the array for the speeds of the cars
+     * @return the number of cars that were written, at most the length of the shortest given array
+     */
+    public int fillCars(int[] carIds, int[] streetIds, int[] positions, int[] speeds) {
+        requireGraph();
+        int capacity = Math.min(Math.min(capacity(carIds), capacity(streetIds)),
+                Math.min(capacity(positions), capacity(speeds)));
+        int count = 0;
+        for (int slot = 0; slot < graph.getCarSlotLimit() && count < capacity; slot++) {
+            Car car = graph.getCarInSlot(slot);
+            if (car == null) {
+                continue;
+            }
+            fill(carIds, count, car.getId());
+            fill(streetIds, count, car.getOnStreetId());
+            fill(positions, count, car.getPositionOnStreet());
+            fill(speeds, count, car.getCurrentSpeed());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * method to get the number of streets
+     * @return the number of streets in the loaded graph
+     */
+    public int getStreetCount() {
+        requireGraph();
+        return graph.getStreetCount();
+    }
+
+    /**
+     * method to check if a street exists
+     * @param streetId the id of the street
+     * @return true if the loaded graph contains the street
+     */
+    public boolean containsStreet(int streetId) {
+        requireGraph();
+        return graph.containsStreet(streetId);
+    }
+
+    /**
+     * method to get the length of a street
+     * @param streetId the id of the street
+     * @return the length in meters
+     */
+    public int getStreetLength(int streetId) {
+        return street(streetId).getLength();
+    }
+
+    /**
+     * method to get the speed limit of a street
+     * @param streetId the id of the street
+     * @return the speed limit in meters per tick
+     */
+    public int getStreetSpeedLimit(int streetId) {
+        return street(streetId).getMaxSpeed();
+    }
+
+    /**
+     * method to get the number of cars on a street
+     * @param streetId the id of the street
+     * @return the number of cars
+     */
+    public int getStreetCarCount(int streetId) {
+        return street(streetId).getCarCount();
+    }
+
+    /**
+     * method to get the traffic statistics of a street over the statistics window
+     * @param streetId the id of the street
+     * @return the statistics, they are updated by every tick
+     */
+    public StreetStatistics getStreetStatistics(int streetId) {
+        return street(streetId).getStatistics();
+    }
+
+    /**
+     * method to fill arrays with the state of the cars on a street, starting with the car closest to its end.
+     * An array can be null if its column is not needed.
+     * @param streetId the id of the street
+     * @param carIds the array for the ids of the cars
+     * @param positions the array for the positions of the cars on the street
+     * @param speeds the array for the speeds of the cars
+     * @return the number of cars that were written, at most the length of the shortest given array
+     */
+    public int fillStreetCars(int streetId, int[] carIds, int[] positions, int[] speeds) {
+        Street street = street(streetId);
+        int count = Math.min(street.getCarCount(),
+                Math.min(capacity(carIds), Math.min(capacity(positions), capacity(speeds))));
+        for (int i = 0; i < count; i++) {
+            Car car = street.getCar(i);
+            fill(carIds, i, car.getId());
+            fill(positions, i, car.getPositionOnStreet());
+            fill(speeds, i, car.getCurrentSpeed());
+        }
+        return count;
+    }
+
+    /**
+     * method to get the number of nodes
+     * @return the number of nodes in the loaded graph
+     */
+    public int getNodeCount() {
+        requireGraph();
+        return graph.getNodeCount();
+    }
+
+    /**
+     * method to check if a node exists
+     * @param nodeId the id of the node
+     * @return true if the loaded graph contains the node
+     */
+    public boolean containsNode(int nodeId) {
+        requireGraph();
+        return graph.containsNode(nodeId);
+    }
+
+    /**
+     * method to get the input street of a crossing that currently has the green phase
+     * @param nodeId the id of the node
+     * @return the index of the input street in the order the input streets were added,
+     *     {@value StreetNode#NO_TRAFFIC_LIGHTS} if the node has no traffic lights
+     */
+    public int getGreenInputIndex(int nodeId) {
+        return node(nodeId).getGreenInputIndex();
+    }
+
+    /**
+     * method to get the duration of the green phase of a node
+     * @param nodeId the id of the node
+     * @return the duration in ticks, 0 if the node has no traffic lights
+     */
+    public int getGreenPhaseDuration(int nodeId) {
+        return node(nodeId).getGreenPhaseDuration();
+    }
+
+    /**
+     * method to get the traffic statistics of a node over the statistics window
+     * @param nodeId the id of the node
+     * @return the statistics, they are updated by every tick
+     */
+    public NodeStatistics getNodeStatistics(int nodeId) {
+        return node(nodeId).getStatistics();
+    }
+
+    /**
+     * method to throw an exception if no graph is loaded or a paced run simulates it
+     */
+    private void requireGraph() {
+        if (graph == null) {
+            throw new IllegalStateException(TrafficSimulation.NO_GRAPH_LOADED_ERROR);
+        }
+        requireNotPaced();
+    }
+
+    /**
+     * method to throw an exception if the loaded graph can not be simulated
+     * because no graph is loaded, a paced run simulates it or an edit left a node invalid
+     */
+    private void requireValidGraph() {
+        requireGraph();
+        if (graph.hasInvalidNodes()) {
+            throw new IllegalStateException(
+                    String.format(TrafficSimulation.INVALID_NODE_ERROR, graph.getInvalidNodeIds().first()));
+        }
+    }
+
+    /**
+     * method to throw an exception if a paced run simulates the loaded graph
+     */
+    private void requireNotPaced() {
+        if (isPaced()) {
+            throw new IllegalStateException(TrafficSimulation.PACED_RUN_ERROR);
+        }
+    }
+
+    /**
+     * method to get one of the values {@link #readCar(int, int[])} reads
+     * @param carId the id of the car
+     * @param index the index of the value
+     * @return the value
+     */
+    private int carValue(int carId, int index) {
+        int value = CarSnapshot.NO_CAR;
+        if (isPaced()) {
+            value = pacedRun.getSnapshot().readValue(carId, index);
+        } else {
+            requireGraph();
+            if (graph.containsCar(carId)) {
+                Car car = graph.getCarById(carId);
+                if (index == CarSnapshot.STREET_INDEX) {
+                    value = car.getOnStreetId();
+                } else if (index == CarSnapshot.POSITION_INDEX) {
+                    value = car.getPositionOnStreet();
+                } else {
+                    value = car.getCurrentSpeed();
+                }
+            }
+        }
+        if (value == CarSnapshot.NO_CAR) {
+            throw new IllegalArgumentException(String.format(TrafficSimulation.UNKNOWN_CAR_ERROR, carId));
+        }
+        return value;
+    }
+
+    /**
+     * method to get a street of the loaded graph
+     * @param streetId the id of the street
+     * @return the street
+     */
+    private Street street(int streetId) {
+        requireGraph();
+        Street street = graph.getStreetById(streetId);
+        if (street == null) {
+            throw new IllegalArgumentException(String.format(TrafficSimulation.UNKNOWN_STREET_ERROR, streetId));
+        }
+        return street;
+    }
+
+    /**
+     * method to get a node of the loaded graph
+     * @param nodeId the id of the node
+     * @return the node
+     */
+    private StreetNode node(int nodeId) {
+        requireGraph();
+        StreetNode node = graph.getNodeById(nodeId);
+        if (node == null) {
+            throw new IllegalArgumentException(String.format(TrafficSimulation.UNKNOWN_NODE_ERROR, nodeId));
+        }
+        return node;
+    }
+
+    /**
+     * method to get the number of values an optional array can take
+     * @param array the array or null
+     * @return the length of the array or {@link Integer#MAX_VALUE} if it is null
+     */
+    private static int capacity(int[] array) {
+        return array == null ? Integer.MAX_VALUE : array.length;
+    }
+
+    /**
+     * method to write a value into an optional array
+     * @param array the array or null
+     * @param index the index
+     * @param value the value
+     */
+    private static void fill(int[] array, int index, int value) {
+        if (array != null) {
+            array[index] = value;
+        }
+    }
+}
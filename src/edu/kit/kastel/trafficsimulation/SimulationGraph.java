@@ -1,14 +1,36 @@
 package edu.kit.kastel.trafficsimulation;
 
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.Map.Entry;
 
 import edu.kit.kastel.trafficsimulation.StreetNodes.Crossing;
 import edu.kit.kastel.trafficsimulation.StreetNodes.Roundabout;
 import edu.kit.kastel.trafficsimulation.StreetNodes.StreetNode;
+import edu.kit.kastel.trafficsimulation.history.KeyframeHistory;
+import edu.kit.kastel.trafficsimulation.memory.MemoryCategory;
+import edu.kit.kastel.trafficsimulation.memory.MemoryLayout;
+import edu.kit.kastel.trafficsimulation.memory.MemoryReport;
+import edu.kit.kastel.trafficsimulation.profiling.SimulateEvent;
+import edu.kit.kastel.trafficsimulation.profiling.TickEvent;
+import edu.kit.kastel.trafficsimulation.routing.RoutingTable;
+import edu.kit.kastel.trafficsimulation.speed.SpeedUpdate;
+import edu.kit.kastel.trafficsimulation.speed.SpeedUpdates;
+import edu.kit.kastel.trafficsimulation.statistics.NodeStatistics;
+import edu.kit.kastel.trafficsimulation.statistics.StreetStatistics;
+import edu.kit.kastel.trafficsimulation.storage.Storage;
+import edu.kit.kastel.trafficsimulation.storage.Storages;
+import edu.kit.kastel.trafficsimulation.stream.ChangePublisher;
+import edu.kit.kastel.trafficsimulation.watch.SimulationWatcher;
+import edu.kit.kastel.trafficsimulation.watch.StopCondition;
 
 /**
  * this class represents the graph of the simulation.
@@ -19,8 +41,68 @@
  */
 public class SimulationGraph {
 
+    /** the smallest horizon a street is advanced on its own with, shorter horizons are simulated tick by tick */
+    static final int MIN_LOOKAHEAD_TICKS = 2;
+
+    /** the number of integers stored per car in a state snapshot */
+    static final int CAR_STATE_SIZE = 8;
+
     /** counter that is increased in order to get a new streetId */ 
     private int streetIdentifierCounter = 0;
+
+    /** the number of ticks that were simulated since the graph was loaded */
+    private long currentTick = 0;
+
+    /** the number of cars that changed their position or street since the graph was created */
+    private long movedCarCount = 0;
+
+    /** the number of cars that crossed a node or left the graph since the graph was created */
+    private long crossingCount = 0;
+
+    /** the sum of the state hashes of all cars and nodes, kept up to date during every tick */
+    private long stateHash = 0;
+
+    /** the minimum length of mesoscopic streets that disables the mesoscopic mode for all streets */
+    public static final int NO_MESOSCOPIC_STREETS = 0;
+
+    /** the default number of ticks the traffic statistics cover */
+    static final int DEFAULT_STATISTICS_WINDOW_SIZE = 100;
+
+    /** the number of ticks between two searches for gridlocks */
+    static final int GRIDLOCK_CHECK_INTERVAL = 64;
+
+    /** the search state of a street that was not visited yet */
+    private static final int UNVISITED = 0;
+
+    /** the search state of a street on the path that is currently followed */
+    private static final int ON_PATH = 1;
+
+    /** the search state of a street that is part of a gridlock or waits for one */
+    private static final int GRIDLOCKED = 2;
+
+    /** the search state of a street that can still move */
+    private static final int MOVABLE = 3;
+
+    /** the number of ticks the traffic statistics of streets and nodes cover */
+    private int statisticsWindowSize = DEFAULT_STATISTICS_WINDOW_SIZE;
+
+    /** the implementation of the speed phase used by all streets */
+    private SpeedUpdate speedUpdate = SpeedUpdates.best();
+
+    /** the storage the car table and the car columns of the streets are allocated in */
+    private Storage storage = Storages.heap();
+
+    /** the next-hop tables used to route cars to their destination, null until a car needs a route */
+    private RoutingTable routingTable;
+
+    /** the watcher that is told about the events of every tick, null if nobody watches */
+    private SimulationWatcher watcher;
+
+    /** the keyframe history of this graph, null if no history is recorded */
+    private KeyframeHistory history;
+
+    /** the publisher that is told about the changes of every tick, null if nobody listens */
+    private ChangePublisher changePublisher;
     
     /** the Map containing all streets mapped to their ids */
     private NavigableMap<Integer, Street> streetMap = new TreeMap<>();
@@ -28,16 +110,110 @@ public class SimulationGraph {
     /** the Map containing all nodes (crossings) mapped to their ids */
     private NavigableMap<Integer, StreetNode> nodeMap = new TreeMap<>();
 
-    /** the HashMap containing all cars mapped to their ids */
-    private HashMap<Integer, Car> carMap = new LinkedHashMap<>();
+    /** the table containing all cars mapped to their ids */
+    private final CarTable carTable = new CarTable();
+
+    /** the ids of all nodes that have too few or too many streets, kept up to date by every change of a node */
+    private final NavigableSet<Integer> invalidNodeIds = new TreeSet<>();
+
+    /** all sources that let new cars enter the graph */
+    private CarSource[] sources = new CarSource[0];
+
+    /** all nodes in id order, so a tick can iterate them without creating iterators */
+    private StreetNode[] tickNodes = new StreetNode[0];
+
+    /** all streets in id order, so a tick can iterate them without creating iterators */
+    private Street[] tickStreets = new Street[0];
+
+    /** true if nodes or streets were added since the tick arrays were last built */
+    private boolean tickArraysOutdated = false;
+
+    /** the highest speed limit of all streets */
+    private int maxStreetSpeed = 0;
+
+    /** true if the storage of streets and cars is arranged in breadth-first order of the network */
+    private boolean localityOrder = false;
+
+    /** streets at least this long are simulated as queues, {@value #NO_MESOSCOPIC_STREETS} if none are */
+    private int mesoscopicMinLength = NO_MESOSCOPIC_STREETS;
+
+    /** true if gridlocked streets are searched for periodically and left out of the tick */
+    private boolean gridlockDetection = true;
+
+    /** the ids of the streets of every gridlock found since the last change, in the order they wait for each other */
+    private final List<int[]> gridlockCycles = new ArrayList<>();
+
+    /** the number of frozen streets, the streets of the cycles and the streets waiting for them */
+    private int frozenStreetCount = 0;
+
+    /** the search state of every street by its id, reused by every search */
+    private int[] gridlockStates = new int[0];
+
+    /** the path of streets waiting for each other that is currently followed, reused by every search */
+    private Street[] gridlockPath = new Street[0];
 
     /**
-     * method to get a given car from the carMap by its id
+     * all nodes in breadth-first order of the network if {@link #localityOrder} is set, otherwise in id order.
+     * Used by the phases of a tick whose result does not depend on the order of the nodes.
+     */
+    private StreetNode[] layoutNodes = new StreetNode[0];
+
+    /**
+     * all streets in the order their storage is arranged in, see {@link #layoutNodes}.
+     * The cars always move street by street in id order, so only the order independent phases use this array.
+     */
+    private Street[] layoutStreets = new Street[0];
+
+    /**
+     * method to get a given car from the carTable by its id
      * @param id the id of the car
      * @return the car with the given id
      */
     public Car getCarById(int id) {
-        return carMap.get(id);
+        return carTable.get(id);
+    }
+
+    /**
+     * method to get the number of slots of the car table that have to be checked to find every car
+     * @return the number of slots that were used at least once
+     */
+    public int getCarSlotLimit() {
+        return carTable.getSlotLimit();
+    }
+
+    /**
+     * method to get the car in a slot of the car table. Observers can scan all cars with this method
+     * without allocating, the slot of a car only changes when it is removed or the storage is rearranged.
+     * @param slot the slot, smaller than {@link #getCarSlotLimit()}
+     * @return the car in the slot or null if the slot is free
+     */
+    public Car getCarInSlot(int slot) {
+        return carTable.getSlot(slot);
+    }
+
+    /**
+     * method to get all nodes in id order
+     * @return an unmodifiable view of the nodes
+     */
+    public Collection<StreetNode> getNodes() {
+        return Collections.unmodifiableCollection(nodeMap.values());
+    }
+
+    /**
+     * method to get the publisher that is told about the changes of every tick
+     * @return the publisher or null if none is attached
+     */
+    public ChangePublisher getChangePublisher() {
+        return changePublisher;
+    }
+
+    /**
+     * method to attach a publisher that is told about the changes of every tick.
+     * While a publisher is attached the graph is simulated tick by tick without the lookahead.
+     * @param changePublisher the publisher or null to detach it
+     */
+    public void setChangePublisher(ChangePublisher changePublisher) {
+        this.changePublisher = changePublisher;
     }
 
     /**
@@ -57,6 +233,216 @@ private int getNewStreetID() {
         return streetIdentifierCounter++;
     }
 
+    /**
+     * method to get the watcher that is told about the events of every tick
+     * @return the watcher or null if nobody watches
+     */
+    public SimulationWatcher getWatcher() {
+        return watcher;
+    }
+
+    /**
+     * method to set the watcher that is told about the events of every tick
+     * @param watcher the watcher or null to stop watching
+     */
+    public void setWatcher(SimulationWatcher watcher) {
+        this.watcher = watcher;
+    }
+
+    /**
+     * method to count the cars whose speed is not 0
+     * @return the number of moving cars
+     */
+    public int countMovingCars() {
+        int movingCars = 0;
+        for (int slot = 0; slot < carTable.getSlotLimit(); slot++) {
+            Car car = carTable.getSlot(slot);
+            if (car != null && car.getCurrentSpeed() != 0) {
+                movingCars++;
+            }
+        }
+        return movingCars;
+    }
+
+    /**
+     * method to check if the storage of streets and cars is arranged in breadth-first order of the network
+     * @return true if the locality order is used
+     */
+    public boolean isLocalityOrder() {
+        return localityOrder;
+    }
+
+    /**
+     * method to choose the order the storage of streets and cars is arranged in.
+     * With the locality order streets that are connected by a node and their cars are allocated next to each other
+     * and the phases of a tick whose result does not depend on the order visit them in that order.
+     * The cars still move street by street in id order, so the results do not change.
+     * @param localityOrder true for breadth-first order of the network, false for id order
+     */
+    public void setLocalityOrder(boolean localityOrder) {
+        this.localityOrder = localityOrder;
+        updateTickArrays();
+        if (localityOrder) {
+            relocateStorage();
+        }
+    }
+
+    /**
+     * method to check if gridlocks are searched for periodically
+     * @return true if gridlocked streets are frozen
+     */
+    public boolean isGridlockDetection() {
+        return gridlockDetection;
+    }
+
+    /**
+     * method to choose if gridlocked streets are searched for every {@value #GRIDLOCK_CHECK_INTERVAL} ticks
+     * and left out of the tick. Freezing does not change the result of the simulation.
+     * @param gridlockDetection true if gridlocks should be frozen, false thaws all frozen streets
+     */
+    public void setGridlockDetection(boolean gridlockDetection) {
+        this.gridlockDetection = gridlockDetection;
+        if (!gridlockDetection) {
+            thawGridlocks();
+        }
+    }
+
+    /**
+     * method to get the gridlocks found since the graph was last changed
+     * @return the ids of the streets of every cycle, every street waits for the next and the last for the first
+     */
+    public List<int[]> getGridlockCycles() {
+        return Collections.unmodifiableList(gridlockCycles);
+    }
+
+    /**
+     * method to get the number of streets that are left out of the tick
+     * @return the number of streets in gridlocks and of streets waiting for them
+     */
+    public int getFrozenStreetCount() {
+        return frozenStreetCount;
+    }
+
+    /**
+     * method to search for gridlocks and freeze their streets. A street is jammed if its cars stand in a row
+     * up to its end and the first car waits for space on the street it wants to cross to. If jammed streets
+     * wait for each other in a cycle none of them can ever move again, and neither can a jammed street
+     * waiting for one of them. Every jammed street waits for exactly one street, so the search follows
+     * the waits from every street until it reaches a street that can move, a gridlocked street or a street
+     * on the current path, which closes a new cycle. Frozen streets stay frozen until the graph is changed.
+     */
+    public void detectGridlocks() {
+        if (tickArraysOutdated) {
+            updateTickArrays();
+        }
+        if (gridlockStates.length < streetIdentifierCounter) {
+            gridlockStates = new int[streetIdentifierCounter];
+            gridlockPath = new Street[streetIdentifierCounter];
+        }
+        for (Street street : tickStreets) {
+            gridlockStates[street.getId()] = street.isFrozen() ? GRIDLOCKED : UNVISITED;
+        }
+
+        for (Street start : tickStreets) {
+            int pathLength = 0;
+            Street street = start;
+            while (street != null && gridlockStates[street.getId()] == UNVISITED) {
+                gridlockStates[street.getId()] = ON_PATH;
+                gridlockPath[pathLength++] = street;
+                //a street that is advanced beyond the current tick is not up to date, it is not jammed at its end
+                street = street.isAdvancedBeyond(currentTick) ? null : street.getBlockingStreet();
+            }
+
+            int result = MOVABLE;
+            if (street != null && gridlockStates[street.getId()] == ON_PATH) {
+                int cycleStart = 0;
+                while (gridlockPath[cycleStart] != street) {
+                    cycleStart++;
+                }
+                int[] cycle = new int[pathLength - cycleStart];
+                for (int i = 0; i < cycle.length; i++) {
+                    cycle[i] = gridlockPath[cycleStart + i].getId();
+                }
+                gridlockCycles.add(cycle);
+                result = GRIDLOCKED;
+            } else if (street != null) {
+                result = gridlockStates[street.getId()];
+            }
+
+            for (int i = 0; i < pathLength; i++) {
+                gridlockStates[gridlockPath[i].getId()] = result;
+                if (result == GRIDLOCKED) {
+                    gridlockPath[i].setFrozen(true);
+                    frozenStreetCount++;
+                }
+                gridlockPath[i] = null;
+            }
+        }
+    }
+
+    /**
+     * method to let all frozen streets take part in the tick again, because a change of the graph
+     * can give them space to move
+     */
+    private void thawGridlocks() {
+        if (frozenStreetCount == 0) {
+            return;
+        }
+        for (Street street : streetMap.values()) {
+            street.setFrozen(false);
+        }
+        gridlockCycles.clear();
+        frozenStreetCount = 0;
+    }
+
+    /**
+     * method to get the number of cars that crossed a node or left the graph at a sink
+     * @return the number of crossings since the graph was created
+     */
+    public long getCrossingCount() {
+        return crossingCount;
+    }
+
+    /**
+     * method to get the minimum length of the streets that are simulated as queues
+     * @return the minimum length or {@value #NO_MESOSCOPIC_STREETS} if all streets are simulated exactly
+     */
+    public int getMesoscopicMinLength() {
+        return mesoscopicMinLength;
+    }
+
+    /**
+     * method to choose which streets are simulated as queues instead of with exact car following.
+     * The mesoscopic mode is much cheaper for long streets but only approximates the exact results,
+     * so the caller has to call {@link #afterTopologyChange()} if the graph is already simulating.
+     * @param minLength the minimum length of the streets that are simulated as queues,
+     *     {@value #NO_MESOSCOPIC_STREETS} to simulate all streets exactly
+     */
+    public void setMesoscopicMinLength(int minLength) {
+        thawGridlocks();
+        this.mesoscopicMinLength = minLength;
+        for (Street street : streetMap.values()) {
+            street.setMesoscopic(isMesoscopicLength(street.getLength()));
+        }
+    }
+
+    /**
+     * method to check if a street of a given length is simulated as a queue
+     * @param length the length of the street
+     * @return true if the street is mesoscopic
+     */
+    private boolean isMesoscopicLength(int length) {
+        return mesoscopicMinLength != NO_MESOSCOPIC_STREETS && length >= mesoscopicMinLength;
+    }
+
+    /**
+     * method to get the id the next added street will get
+     * @return the id of the next street
+     */
+    public int getNextStreetId() {
+        return streetIdentifierCounter;
+    }
+
     /**
      * method to check if a node with a given id exists
      * @param id the id of the node
@@ -82,14 +468,25 @@ public boolean containsStreet(int id) {
      */
     public void addNode(int id, int greenPhaseDuration) {
 
+        StreetNode node;
         if (greenPhaseDuration == 0) {
-            nodeMap.put(id, new Roundabout(this, id));
+            node = new Roundabout(this, id);
         } else if (greenPhaseDuration > 0) {
-            nodeMap.put(id, new Crossing(this, id, greenPhaseDuration));
+            node = new Crossing(this, id, greenPhaseDuration);
         } else {
             throw new IllegalArgumentException("Error: The greenPhaseDuration of a node cannot be less than 0");
         }
 
+        node.resetStatistics(statisticsWindowSize);
+        tickArraysOutdated = true;
+        routingTable = null;
+        StreetNode replacedNode = nodeMap.put(id, node);
+        if (replacedNode != null) {
+            stateHash -= replacedNode.stateHash();
+        }
+        stateHash += node.stateHash();
+        revalidateNode(node);
+
     }
 
     /**
@@ -104,13 +501,118 @@ public void addStreet(int startNode, int endNode, int length, int type, int maxS
 
         int id = getNewStreetID();
 
-        Street street = new Street(endNode, id, this, length, type, maxSpeed);
+        Street street = new Street(startNode, endNode, id, this, length, type, maxSpeed);
+        street.setMesoscopic(isMesoscopicLength(length));
 
         streetMap.put(id, street);
+        tickArraysOutdated = true;
+        routingTable = null;
 
         nodeMap.get(startNode).addOutputStreet(id);
         nodeMap.get(endNode).addInputStreet(id);
+        revalidateNode(nodeMap.get(startNode));
+        revalidateNode(nodeMap.get(endNode));
+
+    }
+
+    /**
+     * method to remove a street and all cars and sources on it from the graph.
+     * Only the two nodes of the street are validated again.
+     * @param id the id of the street
+     */
+    public void removeStreet(int id) {
+        Street street = streetMap.remove(id);
+        for (int i = 0; i < street.getCarCount(); i++) {
+            Car car = street.getCar(i);
+            stateHash -= car.stateHash();
+            carTable.remove(car);
+        }
+        street.clearCars();
+
+        int keptSources = 0;
+        for (CarSource source : sources) {
+            if (source.getStreetId() != id) {
+                sources[keptSources++] = source;
+            }
+        }
+        sources = Arrays.copyOf(sources, keptSources);
 
+        StreetNode startNode = nodeMap.get(street.getStartNodeId());
+        StreetNode endNode = nodeMap.get(street.getEndNodeId());
+        startNode.removeOutputStreet(id);
+        endNode.removeInputStreet(id);
+        revalidateNode(startNode);
+        revalidateNode(endNode);
+
+        tickArraysOutdated = true;
+        routingTable = null;
+    }
+
+    /**
+     * method to remove a node that has no streets anymore from the graph
+     * @param id the id of the node
+     * @return true if the node was removed, false if streets are still connected to it
+     */
+    public boolean removeNode(int id) {
+        StreetNode node = nodeMap.get(id);
+        if (node.inputStreetCount() > 0 || node.outputStreetCount() > 0) {
+            return false;
+        }
+        nodeMap.remove(id);
+        invalidNodeIds.remove(id);
+        stateHash -= node.stateHash();
+        tickArraysOutdated = true;
+        routingTable = null;
+        return true;
+    }
+
+    /**
+     * method to change the duration of the green phase of a crossing while the simulation is running
+     * @param id the id of the crossing
+     * @param greenPhaseDuration the new duration of the green phase, positive
+     */
+    public void setGreenPhaseDuration(int id, int greenPhaseDuration) {
+        ((Crossing) nodeMap.get(id)).setGreenPhaseDuration(greenPhaseDuration);
+    }
+
+    /**
+     * method to check the number of streets of a node again after it changed.
+     * This keeps the validity of the graph up to date in constant time per change.
+     * @param node the node that changed
+     */
+    private void revalidateNode(StreetNode node) {
+        if (node.isValid()) {
+            invalidNodeIds.remove(node.getID());
+        } else {
+            invalidNodeIds.add(node.getID());
+        }
+    }
+
+    /**
+     * method to get the ids of all nodes that have too few or too many streets
+     * @return an unmodifiable view of the ids in ascending order
+     */
+    public NavigableSet<Integer> getInvalidNodeIds() {
+        return Collections.unmodifiableNavigableSet(invalidNodeIds);
+    }
+
+    /**
+     * method to check if a node has too few or too many streets without creating a view of their ids,
+     * so it can be checked before every simulated tick
+     * @return true if there is at least one such node
+     */
+    public boolean hasInvalidNodes() {
+        return !invalidNodeIds.isEmpty();
+    }
+
+    /**
+     * method that has to be called after streets or nodes were added, removed or changed on a running simulation.
+     * The recorded history can not replay ticks before the change, so it restarts at the current tick.
+     */
+    public void afterTopologyChange() {
+        if (history != null) {
+            history.afterTopologyChange();
+        }
     }
 
     /**
@@ -147,12 +649,101 @@ public boolean isValid() {
     }
 
     /**
-     * method to check if a car with a given id exists in the carMap
+     * method to check if a car with a given id exists in the carTable
      * @param carID the id of the car
      * @return true if the car exists, false otherwise
      */
     public boolean containsCar(int carID) {
-        return carMap.containsKey(carID);
+        return carTable.contains(carID);
+    }
+
+    /**
+     * method to get the number of nodes in the graph
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return nodeMap.size();
+    }
+
+    /**
+     * method to get the number of streets in the graph
+     * @return the number of streets
+     */
+    public int getStreetCount() {
+        return streetMap.size();
+    }
+
+    /**
+     * method to get the number of cars in the graph
+     * @return the number of cars
+     */
+    public int getCarCount() {
+        return carTable.size();
+    }
+
+    /**
+     * method to compute the memory the graph uses from the sizes of its structures.
+     * No objects are visited except the streets, the nodes and their statistics,
+     * so the report is cheap enough to create while simulating.
+     * @return the footprint of the graph
+     */
+    public MemoryReport getMemoryReport() {
+        MemoryReport report = new MemoryReport(carTable.size(), streetMap.size(), nodeMap.size());
+        report.add(MemoryCategory.CAR_STATE, carTable.getCarStateBytes());
+        report.add(MemoryCategory.ID_MAPS, carTable.getIdMapBytes()
+                + (streetMap.size() + nodeMap.size() + invalidNodeIds.size()) * MemoryLayout.TREE_MAP_ENTRY_BYTES);
+        for (Street street : streetMap.values()) {
+            report.add(MemoryCategory.STREET_QUEUES, street.getQueueBytes());
+            report.add(MemoryCategory.NODE_ADJACENCY, street.getAdjacencyBytes());
+            report.add(MemoryCategory.STATISTICS, street.getStatistics().getFootprintBytes());
+        }
+        for (StreetNode node : nodeMap.values()) {
+            report.add(MemoryCategory.STATISTICS, node.getStatistics().getFootprintBytes());
+        }
+        report.add(MemoryCategory.NODE_ADJACENCY, nodeMap.size() * StreetNode.FOOTPRINT_BYTES
+                + sources.length * CarSource.FOOTPRINT_BYTES + MemoryLayout.referenceArray(sources.length)
+                + MemoryLayout.referenceArray(tickNodes.length) + MemoryLayout.referenceArray(tickStreets.length)
+                + MemoryLayout.referenceArray(layoutNodes.length) + MemoryLayout.referenceArray(layoutStreets.length));
+        if (routingTable != null) {
+            report.add(MemoryCategory.ROUTING, routingTable.getFootprintBytes());
+        }
+        if (history != null) {
+            report.add(MemoryCategory.HISTORY, history.getUsedBytes());
+        }
+        return report;
+    }
+
+    /**
+     * method to estimate the memory a graph will use right after it was loaded, before any file is parsed.
+     * The estimate uses the same sizes as {@link #getMemoryReport()} with the number of elements of the files.
+     * The routing tables are not included because they are only built when cars with a destination need them,
+     * the history only contains its first keyframe and the statistics windows are still empty.
+     * @param nodeCount the number of nodes
+     * @param streetLengths the length of every street
+     * @param streetsWithCars true for every street cars are placed on
+     * @param carCount the number of cars
+     * @param sourceCount the number of sources
+     * @return the estimated footprint
+     */
+    public static MemoryReport estimateMemoryReport(int nodeCount, int[] streetLengths, boolean[] streetsWithCars,
+            int carCount, int sourceCount) {
+        int streetCount = streetLengths.length;
+        MemoryReport report = new MemoryReport(carCount, streetCount, nodeCount);
+        report.add(MemoryCategory.CAR_STATE, CarTable.estimateCarStateBytes(carCount));
+        report.add(MemoryCategory.ID_MAPS, CarTable.estimateIdMapBytes(carCount)
+                + (streetCount + nodeCount) * MemoryLayout.TREE_MAP_ENTRY_BYTES);
+        for (int i = 0; i < streetCount; i++) {
+            report.add(MemoryCategory.STREET_QUEUES, Street.estimateQueueBytes(streetLengths[i], streetsWithCars[i]));
+        }
+        //every street is upstream of one street on average and the tick and layout arrays hold every node and street
+        report.add(MemoryCategory.NODE_ADJACENCY, streetCount * (Street.estimateAdjacencyBytes(1)
+                + 2 * MemoryLayout.REFERENCE_BYTES) + nodeCount * (StreetNode.FOOTPRINT_BYTES
+                + 2 * MemoryLayout.REFERENCE_BYTES) + sourceCount * CarSource.FOOTPRINT_BYTES);
+        report.add(MemoryCategory.STATISTICS, streetCount * StreetStatistics.EMPTY_FOOTPRINT_BYTES
+                + nodeCount * NodeStatistics.EMPTY_FOOTPRINT_BYTES);
+        report.add(MemoryCategory.HISTORY, (long) Integer.BYTES
+                * (1 + carCount * CAR_STATE_SIZE + nodeCount * StreetNode.STATE_SIZE + sourceCount));
+        return report;
     }
 
     /**
@@ -172,8 +763,83 @@ public boolean streetIdHasSpaceForCar(int streetID) {
      * @param car the car to add
      */
     public void addCarToStreet(int streetID, Car car) {
-        carMap.put(car.getId(), car);
-        streetMap.get(streetID).addCar(car.getId());
+        Car added = carTable.add(car);
+        streetMap.get(streetID).addCar(added.getId());
+        stateHash += added.stateHash();
+    }
+
+    /**
+     * method to add a source that lets new cars enter the graph
+     * @param source the source
+     */
+    public void addSource(CarSource source) {
+        sources = Arrays.copyOf(sources, sources.length + 1);
+        sources[sources.length - 1] = source;
+        tickArraysOutdated = true;
+    }
+
+    /**
+     * method to let a new car enter a street at its beginning with speed 0.
+     * The car gets an unused id, ids and car objects of removed cars are reused.
+     * @param streetID the id of the street
+     * @param wantedSpeed the speed the car wants to drive at
+     * @param acceleration the acceleration of the car
+     * @param destination the destination of the car or {@link Car#NO_DESTINATION}
+     * @return the id of the new car or -1 if the beginning of the street is occupied
+     */
+    public int injectCar(int streetID, int wantedSpeed, int acceleration, int destination) {
+        int carId = enterCar(streetID, wantedSpeed, acceleration, destination);
+        if (carId >= 0 && history != null) {
+            history.afterModification();
+        }
+        return carId;
+    }
+
+    /**
+     * method to let a new car enter a street, used by {@link #injectCar(int, int, int, int)} and by the sources
+     * @param streetID the id of the street
+     * @param wantedSpeed the speed the car wants to drive at
+     * @param acceleration the acceleration of the car
+     * @param destination the destination of the car or {@link Car#NO_DESTINATION}
+     * @return the id of the new car or -1 if the beginning of the street is occupied
+     */
+    private int enterCar(int streetID, int wantedSpeed, int acceleration, int destination) {
+        Street street = streetMap.get(streetID);
+        if (!street.hasSpaceForCar()) {
+            return -1;
+        }
+
+        Car car = carTable.addNew(carTable.allocateId(), acceleration, wantedSpeed);
+        car.setDestination(destination);
+        street.carEntersAtStart(car);
+        stateHash += car.stateHash();
+        return car.getId();
+    }
+
+    /**
+     * method to remove a car from the graph. Its id and the car object are reused later.
+     * @param carID the id of the car
+     */
+    public void removeCar(int carID) {
+        thawGridlocks();
+        Car car = carTable.get(carID);
+        streetMap.get(car.getOnStreetId()).removeCar(car);
+        stateHash -= car.stateHash();
+        carTable.remove(car);
+        if (history != null) {
+            history.afterModification();
+        }
+    }
+
+    /**
+     * method to remove a car that left the graph at a sink during a tick.
+     * The car has to be removed from its street already.
+     * @param car the car
+     * @param carHash the state hash the car had at the beginning of the tick
+     */
+    void carLeaves(Car car, long carHash) {
+        stateHash -= carHash;
+        carTable.remove(car);
     }
     
     /**
@@ -183,7 +849,7 @@ public void addCarToStreet(int streetID, Car car) {
      * @return the position of the car on the street it is on
      */
     public int getCarPosition(int carId) {
-        Car car = carMap.get(carId);
+        Car car = carTable.get(carId);
         return car.getPositionOnStreet();
     }
 
@@ -193,7 +859,7 @@ public int getCarPosition(int carId) {
      * @return the id of the street the car is on
      */
     public int getCarOnStreetId(int carId) {
-        Car car = carMap.get(carId);
+        Car car = carTable.get(carId);
         return car.getOnStreetId();
     }
 
@@ -203,7 +869,7 @@ public int getCarOnStreetId(int carId) {
      * @return the speed of the car
      */
     public int getCarSpeed(int carId) {
-        Car car = carMap.get(carId);
+        Car car = carTable.get(carId);
         return car.getCurrentSpeed();
     }
 
@@ -214,32 +880,584 @@ public int getCarSpeed(int carId) {
      * @return the position of the car on the street it is on
      */
     public int getCarPositionOnStreet(int carId) {
-        Car car = carMap.get(carId);
+        Car car = carTable.get(carId);
         return car.getPositionOnStreet();
     }
 
+    /**
+     * method to get the implementation of the speed phase
+     * @return the implementation of the speed phase
+     */
+    public SpeedUpdate getSpeedUpdate() {
+        return speedUpdate;
+    }
+
+    /**
+     * method to set the implementation of the speed phase of all streets.
+     * Every implementation gives the same result, this only changes how fast it is computed.
+     * @param speedUpdate the implementation of the speed phase
+     */
+    public void setSpeedUpdate(SpeedUpdate speedUpdate) {
+        this.speedUpdate = speedUpdate;
+        for (Street street : streetMap.values()) {
+            street.setSpeedUpdate(speedUpdate);
+        }
+    }
+
+    /**
+     * method to get the storage the state of the cars is allocated in
+     * @return the storage of the car table and of the car columns of the streets
+     */
+    public Storage getStorage() {
+        return storage;
+    }
+
+    /**
+     * method to move the state of all cars into another storage, for example out of the heap.
+     * The car table and the car columns of all streets are copied and the cars get new car objects,
+     * the simulation gives the same result. Must only be called between two ticks.
+     * @param storage the new storage
+     */
+    public void setStorage(Storage storage) {
+        if (storage == this.storage) {
+            return;
+        }
+        this.storage = storage;
+        carTable.setStorage(storage);
+        for (Street street : streetMap.values()) {
+            street.moveStorage(storage);
+            street.refreshCars();
+        }
+    }
+
+    /**
+     * method to get the number of ticks the traffic statistics cover
+     * @return the size of the statistics window
+     */
+    public int getStatisticsWindowSize() {
+        return statisticsWindowSize;
+    }
+
+    /**
+     * method to change the number of ticks the traffic statistics cover.
+     * All statistics collected so far are discarded.
+     * @param windowSize the new size of the statistics window
+     */
+    public void setStatisticsWindowSize(int windowSize) {
+        statisticsWindowSize = windowSize;
+        for (Street street : streetMap.values()) {
+            street.resetStatistics(windowSize);
+        }
+        for (StreetNode node : nodeMap.values()) {
+            node.resetStatistics(windowSize);
+        }
+    }
+
+    /**
+     * method to get the number of ticks that were simulated since the graph was loaded
+     * @return the current tick of the graph
+     */
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * method to start recording a keyframe history for this graph.
+     * The current state becomes the first keyframe.
+     * @param keyframeSpacing the number of ticks between two keyframes
+     * @param memoryBudget the maximum number of bytes all keyframes together may use
+     */
+    public void enableHistory(int keyframeSpacing, long memoryBudget) {
+        enableHistory(keyframeSpacing, memoryBudget, false);
+    }
+
+    /**
+     * method to start recording a keyframe history, optionally outside of the heap.
+     * A previously recorded history is discarded.
+     * @param keyframeSpacing the number of ticks between two keyframes
+     * @param memoryBudget the maximum number of bytes the keyframes may use
+     * @param offHeap true if the keyframes should be stored in direct buffers outside of the heap
+     */
+    public void enableHistory(int keyframeSpacing, long memoryBudget, boolean offHeap) {
+        history = new KeyframeHistory(this, keyframeSpacing, memoryBudget, offHeap);
+    }
+
+    /**
+     * method to stop recording the keyframe history and discard the recorded keyframes
+     */
+    public void disableHistory() {
+        history = null;
+    }
+
+    /**
+     * method to get the next-hop tables of this graph. They are built when they are needed the first time
+     * and rebuilt after nodes or streets were added.
+     * @return the routing table of the graph
+     */
+    public RoutingTable getRoutingTable() {
+        if (routingTable == null) {
+            routingTable = new RoutingTable(nodeMap.values().toArray(new StreetNode[0]), RoutingTable.DEFAULT_CAPACITY);
+        }
+        return routingTable;
+    }
+
+    /**
+     * method to get the keyframe history of this graph
+     * @return the keyframe history or null if no history is recorded
+     */
+    public KeyframeHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * method to create a new graph with the same nodes, streets and sources as this graph.
+     * The cars and the state of the nodes are not copied, use {@link #restoreState(long, int[])} for that.
+     * @return the new graph
+     */
+    public SimulationGraph copyTopology() {
+        SimulationGraph copy = new SimulationGraph();
+        copy.speedUpdate = speedUpdate;
+        copy.setStorage(storage);
+        copy.statisticsWindowSize = statisticsWindowSize;
+        copy.localityOrder = localityOrder;
+        copy.mesoscopicMinLength = mesoscopicMinLength;
+        copy.gridlockDetection = gridlockDetection;
+
+        for (StreetNode node : nodeMap.values()) {
+            copy.addNode(node.getID(), node.getGreenPhaseDuration());
+            copy.getNodeById(node.getID()).setSink(node.isSink());
+        }
+        for (Street street : streetMap.values()) {
+            copy.addStreet(street.getStartNodeId(), street.getEndNodeId(), street.getLength(),
+                    street.getType(), street.getMaxSpeed());
+        }
+        for (CarSource source : sources) {
+            copy.addSource(new CarSource(source.getStreetId(), source.getInterval(), source.getWantedSpeed(),
+                    source.getAcceleration(), source.getDestination()));
+        }
+        copy.tickArraysOutdated = true;
+
+        return copy;
+    }
+
+    /**
+     * method to get the number of integers {@link #saveState(IntBuffer)} writes
+     * @return the size of the state of the graph
+     */
+    public int getStateSize() {
+        return 1 + carTable.size() * CAR_STATE_SIZE + nodeMap.size() * StreetNode.STATE_SIZE
+                + sources.length + carTable.getIdStateSize();
+    }
+
+    /**
+     * method to write the complete mutable state of all cars, nodes and sources into a new array
+     * @return the state of the graph
+     */
+    public int[] saveState() {
+        int[] state = new int[getStateSize()];
+        saveState(IntBuffer.wrap(state));
+        return state;
+    }
+
+    /**
+     * method to write the complete mutable state of all cars, nodes and sources into a buffer,
+     * starting at index 0 of the buffer. The buffer can be on the heap, off the heap or mapped to a file.
+     * The layout is: the number of cars, then {@value #CAR_STATE_SIZE} integers per car
+     * (id, street, position, speed, wanted direction, destination, acceleration, wanted speed),
+     * the state of every node in id order, the timer of every source and the state of the id allocation.
+     * @param state the buffer to write to, with at least {@link #getStateSize()} integers
+     */
+    public void saveState(IntBuffer state) {
+        int index = 0;
+        state.put(index++, carTable.size());
+        for (int slot = 0; slot < carTable.getSlotLimit(); slot++) {
+            Car car = carTable.getSlot(slot);
+            if (car == null) {
+                continue;
+            }
+            state.put(index++, car.getId());
+            state.put(index++, car.getOnStreetId());
+            state.put(index++, car.getPositionOnStreet());
+            state.put(index++, car.getCurrentSpeed());
+            state.put(index++, car.getWantedDirection());
+            state.put(index++, car.getDestination());
+            state.put(index++, car.getAcceleration());
+            state.put(index++, car.getWantedSpeed());
+        }
+        //the history saves a state every few ticks, so the iterator of the map is avoided while the arrays are current
+        StreetNode[] nodes = tickArraysOutdated ? nodeMap.values().toArray(new StreetNode[0]) : tickNodes;
+        for (StreetNode node : nodes) {
+            node.saveState(state, index);
+            index += StreetNode.STATE_SIZE;
+        }
+        for (CarSource source : sources) {
+            state.put(index++, source.getTimer());
+        }
+        carTable.saveIds(state, index);
+    }
+
+    /**
+     * method to restore a state that was created by {@link #saveState()} on this graph
+     * or on a graph with the same topology.
+     * @param tick the tick the state belongs to
+     * @param state the state to restore
+     */
+    public void restoreState(long tick, int[] state) {
+        restoreState(tick, IntBuffer.wrap(state));
+    }
+
+    /**
+     * method to restore a state that was written by {@link #saveState(IntBuffer)} on this graph
+     * or on a graph with the same topology.
+     * @param tick the tick the state belongs to
+     * @param state the buffer to read from, starting at index 0
+     */
+    public void restoreState(long tick, IntBuffer state) {
+        thawGridlocks();
+        for (Street street : streetMap.values()) {
+            street.clearCars();
+            street.resetLookahead();
+        }
+        carTable.clear();
+
+        int index = 0;
+        int carCount = state.get(index++);
+        for (int i = 0; i < carCount; i++) {
+            Car car = carTable.addNew(state.get(index), state.get(index + 6), state.get(index + 7));
+            car.setOnStreetId(state.get(index + 1));
+            car.setPositionOnStreet(state.get(index + 2));
+            car.setSpeed(state.get(index + 3));
+            car.setWantedDirection(state.get(index + 4));
+            car.setDestination(state.get(index + 5));
+            index += CAR_STATE_SIZE;
+            streetMap.get(car.getOnStreetId()).placeCar(car);
+        }
+        for (StreetNode node : nodeMap.values()) {
+            node.restoreState(state, index);
+            index += StreetNode.STATE_SIZE;
+        }
+        for (CarSource source : sources) {
+            source.setTimer(state.get(index++));
+        }
+        carTable.restoreIds(state, index);
+
+        currentTick = tick;
+        stateHash = computeStateHash();
+    }
+
+    /**
+     * method to get the hash of the current state of all cars and nodes.
+     * The hash is maintained incrementally and therefore available in constant time.
+     * @return the state hash of the graph
+     */
+    public long getStateHash() {
+        return stateHash;
+    }
+
+    /**
+     * method to replace the hash of a car or node in the state hash of the graph.
+     * Has to be called whenever the state of a car or node changes.
+     * @param oldEntityHash the hash the car or node had before the change
+     * @param newEntityHash the hash the car or node has after the change
+     */
+    public void updateStateHash(long oldEntityHash, long newEntityHash) {
+        stateHash += newEntityHash - oldEntityHash;
+    }
+
+    /**
+     * method to compute the hash of the current state of all cars and nodes from scratch
+     * @return the state hash of the graph
+     */
+    public long computeStateHash() {
+        long hash = 0;
+        for (int slot = 0; slot < carTable.getSlotLimit(); slot++) {
+            Car car = carTable.getSlot(slot);
+            if (car != null) {
+                hash += car.stateHash();
+            }
+        }
+        for (StreetNode node : nodeMap.values()) {
+            hash += node.stateHash();
+        }
+        return hash;
+    }
+
+    /**
+     * this method simulates a number of ticks.
+     * Streets that can not interact with the rest of the graph for several ticks are advanced
+     * on their own for these ticks, which gives exactly the same result as simulating tick by tick.
+     * All streets are up to date again at the end, at every keyframe of the history,
+     * and the lookahead is not used while a watcher or a change publisher needs the ticks in order.
+     * @param ticks the number of ticks to simulate
+     */
+    public void simulate(long ticks) {
+        SimulateEvent event = new SimulateEvent();
+        event.begin();
+        long endTick = currentTick + ticks;
+        while (currentTick < endTick) {
+            long syncTick = endTick;
+            if (history != null) {
+                syncTick = Math.min(syncTick, history.getNextKeyframeTick());
+            }
+            boolean lookahead = watcher == null && changePublisher == null;
+            tick(lookahead ? syncTick : currentTick + 1);
+        }
+        if (event.shouldCommit()) {
+            event.setFirstTick(endTick - ticks);
+            event.setTickCount(ticks);
+            event.commit();
+        }
+    }
+
+    /**
+     * this method simulates at least one tick until a condition is met after a tick
+     * or a maximum number of ticks was simulated. The condition watches the ticks,
+     * so every tick is simulated on its own without the lookahead.
+     * @param condition the condition, it is started on the current state of the graph
+     * @param maxTicks the maximum number of ticks to simulate
+     * @return the number of simulated ticks
+     */
+    public long simulateUntil(StopCondition condition, long maxTicks) {
+        SimulateEvent event = new SimulateEvent();
+        event.begin();
+        long firstTick = currentTick;
+        condition.start(this);
+        setWatcher(condition);
+        try {
+            for (long i = 0; i < maxTicks; i++) {
+                tick();
+                if (condition.isMet()) {
+                    break;
+                }
+            }
+        } finally {
+            setWatcher(null);
+        }
+        long ticks = currentTick - firstTick;
+        if (event.shouldCommit()) {
+            event.setFirstTick(firstTick);
+            event.setTickCount(ticks);
+            event.commit();
+        }
+        return ticks;
+    }
+
     /**
      * this method simulates one tick of the simulation.
      * it updates the position of all cars
      */
     public void tick() {
+        tick(currentTick + 1);
+    }
+
+    /**
+     * this method simulates one tick of the simulation.
+     * it updates the position of all cars
+     * @param syncTick the tick all streets have to be up to date at, streets are not advanced beyond it
+     */
+    private void tick(long syncTick) {
+        TickEvent event = new TickEvent();
+        event.begin();
+        long movedCarsBefore = movedCarCount;
+        long crossingsBefore = crossingCount;
+
+        if (tickArraysOutdated) {
+            updateTickArrays();
+        }
         
-        //tick all nodes
-        for (Integer nodeKey : nodeMap.navigableKeySet()) {
-            nodeMap.get(nodeKey).tick();
+        //tick all nodes, every node only changes its own state so the order does not matter
+        for (StreetNode node : layoutNodes) {
+            node.tick();
         }
 
         //set all cars to not crossed this tick
-        for (Entry<Integer, Car> carEntry : carMap.entrySet()) {
-            Car car = carEntry.getValue();
-            car.setAlreadyCrossedThisTick(false);
+        for (int slot = 0; slot < carTable.getSlotLimit(); slot++) {
+            Car car = carTable.getSlot(slot);
+            if (car != null) {
+                car.setAlreadyCrossedThisTick(false);
+            }
         }
 
-        //update all car positions
-        for (Integer streetKey : streetMap.navigableKeySet()) {
-            streetMap.get(streetKey).updateCarPositions();
+        //update all car positions, streets without interaction are advanced by several ticks at once
+        boolean lookahead = syncTick - currentTick >= MIN_LOOKAHEAD_TICKS;
+        for (Street street : tickStreets) {
+            if (street.isFrozen()) {
+                street.updateFrozen();
+                continue;
+            }
+            if (street.isAdvancedBeyond(currentTick)) {
+                continue;
+            }
+            int horizon = lookahead ? (int) Math.min(street.computeHorizon(maxStreetSpeed), syncTick - currentTick) : 0;
+            if (horizon >= MIN_LOOKAHEAD_TICKS) {
+                street.advance(horizon, currentTick);
+            } else {
+                street.updateCarPositions();
+            }
         }
-        
+
+        //let new cars enter at the sources
+        for (CarSource source : sources) {
+            if (source.tick()) {
+                enterCar(source.getStreetId(), source.getWantedSpeed(), source.getAcceleration(),
+                        source.getDestination());
+            }
+        }
+
+        //finish the statistics of this tick, advanced streets already recorded theirs
+        for (Street street : layoutStreets) {
+            if (!street.isAdvancedBeyond(currentTick)) {
+                street.recordStatistics();
+            }
+        }
+        for (StreetNode node : layoutNodes) {
+            node.getStatistics().endTick();
+        }
+
+        currentTick++;
+
+        if (gridlockDetection && currentTick % GRIDLOCK_CHECK_INTERVAL == 0) {
+            detectGridlocks();
+        }
+        if (history != null) {
+            history.afterTick();
+        }
+        if (changePublisher != null) {
+            changePublisher.afterTick();
+        }
+
+        if (event.shouldCommit()) {
+            event.setTick(currentTick);
+            event.setCarsMoved(movedCarCount - movedCarsBefore);
+            event.setCrossings(crossingCount - crossingsBefore);
+            event.commit();
+        }
+    }
+
+    /**
+     * method to count the movements of the cars of one street in one tick
+     * @param movedCars the number of cars that changed their position or street
+     * @param crossings the number of cars that crossed a node or left the graph
+     */
+    void countMovements(int movedCars, int crossings) {
+        movedCarCount += movedCars;
+        crossingCount += crossings;
+    }
+
+    /**
+     * method to rebuild the arrays the tick iterates over after nodes or streets were added
+     */
+    private void updateTickArrays() {
+        //new or removed streets change the directions of the cars, so every gridlock has to be found again
+        thawGridlocks();
+        tickNodes = nodeMap.values().toArray(new StreetNode[0]);
+        tickStreets = streetMap.values().toArray(new Street[0]);
+        tickArraysOutdated = false;
+        updateNeighbourhoods();
+        if (localityOrder) {
+            computeLayout();
+        } else {
+            layoutNodes = tickNodes;
+            layoutStreets = tickStreets;
+        }
+    }
+
+    /**
+     * method to give every street its upstream streets and sources, which the lookahead needs
+     */
+    private void updateNeighbourhoods() {
+        maxStreetSpeed = 0;
+        for (Street street : tickStreets) {
+            maxStreetSpeed = Math.max(maxStreetSpeed, street.getMaxSpeed());
+
+            StreetNode startNode = nodeMap.get(street.getStartNodeId());
+            Street[] upstreamStreets = new Street[startNode.inputStreetCount()];
+            for (int i = 0; i < upstreamStreets.length; i++) {
+                upstreamStreets[i] = streetMap.get(startNode.getInputStreetId(i));
+            }
+
+            int sourceCount = 0;
+            for (CarSource source : sources) {
+                if (source.getStreetId() == street.getId()) {
+                    sourceCount++;
+                }
+            }
+            CarSource[] streetSources = new CarSource[sourceCount];
+            for (CarSource source : sources) {
+                if (source.getStreetId() == street.getId()) {
+                    streetSources[--sourceCount] = source;
+                }
+            }
+
+            street.setNeighbourhood(upstreamStreets, streetSources);
+        }
+    }
+
+    /**
+     * method to arrange the nodes and streets in breadth-first order of the network.
+     * Every node is visited once, following streets in both directions, starting at the node with the smallest id
+     * of every part of the network. The output streets of a node are placed when the node is visited,
+     * so the streets a car can cross to from a street are close to each other.
+     */
+    private void computeLayout() {
+        int nodeCount = tickNodes.length;
+        int[] nodeIds = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodeIds[i] = tickNodes[i].getID();
+        }
+
+        boolean[] visited = new boolean[nodeCount];
+        StreetNode[] nodeOrder = new StreetNode[nodeCount];
+        Street[] streetOrder = new Street[tickStreets.length];
+        int head = 0;
+        int tail = 0;
+        int streetCount = 0;
+        for (int root = 0; root < nodeCount; root++) {
+            if (visited[root]) {
+                continue;
+            }
+            visited[root] = true;
+            nodeOrder[tail++] = tickNodes[root];
+            while (head < tail) {
+                StreetNode node = nodeOrder[head++];
+                for (int direction = 0; direction < node.outputStreetCount(); direction++) {
+                    Street street = node.getOutputStreet(direction);
+                    streetOrder[streetCount++] = street;
+                    int next = Arrays.binarySearch(nodeIds, street.getEndNodeId());
+                    if (!visited[next]) {
+                        visited[next] = true;
+                        nodeOrder[tail++] = tickNodes[next];
+                    }
+                }
+                for (int i = 0; i < node.inputStreetCount(); i++) {
+                    int startNodeId = streetMap.get(node.getInputStreetId(i)).getStartNodeId();
+                    int previous = Arrays.binarySearch(nodeIds, startNodeId);
+                    if (!visited[previous]) {
+                        visited[previous] = true;
+                        nodeOrder[tail++] = tickNodes[previous];
+                    }
+                }
+            }
+        }
+
+        layoutNodes = nodeOrder;
+        layoutStreets = streetOrder;
+    }
+
+    /**
+     * method to move the storage of all streets and cars into newly allocated memory in the order of the layout.
+     * The car table is rebuilt in the same order, so the slots of the cars of neighbouring streets are adjacent.
+     */
+    private void relocateStorage() {
+        Car[] carOrder = new Car[carTable.size()];
+        int carCount = 0;
+        for (Street street : layoutStreets) {
+            street.relocateStorage();
+            for (int i = 0; i < street.getCarCount(); i++) {
+                carOrder[carCount++] = street.getCar(i);
+            }
+        }
+        carTable.reorder(carOrder);
     }
 
 }
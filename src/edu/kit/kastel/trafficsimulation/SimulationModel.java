@@ -0,0 +1,118 @@
+package edu.kit.kastel.trafficsimulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * this class describes a simulation in memory with the same content as the .sim files.
+ * A {@link SimulationEngine} can load it without writing and parsing files.
+ * The elements are checked when the model is loaded, not when they are added.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public class SimulationModel {
+
+    /** all nodes as {id, green phase duration} */
+    private final List<int[]> nodes = new ArrayList<>();
+
+    /** all streets as {start node, end node, length, type, speed limit}, the index is the id of the street */
+    private final List<int[]> streets = new ArrayList<>();
+
+    /** all cars as {id, street, wanted speed, acceleration, destination} */
+    private final List<int[]> cars = new ArrayList<>();
+
+    /** all sources as {street, interval, wanted speed, acceleration, destination} */
+    private final List<int[]> sources = new ArrayList<>();
+
+    /** the ids of all sink nodes */
+    private final List<Integer> sinks = new ArrayList<>();
+
+    /**
+     * method to add a crossing or roundabout
+     * @param id the id of the node
+     * @param greenPhaseDuration the duration of the green phase, 0 for a roundabout
+     */
+    public void addNode(int id, int greenPhaseDuration) {
+        nodes.add(new int[] {id, greenPhaseDuration});
+    }
+
+    /**
+     * method to add a street. Streets get their ids in the order they are added, starting at 0.
+     * @param startNode the id of the node the street starts at
+     * @param endNode the id of the node the street ends at
+     * @param length the length of the street
+     * @param type the type of the street (1 = only one lane, 2 = two lanes)
+     * @param speedLimit the maximum speed allowed on the street
+     * @return the id the street gets
+     */
+    public int addStreet(int startNode, int endNode, int length, int type, int speedLimit) {
+        streets.add(new int[] {startNode, endNode, length, type, speedLimit});
+        return streets.size() - 1;
+    }
+
+    /**
+     * method to add a car behind the cars that were already added to its street
+     * @param id the id of the car
+     * @param streetId the id of the street the car starts on
+     * @param wantedSpeed the speed the car wants to drive at
+     * @param acceleration the acceleration of the car
+     */
+    public void addCar(int id, int streetId, int wantedSpeed, int acceleration) {
+        addCar(id, streetId, wantedSpeed, acceleration, Car.NO_DESTINATION);
+    }
+
+    /**
+     * method to add a car that is routed to a destination
+     * @param id the id of the car
+     * @param streetId the id of the street the car starts on
+     * @param wantedSpeed the speed the car wants to drive at
+     * @param acceleration the acceleration of the car
+     * @param destination the id of the destination node or {@link Car#NO_DESTINATION}
+     */
+    public void addCar(int id, int streetId, int wantedSpeed, int acceleration, int destination) {
+        cars.add(new int[] {id, streetId, wantedSpeed, acceleration, destination});
+    }
+
+    /**
+     * method to add a source that lets new cars enter a street
+     * @param streetId the id of the street the cars enter
+     * @param interval the number of ticks between two cars
+     * @param wantedSpeed the speed the new cars want to drive at
+     * @param acceleration the acceleration of the new cars
+     * @param destination the destination of the new cars or {@link Car#NO_DESTINATION}
+     */
+    public void addSource(int streetId, int interval, int wantedSpeed, int acceleration, int destination) {
+        sources.add(new int[] {streetId, interval, wantedSpeed, acceleration, destination});
+    }
+
+    /**
+     * method to mark a node as a sink where cars leave the graph
+     * @param nodeId the id of the node
+     */
+    public void addSink(int nodeId) {
+        sinks.add(nodeId);
+    }
+
+    /**
+     * method to check and add all elements of the model to an empty graph
+     * @param graph the graph
+     */
+    void buildInto(SimulationGraph graph) {
+        for (int[] node : nodes) {
+            GraphBuilder.addCrossing(graph, node[0], node[1], null);
+        }
+        for (int[] street : streets) {
+            GraphBuilder.addStreet(graph, street[0], street[1], street[2], street[3], street[4], null);
+        }
+        for (int[] car : cars) {
+            GraphBuilder.addCar(graph, car[0], car[1], car[2], car[3], car[4], null);
+        }
+        for (int[] source : sources) {
+            GraphBuilder.addSource(graph, source[0], source[1], source[2], source[3], source[4], null);
+        }
+        for (int sink : sinks) {
+            GraphBuilder.addSink(graph, sink, null);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package edu.kit.kastel.trafficsimulation;
+
+/**
+ * this class contains the hash functions used to fingerprint the state of a simulation.
+ * The hash of a whole graph is the sum of the hashes of all cars and nodes.
+ * Because the sum does not depend on the order of its parts it can be updated
+ * incrementally by subtracting the old hash of an entity and adding its new hash.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public final class StateHash {
+
+    /** the constant the hashes of cars are salted with */
+    private static final long CAR_SALT = 0x3C6EF372FE94F82BL;
+
+    /** the constant the hashes of nodes are salted with */
+    private static final long NODE_SALT = 0xA54FF53A5F1D36F1L;
+
+    /** the mask to get the lower 32 bits of a long */
+    private static final long LOWER_BITS = 0xFFFFFFFFL;
+
+    /**
+     * private constructor because this is a utility class
+     */
+    private StateHash() {
+    }
+
+    /**
+     * method to compute the hash of the state of a car
+     * @param id the id of the car
+     * @param streetId the id of the street the car is on
+     * @param position the position of the car on the street
+     * @param speed the current speed of the car
+     * @param wantedDirection the direction the car wants to go to
+     * @return the hash of the car
+     */
+    public static long ofCar(int id, int streetId, int position, int speed, int wantedDirection) {
+        long hash = mix(((long) id << Integer.SIZE) | (streetId & LOWER_BITS));
+        hash = mix(hash ^ (((long) position << Integer.SIZE) | (speed & LOWER_BITS)));
+        return mix(hash ^ wantedDirection ^ CAR_SALT);
+    }
+
+    /**
+     * method to compute the hash of the state of a car that may be routed to a destination.
+     * Cars without a destination have the same hash as computed by {@link #ofCar(int, int, int, int, int)}.
+     * @param id the id of the car
+     * @param streetId the id of the street the car is on
+     * @param position the position of the car on the street
+     * @param speed the current speed of the car
+     * @param wantedDirection the direction the car wants to go to
+     * @param destination the id of the destination node or {@link Car#NO_DESTINATION}
+     * @return the hash of the car
+     */
+    public static long ofCar(int id, int streetId, int position, int speed, int wantedDirection, int destination) {
+        long hash = ofCar(id, streetId, position, speed, wantedDirection);
+        if (destination == Car.NO_DESTINATION) {
+            return hash;
+        }
+        return mix(hash ^ destination);
+    }
+
+    /**
+     * method to compute the hash of the state of a node
+     * @param id the id of the node
+     * @param greenPhaseIndicator the index of the input street that is currently green
+     * @param greenPhaseTimer the timer of the current green phase
+     * @return the hash of the node
+     */
+    public static long ofNode(int id, int greenPhaseIndicator, int greenPhaseTimer) {
+        long hash = mix(((long) id << Integer.SIZE) | (greenPhaseIndicator & LOWER_BITS));
+        return mix(hash ^ greenPhaseTimer ^ NODE_SALT);
+    }
+
+    /**
+     * the finalizer of the SplitMix64 generator. It spreads every input bit over the whole result.
+     * @param value the value to mix
+     * @return the mixed value
+     */
+    private static long mix(long value) {
+        long result = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        result = (result ^ (result >>> 27)) * 0x94D049BB133111EBL;
+        return result ^ (result >>> 31);
+    }
+}
@@ -1,11 +1,15 @@
 package edu.kit.kastel.trafficsimulation;
 
-import java.util.NavigableMap;
-import java.util.Map.Entry;
+import jdk.jfr.EventType;
 
 import edu.kit.kastel.trafficsimulation.StreetNodes.StreetNode;
-
-import java.util.TreeMap;
+import edu.kit.kastel.trafficsimulation.memory.MemoryLayout;
+import edu.kit.kastel.trafficsimulation.profiling.BlockedCrossingEvent;
+import edu.kit.kastel.trafficsimulation.speed.SpeedUpdate;
+import edu.kit.kastel.trafficsimulation.statistics.StreetStatistics;
+import edu.kit.kastel.trafficsimulation.storage.IntBlock;
+import edu.kit.kastel.trafficsimulation.storage.Storage;
+import edu.kit.kastel.trafficsimulation.watch.SimulationWatcher;
 
 /**
  * This class represents a street in the simulation.
@@ -16,6 +20,13 @@
  */
 public class Street {
 
+    /** the number of bytes a street object uses: eight int fields, a long field, three booleans and nine references */
+    private static final long FOOTPRINT_BYTES
+            = MemoryLayout.object(8 * Integer.BYTES + Long.BYTES + 3 + 9 * MemoryLayout.REFERENCE_BYTES);
+
+    /** the type of the blocked crossing event, to check if it is recorded without creating an event */
+    private static final EventType BLOCKED_CROSSING_TYPE = EventType.getEventType(BlockedCrossingEvent.class);
+
     /** The length of the street in meters (min 5, max 40)*/
     private int length;
     
@@ -31,25 +42,71 @@ public class Street {
     /** The id of this street */
     private int id;
 
+    /** the id of the node the street starts in */
+    private int startNodeID;
+
     /** the id of the node the street ends in */
     private int endNodeID;
 
+    /** the node the street ends in, resolved once so the tick does not need a map lookup */
+    private StreetNode endNode;
+
     /**
-     * This Hashmap stores all cars that are currently on a street.
-     * The Key in this map is the current distance the cars has to the EndNode.
-     * The reason for it being a HashMap is that the task explicitly states
-     * that cars are updated in order (with the last car coming first).
+     * This queue stores all cars that are currently on the street, sorted by their 
+     * position in descending order (the car closest to the EndNode comes first).
+     * The task explicitly states that cars are updated in order (with the last car coming first),
+     * so the queue can be walked from the front while the cars are updated.
      * Additionally we know that there are never two cars at one spot at 
      * the same time because it is a given that cars have to keep a 10m distance 
-     * to each other. 
-     * with the lowest key (car with the lowest distance to the EndNode).
-     * The key is the distance to the EndNode. The value is the carId.
+     * to each other. The columns of the queue are allocated when the first car drives in and only grow
+     * if a street ever holds more cars than physically possible, so a tick does not allocate
+     * once every street with traffic has seen its first car.
      */
-    private NavigableMap<Integer, Integer> cars = new TreeMap<>();
+    private CarQueue cars;
+
+    /**
+     * the index of the first car in {@link #cars} that is still on the street.
+     * This is only greater than 0 while the street is updating its cars.
+     */
+    private int firstCar;
+
+    /** the number of cars that moved or left the street in the current update */
+    private int movedCars;
+
+    /** the number of cars that left the street in the current update */
+    private int crossings;
+
+    /** the cars that were already updated in this tick, sorted like {@link #cars} */
+    private CarQueue updatedCars;
+
+    /** the speeds the cars in {@link #cars} get in this tick, computed before their positions are updated */
+    private IntBlock newSpeeds;
+
+    /** the streets that end at the start node of this street, cars can only cross into this street from them */
+    private Street[] upstreamStreets = new Street[0];
+
+    /** the sources that let new cars enter this street */
+    private CarSource[] streetSources = new CarSource[0];
+
+    /** the tick up to which the cars of this street were already advanced by a lookahead */
+    private long advancedUntil = 0;
+
+    /** true if the street is simulated as a queue instead of with exact car following */
+    private boolean mesoscopic = false;
+
+    /** true if the street is part of a gridlock and left out of the tick until the graph is changed */
+    private boolean frozen = false;
+
+    /** the implementation of the speed phase */
+    private SpeedUpdate speedUpdate;
+
+    /** the traffic statistics of the street */
+    private StreetStatistics statistics;
 
 
     /**
      * This constructor creates a new street with the given parameters.
+     * @param startNodeID the id of the node the street starts in
      * @param endNodeID the id of the node the street ends in
      * @param id the id of the street
      * @param parentGraph the parent graph of the street
@@ -57,10 +114,12 @@ public class Street {
      * @param type the type of the street (1 lane or 2 lanes)
      * @param maxSpeed the max speed allowed on the street in m/tick
      */
-    public Street(int endNodeID, int id, SimulationGraph parentGraph, int length, int type, int maxSpeed) { 
+    public Street(int startNodeID, int endNodeID, int id, SimulationGraph parentGraph, int length, int type,
+            int maxSpeed) { 
         this.length = length;
         this.maxSpeed = maxSpeed;
 
+        this.startNodeID = startNodeID;
         this.endNodeID = endNodeID;
 
         // parse the lane count to a boolean whether the street is overtakeable or not
@@ -74,7 +133,66 @@ public Street(int endNodeID, int id, SimulationGraph parentGraph, int length, in
 
         this.parentGraph = parentGraph;
         this.id = id;
-        
+        this.endNode = parentGraph.getNodeById(endNodeID);
+
+        this.speedUpdate = parentGraph.getSpeedUpdate();
+        this.statistics = new StreetStatistics(parentGraph.getStatisticsWindowSize());
+
+        //there can never be more cars on a street than one every 10 meters
+        int capacity = length / TrafficSimulation.CAR_MINIMUM_DISTANCE + 1;
+        Storage storage = parentGraph.getStorage();
+        this.cars = new CarQueue(capacity, storage);
+        this.updatedCars = new CarQueue(capacity, storage);
+        //all streets share an empty block until they are updated with cars for the first time
+        this.newSpeeds = storage.allocate(0);
+
+    }
+
+    /**
+     * Computes the memory of the car columns of the street and of the buffers the next positions are computed in.
+     * @return the number of bytes
+     */
+    long getQueueBytes() {
+        return cars.getFootprintBytes() + updatedCars.getFootprintBytes()
+                + (newSpeeds.size() == 0 ? 0 : newSpeeds.getFootprintBytes());
+    }
+
+    /**
+     * Estimates {@link #getQueueBytes()} of a new street that was not updated yet.
+     * @param length the length of the street
+     * @param hasCars true if cars were added to the street
+     * @return the number of bytes
+     */
+    static long estimateQueueBytes(int length, boolean hasCars) {
+        int capacity = CarQueue.alignCapacity(length / TrafficSimulation.CAR_MINIMUM_DISTANCE + 1);
+        return (hasCars ? CarQueue.footprintBytes(capacity) : CarQueue.EMPTY_FOOTPRINT_BYTES)
+                + CarQueue.EMPTY_FOOTPRINT_BYTES;
+    }
+
+    /**
+     * Computes the memory of the street object and of its upstream streets and sources.
+     * @return the number of bytes
+     */
+    long getAdjacencyBytes() {
+        return FOOTPRINT_BYTES + MemoryLayout.referenceArray(upstreamStreets.length)
+                + MemoryLayout.referenceArray(streetSources.length);
+    }
+
+    /**
+     * Estimates {@link #getAdjacencyBytes()} of a street without sources.
+     * @param upstreamCount the number of streets that end where the street starts
+     * @return the number of bytes
+     */
+    static long estimateAdjacencyBytes(int upstreamCount) {
+        return FOOTPRINT_BYTES + MemoryLayout.referenceArray(upstreamCount) + MemoryLayout.referenceArray(0);
+    }
+
+    /**
+     * Returns the id of the street
+     * @return the id of the street
+     */
+    public int getId() {
+        return id;
     }
 
     /**
@@ -85,111 +203,586 @@ public int getMaxSpeed() {
         return maxSpeed;
     }
 
+    /**
+     * Returns the length of the street in meters
+     * @return the length of the street in meters
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the type of the street (1 lane or 2 lanes)
+     * @return 2 if the street is overtakeable, 1 otherwise
+     */
+    public int getType() {
+        return overtakeable ? 2 : 1;
+    }
+
+    /**
+     * Returns the id of the node the street starts in
+     * @return the id of the start node
+     */
+    public int getStartNodeId() {
+        return startNodeID;
+    }
+
+    /**
+     * Returns the id of the node the street ends in
+     * @return the id of the end node
+     */
+    public int getEndNodeId() {
+        return endNodeID;
+    }
+
+    /**
+     * Returns if the street is simulated as a queue
+     * @return true if the street is mesoscopic, false if its cars follow each other exactly
+     */
+    public boolean isMesoscopic() {
+        return mesoscopic;
+    }
+
+    /**
+     * Chooses how the cars of the street are simulated. Must only be called between two ticks.
+     * @param mesoscopic true to simulate the street as a queue, false for exact car following
+     */
+    void setMesoscopic(boolean mesoscopic) {
+        this.mesoscopic = mesoscopic;
+    }
+
+    /**
+     * Checks if the street is part of a gridlock and left out of the tick.
+     * @return true if the street is frozen
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Freezes the street or lets it take part in the tick again.
+     * @param frozen true if the street is part of a gridlock
+     */
+    void setFrozen(boolean frozen) {
+        this.frozen = frozen;
+    }
+
+    /**
+     * Finds the street this street waits for if it is jammed for good as long as that street does not move:
+     * the cars stand in a row {@value TrafficSimulation#CAR_MINIMUM_DISTANCE} meters apart from the end of the
+     * street to its beginning, all of them stopped, so none of them can move until the first car crosses
+     * the end node. The first car can only cross to the street it wants to go to.
+     * @return the street the first car wants to cross to or null if the street is not jammed
+     */
+    Street getBlockingStreet() {
+        if (firstCar == cars.size || hasSpaceForCar() || endNode.isSink() || cars.stoppedCount != cars.size - firstCar) {
+            return null;
+        }
+        for (int i = firstCar; i < cars.size; i++) {
+            if (cars.positions.get(i) != length - (i - firstCar) * TrafficSimulation.CAR_MINIMUM_DISTANCE) {
+                return null;
+            }
+        }
+        return endNode.getTargetStreet(cars.cars[firstCar]);
+    }
+
+    /**
+     * Replaces the update of a frozen street. No car of the street moves, only the first car tries to cross
+     * the end node and is blocked, so this is the only thing that is recorded.
+     */
+    void updateFrozen() {
+        endNode.getStatistics().countBlockedCrossing();
+        //the tick loop is too large to inline this method, so the event is only created if it is recorded
+        if (BLOCKED_CROSSING_TYPE.isEnabled()) {
+            commitBlockedCrossing(new BlockedCrossingEvent(), cars.cars[firstCar], endNode);
+        }
+    }
+
     /**
      * Updates the position of all cars on the street.
-     * This method is called every tick.
+     * This method is called every tick. Single-lane and two-lane streets are updated by separate kernels,
+     * so the loop of a single-lane street contains no overtaking logic at all.
      */
     public void updateCarPositions() {
+        if (mesoscopic) {
+            updateQueuePositions();
+            return;
+        }
+
+        if (newSpeeds.size() < cars.size) {
+            newSpeeds = parentGraph.getStorage().allocate(cars.cars.length);
+        }
+        SimulationWatcher watcher = parentGraph.getWatcher();
+        movedCars = 0;
+        crossings = 0;
 
-        NavigableMap<Integer, Integer> updatedMap = new TreeMap<>();
+        //the speed of a car only depends on the car itself, so the speeds of all cars are computed first
+        cars.computeSpeeds(speedUpdate, maxSpeed, newSpeeds);
 
-        Entry<Integer, Integer> entry;
-        while ((entry = cars.pollLastEntry()) != null) { //cycle through all cars in order
-            int initialPosition = entry.getKey();
-            Car car = parentGraph.getCarById(entry.getValue());
+        if (overtakeable) {
+            updateTwoLanePositions(watcher);
+        } else {
+            updateSingleLanePositions(watcher);
+        }
+
+        //the updated cars become the cars of the street, the old queue is reused in the next tick
+        CarQueue oldCars = cars;
+        cars = updatedCars;
+        updatedCars = oldCars;
+        updatedCars.size = 0;
+        firstCar = 0;
+        parentGraph.countMovements(movedCars, crossings);
+    }
+
+    /**
+     * Updates the position of all cars on a street with one lane. A car drives as far as its speed allows,
+     * but never closer than {@value TrafficSimulation#CAR_MINIMUM_DISTANCE} meters to the car in front of it.
+     * @param watcher the watcher of the graph or null
+     */
+    private void updateSingleLanePositions(SimulationWatcher watcher) {
+        for (firstCar = 0; firstCar < cars.size;) { //cycle through all cars in order
+            int initialPosition = cars.positions.get(firstCar);
+            Car car = cars.cars[firstCar];
+            cars.release(firstCar);
+            firstCar++;
             if (car.hasAlreadyCrossedThisTick()) {
-                updatedMap.put(initialPosition, car.getId());
+                updatedCars.insert(0, initialPosition, car);
                 continue;
             }
             int initialOnStreetId = car.getOnStreetId();
+            long carHashBefore = car.stateHash();
+            int speedBefore = car.getCurrentSpeed();
 
-            car.updateSpeed(maxSpeed);
-
-            boolean noNextCar = false;
-            Integer nextCarPosition = updatedMap.higherKey(initialPosition); //has to be "Integer" so it can be "null"
+            //cars that did not cross this tick were all on the street when the speeds were computed
+            car.applySpeed(newSpeeds.get(firstCar - 1));
 
-            if (nextCarPosition == null) {
+            int furthestPosBySpeed = initialPosition + car.getCurrentSpeed();
+            int nextCarIndex = indexOfNextCar(initialPosition);
+            int newPosition;
+            if (nextCarIndex < 0) {
                 //the current car is the farthest car on the street
-                nextCarPosition = length; 
-                noNextCar = true;
+                newPosition = Math.min(furthestPosBySpeed, length);
+            } else {
+                int nextCarPosition = updatedCars.positions.get(nextCarIndex);
+                newPosition = Math.min(furthestPosBySpeed, nextCarPosition - TrafficSimulation.CAR_MINIMUM_DISTANCE);
+                //Set speed to 0 if it's stuck behind a slow driver
+                if (nextCarPosition - initialPosition == TrafficSimulation.CAR_MINIMUM_DISTANCE) {
+                    car.setSpeed(0);
+                }
             }
-            Integer secondNextCarPosition = updatedMap.higherKey(nextCarPosition); 
-            if (secondNextCarPosition == null) {
-                secondNextCarPosition = length;
+
+            finishMove(car, initialPosition, initialOnStreetId, newPosition, carHashBefore, speedBefore, watcher);
+        }
+    }
+
+    /**
+     * Updates the position of all cars on a street with two lanes. Like on a single-lane street,
+     * but a car that is fast enough overtakes the car in front of it if there are at least
+     * twice {@value TrafficSimulation#CAR_MINIMUM_DISTANCE} meters in front of that car.
+     * A car that overtook can not cross the end node in the same tick.
+     * @param watcher the watcher of the graph or null
+     */
+    private void updateTwoLanePositions(SimulationWatcher watcher) {
+        for (firstCar = 0; firstCar < cars.size;) { //cycle through all cars in order
+            int initialPosition = cars.positions.get(firstCar);
+            Car car = cars.cars[firstCar];
+            cars.release(firstCar);
+            firstCar++;
+            if (car.hasAlreadyCrossedThisTick()) {
+                updatedCars.insert(0, initialPosition, car);
+                continue;
             }
-            
-            int newPosition;
-            int metersLeftAfterNextCar = secondNextCarPosition - nextCarPosition;
-            boolean enoughSpaceAfter = metersLeftAfterNextCar >= TrafficSimulation.CAR_MINIMUM_DISTANCE * 2;
-            int speedNeeded = nextCarPosition - initialPosition + TrafficSimulation.CAR_MINIMUM_DISTANCE;
-            boolean fastEnough = car.getCurrentSpeed() >= speedNeeded;
+            int initialOnStreetId = car.getOnStreetId();
+            long carHashBefore = car.stateHash();
+            int speedBefore = car.getCurrentSpeed();
+
+            //cars that did not cross this tick were all on the street when the speeds were computed
+            car.applySpeed(newSpeeds.get(firstCar - 1));
+
             int furthestPosBySpeed = initialPosition + car.getCurrentSpeed();
-            if (overtakeable && enoughSpaceAfter && fastEnough) {
-                int furthestPosByCarDistance = secondNextCarPosition - TrafficSimulation.CAR_MINIMUM_DISTANCE;
-                newPosition = Math.min(furthestPosBySpeed, furthestPosByCarDistance);
-                car.setAlreadyCrossedThisTick(true); //if a car has overtook another, it cannot cross in the same tick!
-            } else if (noNextCar) {
+            int nextCarIndex = indexOfNextCar(initialPosition);
+            int newPosition;
+            if (nextCarIndex < 0) {
+                //the current car is the farthest car on the street
                 newPosition = Math.min(furthestPosBySpeed, length);
             } else {
-                newPosition = Math.min(furthestPosBySpeed, nextCarPosition - TrafficSimulation.CAR_MINIMUM_DISTANCE);
+                int nextCarPosition = updatedCars.positions.get(nextCarIndex);
+                //the updated cars are sorted descending, so the car after the next car is right before it
+                int secondNextCarPosition = nextCarIndex == 0 ? length : updatedCars.positions.get(nextCarIndex - 1);
+                boolean enoughSpaceAfter
+                        = secondNextCarPosition - nextCarPosition >= TrafficSimulation.CAR_MINIMUM_DISTANCE * 2;
+                int speedNeeded = nextCarPosition - initialPosition + TrafficSimulation.CAR_MINIMUM_DISTANCE;
+                boolean fastEnough = car.getCurrentSpeed() >= speedNeeded;
+                if (enoughSpaceAfter && fastEnough) {
+                    int furthestPosByCarDistance = secondNextCarPosition - TrafficSimulation.CAR_MINIMUM_DISTANCE;
+                    newPosition = Math.min(furthestPosBySpeed, furthestPosByCarDistance);
+                    car.setAlreadyCrossedThisTick(true); //if a car has overtook another, it cannot cross in the same tick!
+                } else {
+                    newPosition = Math.min(furthestPosBySpeed, nextCarPosition - TrafficSimulation.CAR_MINIMUM_DISTANCE);
+                    //Set speed to 0 if it's stuck behind a slow driver
+                    if (nextCarPosition - initialPosition == TrafficSimulation.CAR_MINIMUM_DISTANCE) {
+                        car.setSpeed(0);
+                    }
+                }
             }
 
-            //Set speed to 0 if it's stuck behind a slow driver
-            if (
-                    nextCarPosition - initialPosition == TrafficSimulation.CAR_MINIMUM_DISTANCE 
-                    && !noNextCar && !(overtakeable && enoughSpaceAfter && fastEnough)
-            ) {
-                car.setSpeed(0);
+            finishMove(car, initialPosition, initialOnStreetId, newPosition, carHashBefore, speedBefore, watcher);
+        }
+    }
+
+    /**
+     * Finds the car that is closest in front of a position among the cars that were already updated this tick.
+     * The updated cars are sorted descending, so usually every one of them is in front and the closest is the last.
+     * @param position the position
+     * @return the index of the car in the updated cars or -1 if no car is in front of the position
+     */
+    private int indexOfNextCar(int position) {
+        int lastIndex = updatedCars.size - 1;
+        if (lastIndex < 0 || updatedCars.positions.get(lastIndex) > position) {
+            return lastIndex;
+        }
+        return updatedCars.countCarsAfter(0, position) - 1;
+    }
+
+    /**
+     * Moves a car to its new position, lets it leave the street at the end and stores it in the updated cars.
+     * This is the part of the update that is the same for single-lane and two-lane streets.
+     * @param car the car
+     * @param initialPosition the position the car had before the tick
+     * @param initialOnStreetId the street the car was on before the tick
+     * @param newPosition the position the car drives to on the street
+     * @param carHashBefore the state hash the car had before the tick
+     * @param speedBefore the speed the car had before the tick
+     * @param watcher the watcher of the graph or null
+     */
+    private void finishMove(Car car, int initialPosition, int initialOnStreetId, int newPosition, long carHashBefore,
+            int speedBefore, SimulationWatcher watcher) {
+        car.droveMeters(newPosition - initialPosition);
+        car.setPositionOnStreet(newPosition);
+
+        //if the car is at the end of the street and it still wants to keep going
+        Street streetToCrossTo = null;
+        if (newPosition == length && car.getMetersLeftToDrive() > 0) {
+            if (endNode.isSink() && !car.hasAlreadyCrossedThisTick()) {
+                leaveAtSink(car, carHashBefore, speedBefore, watcher);
+                movedCars++;
+                crossings++;
+                return;
+            }
+            streetToCrossTo = crossEndNode(car, watcher);
+            if (streetToCrossTo != null) {
+                crossings++;
+            }
+        }
+        if (streetToCrossTo != null || newPosition != initialPosition) {
+            movedCars++;
+        }
+        if (
+                (car.getPositionOnStreet() == initialPosition && car.getOnStreetId() == initialOnStreetId)
+                || (initialPosition == length && car.getPositionOnStreet() == 0)
+        ) {
+            car.setSpeed(0);
+        }
+        //the car is stored after its final speed is known, so the speed column stays up to date
+        if (streetToCrossTo == null) {
+            updatedCars.insert(0, newPosition, car);
+        } else {
+            streetToCrossTo.updateSpeedColumn(car);
+        }
+
+        parentGraph.updateStateHash(carHashBefore, car.stateHash());
+        if (watcher != null && car.getCurrentSpeed() != speedBefore) {
+            watcher.carChangedSpeed(car, speedBefore, car.getCurrentSpeed());
+        }
+    }
+
+    /**
+     * Updates the position of all cars on a mesoscopic street. The street is modelled as a queue:
+     * every car accelerates like on an exact street, up to the lower one of its wanted speed and the speed limit,
+     * and cars never overtake. A car only drives less than its speed if it would get closer than
+     * {@value TrafficSimulation#CAR_MINIMUM_DISTANCE} meters to the car in front of it, it keeps its speed then
+     * unless it can not move at all, so the capacity of the street is one car per
+     * {@value TrafficSimulation#CAR_MINIMUM_DISTANCE} meters. Cars leave and enter at the nodes
+     * like on an exact street. Because the order of the cars never changes they are updated in place.
+     */
+    private void updateQueuePositions() {
+        SimulationWatcher watcher = parentGraph.getWatcher();
+        int movedCars = 0;
+        int crossings = 0;
+        //a car can drive up to the end of the street if there is no car in front of it
+        int frontPosition = length + TrafficSimulation.CAR_MINIMUM_DISTANCE;
+
+        for (int i = firstCar; i < cars.size; i++) {
+            Car car = cars.cars[i];
+            int initialPosition = cars.positions.get(i);
+            if (car.hasAlreadyCrossedThisTick()) {
+                frontPosition = initialPosition;
+                continue;
             }
+            long carHashBefore = car.stateHash();
+            int speedBefore = car.getCurrentSpeed();
 
+            car.updateSpeed(maxSpeed);
+            int newPosition = Math.min(initialPosition + car.getCurrentSpeed(),
+                    frontPosition - TrafficSimulation.CAR_MINIMUM_DISTANCE);
             car.droveMeters(newPosition - initialPosition);
             car.setPositionOnStreet(newPosition);
 
-            //if the car is at the end of the street and it still wants to keep going
+            //only the first car can be at the end of the street, so it is the only one that can leave it
+            Street streetToCrossTo = null;
             if (newPosition == length && car.getMetersLeftToDrive() > 0) {
-                StreetNode endNode = parentGraph.getNodeById(endNodeID);
-                Street streetToCrossTo = endNode.carIdIsAllowedToCrossToWhichStreet(id, car.getWantedDirection());
-                if (streetToCrossTo != null && !car.hasAlreadyCrossedThisTick()) {
-                    car.increaseWantedDirection();
-                    car.setAlreadyCrossedThisTick(true);
-                    streetToCrossTo.carDrivesIn(car);
-                } else {
-                    updatedMap.put(newPosition, car.getId());
+                if (endNode.isSink()) {
+                    cars.release(i);
+                    firstCar++;
+                    leaveAtSink(car, carHashBefore, speedBefore, watcher);
+                    movedCars++;
+                    crossings++;
+                    continue;
                 }
+                streetToCrossTo = crossEndNode(car, watcher);
+            }
+
+            if (streetToCrossTo != null) {
+                cars.release(i);
+                firstCar++;
+                crossings++;
+                if (car.getPositionOnStreet() == 0) {
+                    car.setSpeed(0);
+                }
+                streetToCrossTo.updateSpeedColumn(car);
             } else {
-                updatedMap.put(newPosition, car.getId());
+                if (newPosition == initialPosition) {
+                    car.setSpeed(0);
+                }
+                cars.positions.set(i, newPosition);
+                cars.setSpeed(i, car.getCurrentSpeed());
+                frontPosition = newPosition;
+            }
+            if (streetToCrossTo != null || newPosition != initialPosition) {
+                movedCars++;
+            }
+
+            parentGraph.updateStateHash(carHashBefore, car.stateHash());
+            if (watcher != null && car.getCurrentSpeed() != speedBefore) {
+                watcher.carChangedSpeed(car, speedBefore, car.getCurrentSpeed());
+            }
+        }
+
+        if (firstCar > 0) {
+            cars.removeFirst(firstCar);
+            firstCar = 0;
+        }
+        parentGraph.countMovements(movedCars, crossings);
+    }
+
+    /**
+     * Lets a car that reached the end of the street leave the graph at the sink the street ends in
+     * @param car the car
+     * @param carHashBefore the state hash the car had before the tick
+     * @param speedBefore the speed the car had before the tick
+     * @param watcher the watcher of the graph or null
+     */
+    private void leaveAtSink(Car car, long carHashBefore, int speedBefore, SimulationWatcher watcher) {
+        statistics.countExit();
+        endNode.getStatistics().countCrossing();
+        parentGraph.carLeaves(car, carHashBefore);
+        if (watcher != null) {
+            watcher.carCrossedNode(car, endNode);
+            watcher.carLeftGraph(car, speedBefore);
+        }
+    }
+
+    /**
+     * Lets a car that reached the end of the street cross the end node if the node allows it
+     * @param car the car
+     * @param watcher the watcher of the graph or null
+     * @return the street the car drove in or null if it has to wait at the end of the street
+     */
+    private Street crossEndNode(Car car, SimulationWatcher watcher) {
+        Street streetToCrossTo = endNode.carIdIsAllowedToCrossToWhichStreet(id, endNode.getDirectionForCar(car));
+        if (streetToCrossTo == null || car.hasAlreadyCrossedThisTick()) {
+            endNode.getStatistics().countBlockedCrossing();
+            if (BLOCKED_CROSSING_TYPE.isEnabled()) {
+                commitBlockedCrossing(new BlockedCrossingEvent(), car, endNode);
             }
-            if (
-                    (car.getPositionOnStreet() == initialPosition && car.getOnStreetId() == initialOnStreetId)
-                    || (initialPosition == length && car.getPositionOnStreet() == 0)
-            ) {
-                car.setSpeed(0);
+            return null;
+        }
+        car.increaseWantedDirection();
+        if (car.getDestination() == endNode.getID()) {
+            //the car arrived and follows its wanted direction from now on
+            car.setDestination(Car.NO_DESTINATION);
+        }
+        car.setAlreadyCrossedThisTick(true);
+        streetToCrossTo.carDrivesIn(car);
+        statistics.countExit();
+        endNode.getStatistics().countCrossing();
+        if (watcher != null) {
+            watcher.carCrossedNode(car, endNode);
+        }
+        return streetToCrossTo;
+    }
+
+    /**
+     * Fills in and commits the flight recorder event of a car that was not allowed to cross the end node
+     * @param event the enabled event
+     * @param car the car that was blocked
+     * @param endNode the end node of the street
+     */
+    private void commitBlockedCrossing(BlockedCrossingEvent event, Car car, StreetNode endNode) {
+        event.setNodeId(endNode.getID());
+        event.setInputStreetId(id);
+        event.setCarId(car.getId());
+        if (car.hasAlreadyCrossedThisTick()) {
+            event.setReason(BlockedCrossingEvent.ALREADY_CROSSED);
+        } else if (!endNode.hasGreenLight(id)) {
+            event.setReason(BlockedCrossingEvent.RED_LIGHT);
+        } else {
+            event.setReason(BlockedCrossingEvent.NO_SPACE);
+        }
+        event.commit();
+    }
+
+    /**
+     * Sets the streets cars can cross into this street from and the sources of this street.
+     * They are needed to compute the lookahead horizon.
+     * @param upstreamStreets the streets that end at the start node of this street
+     * @param streetSources the sources that let new cars enter this street
+     */
+    void setNeighbourhood(Street[] upstreamStreets, CarSource[] streetSources) {
+        this.upstreamStreets = upstreamStreets;
+        this.streetSources = streetSources;
+    }
+
+    /**
+     * Checks if the cars of the street were already advanced beyond a tick by a lookahead
+     * @param tick the tick
+     * @return true if the street must not be updated in the tick after the given one
+     */
+    boolean isAdvancedBeyond(long tick) {
+        return advancedUntil > tick;
+    }
+
+    /**
+     * Forgets the lookahead, used when an older state is restored
+     */
+    void resetLookahead() {
+        advancedUntil = 0;
+    }
+
+    /**
+     * Computes a conservative number of ticks during which the street does not interact with the rest of the graph:
+     * no car of the street can reach its end, no car can reach the end of an upstream street and cross into this
+     * street, and no source lets a car enter. During these ticks the street can be advanced on its own.
+     * @param entrySpeed the highest speed limit of all streets, a car that crosses into a street
+     *     can not get further than this on the new street in the tick it crosses
+     * @return the number of ticks the street can be advanced on its own
+     */
+    int computeHorizon(int entrySpeed) {
+        int horizon = firstCar == cars.size ? Integer.MAX_VALUE : ticksBeforeEndIsReachable(0);
+        for (Street upstream : upstreamStreets) {
+            horizon = Math.min(horizon, upstream.ticksBeforeEndIsReachable(entrySpeed));
+        }
+        for (CarSource source : streetSources) {
+            horizon = Math.min(horizon, source.getTicksUntilNextCar() - 1);
+        }
+        return horizon;
+    }
+
+    /**
+     * Computes the number of ticks during which no car can reach the end of the street.
+     * A car never drives faster than the speed limit, so the car closest to the end needs the fewest ticks.
+     * @param entryPosition the position a car that enters the street later could have at most
+     * @return the number of ticks in which no car reaches the end of the street
+     */
+    private int ticksBeforeEndIsReachable(int entryPosition) {
+        int front = firstCar == cars.size ? entryPosition : Math.max(cars.positions.get(firstCar), entryPosition);
+        if (front >= length) {
+            return 0;
+        }
+        return (length - 1 - front) / maxSpeed;
+    }
+
+    /**
+     * Advances the cars of the street by several ticks in one loop, including the statistics of every tick.
+     * Must only be called with a horizon from {@link #computeHorizon(int)}, so the result is the same
+     * as updating the street tick by tick.
+     * @param ticks the number of ticks to advance
+     * @param tick the current tick of the graph
+     */
+    void advance(int ticks, long tick) {
+        for (int i = 0; i < ticks; i++) {
+            if (i > 0) {
+                //the graph only resets the flags of the first tick
+                for (int j = firstCar; j < cars.size; j++) {
+                    cars.cars[j].setAlreadyCrossedThisTick(false);
+                }
             }
+            updateCarPositions();
+            recordStatistics();
+        }
+        advancedUntil = tick + ticks;
+    }
 
+    /**
+     * Updates the speed stored next to a car that drove in this tick after its speed changed
+     * @param car the car
+     */
+    void updateSpeedColumn(Car car) {
+        int index = cars.indexOf(firstCar, car.getPositionOnStreet());
+        if (index >= 0 && cars.cars[index] == car) {
+            cars.setSpeed(index, car.getCurrentSpeed());
         }
-        cars = updatedMap;
+    }
+
+    /**
+     * Finishes the statistics of the current tick. Has to be called after all streets were updated.
+     */
+    public void recordStatistics() {
+        statistics.endTick(cars.size - firstCar, cars.speedSum, cars.stoppedCount);
+    }
+
+    /**
+     * Returns the traffic statistics of the street
+     * @return the statistics of the street
+     */
+    public StreetStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Replaces the traffic statistics of the street with empty ones
+     * @param windowSize the number of ticks the new statistics cover
+     */
+    public void resetStatistics(int windowSize) {
+        statistics = new StreetStatistics(windowSize);
+    }
+
+    /**
+     * Sets the implementation of the speed phase
+     * @param speedUpdate the implementation of the speed phase
+     */
+    void setSpeedUpdate(SpeedUpdate speedUpdate) {
+        this.speedUpdate = speedUpdate;
     }
 
     /**
      * This method gets the Car that is currently at the
-     * end of the street and awaits to cross. It also removes 
-     * the car from the street.
+     * end of the street and awaits to cross.
      * @return the car that is at the end of the street. 
      *         If there is none or if the car has no distance 
      *         left to drive it returns null
      */
     public Car getCrossingCar() {
-        Integer lastEntry = cars.get(length);
-
-        if (lastEntry == null) {
+        if (firstCar == cars.size || cars.positions.get(firstCar) != length) {
             return null;
         }
 
-        if (parentGraph.getCarById(lastEntry).getMetersLeftToDrive() == 0) {
+        Car car = cars.cars[firstCar];
+        if (car.getMetersLeftToDrive() == 0) {
             return null;
         }
 
-        return parentGraph.getCarById(lastEntry);
+        return car;
 
     }
 
@@ -198,7 +791,15 @@ public Car getCrossingCar() {
      * end of the street and awaits to cross.
      */
     public void removeCrossingCar() {
-        cars.remove(length);
+        if (firstCar == cars.size || cars.positions.get(firstCar) != length) {
+            return;
+        }
+        cars.release(firstCar);
+        firstCar++;
+        if (firstCar == cars.size) {
+            firstCar = 0;
+            cars.size = 0;
+        }
     }
 
     /**
@@ -206,11 +807,11 @@ public void removeCrossingCar() {
      * @return the position of the last car on the street
      */
     public Integer getLastCarPostion() {
-        if (cars.isEmpty()) {
+        if (firstCar == cars.size) {
             return null;
         }
 
-        return cars.firstEntry().getKey();
+        return cars.positions.get(cars.size - 1);
     }
 
     /**
@@ -219,16 +820,14 @@ public Integer getLastCarPostion() {
      */
     public void carDrivesIn(Car car) {
         int maxNewPosition;
-        Integer lastCarPosition = getLastCarPostion();
 
         // check if there is no car on the street
-        if (lastCarPosition == null) {
+        if (firstCar == cars.size) {
             // then the street is entirely available for the car
-            lastCarPosition = length;
             maxNewPosition = length;
         } else {
             // if there is a car on the street, the new car has to be at least CAR_MINIMUM_DISTANCE meters away from it
-            maxNewPosition = lastCarPosition - TrafficSimulation.CAR_MINIMUM_DISTANCE;
+            maxNewPosition = cars.positions.get(cars.size - 1) - TrafficSimulation.CAR_MINIMUM_DISTANCE;
         }
 
         // the car can only drive as far as it has left to drive and as far as the street allows
@@ -238,10 +837,45 @@ public void carDrivesIn(Car car) {
         car.setOnStreetId(this.id);
         car.setAlreadyCrossedThisTick(true);
 
-        cars.put(newPosition, car.getId());
+        cars.insert(firstCar, newPosition, car);
+        notifyCarEntered(car);
         
     }
 
+    /**
+     * Handles a new car that enters the graph at the beginning of the street.
+     * The caller has to make sure that the street has space for the car.
+     * @param car the car that enters
+     */
+    public void carEntersAtStart(Car car) {
+        car.setPositionOnStreet(0);
+        car.setOnStreetId(this.id);
+        cars.insert(firstCar, 0, car);
+        notifyCarEntered(car);
+    }
+
+    /**
+     * Tells the watcher of the graph that a car entered the street
+     * @param car the car that entered
+     */
+    private void notifyCarEntered(Car car) {
+        SimulationWatcher watcher = parentGraph.getWatcher();
+        if (watcher != null) {
+            watcher.carEnteredStreet(car, this);
+        }
+    }
+
+    /**
+     * Removes a car from the street
+     * @param car the car to remove
+     */
+    public void removeCar(Car car) {
+        int index = cars.indexOf(firstCar, car.getPositionOnStreet());
+        if (index >= 0 && cars.cars[index] == car) {
+            cars.remove(index);
+        }
+    }
+
     /**
      * Checks if the street is valid. A street is valid if there are no cars that are too close to each other
      * If there are more cars than physically possible on the street, it is not neccessary to iterate through the cars
@@ -249,19 +883,15 @@ public void carDrivesIn(Car car) {
      */
     public boolean isValid() {
 
-        if (!(cars.size() <= length / TrafficSimulation.CAR_MINIMUM_DISTANCE + 1)) {
+        if (!(cars.size - firstCar <= length / TrafficSimulation.CAR_MINIMUM_DISTANCE + 1)) {
             return false; //if there are more cars than allowed the street is not valid
         }
 
-        for (Entry<Integer, Integer> carEntry : cars.entrySet()) {
-            Integer nextCarPosition = cars.higherKey(carEntry.getKey());
-            boolean hasEnoughSpace;
-            if (nextCarPosition == null) {
-                hasEnoughSpace = true;
-            } else {
-                hasEnoughSpace = nextCarPosition - carEntry.getKey() <= TrafficSimulation.CAR_MINIMUM_DISTANCE;
-            }
-            if (nextCarPosition != null && !hasEnoughSpace) {
+        for (int i = firstCar + 1; i < cars.size; i++) {
+            //the car at index i - 1 is the next car of the car at index i
+            int distance = cars.positions.get(i - 1) - cars.positions.get(i);
+            boolean hasEnoughSpace = distance <= TrafficSimulation.CAR_MINIMUM_DISTANCE;
+            if (!hasEnoughSpace) {
                 return false;
             }
         }
@@ -275,8 +905,8 @@ public boolean isValid() {
      * @return true if the street contains a car with the given id, false if not
      */
     public boolean containsCar(int carId) {
-        for (Entry<Integer, Integer> carEntry : cars.entrySet()) {
-            if (parentGraph.getCarById(carEntry.getValue()).getId() == carId) {
+        for (int i = firstCar; i < cars.size; i++) {
+            if (cars.cars[i].getId() == carId) {
                 return true;
             }
         }
@@ -288,10 +918,82 @@ public boolean containsCar(int carId) {
      * @return true if the street has space for a car, false if not
      */
     public boolean hasSpaceForCar() {
-        if (cars.isEmpty()) {
+        if (firstCar == cars.size) {
             return true;
         }
-        return getLastCarPostion() >= TrafficSimulation.CAR_MINIMUM_DISTANCE; 
+        return cars.positions.get(cars.size - 1) >= TrafficSimulation.CAR_MINIMUM_DISTANCE; 
+    }
+
+    /**
+     * Returns the number of cars on the street
+     * @return the number of cars
+     */
+    public int getCarCount() {
+        return cars.size - firstCar;
+    }
+
+    /**
+     * Returns a car on the street
+     * @param index the index of the car, 0 is the car nearest to the end of the street
+     * @return the car
+     */
+    public Car getCar(int index) {
+        return cars.cars[firstCar + index];
+    }
+
+    /**
+     * Moves the storage of the street and its cars into newly allocated memory.
+     * The cars are replaced by new objects for their rows, so the car objects of streets that are relocated
+     * one after another end up next to each other. Must only be called between two ticks.
+     */
+    void relocateStorage() {
+        moveStorage(parentGraph.getStorage());
+        for (int i = firstCar; i < cars.size; i++) {
+            cars.cars[i] = cars.cars[i].copy();
+        }
+    }
+
+    /**
+     * Moves the columns of the street into newly allocated blocks of a storage. Must only be called between two ticks.
+     * @param storage the storage of the graph
+     */
+    void moveStorage(Storage storage) {
+        cars.relocate(storage);
+        updatedCars.relocate(storage);
+        if (newSpeeds.size() > 0) {
+            IntBlock speeds = storage.allocate(newSpeeds.size());
+            newSpeeds.copy(0, speeds, 0, speeds.size());
+            newSpeeds = speeds;
+        } else {
+            newSpeeds = storage.allocate(0);
+        }
+    }
+
+    /**
+     * Replaces the cars of the street by the car objects the graph stores for their ids.
+     * Used after the car table created new car objects for another storage.
+     */
+    void refreshCars() {
+        for (int i = firstCar; i < cars.size; i++) {
+            cars.cars[i] = parentGraph.getCarById(cars.cars[i].getId());
+        }
+    }
+
+    /**
+     * Removes all cars from the street. The cars themselves are not changed.
+     */
+    public void clearCars() {
+        cars.clear();
+        firstCar = 0;
+    }
+
+    /**
+     * Places a car on the street at the position that is already stored in the car.
+     * This is used to restore a previously saved state.
+     * @param car the car to place
+     */
+    public void placeCar(Car car) {
+        cars.insert(firstCar, car.getPositionOnStreet(), car);
     }
 
     /**
@@ -313,7 +1015,7 @@ public void addCar(int carId) {
         car.setPositionOnStreet(newPosition);
         car.setOnStreetId(this.id);
 
-        cars.put(newPosition, carId);
+        cars.insert(firstCar, newPosition, car);
     }
 
 }
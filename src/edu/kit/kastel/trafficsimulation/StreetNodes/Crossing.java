@@ -1,6 +1,9 @@
 package edu.kit.kastel.trafficsimulation.StreetNodes;
 
+import java.nio.IntBuffer;
+
 import edu.kit.kastel.trafficsimulation.SimulationGraph;
+import edu.kit.kastel.trafficsimulation.StateHash;
 import edu.kit.kastel.trafficsimulation.Street;
 
 /**
@@ -34,12 +37,88 @@ public Crossing(SimulationGraph parentGraph, int nodeID, int greenPhaseDuration)
         this.greenPhaseDuration = greenPhaseDuration;
     }
 
+    /**
+     * method to get the duration of the green phase of the crossing
+     * @return the duration of the green phase
+     */
+    @Override
+    public int getGreenPhaseDuration() {
+        return greenPhaseDuration;
+    }
+
+    /**
+     * method to change the duration of the green phase while the simulation is running.
+     * If the current green phase already lasted as long as the new duration it ends with the next tick.
+     * @param greenPhaseDuration the new duration of the green phase, positive
+     */
+    public void setGreenPhaseDuration(int greenPhaseDuration) {
+        long hashBefore = stateHash();
+        this.greenPhaseDuration = greenPhaseDuration;
+        if (greenPhaseTimer >= greenPhaseDuration) {
+            greenPhaseTimer = greenPhaseDuration - 1;
+        }
+        parentGraph.updateStateHash(hashBefore, stateHash());
+    }
+
+    /**
+     * method to remove an input street from the crossing.
+     * The street that is green stays green, if the removed street was green the next street becomes green.
+     * @param id the id of the street
+     * @return the index the street had or -1 if it is not an input street of this crossing
+     */
+    @Override
+    public int removeInputStreet(int id) {
+        long hashBefore = stateHash();
+        int index = super.removeInputStreet(id);
+        if (index >= 0 && index < greenPhaseIndicator) {
+            greenPhaseIndicator--;
+        }
+        if (greenPhaseIndicator >= connectedInputStreetCount) {
+            greenPhaseIndicator = 0;
+        }
+        parentGraph.updateStateHash(hashBefore, stateHash());
+        return index;
+    }
+
+    /**
+     * method to write the green phase indicator and timer of the crossing into a buffer
+     * @param target the buffer to write to
+     * @param offset the index of the first integer to write
+     */
+    @Override
+    public void saveState(IntBuffer target, int offset) {
+        target.put(offset, greenPhaseIndicator);
+        target.put(offset + 1, greenPhaseTimer);
+    }
+
+    /**
+     * method to restore the green phase indicator and timer of the crossing from a buffer
+     * @param source the buffer to read from
+     * @param offset the index of the first integer to read
+     */
+    @Override
+    public void restoreState(IntBuffer source, int offset) {
+        greenPhaseIndicator = source.get(offset);
+        greenPhaseTimer = source.get(offset + 1);
+    }
+
     /**
      * method to update the green phase of the crossing after every tick
      */
     @Override
     public void tick() {
+        long hashBefore = stateHash();
         updateGreenPhase();
+        parentGraph.updateStateHash(hashBefore, stateHash());
+    }
+
+    /**
+     * method to get the hash of the green phase indicator and timer of the crossing
+     * @return the state hash of the crossing
+     */
+    @Override
+    public long stateHash() {
+        return StateHash.ofNode(nodeID, greenPhaseIndicator, greenPhaseTimer);
     }
 
     /**
@@ -57,11 +136,30 @@ private void updateGreenPhase() {
         greenPhaseTimer = 0;
 
         greenPhaseIndicator++;
-        if (greenPhaseIndicator >= connectedInputStreets.size()) {
+        if (greenPhaseIndicator >= connectedInputStreetCount) {
             greenPhaseIndicator = 0;
         }
     }
 
+    /**
+     * method to get the input street that currently has the green phase
+     * @return the index of the input street in the order the input streets were added
+     */
+    @Override
+    public int getGreenInputIndex() {
+        return greenPhaseIndicator;
+    }
+
+    /**
+     * method to check if cars on an input street currently have a green light
+     * @param inputStreetId the id of the input street
+     * @return true if the input street has the green phase
+     */
+    @Override
+    public boolean hasGreenLight(int inputStreetId) {
+        return indexOfInputStreet(inputStreetId) == greenPhaseIndicator;
+    }
+
     /**
      * method to check if a car is allowed to cross the roundabout to a certain street
      * @param inputStreetId the id of the street the car is currently on
@@ -70,22 +168,13 @@ private void updateGreenPhase() {
      */
     @Override
     public Street carIdIsAllowedToCrossToWhichStreet(int inputStreetId, int wantedDirection) {
-        if (connectedInputStreets.indexOf(inputStreetId) != greenPhaseIndicator) {
+        if (indexOfInputStreet(inputStreetId) != greenPhaseIndicator) {
             return null;
         }
 
-        int turnDirection = wantedDirection % connectedOutputStreets.size();
-
-        // if (wantedDirection >= connectedOutputStreets.size()) {
-        //     turnDirection = 0;
-        // } else {
-        //     turnDirection = wantedDirection;
-        // }
-
-        
+        int turnDirection = wantedDirection % connectedOutputStreetCount;
 
-        int outputStreetId = connectedOutputStreets.get(turnDirection);
-        Street outputStreet = parentGraph.getStreetById(outputStreetId);
+        Street outputStreet = connectedOutputStreets[turnDirection];
 
         if (outputStreet.hasSpaceForCar()) {
             return outputStreet;
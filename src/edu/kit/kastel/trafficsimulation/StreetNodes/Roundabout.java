@@ -30,8 +30,7 @@ public Roundabout(SimulationGraph parentGraph, int nodeID) {
      */
     @Override
     public Street carIdIsAllowedToCrossToWhichStreet(int streetId, int wantedDirection) {
-        int outputStreetId = connectedOutputStreets.get(wantedDirection % connectedOutputStreets.size());
-        Street outputStreet = parentGraph.getStreetById(outputStreetId);
+        Street outputStreet = connectedOutputStreets[wantedDirection % connectedOutputStreetCount];
 
         if (outputStreet.hasSpaceForCar()) {
             return outputStreet;
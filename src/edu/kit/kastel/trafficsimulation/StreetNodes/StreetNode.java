@@ -1,10 +1,15 @@
 package edu.kit.kastel.trafficsimulation.StreetNodes;
 
-import java.util.ArrayList;
+import java.nio.IntBuffer;
+import java.util.Arrays;
 
+import edu.kit.kastel.trafficsimulation.Car;
 import edu.kit.kastel.trafficsimulation.SimulationGraph;
-
+import edu.kit.kastel.trafficsimulation.StateHash;
 import edu.kit.kastel.trafficsimulation.Street;
+import edu.kit.kastel.trafficsimulation.memory.MemoryLayout;
+import edu.kit.kastel.trafficsimulation.routing.RoutingTable;
+import edu.kit.kastel.trafficsimulation.statistics.NodeStatistics;
 
 /**
  * this class represents a node in the simulation.
@@ -27,6 +32,21 @@ public abstract class StreetNode {
     /** the minimum number of output streets that are allowed to be connected to a node */
     static final int MIN_OUTPUT_STREETS = 1;
 
+    /** the green input index of a node without traffic lights */
+    public static final int NO_TRAFFIC_LIGHTS = -1;
+
+    /** the number of integers a node uses to store its state in a state snapshot */
+    public static final int STATE_SIZE = 2;
+
+    /**
+     * the number of bytes a node uses with its arrays of connected streets, without its statistics.
+     * Counted with the five int fields, four reference fields and the boolean field of every node
+     * and the three int fields of a crossing
+     */
+    public static final long FOOTPRINT_BYTES
+            = MemoryLayout.object(8 * Integer.BYTES + 4 * MemoryLayout.REFERENCE_BYTES + 1)
+            + MemoryLayout.intArray(MAX_INPUT_STREETS) + MemoryLayout.referenceArray(MAX_OUTPUT_STREETS);
+
     /** the id of the node */
     protected int nodeID;
 
@@ -34,9 +54,22 @@ public abstract class StreetNode {
     protected SimulationGraph parentGraph;
 
     /** every street (by its id) that has this node as a end node */
-    protected ArrayList<Integer> connectedInputStreets = new ArrayList<>();
-    /** every street (by its id) that has this node as a start node */
-    protected ArrayList<Integer> connectedOutputStreets = new ArrayList<>();
+    protected int[] connectedInputStreets = new int[MAX_INPUT_STREETS];
+    /** the number of streets in {@link #connectedInputStreets} */
+    protected int connectedInputStreetCount = 0;
+    /** every street that has this node as a start node */
+    protected Street[] connectedOutputStreets = new Street[MAX_OUTPUT_STREETS];
+    /** the number of streets in {@link #connectedOutputStreets} */
+    protected int connectedOutputStreetCount = 0;
+
+    /** true if cars leave the graph when they reach this node */
+    protected boolean sink = false;
+
+    /** the index of the node in the next-hop tables of the routing table of the graph */
+    protected int routingIndex;
+
+    /** the traffic statistics of the node, created when the node is added to a graph */
+    protected NodeStatistics statistics;
 
     /**
      * method to get the id of the node
@@ -46,12 +79,32 @@ public int getID() {
         return nodeID;
     }
 
+    /**
+     * method to get the traffic statistics of the node
+     * @return the statistics of the node
+     */
+    public NodeStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * method to replace the traffic statistics of the node with empty ones
+     * @param windowSize the number of ticks the new statistics cover
+     */
+    public void resetStatistics(int windowSize) {
+        statistics = new NodeStatistics(windowSize);
+    }
+
     /**
      * method to add a new input street to the node
      * @param id the id of the street
      */
     public void addInputStreet(int id) {
-        connectedInputStreets.add(id);
+        if (connectedInputStreetCount == connectedInputStreets.length) {
+            //more streets than allowed, the node will not be valid but has to store them anyway
+            connectedInputStreets = Arrays.copyOf(connectedInputStreets, connectedInputStreetCount * 2);
+        }
+        connectedInputStreets[connectedInputStreetCount++] = id;
     }
 
     /**
@@ -59,7 +112,119 @@ public void addInputStreet(int id) {
      * @param id the id of the street
      */
     public void addOutputStreet(int id) {
-        connectedOutputStreets.add(id);
+        if (connectedOutputStreetCount == connectedOutputStreets.length) {
+            //more streets than allowed, the node will not be valid but has to store them anyway
+            connectedOutputStreets = Arrays.copyOf(connectedOutputStreets, connectedOutputStreetCount * 2);
+        }
+        connectedOutputStreets[connectedOutputStreetCount++] = parentGraph.getStreetById(id);
+    }
+
+    /**
+     * method to remove an input street from the node. The following input streets move up by one index.
+     * @param id the id of the street
+     * @return the index the street had or -1 if it is not an input street of this node
+     */
+    public int removeInputStreet(int id) {
+        int index = indexOfInputStreet(id);
+        if (index < 0) {
+            return -1;
+        }
+        System.arraycopy(connectedInputStreets, index + 1, connectedInputStreets, index,
+                connectedInputStreetCount - index - 1);
+        connectedInputStreetCount--;
+        return index;
+    }
+
+    /**
+     * method to remove an output street from the node. The following output streets move up by one index,
+     * so the directions of the cars refer to the remaining streets.
+     * @param id the id of the street
+     */
+    public void removeOutputStreet(int id) {
+        for (int i = 0; i < connectedOutputStreetCount; i++) {
+            if (connectedOutputStreets[i].getId() == id) {
+                System.arraycopy(connectedOutputStreets, i + 1, connectedOutputStreets, i,
+                        connectedOutputStreetCount - i - 1);
+                connectedOutputStreets[--connectedOutputStreetCount] = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * method to get the index of an input street in the order the input streets were added
+     * @param id the id of the street
+     * @return the index of the street or -1 if it is not an input street of this node
+     */
+    protected int indexOfInputStreet(int id) {
+        for (int i = 0; i < connectedInputStreetCount; i++) {
+            if (connectedInputStreets[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * method to get the id of an input street of the node
+     * @param index the index of the street in the order the input streets were added
+     * @return the id of the input street
+     */
+    public int getInputStreetId(int index) {
+        return connectedInputStreets[index];
+    }
+
+    /**
+     * method to get an output street of the node
+     * @param index the index of the street in the order the output streets were added
+     * @return the output street
+     */
+    public Street getOutputStreet(int index) {
+        return connectedOutputStreets[index];
+    }
+
+    /**
+     * method to check if cars leave the graph when they reach this node
+     * @return true if the node is a sink
+     */
+    public boolean isSink() {
+        return sink;
+    }
+
+    /**
+     * method to set if cars leave the graph when they reach this node
+     * @param sink true if the node is a sink
+     */
+    public void setSink(boolean sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * method to set the index of the node in the next-hop tables of a routing table
+     * @param routingIndex the index of the node
+     */
+    public void setRoutingIndex(int routingIndex) {
+        this.routingIndex = routingIndex;
+    }
+
+    /**
+     * method to get the direction a car takes at this node.
+     * Cars with a destination follow the next-hop table of the graph, which is a single array lookup.
+     * Cars without a destination, at their destination or without a route follow their wanted direction.
+     * @param car the car that wants to cross the node
+     * @return the direction the car wants to go
+     */
+    public int getDirectionForCar(Car car) {
+        int destination = car.getDestination();
+        if (destination == Car.NO_DESTINATION || destination == nodeID) {
+            return car.getWantedDirection();
+        }
+
+        int direction = parentGraph.getRoutingTable().getNextDirection(destination, routingIndex);
+        if (direction == RoutingTable.NO_ROUTE) {
+            return car.getWantedDirection();
+        }
+        return direction;
     }
 
     /**
@@ -67,7 +232,20 @@ public void addOutputStreet(int id) {
      * @return the number of input streets
      */
     public int inputStreetCount() {
-        return connectedInputStreets.size();
+        return connectedInputStreetCount;
+    }
+
+    /**
+     * method to get the street a car at the end of an input street wants to cross to,
+     * no matter if it is allowed to cross
+     * @param car the car
+     * @return the output street in the direction of the car or null if the node has no output streets
+     */
+    public Street getTargetStreet(Car car) {
+        if (connectedOutputStreetCount == 0) {
+            return null;
+        }
+        return connectedOutputStreets[getDirectionForCar(car) % connectedOutputStreetCount];
     }
 
     /**
@@ -75,7 +253,7 @@ public int inputStreetCount() {
      * @return the number of output streets
      */
     public int outputStreetCount() {
-        return connectedOutputStreets.size();
+        return connectedOutputStreetCount;
     }
 
     /**
@@ -86,10 +264,10 @@ public int outputStreetCount() {
      */
     public boolean isValid() {
         if (
-                connectedInputStreets.size() < MIN_INPUT_STREETS
-                || connectedOutputStreets.size() < MIN_OUTPUT_STREETS
-                || connectedInputStreets.size() > MAX_INPUT_STREETS
-                || connectedOutputStreets.size() > MAX_OUTPUT_STREETS
+                connectedInputStreetCount < MIN_INPUT_STREETS
+                || connectedOutputStreetCount < MIN_OUTPUT_STREETS
+                || connectedInputStreetCount > MAX_INPUT_STREETS
+                || connectedOutputStreetCount > MAX_OUTPUT_STREETS
         ) {
             return false;
         }
@@ -97,6 +275,62 @@ public boolean isValid() {
         return true;
     }
 
+    /**
+     * method to check if cars on an input street currently have a green light
+     * @param inputStreetId the id of the input street
+     * @return true if the node lets cars from the street cross, nodes without traffic lights always do
+     */
+    public boolean hasGreenLight(int inputStreetId) {
+        return true;
+    }
+
+    /**
+     * method to get the input street that currently has the green phase
+     * @return the index of the input street in the order the input streets were added,
+     *     {@value #NO_TRAFFIC_LIGHTS} if the node has no traffic lights
+     */
+    public int getGreenInputIndex() {
+        return NO_TRAFFIC_LIGHTS;
+    }
+
+    /**
+     * method to get the duration of the green phase of the node
+     * @return the duration of the green phase, 0 if the node has no traffic lights
+     */
+    public int getGreenPhaseDuration() {
+        return 0;
+    }
+
+    /**
+     * method to write the state of the node into a buffer.
+     * Nodes without state write {@value #STATE_SIZE} zeros.
+     * @param target the buffer to write to
+     * @param offset the index of the first integer to write
+     */
+    public void saveState(IntBuffer target, int offset) {
+        for (int i = 0; i < STATE_SIZE; i++) {
+            target.put(offset + i, 0);
+        }
+    }
+
+    /**
+     * method to restore the state of the node from a buffer written by {@link #saveState(IntBuffer, int)}.
+     * Nodes without state do nothing.
+     * @param source the buffer to read from
+     * @param offset the index of the first integer to read
+     */
+    public void restoreState(IntBuffer source, int offset) {
+        //do nothing. nodes without a state have nothing to restore
+    }
+
+    /**
+     * method to get the hash of the current state of the node
+     * @return the state hash of the node
+     */
+    public long stateHash() {
+        return StateHash.ofNode(nodeID, 0, 0);
+    }
+
     /**
      * method to get the street that a car with a specific id is allowed to cross to.
      * @param streetId the id of the street the car is currently on
@@ -0,0 +1,214 @@
+package edu.kit.kastel.trafficsimulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * this class is a tile of nodes and streets that is declared once in the optional "tiles.sim" file
+ * and repeated on a grid of columns and rows.
+ * The first line of the file gives the size of the grid and the id of the first node, e.g. "100x50,1000".
+ * It is followed by the nodes of the tile in the format of "crossings.sim" with the ids 0 to n-1, and by
+ * the streets of the tile in the format of "streets.sim". A street can end at a node of another tile,
+ * "0-->1:100m,1x,20max,1,-1" ends at node 1 of the tile one column to the right and one row up.
+ * The grid wraps around at its edges, so every tile has the same neighbours.
+ *
+ * The tile in column c and row r has the index r * columns + c. Its node n gets the id
+ * first node id + index * nodes per tile + n. The streets of all tiles are added after the streets of
+ * "streets.sim", street s of a tile gets the id first street id + index * streets per tile + s,
+ * so cars and sources can be placed on them.
+ * The lines are parsed and checked once, only the nodes and streets of the graph exist per tile.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+final class TileGrid {
+
+    /** the index of the column offset in the values of a street of the tile */
+    private static final int COLUMN_OFFSET_INDEX = 5;
+
+    /** the index of the row offset in the values of a street of the tile */
+    private static final int ROW_OFFSET_INDEX = 6;
+
+    /** the number of columns of the grid */
+    private final int columns;
+
+    /** the number of rows of the grid */
+    private final int rows;
+
+    /** the id of node 0 of the first tile */
+    private final int firstNodeId;
+
+    /** the lines of the nodes of the tile by their id in the tile, for the error messages */
+    private final String[] nodeLines;
+
+    /** the green phase duration of every node of the tile by its id in the tile */
+    private final int[] greenPhaseDurations;
+
+    /** the lines of the streets of the tile, for the error messages */
+    private final String[] streetLines;
+
+    /** start node, end node, length, type, speed limit, column offset and row offset of every street of the tile */
+    private final int[][] streets;
+
+    /**
+     * constructor for a new grid
+     * @param columns the number of columns
+     * @param rows the number of rows
+     * @param firstNodeId the id of node 0 of the first tile
+     * @param nodeLines the lines of the nodes of the tile by their id in the tile
+     * @param greenPhaseDurations the green phase duration of every node of the tile
+     * @param streetLines the lines of the streets of the tile
+     * @param streets the values of the streets of the tile
+     */
+    private TileGrid(int columns, int rows, int firstNodeId, String[] nodeLines, int[] greenPhaseDurations,
+            String[] streetLines, int[][] streets) {
+        this.columns = columns;
+        this.rows = rows;
+        this.firstNodeId = firstNodeId;
+        this.nodeLines = nodeLines;
+        this.greenPhaseDurations = greenPhaseDurations;
+        this.streetLines = streetLines;
+        this.streets = streets;
+    }
+
+    /**
+     * method to parse the lines of the "tiles.sim" file
+     * @param lines the lines
+     * @return the grid or null if there are no lines
+     */
+    static TileGrid parse(List<String> lines) {
+        if (lines.isEmpty()) {
+            return null;
+        }
+
+        String gridLine = lines.get(0);
+        if (!gridLine.matches(TrafficSimulation.TILE_GRID_INPUT_FORMAT)) {
+            throw invalidLine(gridLine);
+        }
+        String[] gridValues = gridLine.split("x|,");
+        int columns = Integer.parseInt(gridValues[0]);
+        int rows = Integer.parseInt(gridValues[1]);
+        int firstNodeId = Integer.parseInt(gridValues[2]);
+        if (columns == 0 || rows == 0) {
+            throw invalidLine(gridLine);
+        }
+
+        List<String> nodeLineList = new ArrayList<>();
+        List<String> streetLineList = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.matches(TrafficSimulation.CROSSING_INPUT_FORMAT)) {
+                nodeLineList.add(line);
+            } else if (line.matches(TrafficSimulation.TILE_STREET_INPUT_FORMAT)) {
+                streetLineList.add(line);
+            } else {
+                throw invalidLine(line);
+            }
+        }
+
+        //the tiles have to be numbered without gaps and every id has to fit into an int
+        int nodeCount = nodeLineList.size();
+        if (firstNodeId + (long) columns * rows * nodeCount > Integer.MAX_VALUE
+                || (long) columns * rows * streetLineList.size() > Integer.MAX_VALUE) {
+            throw invalidLine(gridLine);
+        }
+
+        String[] nodeLines = new String[nodeCount];
+        int[] greenPhaseDurations = new int[nodeCount];
+        for (String line : nodeLineList) {
+            String[] values = line.split(":|t");
+            long localId = Long.parseLong(values[0]);
+            if (localId >= nodeCount || nodeLines[(int) localId] != null) {
+                throw invalidLine(line);
+            }
+            nodeLines[(int) localId] = line;
+            greenPhaseDurations[(int) localId] = Integer.parseInt(values[1]);
+        }
+
+        String[] streetLines = streetLineList.toArray(new String[0]);
+        int[][] streets = new int[streetLines.length][];
+        for (int i = 0; i < streetLines.length; i++) {
+            String[] values = streetLines[i].split("-->|:|m,|x,|max,|max|,");
+            long startNode = Long.parseLong(values[0]);
+            long endNode = Long.parseLong(values[1]);
+            if (startNode >= nodeCount || endNode >= nodeCount) {
+                throw invalidLine(streetLines[i]);
+            }
+            streets[i] = new int[ROW_OFFSET_INDEX + 1];
+            for (int value = 0; value < values.length; value++) {
+                streets[i][value] = Integer.parseInt(values[value]);
+            }
+        }
+
+        return new TileGrid(columns, rows, firstNodeId, nodeLines, greenPhaseDurations, streetLines, streets);
+    }
+
+    /**
+     * method to get the number of nodes of all tiles
+     * @return the number of nodes
+     */
+    int getNodeCount() {
+        return columns * rows * nodeLines.length;
+    }
+
+    /**
+     * method to get the length of every street of all tiles without adding them to a graph
+     * @return the lengths in the order the streets are added
+     */
+    int[] getStreetLengths() {
+        int[] lengths = new int[columns * rows * streets.length];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = streets[i % streets.length][2];
+        }
+        return lengths;
+    }
+
+    /**
+     * method to add the nodes and streets of all tiles to a graph
+     * @param graph the graph that already contains the nodes and streets of the other files
+     */
+    void addTo(SimulationGraph graph) {
+        int tileCount = columns * rows;
+        for (int tile = 0; tile < tileCount; tile++) {
+            for (int node = 0; node < nodeLines.length; node++) {
+                int nodeId = nodeId(tile, node);
+                if (graph.containsNode(nodeId)) {
+                    throw new IllegalArgumentException(String.format(TrafficSimulation.NODE_ALREADY_EXISTS_ERROR,
+                            nodeId));
+                }
+                GraphBuilder.addCrossing(graph, nodeId, greenPhaseDurations[node], nodeLines[node]);
+            }
+        }
+
+        //all nodes have to exist before the streets between the tiles are added
+        for (int tile = 0; tile < tileCount; tile++) {
+            int column = tile % columns;
+            int row = tile / columns;
+            for (int i = 0; i < streets.length; i++) {
+                int[] street = streets[i];
+                int endTile = Math.floorMod(row + street[ROW_OFFSET_INDEX], rows) * columns
+                        + Math.floorMod(column + street[COLUMN_OFFSET_INDEX], columns);
+                GraphBuilder.addStreet(graph, nodeId(tile, street[0]), nodeId(endTile, street[1]), street[2],
+                        street[3], street[4], streetLines[i]);
+            }
+        }
+    }
+
+    /**
+     * method to get the id a node of the tile has in the graph
+     * @param tile the index of the tile
+     * @param node the id of the node in the tile
+     * @return the id in the graph
+     */
+    private int nodeId(int tile, int node) {
+        return firstNodeId + tile * nodeLines.length + node;
+    }
+
+    /**
+     * method to create the exception for a line that is not valid
+     * @param line the line
+     * @return the exception
+     */
+    private static IllegalArgumentException invalidLine(String line) {
+        return new IllegalArgumentException(String.format(TrafficSimulation.INVALID_FILE_LINE_ERROR, line));
+    }
+}
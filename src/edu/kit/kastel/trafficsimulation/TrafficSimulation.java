@@ -2,15 +2,33 @@
 
 
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
 
-import edu.kit.kastel.trafficsimulation.io.SimulationFileLoader;
+import edu.kit.kastel.trafficsimulation.memory.MemoryCategory;
+import edu.kit.kastel.trafficsimulation.memory.MemoryReport;
+import edu.kit.kastel.trafficsimulation.realtime.CarSnapshot;
+import edu.kit.kastel.trafficsimulation.realtime.CatchUpPolicy;
+import edu.kit.kastel.trafficsimulation.realtime.LatencyHistogram;
+import edu.kit.kastel.trafficsimulation.realtime.PacedSimulation;
+import edu.kit.kastel.trafficsimulation.replication.ReplicationPrimary;
+import edu.kit.kastel.trafficsimulation.replication.ReplicationStandby;
+import edu.kit.kastel.trafficsimulation.server.SimulationServer;
+import edu.kit.kastel.trafficsimulation.statistics.NodeStatistics;
+import edu.kit.kastel.trafficsimulation.statistics.StreetStatistics;
+import edu.kit.kastel.trafficsimulation.watch.AllCarsStoppedCondition;
+import edu.kit.kastel.trafficsimulation.watch.CarOnStreetCondition;
+import edu.kit.kastel.trafficsimulation.watch.NodePassedCondition;
+import edu.kit.kastel.trafficsimulation.watch.StopCondition;
 
 /**
  * This class is the main class of the traffic simulation.
- * It handles the input from the user and calls the appropriate methods.
- * It also handles the loading of the simulation files.
+ * It handles the input from the user, calls the appropriate methods of the {@link SimulationEngine}
+ * and prints their results and errors.
  * 
  * @author uxler
  * @version 1.0
@@ -25,13 +43,99 @@ public class TrafficSimulation {
     static final String STREET_INPUT_FORMAT = "[0-9]+-->[0-9]+:[0-9]+m,[1-2]x,[0-9]+max";
     /** the input format of a crossing in the "crossings.sim" file */
     static final String CROSSING_INPUT_FORMAT = "[0-9]+:[0-9]+t";
-    /** the input format of a car in the "cars.sim" file */
-    static final String CAR_INPUT_FORMAT = "[0-9]+,[0-9]+,[0-9]+,[0-9]+";
+    /** the input format of a car in the "cars.sim" file, the last field is an optional destination node */
+    static final String CAR_INPUT_FORMAT = "[0-9]+,[0-9]+,[0-9]+,[0-9]+(,[0-9]+)?";
+    /** the index of the optional destination node in a line of the "cars.sim" file */
+    static final int CAR_DESTINATION_INDEX = 4;
+    /** the input format of a source in the optional "sources.sim" file: street, interval, wanted speed,
+     * acceleration and an optional destination node */
+    static final String SOURCE_INPUT_FORMAT = "[0-9]+:[0-9]+t,[0-9]+,[0-9]+(,[0-9]+)?";
+    /** the input format of a sink node in the optional "sinks.sim" file */
+    static final String SINK_INPUT_FORMAT = "[0-9]+";
+    /** the input format of the first line of the optional "tiles.sim" file: columns, rows and the first node id */
+    static final String TILE_GRID_INPUT_FORMAT = "[0-9]{1,9}x[0-9]{1,9},[0-9]{1,9}";
+    /** the input format of a street of a tile: a street with an optional column and row offset of its end node */
+    static final String TILE_STREET_INPUT_FORMAT = STREET_INPUT_FORMAT + "(,-?[0-9]{1,9},-?[0-9]{1,9})?";
+    /** the input format of the parameters of the inject and remove commands */
+    static final String CAR_PARAMETER_INPUT_FORMAT = "[0-9]{1,9}";
     
     /** the input format for the position command */
     static final String POSITION_INPUT_FORMAT = "[0-9]+";
     /** the input format for the simulate command */
     static final String SIMULATE_INPUT_FORMAT = "[0-9]+";
+    /** the input format for a tick of the time travel position command */
+    static final String TICK_INPUT_FORMAT = "[0-9]{1,18}";
+    /** the input format for the parameters of the history command */
+    static final String HISTORY_INPUT_FORMAT = "[0-9]{1,9}";
+
+    /** the keyword of the history and storage commands to store the keyframes or the cars outside of the heap */
+    static final String OFF_HEAP_KEYWORD = "offheap";
+
+    /** the parameter of the storage command that stores the cars on the heap */
+    static final String HEAP_STORAGE_KEYWORD = "heap";
+
+    /** the command line argument that starts the program as a server */
+    static final String SERVER_ARGUMENT = "--server";
+
+    /** the command line argument that starts the program as the primary of a pair of replicated servers */
+    static final String PRIMARY_ARGUMENT = "--primary";
+
+    /** the command line argument that starts the program as the standby of a pair of replicated servers */
+    static final String STANDBY_ARGUMENT = "--standby";
+
+    /** the format of the port the server listens on */
+    static final String PORT_INPUT_FORMAT = "[0-9]{1,5}";
+
+    /** the input format for the ids and durations of the edit commands */
+    static final String EDIT_PARAMETER_INPUT_FORMAT = "[0-9]{1,9}";
+
+    /** the format of a line of an edit command with a number that does not fit into an integer */
+    static final String OVERSIZED_NUMBER_FORMAT = ".*[0-9]{10,}.*";
+
+    /** the parameter of the layout command for the breadth-first locality order */
+    static final String LOCALITY_LAYOUT_KEYWORD = "bfs";
+
+    /** the parameter of the layout command for the order of the ids */
+    static final String ID_LAYOUT_KEYWORD = "id";
+
+    /** the parameter of the fidelity command that simulates all streets with exact car following */
+    static final String EXACT_FIDELITY_KEYWORD = "exact";
+
+    /** the input format for the tick rate and the number of ticks of the pace command */
+    static final String PACE_INPUT_FORMAT = "[0-9]{1,9}";
+
+    /** the parameter of the pace command that stops the paced run */
+    static final String STOP_PACE_KEYWORD = "stop";
+
+    /** the parameter of the pace command that prints the report of the paced run */
+    static final String REPORT_PACE_KEYWORD = "report";
+
+    /** the catch-up policy of the pace command if none is given */
+    static final CatchUpPolicy DEFAULT_CATCH_UP_POLICY = CatchUpPolicy.BURST;
+
+    /** the percentiles of the tick latency the report of the pace command shows */
+    static final double[] PACE_PERCENTILES = {50, 99, 99.9};
+
+    /** the number of nanoseconds of a millisecond */
+    static final double NANOS_PER_MILLI = 1e6;
+
+    /** the condition of the simulate-until command that a car reaches a street */
+    static final String CAR_ON_STREET_CONDITION_FORMAT = "car=[0-9]{1,9},street=[0-9]{1,9}";
+
+    /** the condition of the simulate-until command that a number of cars crossed a node */
+    static final String NODE_PASSED_CONDITION_FORMAT = "node=[0-9]{1,9},passed=[0-9]{1,18}";
+
+    /** the condition of the simulate-until command that all cars stand still */
+    static final String ALL_STOPPED_CONDITION = "stopped";
+
+    /** the input format for the maximum number of ticks of the simulate-until command */
+    static final String MAX_TICKS_INPUT_FORMAT = "[0-9]{1,9}";
+
+    /** the maximum number of ticks of the simulate-until command if none is given */
+    static final int DEFAULT_MAX_TICKS = 1000000;
+
+    /** the keyword between the car and the tick in the time travel position command */
+    static final String TIME_TRAVEL_KEYWORD = "at";
 
     /** the string for the load command */
     static final String QUIT_COMMAND = "quit";
@@ -58,13 +162,129 @@ public class TrafficSimulation {
     static final String UNKNOWN_CAR_ERROR = "Error: There is no car with the identifier %s.";
     /** the error given if the input for the simulate command is not a valid it */
     static final String INVALID_SIMULATE_INPUT_FORMAT_ERROR = "Error: \"%s\" invalid parameter. Enter positive integer";
+    /** the error given if the tick of the time travel position command is not a valid tick */
+    static final String INVALID_TICK_INPUT_FORMAT_ERROR = "Error: \"%s\" invalid tick";
+    /** the error given if the tick of the time travel position command lies in the future */
+    static final String TICK_IN_FUTURE_ERROR = "Error: tick %s has not been simulated yet";
+    /** the error given if the tick of the time travel position command is no longer in the history */
+    static final String TICK_NOT_AVAILABLE_ERROR = "Error: tick %s is no longer available. The oldest tick is %s";
+    /** the error given if the time travel position command is used while no history is recorded */
+    static final String NO_HISTORY_ERROR = "Error: no history is recorded, enable it with the history command";
+    /** the error given if the storage command asks for the off-heap storage but it is not available */
+    static final String OFF_HEAP_STORAGE_ERROR
+            = "Error: the off-heap storage needs the module jdk.incubator.foreign and the classes of src-incubator";
+    /** the error given if the parameters of the history command are not valid */
+    static final String INVALID_HISTORY_INPUT_FORMAT_ERROR = "Error: \"%s\" invalid parameter for history";
+
+    /** the error message if the parameter of the traffic-stats command is not valid */
+    static final String INVALID_STATISTICS_INPUT_FORMAT_ERROR = "Error: \"%s\" invalid parameter for traffic-stats";
+
+    /** the error message if a parameter of the inject or remove command is not valid */
+    static final String INVALID_CAR_PARAMETER_ERROR = "Error: \"%s\" invalid parameter. Enter a positive integer";
+
+    /** the error message if an injected car has an invalid wanted speed or acceleration */
+    static final String INVALID_INJECTED_CAR_ERROR = "Error: a car with wanted speed %s and acceleration %s is not valid";
+
+    /** the error message if a checkpoint can not be written or restored */
+    static final String CHECKPOINT_ERROR = "Error: %s";
+
+    /** the error message if the server cannot be started */
+    static final String SERVER_ERROR = "Error: server: %s";
+
+    /** the output when the server is ready for connections */
+    static final String SERVER_LISTENING_OUTPUT = "Listening on port %s";
+
+    /** the output when the primary is ready for standbys */
+    static final String PRIMARY_LISTENING_OUTPUT = "Replicating on port %s";
+
+    /** the output when the standby follows its primary */
+    static final String STANDBY_FOLLOWING_OUTPUT = "Following the primary on port %s";
+
+    /** the output when the primary of the standby is gone */
+    static final String STANDBY_PROMOTED_OUTPUT = "The primary is gone, accepting all commands";
+
+    /** the error message if a paced run is started while the commands are replicated */
+    static final String REPLICATED_PACE_ERROR = "Error: paced runs can not be replicated";
+
+    /** the error message if a parameter of an edit command is not valid */
+    static final String INVALID_EDIT_PARAMETER_ERROR = "Error: \"%s\" invalid parameter for %s";
+
+    /** the error message if a node that is added already exists */
+    static final String NODE_ALREADY_EXISTS_ERROR = "Error: A node with id %s already exists";
+
+    /** the error message if a node that is removed still has streets */
+    static final String NODE_HAS_STREETS_ERROR = "Error: Node %s still has streets";
+
+    /** the error message if the green phase of a node without traffic lights is changed */
+    static final String NOT_A_CROSSING_ERROR = "Error: Node %s is not a crossing";
+
+    /** the error message if the graph is not valid after an edit */
+    static final String INVALID_NODE_ERROR = "Error: The graph is not valid, node %s has an invalid number of streets";
+
+    /** the error message if a command is given that can not be executed during a paced run */
+    static final String PACED_RUN_ERROR = "Error: The simulation is running paced. Stop it with \"pace stop\" first";
+
+    /** the error message if the report of a paced run is requested but none was started */
+    static final String NO_PACED_RUN_ERROR = "Error: No paced run was started";
 
     /** the message printed when the graph is loaded successfully */
     static final String READY_SUCCESS_MESSAGE = "READY";
 
+    /** the output string for the inject command */
+    static final String INJECT_OUTPUT_STRING = "Car %s entered street %s";
+
+    /** the output string if the condition of the simulate-until command was fulfilled */
+    static final String CONDITION_MET_OUTPUT_STRING = "Condition met at tick %s";
+
+    /** the output string if the simulate-until command reached its maximum number of ticks */
+    static final String CONDITION_NOT_MET_OUTPUT_STRING = "Condition not met, stopped at tick %s";
+
+    /** the output string for the add-street command */
+    static final String ADD_STREET_OUTPUT_STRING = "Street %s added";
+
+    /** the output string for the report of the pace command */
+    static final String PACE_REPORT_OUTPUT_STRING = "%s ticks in %.3f s at %s ticks/s (%s), %s missed deadlines, "
+            + "%s skipped ticks, latency p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms";
+
+    /** the output string for a category of the memory command */
+    static final String MEMORY_CATEGORY_OUTPUT_STRING = "%s: %s bytes";
+
+    /** the output string for the total of the memory command */
+    static final String MEMORY_TOTAL_OUTPUT_STRING
+            = "total: %s bytes for %s cars, %s streets and %s nodes, %.1f bytes per car, %.1f bytes per street";
+
+    /** the output string for a gridlock of the gridlock command */
+    static final String GRIDLOCK_OUTPUT_STRING = "Gridlock of %s streets: %s";
+
+    /** the output string for the summary of the gridlock command */
+    static final String GRIDLOCK_SUMMARY_OUTPUT_STRING = "%s gridlocks, %s frozen streets";
+
+    /** the separator between the streets of a gridlock in the output of the gridlock command */
+    static final String GRIDLOCK_SEPARATOR = " -> ";
+
+    /** the command that searches for gridlocks */
+    static final String GRIDLOCK_COMMAND = "gridlock";
+
+    /** the parameter of the gridlock command that enables freezing gridlocks */
+    static final String ON_KEYWORD = "on";
+
+    /** the parameter of the gridlock command that disables freezing gridlocks */
+    static final String OFF_KEYWORD = "off";
+
+    /** the command that prints the memory footprint */
+    static final String MEMORY_COMMAND = "memory";
+
     /** the output string for the position command */
     static final String POSITION_OUTPUT_STRING = "Car %s on street %s with speed %s and position %s";
 
+    /** the output string for the traffic-stats command of a street */
+    static final String STREET_STATISTICS_OUTPUT_STRING
+            = "Street %s over %s ticks: occupancy %.2f, mean speed %.2f, queue length %.2f, throughput %.4f";
+
+    /** the output string for the traffic-stats command of a node */
+    static final String NODE_STATISTICS_OUTPUT_STRING
+            = "Node %s over %s ticks: throughput %.4f, blocked crossings %.4f";
+
     /** the max length a street can have */
     static final int STREET_MAX_LENGTH = 10000;
     /** the minimum length a street must have */
@@ -87,18 +307,61 @@ public class TrafficSimulation {
     /** The maximum acceleration a car can have */
     static final int MAX_ACCELERATION = 10;
 
+    /** the default number of ticks between two keyframes of the history */
+    static final int DEFAULT_KEYFRAME_SPACING = 100;
+
+    /** the default memory budget of the history in kibibytes */
+    static final int DEFAULT_HISTORY_BUDGET_KIB = 64 * 1024;
+
+    /** the default memory budget of the templates of recently loaded folders in kibibytes */
+    static final int DEFAULT_SCENARIO_CACHE_BUDGET_KIB = 64 * 1024;
+
+    /** the number of bytes in a kibibyte */
+    static final int BYTES_PER_KIB = 1024;
+
     /** the scanner object used by the class to get input from the command line*/
     private Scanner scanner;
 
-    /** the graph that is currently loaded */
-    private SimulationGraph loadedGraph;
+    /** the engine with the loaded graph and the settings, shared by all sessions of a server */
+    private final SimulationEngine engine;
+
+    /** the stream the output of the commands is written to */
+    private final PrintStream out;
+
+    /** the stream the error messages of the commands are written to */
+    private final PrintStream err;
 
     /** 
      * the constructor of the class
      * @param scanner the scanner object used by the class to get input from the command line
      */
     public TrafficSimulation(Scanner scanner) {
+        this(scanner, new SimulationEngine(), System.out, System.err);
+    }
+
+    /**
+     * constructor for a session that executes commands given by {@link #executeCommand(String)}
+     * @param scanner the scanner object used by {@link #getCommand()} or null if the session has no scanner
+     * @param engine the engine with the loaded graph and the settings of the session
+     * @param out the stream the output of the commands is written to
+     * @param err the stream the error messages of the commands are written to
+     */
+    TrafficSimulation(Scanner scanner, SimulationEngine engine, PrintStream out, PrintStream err) {
         this.scanner = scanner;
+        this.engine = engine;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * creates a new session without a scanner that shares the loaded graph and the settings with this one
+     * but writes its output to other streams
+     * @param sessionOut the stream the output of the commands of the new session is written to
+     * @param sessionErr the stream the error messages of the commands of the new session are written to
+     * @return the new session
+     */
+    public TrafficSimulation openSession(PrintStream sessionOut, PrintStream sessionErr) {
+        return new TrafficSimulation(null, engine, sessionOut, sessionErr);
     }
 
     /** 
@@ -106,6 +369,19 @@ public TrafficSimulation(Scanner scanner) {
      * @param args the command line arguments
      */
     public static void main(String[] args) {
+
+        if (args.length == 2 && args[0].equals(SERVER_ARGUMENT)) {
+            runServer(args[1]);
+            return;
+        }
+        if (args.length == 3 && args[0].equals(PRIMARY_ARGUMENT)) {
+            runPrimary(args[1], args[2]);
+            return;
+        }
+        if (args.length == 3 && args[0].equals(STANDBY_ARGUMENT)) {
+            runStandby(args[1], args[2]);
+            return;
+        }
         
         Scanner scanner = new Scanner(System.in);
         TrafficSimulation simulation = new TrafficSimulation(scanner);
@@ -122,23 +398,50 @@ public static void main(String[] args) {
      */
     public boolean getCommand() {
         
-        String line = scanner.nextLine();
+        return executeCommand(scanner.nextLine());
+    }
+
+    /**
+     * Executes a single command line and writes its output to the streams of this session.
+     * @param line the command line
+     * @return true if the session should continue, false if it should quit
+     */
+    public boolean executeCommand(String line) {
 
         String[] lineSplits = line.split(" ");
 
+        if (engine.isPaced() && !isAllowedWhilePaced(lineSplits)) {
+            err.println(PACED_RUN_ERROR);
+            return true;
+        }
+
         switch (lineSplits.length) {
             case 1:
                 if (lineSplits[0].equals(QUIT_COMMAND)) {
                     return false;
                 } 
-                System.err.println(String.format(INVALID_COMMAND_ERROR, line));
+                if (lineSplits[0].equals(MEMORY_COMMAND)) {
+                    handleMemory(null);
+                    break;
+                }
+                if (lineSplits[0].equals(GRIDLOCK_COMMAND)) {
+                    handleGridlock();
+                    break;
+                }
+                err.println(String.format(INVALID_COMMAND_ERROR, line));
                 break;
             case 2:
                 handleCommandWithParamenter(lineSplits);
                 break;
+            case 3:
+                handleCommandWithTwoParameters(lineSplits);
+                break;
+            case 4:
+                handleCommandWithThreeParameters(lineSplits);
+                break;
             
             default:
-                System.err.println(String.format(INVALID_COMMAND_ERROR, line));
+                err.println(String.format(INVALID_COMMAND_ERROR, line));
                 break;
         }
 
@@ -146,6 +449,182 @@ public boolean getCommand() {
 
     }
 
+    /**
+     * checks if a command can be executed while a paced run simulates the graph on its own thread.
+     * These are the quit command, the pace commands, the position command, which reads the snapshot of the run,
+     * and the memory command, which only reads the sizes of the structures.
+     * @param lineSplits the command line split by spaces
+     * @return true if the command does not touch the graph
+     */
+    private static boolean isAllowedWhilePaced(String[] lineSplits) {
+        switch (lineSplits.length) {
+            case 1:
+                return lineSplits[0].equals(QUIT_COMMAND) || lineSplits[0].equals(MEMORY_COMMAND);
+            case 2:
+                return lineSplits[0].equals("position") || lineSplits[0].equals("pace")
+                        || lineSplits[0].equals(MEMORY_COMMAND);
+            default:
+                return lineSplits[0].equals("pace");
+        }
+    }
+
+    /**
+     * checks if a command line only reads the loaded graph, so it can be executed
+     * at the same time as other reading commands. Time travel queries are not reading commands
+     * because they advance the replay graph of the history.
+     * @param line the command line
+     * @return true if the command does not modify the simulation
+     */
+    public static boolean isReadOnlyCommand(String line) {
+        String[] lineSplits = line.split(" ");
+        switch (lineSplits.length) {
+            case 1:
+                return lineSplits[0].equals(MEMORY_COMMAND);
+            case 2:
+                return lineSplits[0].equals("position") || lineSplits[0].equals(MEMORY_COMMAND);
+            case 3:
+                return lineSplits[0].equals("traffic-stats") && !lineSplits[1].equals("window");
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * checks if a command line has to be executed by the standby of a pair of replicated servers
+     * to keep the same state as the primary. These are all commands except the reading commands,
+     * the quit command and the checkpoint command, which only writes a file.
+     * @param line the command line
+     * @return true if the command may change the simulation
+     */
+    public static boolean changesSimulation(String line) {
+        String[] lineSplits = line.split(" ");
+        return !isReadOnlyCommand(line) && !lineSplits[0].equals(QUIT_COMMAND) && !lineSplits[0].equals("checkpoint");
+    }
+
+    /**
+     * checks if a command line configures the engine for all graphs loaded later. These are the history,
+     * layout, storage, fidelity, gridlock on and off, traffic-stats window and load-cache commands.
+     * All other commands only change the loaded graph and are irrelevant once another graph is loaded.
+     * @param line the command line
+     * @return true if the command configures the engine
+     */
+    public static boolean configuresEngine(String line) {
+        String[] lineSplits = line.split(" ");
+        switch (lineSplits[0]) {
+            case "history":
+            case "layout":
+            case "storage":
+            case "fidelity":
+            case "load-cache":
+                return true;
+            case GRIDLOCK_COMMAND:
+                return lineSplits.length > 1;
+            case "traffic-stats":
+                return lineSplits.length > 1 && lineSplits[1].equals("window");
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * method to get the number of graphs that were loaded
+     * @return the number of graphs that were loaded since the simulation was created
+     */
+    public long getLoadCount() {
+        return engine.getLoadCount();
+    }
+
+    /**
+     * method to get the current tick of the loaded graph
+     * @return the number of simulated ticks, 0 if no graph is loaded
+     */
+    public long getCurrentTick() {
+        return engine.isLoaded() ? engine.getCurrentTick() : 0;
+    }
+
+    /**
+     * method to get the hash of the state of all cars and nodes of the loaded graph
+     * @return the state hash, 0 if no graph is loaded
+     */
+    public long getStateHash() {
+        return engine.isLoaded() ? engine.getStateHash() : 0;
+    }
+
+    /**
+     * starts a server that executes the commands of its clients on one shared simulation
+     * @param portInput the port to listen on, 0 for any free port
+     */
+    private static void runServer(String portInput) {
+        if (!portInput.matches(PORT_INPUT_FORMAT)) {
+            System.err.println(String.format(SERVER_ERROR, "invalid port " + portInput));
+            return;
+        }
+        TrafficSimulation simulation = new TrafficSimulation(null);
+        try (SimulationServer server = new SimulationServer(simulation, Integer.parseInt(portInput))) {
+            System.out.println(String.format(SERVER_LISTENING_OUTPUT, server.getPort()));
+            server.serve();
+        } catch (IOException | IllegalArgumentException exception) {
+            System.err.println(String.format(SERVER_ERROR, exception.getMessage()));
+        }
+    }
+
+    /**
+     * starts a server that sends the commands that change its simulation to the standbys that connect to it
+     * @param portInput the port to listen on for clients, 0 for any free port
+     * @param replicationPortInput the port to listen on for standbys, 0 for any free port
+     */
+    private static void runPrimary(String portInput, String replicationPortInput) {
+        if (!portInput.matches(PORT_INPUT_FORMAT) || !replicationPortInput.matches(PORT_INPUT_FORMAT)) {
+            System.err.println(String.format(SERVER_ERROR, "invalid port " + portInput + " " + replicationPortInput));
+            return;
+        }
+        TrafficSimulation simulation = new TrafficSimulation(null);
+        simulation.engine.setReplicated(true);
+        try (SimulationServer server = new SimulationServer(simulation, Integer.parseInt(portInput));
+             ReplicationPrimary primary = new ReplicationPrimary(Integer.parseInt(replicationPortInput))) {
+            server.setReplication(primary);
+            primary.start();
+            System.out.println(String.format(SERVER_LISTENING_OUTPUT, server.getPort()));
+            System.out.println(String.format(PRIMARY_LISTENING_OUTPUT, primary.getPort()));
+            server.serve();
+        } catch (IOException | IllegalArgumentException exception) {
+            System.err.println(String.format(SERVER_ERROR, exception.getMessage()));
+        }
+    }
+
+    /**
+     * starts a server that executes the commands of a primary and answers the reading commands of its clients.
+     * When the primary is gone the server accepts all commands.
+     * @param portInput the port to listen on for clients, 0 for any free port
+     * @param primaryPortInput the port the primary listens on for standbys
+     */
+    private static void runStandby(String portInput, String primaryPortInput) {
+        if (!portInput.matches(PORT_INPUT_FORMAT) || !primaryPortInput.matches(PORT_INPUT_FORMAT)) {
+            System.err.println(String.format(SERVER_ERROR, "invalid port " + portInput + " " + primaryPortInput));
+            return;
+        }
+        TrafficSimulation simulation = new TrafficSimulation(null);
+        simulation.engine.setReplicated(true);
+        try (SimulationServer server = new SimulationServer(simulation, Integer.parseInt(portInput));
+             ReplicationStandby standby = new ReplicationStandby(simulation, server.getCommandLock(),
+                     Integer.parseInt(primaryPortInput), System.err)) {
+            server.setReplication(standby);
+            Thread follower = new Thread(() -> {
+                if (standby.follow()) {
+                    simulation.engine.setReplicated(false);
+                    System.out.println(STANDBY_PROMOTED_OUTPUT);
+                }
+            }, "replication-standby");
+            follower.setDaemon(true);
+            follower.start();
+            System.out.println(String.format(SERVER_LISTENING_OUTPUT, server.getPort()));
+            System.out.println(String.format(STANDBY_FOLLOWING_OUTPUT, primaryPortInput));
+            server.serve();
+        } catch (IOException | IllegalArgumentException exception) {
+            System.err.println(String.format(SERVER_ERROR, exception.getMessage()));
+        }
+    }
+
     /**
      * handles all commands that accept a parameter
      * @param input the input string split by spaces
@@ -161,220 +640,571 @@ void handleCommandWithParamenter(String[] input) {
             case "position":
                 handlePosition(input[1]);
                 break;
+            case "remove":
+                handleRemove(input[1]);
+                break;
+            case "checkpoint":
+                handleCheckpoint(input[1]);
+                break;
+            case "restore":
+                handleRestore(input[1]);
+                break;
+            case "layout":
+                handleLayout(input[1]);
+                break;
+            case "storage":
+                handleStorage(input[1]);
+                break;
+            case "fidelity":
+                handleFidelity(input[1]);
+                break;
+            case "pace":
+                handlePaceControl(input[1]);
+                break;
+            case "load-cache":
+                handleLoadCache(input[1]);
+                break;
+            case MEMORY_COMMAND:
+                handleMemory(input[1]);
+                break;
+            case GRIDLOCK_COMMAND:
+                handleGridlockDetection(input[1]);
+                break;
+            case "history":
+                handleHistoryOff(input[1]);
+                break;
+            case "simulate-until":
+                handleSimulateUntil(input[1], null);
+                break;
+            case "add-node":
+                handleAddNode(input[1]);
+                break;
+            case "add-street":
+                handleAddStreet(input[1]);
+                break;
+            case "add-car":
+                handleAddCar(input[1]);
+                break;
+            case "remove-street":
+                handleRemoveStreet(input[1]);
+                break;
+            case "remove-node":
+                handleRemoveNode(input[1]);
+                break;
+            default:
+                err.println(String.format(INVALID_COMMAND_ERROR, input[0]));
+                break;
+        }
+    }
+
+    /**
+     * handles all commands that accept two parameters
+     * @param input the input string split by spaces
+     */
+    void handleCommandWithTwoParameters(String[] input) {
+        switch (input[0]) {
+            case "history":
+                handleHistory(input[1], input[2], false);
+                break;
+            case "traffic-stats":
+                handleTrafficStatistics(input[1], input[2]);
+                break;
+            case "green-phase":
+                handleGreenPhase(input[1], input[2]);
+                break;
+            case "simulate-until":
+                handleSimulateUntil(input[1], input[2]);
+                break;
+            case "pace":
+                handlePace(input[1], input[2], DEFAULT_CATCH_UP_POLICY.name());
+                break;
             default:
-                System.err.println(String.format(INVALID_COMMAND_ERROR, input[0]));
+                err.println(String.format(INVALID_COMMAND_ERROR, input[0]));
                 break;
         }
     }
 
+    /**
+     * handles all commands that accept three parameters
+     * @param input the input string split by spaces
+     */
+    void handleCommandWithThreeParameters(String[] input) {
+        if (input[0].equals("position") && input[2].equals(TIME_TRAVEL_KEYWORD)) {
+            handlePositionAtTick(input[1], input[3]);
+        } else if (input[0].equals("history") && input[3].equals(OFF_HEAP_KEYWORD)) {
+            handleHistory(input[1], input[2], true);
+        } else if (input[0].equals("inject")) {
+            handleInject(input[1], input[2], input[3]);
+        } else if (input[0].equals("pace")) {
+            handlePace(input[1], input[2], input[3]);
+        } else {
+            err.println(String.format(INVALID_COMMAND_ERROR, input[0]));
+        }
+    }
+
     /**
      * this method handles all calls of the load commands
      * @param param the parameter that was given after the load command
      */
     void handleLoad(String param) {
+        try {
+            engine.load(param);
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return;
+        }
 
-        List<String> streetConstructors;
-        List<String> crossingConstructors;
-        List<String> carConstructors;
+        out.println(READY_SUCCESS_MESSAGE);
+    }
 
-        SimulationGraph newGraph = new SimulationGraph();
+    /**
+     * method to handle the "inject" command
+     * lets a new car enter a street at its beginning and prints the id of the car
+     * @param streetInput the id of the street
+     * @param wantedSpeedInput the speed the car wants to drive at
+     * @param accelerationInput the acceleration of the car
+     */
+    void handleInject(String streetInput, String wantedSpeedInput, String accelerationInput) {
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
+        }
 
-        try {
-            SimulationFileLoader loader = new SimulationFileLoader(param);
+        for (String input : new String[] {streetInput, wantedSpeedInput, accelerationInput}) {
+            if (!input.matches(CAR_PARAMETER_INPUT_FORMAT)) {
+                err.println(String.format(INVALID_CAR_PARAMETER_ERROR, input));
+                return;
+            }
+        }
 
-            streetConstructors = loader.loadStreets();
-            crossingConstructors = loader.loadCrossings();
-            carConstructors = loader.loadCars();
+        int streetId = Integer.parseInt(streetInput);
+        int wantedSpeed = Integer.parseInt(wantedSpeedInput);
+        int acceleration = Integer.parseInt(accelerationInput);
 
-        } catch (IOException e) {
-            System.err.println("Error: " + e.getMessage());
+        int carId;
+        try {
+            carId = engine.injectCar(streetId, wantedSpeed, acceleration);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return;
+        }
+        if (carId < 0) {
+            err.println(String.format(STREET_ALREADY_FULL_ERROR, streetId));
             return;
         }
 
+        out.println(String.format(INJECT_OUTPUT_STRING, carId, streetId));
+    }
 
+    /**
+     * method to handle the "remove" command
+     * removes the car with the given id from the graph
+     * @param input the id of the car
+     */
+    void handleRemove(String input) {
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
+        }
 
-        //we do the three checks seperate because we want to stop immediately if one of them fails
+        if (!input.matches(CAR_PARAMETER_INPUT_FORMAT)) {
+            err.println(String.format(INVALID_CAR_PARAMETER_ERROR, input));
+            return;
+        }
 
-        boolean crossingStatus = loadCrossings(crossingConstructors, newGraph);
-        if (!crossingStatus) {
-            return; // already printed the error message so we can just return
+        try {
+            engine.removeCar(Integer.parseInt(input));
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return;
         }
+        out.println(READY_SUCCESS_MESSAGE);
+    }
 
-        boolean streetStatus = loadStreets(streetConstructors, newGraph);
-        if (!streetStatus) {
-            return; // already printed the error message so we can just return
+    /**
+     * method to handle the "layout" command ("layout bfs" or "layout id")
+     * chooses the order the storage of streets and cars is arranged in, for the loaded graph and all graphs loaded later.
+     * The order only changes how fast the simulation runs, not its results.
+     * @param input the name of the order
+     */
+    void handleLayout(String input) {
+        if (!input.equals(LOCALITY_LAYOUT_KEYWORD) && !input.equals(ID_LAYOUT_KEYWORD)) {
+            err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, input, "layout"));
+            return;
         }
 
-        boolean carStatus = loadCars(carConstructors, newGraph);
-        if (!carStatus) {
-            return; // already printed the error message so we can just return
+        engine.setLocalityOrder(input.equals(LOCALITY_LAYOUT_KEYWORD));
+        out.println(READY_SUCCESS_MESSAGE);
+    }
+
+    /**
+     * method to handle the "storage" command ("storage heap" or "storage offheap")
+     * chooses where the state of the cars of the loaded graph and all graphs loaded later is stored.
+     * The storage only changes how much heap the simulation needs and how fast it runs, not its results.
+     * @param input the name of the storage
+     */
+    void handleStorage(String input) {
+        if (!input.equals(HEAP_STORAGE_KEYWORD) && !input.equals(OFF_HEAP_KEYWORD)) {
+            err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, input, "storage"));
+            return;
         }
 
-        
+        try {
+            engine.setOffHeapStorage(input.equals(OFF_HEAP_KEYWORD));
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return;
+        }
+        out.println(READY_SUCCESS_MESSAGE);
+    }
 
-        //check for validity of graph
-        if (!newGraph.isValid()) {
-            System.err.println(GRAPH_NOT_VALID_ERROR);
+    /**
+     * method to handle the "fidelity" command ("fidelity &lt;min length&gt;" or "fidelity exact")
+     * chooses which streets of the loaded graph and all graphs loaded later are simulated as queues.
+     * Queues are much faster for long streets but only approximate the exact car following.
+     * @param input the minimum length of the streets that are simulated as queues or "exact"
+     */
+    void handleFidelity(String input) {
+        int minLength;
+        if (input.equals(EXACT_FIDELITY_KEYWORD)) {
+            minLength = SimulationGraph.NO_MESOSCOPIC_STREETS;
+        } else if (input.matches(EDIT_PARAMETER_INPUT_FORMAT) && Integer.parseInt(input) > 0) {
+            minLength = Integer.parseInt(input);
+        } else {
+            err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, input, "fidelity"));
             return;
         }
 
-        //if we get here everything is valid and we can set the new graph
+        engine.setMesoscopicMinLength(minLength);
+        out.println(READY_SUCCESS_MESSAGE);
+    }
 
-        loadedGraph = newGraph;
+    /**
+     * method to handle the "gridlock" command
+     * searches the loaded graph for gridlocks, cycles of full streets whose first cars wait for each other,
+     * and prints the streets of every gridlock in the order they wait for each other.
+     * The gridlocked streets and the full streets waiting for them are frozen until the graph is changed.
+     */
+    void handleGridlock() {
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
+        }
 
-        System.out.println(READY_SUCCESS_MESSAGE);
+        List<int[]> cycles = engine.detectGridlocks();
+        for (int[] cycle : cycles) {
+            StringBuilder streets = new StringBuilder();
+            for (int streetId : cycle) {
+                streets.append(streetId).append(GRIDLOCK_SEPARATOR);
+            }
+            streets.append(cycle[0]);
+            out.println(String.format(GRIDLOCK_OUTPUT_STRING, cycle.length, streets));
+        }
+        out.println(String.format(GRIDLOCK_SUMMARY_OUTPUT_STRING, cycles.size(), engine.getFrozenStreetCount()));
+    }
 
+    /**
+     * method to handle the "gridlock on" and "gridlock off" commands
+     * chooses if gridlocks are searched for periodically and their streets left out of the tick,
+     * for the loaded graph and all graphs loaded later
+     * @param input "on" or "off"
+     */
+    void handleGridlockDetection(String input) {
+        if (!input.equals(ON_KEYWORD) && !input.equals(OFF_KEYWORD)) {
+            err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, input, GRIDLOCK_COMMAND));
+            return;
+        }
+
+        engine.setGridlockDetection(input.equals(ON_KEYWORD));
+        out.println(READY_SUCCESS_MESSAGE);
     }
 
     /**
-     * this method loads all crossings and roundabouts from the "crossings.sim" file and 
-     * adds them to the graph after checking if they are valid
-     * @param crossingConstructors a list of strings that contain the information about the crossings
-     * @param newGraph the graph that the crossings should be added to
-     * @return true if the crossings were loaded successfully, false if there was an error
+     * method to handle the "memory" command ("memory" or "memory &lt;folder&gt;")
+     * prints how many bytes the car state, the street queues, the node adjacency, the id maps, the statistics,
+     * the routing tables and the history of the loaded graph use, computed from the sizes of the structures.
+     * With a folder the footprint of the simulation in the folder is estimated without loading it.
+     * @param folderPath the folder to estimate or null for the loaded graph
      */
-    boolean loadCrossings(List<String> crossingConstructors, SimulationGraph newGraph) {
-        //crossings
-        for (String string : crossingConstructors) {
-            if (!string.matches(CROSSING_INPUT_FORMAT)) {
-                System.err.println(String.format(INVALID_FILE_LINE_ERROR, string));
-                return false;
+    void handleMemory(String folderPath) {
+        MemoryReport report;
+        if (folderPath == null) {
+            if (!engine.isLoaded()) {
+                err.println(NO_GRAPH_LOADED_ERROR);
+                return;
             }
-            
-            String[] subStrings = string.split(":|t");
+            report = engine.getMemoryReport();
+        } else {
+            try {
+                report = engine.estimateMemory(folderPath);
+            } catch (IOException e) {
+                err.println("Error: " + e.getMessage());
+                return;
+            } catch (IllegalArgumentException e) {
+                err.println("Error: " + e.getMessage());
+                return;
+            }
+        }
 
-            int nodeId = Integer.parseInt(subStrings[0]);
-            int greenPhaseDuration = Integer.parseInt(subStrings[1]);
+        for (MemoryCategory category : MemoryCategory.values()) {
+            out.println(String.format(MEMORY_CATEGORY_OUTPUT_STRING, category.getLabel(), report.getBytes(category)));
+        }
+        out.println(String.format(Locale.ROOT, MEMORY_TOTAL_OUTPUT_STRING, report.getTotalBytes(), report.getCarCount(),
+                report.getStreetCount(), report.getNodeCount(), report.getBytesPerCar(), report.getBytesPerStreet()));
+    }
 
-            if (nodeId < 0 || greenPhaseDuration < 0) {
-                System.err.println(String.format(INVALID_FILE_LINE_ERROR, string));
-                return false;
+    /**
+     * method to handle the "load-cache" command ("load-cache &lt;memory budget in KiB&gt;")
+     * sets how much memory the templates of recently loaded folders may use.
+     * Loading a folder again whose files did not change copies its template instead of reading the files.
+     * @param budgetInput the memory budget in kibibytes, 0 disables the cache
+     */
+    void handleLoadCache(String budgetInput) {
+        if (!budgetInput.matches(HISTORY_INPUT_FORMAT)) {
+            err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, budgetInput, "load-cache"));
+            return;
+        }
+
+        engine.setScenarioCacheBudget((long) Integer.parseInt(budgetInput) * BYTES_PER_KIB);
+        out.println(READY_SUCCESS_MESSAGE);
+    }
+
+    /**
+     * method to handle the "pace" command ("pace &lt;ticks per second&gt; &lt;ticks&gt; [skip|burst]")
+     * starts simulating the given number of ticks at a fixed rate on a separate thread and returns immediately.
+     * If a tick overruns its period the run either skips the deadlines it missed or simulates them
+     * back to back until it is on schedule again. Until the run ends only position queries,
+     * the pace commands and quit are accepted.
+     * @param rateInput the number of ticks per second
+     * @param ticksInput the number of ticks of the run
+     * @param policyInput the catch-up policy, "skip" or "burst"
+     */
+    void handlePace(String rateInput, String ticksInput, String policyInput) {
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
+        }
+
+        for (String input : new String[] {rateInput, ticksInput}) {
+            if (!input.matches(PACE_INPUT_FORMAT) || Integer.parseInt(input) == 0) {
+                err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, input, "pace"));
+                return;
+            }
+        }
+        CatchUpPolicy policy = null;
+        for (CatchUpPolicy candidate : CatchUpPolicy.values()) {
+            if (candidate.name().equalsIgnoreCase(policyInput)) {
+                policy = candidate;
             }
+        }
+        if (policy == null) {
+            err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, policyInput, "pace"));
+            return;
+        }
 
-            newGraph.addNode(nodeId, greenPhaseDuration);
+        try {
+            engine.startPaced(Integer.parseInt(rateInput), Integer.parseInt(ticksInput), policy);
+        } catch (IllegalStateException exception) {
+            err.println(exception.getMessage());
+            return;
+        }
+        out.println(READY_SUCCESS_MESSAGE);
+    }
 
+    /**
+     * method to handle the "pace stop" and "pace report" commands.
+     * "pace stop" stops the paced run after its current tick, both print the report of the latest run:
+     * how many ticks were simulated, how many deadlines were missed and the latency of the ticks.
+     * @param input "stop" or "report"
+     */
+    void handlePaceControl(String input) {
+        if (input.equals(STOP_PACE_KEYWORD)) {
+            engine.stopPaced();
+        } else if (!input.equals(REPORT_PACE_KEYWORD)) {
+            err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, input, "pace"));
+            return;
         }
 
-        return true;
+        PacedSimulation run = engine.getPacedRun();
+        if (run == null) {
+            err.println(NO_PACED_RUN_ERROR);
+            return;
+        }
+        LatencyHistogram latencies = run.getLatencies();
+        out.println(String.format(Locale.ROOT, PACE_REPORT_OUTPUT_STRING, run.getSimulatedTicks(),
+                run.getElapsedNanos() / (NANOS_PER_MILLI * 1000), run.getTicksPerSecond(),
+                run.getPolicy().name().toLowerCase(Locale.ROOT), run.getMissedDeadlines(), run.getSkippedTicks(),
+                latencies.getPercentile(PACE_PERCENTILES[0]) / NANOS_PER_MILLI,
+                latencies.getPercentile(PACE_PERCENTILES[1]) / NANOS_PER_MILLI,
+                latencies.getPercentile(PACE_PERCENTILES[2]) / NANOS_PER_MILLI,
+                latencies.getMax() / NANOS_PER_MILLI));
     }
 
     /**
-     * this method loads all streets from the "streets.sim" file and 
-     * adds them to the graph after checking if they are valid
-     * @param streetConstructors a list of strings that contain the information about the streets
-     * @param newGraph the graph that the streets should be added to
-     * @return true if the streets were loaded successfully, false if there was an error
+     * method to handle the "add-node" command ("add-node <id>:<green phase duration>t")
+     * adds a crossing or roundabout to the running simulation.
+     * The node is not valid until streets are added to it.
+     * @param line the node in the format of the "crossings.sim" file
      */
-    boolean loadStreets(List<String> streetConstructors, SimulationGraph newGraph) {
-        //streets.sim
-        for (String string : streetConstructors) {
-            if (!string.matches(STREET_INPUT_FORMAT)) {
-                System.err.println(String.format(INVALID_FILE_LINE_ERROR, string));
-                return false;
-            }
-            //we know the string is valid so we can just extract the numbers
+    void handleAddNode(String line) {
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
+        }
 
-            String[] subStrings = string.split("-->|:|m,|x,|max");
-            
-            //we now have all numbers as seperate strings in order.
-            //the "Integer.parseInt" calls will never error because 
-            //we already checked their validity earlier.
-            int startingNodeId = Integer.parseInt(subStrings[0]);
-            int endNodeId = Integer.parseInt(subStrings[1]);
-            int streetLength = Integer.parseInt(subStrings[2]);
-            int streetType = Integer.parseInt(subStrings[3]);
-            int speedLimit = Integer.parseInt(subStrings[4]);
-
-            //now check the validity of these numbers
-
-            boolean streetLengthIsNotValid = (streetLength < STREET_MIN_LENGTH || streetLength > STREET_MAX_LENGTH);
-            boolean speedLimitIsNotValid = (speedLimit < STREET_MIN_SPEED_LIMIT || speedLimit > STREET_MAX_SPEED_LIMIT);
-            boolean streetTypeIsNotValid = (streetType != 1 && streetType != 2);
-
-            if (
-                    startingNodeId < 0 
-                    || endNodeId < 0 
-                    || streetLengthIsNotValid
-                    || speedLimitIsNotValid
-                    || streetTypeIsNotValid
-            ) {
-                System.err.println(String.format(INVALID_FILE_LINE_ERROR, string));
-                return false;
-            }
+        if (line.matches(OVERSIZED_NUMBER_FORMAT)) {
+            err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, line, "add-node"));
+            return;
+        }
 
-            //check if both nodes exist
-            if (!newGraph.containsNode(startingNodeId)) {
-                System.err.println(String.format(UNKNOWN_NODE_ERROR, startingNodeId));
-                return false;
-            }
-            if (!newGraph.containsNode(endNodeId)) {
-                System.err.println(String.format(UNKNOWN_NODE_ERROR, endNodeId));
-                return false;
-            }
+        try {
+            engine.addNodeLine(line);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return;
+        }
+        out.println(READY_SUCCESS_MESSAGE);
+    }
 
-            newGraph.addStreet(startingNodeId, endNodeId, streetLength, streetType, speedLimit);
+    /**
+     * method to handle the "add-street" command ("add-street <start>--><end>:<length>m,<type>x,<speed limit>max")
+     * adds a street between two existing nodes of the running simulation and prints its id.
+     * Only the two nodes of the street are validated again.
+     * @param line the street in the format of the "streets.sim" file
+     */
+    void handleAddStreet(String line) {
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
+        }
 
+        if (line.matches(OVERSIZED_NUMBER_FORMAT)) {
+            err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, line, "add-street"));
+            return;
         }
 
-        return true;
+        int streetId;
+        try {
+            streetId = engine.addStreetLine(line);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return;
+        }
+        out.println(String.format(ADD_STREET_OUTPUT_STRING, streetId));
     }
 
     /**
-     * this method loads all cars from the "cars.sim" file and 
-     * adds them to the graph after checking if they are valid
-     * @param carConstructors a list of strings that contain the information about the cars
-     * @param newGraph the graph that the cars should be added to
-     * @return true if the cars were loaded successfully, false if there was an error
+     * method to handle the "add-car" command ("add-car <id>,<street>,<wanted speed>,<acceleration>[,<destination>]")
+     * adds a car behind the last car of a street of the running simulation
+     * @param line the car in the format of the "cars.sim" file
      */
-    boolean loadCars(List<String> carConstructors, SimulationGraph newGraph) {
-        //cars.sim
-        for (String string : carConstructors) {
-            if (!string.matches(CAR_INPUT_FORMAT)) {
-                System.err.println(String.format(INVALID_FILE_LINE_ERROR, string));
-                return false;
-            }
+    void handleAddCar(String line) {
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
+        }
 
-            String[] subStrings = string.split(",");
-
-            int carId = Integer.parseInt(subStrings[0]);
-            int startingStreetId = Integer.parseInt(subStrings[1]);
-            int wantedSpeed = Integer.parseInt(subStrings[2]);
-            int acceleration = Integer.parseInt(subStrings[3]);
-
-            if (
-                    carId < 0 
-                    || startingStreetId < 0 
-                    || wantedSpeed < MIN_WANTED_SPEED
-                    || wantedSpeed > MAX_WANTED_SPEED
-                    || acceleration < MIN_ACCELERATION
-                    || acceleration > MAX_ACCELERATION
-            ) {
-                System.err.println(String.format(INVALID_FILE_LINE_ERROR, string));
-                return false;
-            }
+        if (line.matches(OVERSIZED_NUMBER_FORMAT)) {
+            err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, line, "add-car"));
+            return;
+        }
 
-            if (newGraph.containsCar(carId)) {
-                System.err.println(String.format(CAR_ALREADY_EXISTS_ERROR, carId));
-                return false;
-            }
+        try {
+            engine.addCarLine(line);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return;
+        }
+        String[] subStrings = line.split(",");
+        out.println(String.format(INJECT_OUTPUT_STRING, subStrings[0], subStrings[1]));
+    }
 
-            if (!newGraph.containsStreet(startingStreetId)) {
-                System.err.println(String.format(UNKNOWN_STREET_ERROR, startingStreetId));
-                return false;
-            }
+    /**
+     * method to handle the "remove-street" command
+     * removes a street with all cars and sources on it from the running simulation
+     * @param input the id of the street
+     */
+    void handleRemoveStreet(String input) {
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
+        }
 
-            if (!newGraph.streetIdHasSpaceForCar(startingStreetId)) {
-                System.err.println(String.format(STREET_ALREADY_FULL_ERROR, startingStreetId));
-                return false;
-            }
+        if (!input.matches(EDIT_PARAMETER_INPUT_FORMAT)) {
+            err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, input, "remove-street"));
+            return;
+        }
 
-            Car car = new Car(carId, acceleration, wantedSpeed);
+        try {
+            engine.removeStreet(Integer.parseInt(input));
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return;
+        }
+        out.println(READY_SUCCESS_MESSAGE);
+    }
 
-            newGraph.addCarToStreet(startingStreetId, car);
+    /**
+     * method to handle the "remove-node" command
+     * removes a node without streets from the running simulation
+     * @param input the id of the node
+     */
+    void handleRemoveNode(String input) {
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
+        }
 
+        if (!input.matches(EDIT_PARAMETER_INPUT_FORMAT)) {
+            err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, input, "remove-node"));
+            return;
         }
 
-        return true;
+        try {
+            engine.removeNode(Integer.parseInt(input));
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return;
+        }
+        out.println(READY_SUCCESS_MESSAGE);
+    }
+
+    /**
+     * method to handle the "green-phase" command ("green-phase <node> <duration>")
+     * changes the duration of the green phase of a crossing of the running simulation
+     * @param nodeInput the id of the crossing
+     * @param durationInput the new duration of the green phase
+     */
+    void handleGreenPhase(String nodeInput, String durationInput) {
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
+        }
+
+        for (String input : new String[] {nodeInput, durationInput}) {
+            if (!input.matches(EDIT_PARAMETER_INPUT_FORMAT)) {
+                err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, input, "green-phase"));
+                return;
+            }
+        }
+
+        int nodeId = Integer.parseInt(nodeInput);
+        int duration = Integer.parseInt(durationInput);
+        if (duration == 0) {
+            err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, durationInput, "green-phase"));
+            return;
+        }
+
+        try {
+            engine.setGreenPhaseDuration(nodeId, duration);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return;
+        }
+        out.println(READY_SUCCESS_MESSAGE);
     }
 
     /**
@@ -383,30 +1213,32 @@ boolean loadCars(List<String> carConstructors, SimulationGraph newGraph) {
      * @param input the input string that contains the id of the car
      */
     void handlePosition(String input) {
-        if (loadedGraph == null) {
-            System.err.println(NO_GRAPH_LOADED_ERROR);
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
             return;
         }
 
         if (!input.matches(POSITION_INPUT_FORMAT)) {
-            System.err.println(String.format(INVALID_POSITION_INPUT_FORMAT_ERROR, input));
+            err.println(String.format(INVALID_POSITION_INPUT_FORMAT_ERROR, input));
             return;
         }
 
         //this will not error because we already checked the format of "input" to be a valid (positive) integer
         int carId = Integer.parseInt(input);
 
-        if (!loadedGraph.containsCar(carId)) {
-            System.err.println(String.format(UNKNOWN_CAR_ERROR, carId));
+        //read all values at once, during a paced run the car may move between single reads
+        int[] values = new int[CarSnapshot.VALUE_COUNT];
+        if (!engine.readCar(carId, values)) {
+            err.println(String.format(UNKNOWN_CAR_ERROR, carId));
             return;
         }
 
-        int onStreetID = loadedGraph.getCarOnStreetId(carId);
-        int speed = loadedGraph.getCarSpeed(carId);
-        int position = loadedGraph.getCarPosition(carId);
+        int onStreetID = values[CarSnapshot.STREET_INDEX];
+        int speed = values[CarSnapshot.SPEED_INDEX];
+        int position = values[CarSnapshot.POSITION_INDEX];
 
 
-        System.out.println(String.format(POSITION_OUTPUT_STRING, carId, onStreetID, speed, position));
+        out.println(String.format(POSITION_OUTPUT_STRING, carId, onStreetID, speed, position));
 
     }
 
@@ -417,13 +1249,13 @@ void handlePosition(String input) {
      */
     void handleSimulate(String input) {
 
-        if (loadedGraph == null) {
-            System.err.println(NO_GRAPH_LOADED_ERROR);
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
             return;
         }
 
         if (!input.matches(SIMULATE_INPUT_FORMAT)) {
-            System.err.println(String.format(INVALID_SIMULATE_INPUT_FORMAT_ERROR, input));
+            err.println(String.format(INVALID_SIMULATE_INPUT_FORMAT_ERROR, input));
             return;
         }
 
@@ -431,11 +1263,261 @@ void handleSimulate(String input) {
         //it is also guaranteed to be positive because the regex only allows for positive integers
         int ticksToSimulate = Integer.parseInt(input);
 
-        for (int i = 0; i < ticksToSimulate; i++) {
-            loadedGraph.tick();
+        try {
+            engine.step(ticksToSimulate);
+        } catch (IllegalStateException exception) {
+            err.println(exception.getMessage());
+            return;
+        }
+
+        out.println(READY_SUCCESS_MESSAGE);
+
+    }
+
+    /**
+     * method to handle the "simulate-until" command ("simulate-until <condition> [max ticks]")
+     * simulates at least one tick until the condition is fulfilled after a tick
+     * or the maximum number of ticks was simulated and prints the tick the simulation stopped at.
+     * The conditions are "car=&lt;id&gt;,street=&lt;id&gt;", "stopped" and "node=&lt;id&gt;,passed=&lt;cars&gt;".
+     * They are only evaluated at the events they depend on, not by scanning all cars after every tick.
+     * @param conditionInput the condition
+     * @param maxTicksInput the maximum number of ticks or null for {@value #DEFAULT_MAX_TICKS}
+     */
+    void handleSimulateUntil(String conditionInput, String maxTicksInput) {
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
+        }
+
+        if (maxTicksInput != null
+                && (!maxTicksInput.matches(MAX_TICKS_INPUT_FORMAT) || Integer.parseInt(maxTicksInput) == 0)) {
+            err.println(String.format(INVALID_SIMULATE_INPUT_FORMAT_ERROR, maxTicksInput));
+            return;
+        }
+        int maxTicks = maxTicksInput == null ? DEFAULT_MAX_TICKS : Integer.parseInt(maxTicksInput);
+
+        StopCondition condition;
+        if (conditionInput.matches(CAR_ON_STREET_CONDITION_FORMAT)) {
+            String[] subStrings = conditionInput.split("car=|,street=");
+            int streetId = Integer.parseInt(subStrings[2]);
+            if (!engine.containsStreet(streetId)) {
+                err.println(String.format(UNKNOWN_STREET_ERROR, streetId));
+                return;
+            }
+            condition = new CarOnStreetCondition(Integer.parseInt(subStrings[1]), streetId);
+        } else if (conditionInput.matches(NODE_PASSED_CONDITION_FORMAT)) {
+            String[] subStrings = conditionInput.split("node=|,passed=");
+            int nodeId = Integer.parseInt(subStrings[1]);
+            long carCount = Long.parseLong(subStrings[2]);
+            if (!engine.containsNode(nodeId)) {
+                err.println(String.format(UNKNOWN_NODE_ERROR, nodeId));
+                return;
+            }
+            if (carCount == 0) {
+                err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, conditionInput, "simulate-until"));
+                return;
+            }
+            condition = new NodePassedCondition(nodeId, carCount);
+        } else if (conditionInput.equals(ALL_STOPPED_CONDITION)) {
+            condition = new AllCarsStoppedCondition();
+        } else {
+            err.println(String.format(INVALID_EDIT_PARAMETER_ERROR, conditionInput, "simulate-until"));
+            return;
+        }
+
+        try {
+            engine.simulateUntil(condition, maxTicks);
+        } catch (IllegalStateException exception) {
+            err.println(exception.getMessage());
+            return;
+        }
+
+        String output = condition.isMet() ? CONDITION_MET_OUTPUT_STRING : CONDITION_NOT_MET_OUTPUT_STRING;
+        out.println(String.format(output, engine.getCurrentTick()));
+    }
+
+    /**
+     * method to handle the "position" command with a tick ("position <car> at <tick>")
+     * prints the position the car with the given id had at the given tick.
+     * The state is reconstructed from the nearest keyframe of the history.
+     * @param carInput the input string that contains the id of the car
+     * @param tickInput the input string that contains the tick
+     */
+    void handlePositionAtTick(String carInput, String tickInput) {
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
         }
 
-        System.out.println(READY_SUCCESS_MESSAGE);
+        if (!carInput.matches(POSITION_INPUT_FORMAT)) {
+            err.println(String.format(INVALID_POSITION_INPUT_FORMAT_ERROR, carInput));
+            return;
+        }
+
+        if (!tickInput.matches(TICK_INPUT_FORMAT)) {
+            err.println(String.format(INVALID_TICK_INPUT_FORMAT_ERROR, tickInput));
+            return;
+        }
+
+        int carId = Integer.parseInt(carInput);
+        long tick = Long.parseLong(tickInput);
+
+        int[] values = new int[CarSnapshot.VALUE_COUNT];
+        boolean carExisted;
+        try {
+            carExisted = engine.readCarAtTick(carId, tick, values);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return;
+        }
+        if (!carExisted) {
+            err.println(String.format(UNKNOWN_CAR_ERROR, carId));
+            return;
+        }
+
+        out.println(String.format(POSITION_OUTPUT_STRING, carId, values[CarSnapshot.STREET_INDEX],
+                values[CarSnapshot.SPEED_INDEX], values[CarSnapshot.POSITION_INDEX]));
+    }
+
+    /**
+     * method to handle the "history off" command
+     * stops recording the keyframe history for the loaded graph and all graphs loaded later
+     * @param input "off"
+     */
+    void handleHistoryOff(String input) {
+        if (!input.equals(OFF_KEYWORD)) {
+            err.println(String.format(INVALID_HISTORY_INPUT_FORMAT_ERROR, input));
+            return;
+        }
+
+        engine.disableHistory();
+        out.println(READY_SUCCESS_MESSAGE);
+    }
+
+    /**
+     * method to handle the "history" command ("history <keyframe spacing> <memory budget in KiB> [offheap]")
+     * enables and configures the keyframe history, which is off by default.
+     * If a graph is loaded its history is restarted at the current tick.
+     * @param spacingInput the input string that contains the number of ticks between two keyframes
+     * @param budgetInput the input string that contains the memory budget in kibibytes
+     * @param offHeap true if the keyframes should be stored outside of the heap
+     */
+    void handleHistory(String spacingInput, String budgetInput, boolean offHeap) {
+        if (!spacingInput.matches(HISTORY_INPUT_FORMAT) || Integer.parseInt(spacingInput) == 0) {
+            err.println(String.format(INVALID_HISTORY_INPUT_FORMAT_ERROR, spacingInput));
+            return;
+        }
+
+        if (!budgetInput.matches(HISTORY_INPUT_FORMAT)) {
+            err.println(String.format(INVALID_HISTORY_INPUT_FORMAT_ERROR, budgetInput));
+            return;
+        }
+
+        engine.setHistory(Integer.parseInt(spacingInput), (long) Integer.parseInt(budgetInput) * BYTES_PER_KIB, offHeap);
+
+        out.println(READY_SUCCESS_MESSAGE);
+    }
+
+    /**
+     * this method handles all calls of the traffic-stats command
+     * @param target either street, node or window
+     * @param param the id of the street or node or the new window size
+     */
+    void handleTrafficStatistics(String target, String param) {
+        if (!param.matches(HISTORY_INPUT_FORMAT)) {
+            err.println(String.format(INVALID_STATISTICS_INPUT_FORMAT_ERROR, param));
+            return;
+        }
+
+        int value = Integer.parseInt(param);
+
+        if (target.equals("window")) {
+            if (value == 0) {
+                err.println(String.format(INVALID_STATISTICS_INPUT_FORMAT_ERROR, param));
+                return;
+            }
+            engine.setStatisticsWindowSize(value);
+            out.println(READY_SUCCESS_MESSAGE);
+            return;
+        }
+
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
+        }
+
+        try {
+            printStatistics(target, value);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * method to print the traffic statistics of a street or node
+     * @param target either street or node
+     * @param id the id of the street or node
+     */
+    private void printStatistics(String target, int id) {
+        switch (target) {
+            case "street":
+                StreetStatistics streetStatistics = engine.getStreetStatistics(id);
+                out.println(String.format(Locale.ROOT, STREET_STATISTICS_OUTPUT_STRING, id,
+                        streetStatistics.getTickCount(), streetStatistics.getAverageOccupancy(),
+                        streetStatistics.getMeanSpeed(), streetStatistics.getAverageQueueLength(),
+                        streetStatistics.getThroughput()));
+                break;
+            case "node":
+                NodeStatistics nodeStatistics = engine.getNodeStatistics(id);
+                out.println(String.format(Locale.ROOT, NODE_STATISTICS_OUTPUT_STRING, id,
+                        nodeStatistics.getTickCount(), nodeStatistics.getThroughput(),
+                        nodeStatistics.getAverageBlockedCrossings()));
+                break;
+            default:
+                err.println(String.format(INVALID_STATISTICS_INPUT_FORMAT_ERROR, target));
+                break;
+        }
+    }
+
+    /**
+     * method to handle the "checkpoint" command
+     * writes the state of the loaded graph to a checkpoint file
+     * @param path the path of the checkpoint file
+     */
+    void handleCheckpoint(String path) {
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
+        }
+
+        try {
+            engine.writeCheckpoint(Path.of(path));
+        } catch (IOException | InvalidPathException e) {
+            err.println(String.format(CHECKPOINT_ERROR, e.getMessage()));
+            return;
+        }
+
+        out.println(READY_SUCCESS_MESSAGE);
+    }
+
+    /**
+     * method to handle the "restore" command
+     * restores the state of the loaded graph from a checkpoint file. The history is restarted at the restored tick.
+     * @param path the path of the checkpoint file
+     */
+    void handleRestore(String path) {
+        if (!engine.isLoaded()) {
+            err.println(NO_GRAPH_LOADED_ERROR);
+            return;
+        }
+
+        try {
+            engine.restoreCheckpoint(Path.of(path));
+        } catch (IOException | InvalidPathException e) {
+            err.println(String.format(CHECKPOINT_ERROR, e.getMessage()));
+            return;
+        }
 
+        out.println(READY_SUCCESS_MESSAGE);
     }
 }
@@ -0,0 +1,217 @@
+package edu.kit.kastel.trafficsimulation.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import edu.kit.kastel.trafficsimulation.io.SimulationFileLoader;
+
+/**
+ * this class keeps the templates of recently loaded scenarios, so loading the same folder again
+ * does not read, parse and validate the files. A template is only used as long as the size and the
+ * modification time of all simulation files in the folder are unchanged.
+ * If the templates exceed the memory budget the least recently loaded ones are removed.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public class ScenarioCache {
+
+    /** the files of a scenario whose size and modification time decide if a template is still valid */
+    static final String[] FILE_NAMES = {SimulationFileLoader.FILENAME_STREETS, SimulationFileLoader.FILENAME_CROSSINGS,
+        SimulationFileLoader.FILENAME_CARS, SimulationFileLoader.FILENAME_SOURCES, SimulationFileLoader.FILENAME_SINKS,
+        SimulationFileLoader.FILENAME_TILES};
+
+    /** the size and modification time stored for a file that does not exist */
+    static final long MISSING_FILE = -1;
+
+    /** the cached scenarios by the absolute path of their folder, in the order they were last used */
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** the maximum number of bytes all templates together may use */
+    private long memoryBudget;
+
+    /** the number of bytes all templates currently use */
+    private long usedBytes = 0;
+
+    /** the number of loads that used a template */
+    private long hits = 0;
+
+    /** the number of loads that had to read the files */
+    private long misses = 0;
+
+    /**
+     * constructor for a new empty cache
+     * @param memoryBudget the maximum number of bytes all templates together may use, 0 disables the cache
+     */
+    public ScenarioCache(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * method to get the size and modification time of all simulation files of a folder.
+     * The stamp has to be taken before the files are read, so a change while reading invalidates the template.
+     * @param folderPath the path of the folder
+     * @return the stamp of the folder
+     * @throws IOException if the attributes of a file can not be read
+     */
+    public static long[] stampOf(String folderPath) throws IOException {
+        Path folder = Path.of(folderPath).normalize().toAbsolutePath();
+        long[] stamp = new long[FILE_NAMES.length * 2];
+        for (int i = 0; i < FILE_NAMES.length; i++) {
+            Path file = folder.resolve(FILE_NAMES[i]);
+            if (!Files.isRegularFile(file)) {
+                stamp[2 * i] = MISSING_FILE;
+                stamp[2 * i + 1] = MISSING_FILE;
+                continue;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            stamp[2 * i] = attributes.size();
+            stamp[2 * i + 1] = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        }
+        return stamp;
+    }
+
+    /**
+     * method to get the template of a folder if the files did not change since it was stored
+     * @param folderPath the path of the folder
+     * @param stamp the current stamp of the folder
+     * @return the template or null if there is none or the files changed
+     */
+    public ScenarioTemplate get(String folderPath, long[] stamp) {
+        String key = keyOf(folderPath);
+        Entry entry = entries.get(key);
+        if (entry != null && !Arrays.equals(entry.stamp, stamp)) {
+            entries.remove(key);
+            usedBytes -= entry.bytes;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.template;
+    }
+
+    /**
+     * method to store the template of a folder. Templates larger than the whole budget are not stored.
+     * @param folderPath the path of the folder
+     * @param stamp the stamp of the folder taken before its files were read
+     * @param template the template
+     */
+    public void put(String folderPath, long[] stamp, ScenarioTemplate template) {
+        long bytes = template.getBytes();
+        if (bytes > memoryBudget) {
+            return;
+        }
+        Entry previous = entries.put(keyOf(folderPath), new Entry(stamp, template, bytes));
+        if (previous != null) {
+            usedBytes -= previous.bytes;
+        }
+        usedBytes += bytes;
+        evict();
+    }
+
+    /**
+     * method to change the memory budget, templates are removed until they fit
+     * @param memoryBudget the maximum number of bytes all templates together may use, 0 disables the cache
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        evict();
+    }
+
+    /**
+     * method to get the memory budget
+     * @return the maximum number of bytes all templates together may use
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * method to get the memory all templates use
+     * @return the estimated number of bytes
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * method to get the number of stored templates
+     * @return the number of templates
+     */
+    public int getTemplateCount() {
+        return entries.size();
+    }
+
+    /**
+     * method to get the number of loads that used a template
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * method to get the number of loads that had to read the files
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * method to remove the least recently used templates until the rest fits into the budget
+     */
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (usedBytes > memoryBudget && iterator.hasNext()) {
+            usedBytes -= iterator.next().bytes;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * method to get the key of a folder, so different paths to the same folder share a template
+     * @param folderPath the path of the folder
+     * @return the absolute normalized path
+     */
+    private static String keyOf(String folderPath) {
+        return Path.of(folderPath).normalize().toAbsolutePath().toString();
+    }
+
+    /**
+     * this class is a stored template with the stamp of the files it was created from
+     */
+    private static final class Entry {
+
+        /** the size and modification time of the files when they were read */
+        private final long[] stamp;
+
+        /** the template */
+        private final ScenarioTemplate template;
+
+        /** the estimated number of bytes the template uses */
+        private final long bytes;
+
+        /**
+         * constructor for a new entry
+         * @param stamp the size and modification time of the files when they were read
+         * @param template the template
+         * @param bytes the estimated number of bytes the template uses
+         */
+        Entry(long[] stamp, ScenarioTemplate template, long bytes) {
+            this.stamp = stamp;
+            this.template = template;
+            this.bytes = bytes;
+        }
+    }
+}
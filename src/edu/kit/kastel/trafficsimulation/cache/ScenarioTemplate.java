@@ -0,0 +1,65 @@
+package edu.kit.kastel.trafficsimulation.cache;
+
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+
+/**
+ * this class is an immutable copy of a loaded and validated scenario.
+ * It keeps a graph with the nodes, streets and sources that is never simulated and the initial state
+ * of the cars, nodes and sources as written by {@link SimulationGraph#saveState()}.
+ * New graphs are created from the copy without reading, parsing or validating the files again.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public final class ScenarioTemplate {
+
+    /** the estimated number of bytes a node of the topology uses */
+    static final long NODE_BYTES = 128;
+
+    /** the estimated number of bytes a street of the topology uses */
+    static final long STREET_BYTES = 256;
+
+    /** the graph with the topology of the scenario, it is never simulated or changed */
+    private final SimulationGraph topology;
+
+    /** the initial state of the cars, nodes and sources */
+    private final int[] state;
+
+    /**
+     * constructor for a new template
+     * @param topology the graph with the topology of the scenario
+     * @param state the initial state of the cars, nodes and sources
+     */
+    private ScenarioTemplate(SimulationGraph topology, int[] state) {
+        this.topology = topology;
+        this.state = state;
+    }
+
+    /**
+     * method to create a template from a graph that was just loaded and has not been simulated yet
+     * @param graph the graph, it is not changed and can be used afterwards
+     * @return the new template
+     */
+    public static ScenarioTemplate of(SimulationGraph graph) {
+        return new ScenarioTemplate(graph.copyTopology(), graph.saveState());
+    }
+
+    /**
+     * method to create a new graph in the initial state of the scenario
+     * @return the new graph at tick 0
+     */
+    public SimulationGraph instantiate() {
+        SimulationGraph graph = topology.copyTopology();
+        graph.restoreState(0, state);
+        return graph;
+    }
+
+    /**
+     * method to estimate the memory the template uses
+     * @return the estimated number of bytes
+     */
+    public long getBytes() {
+        return (long) state.length * Integer.BYTES + topology.getNodeCount() * NODE_BYTES
+                + topology.getStreetCount() * STREET_BYTES;
+    }
+}
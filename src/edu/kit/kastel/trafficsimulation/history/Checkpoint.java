@@ -0,0 +1,156 @@
+package edu.kit.kastel.trafficsimulation.history;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+
+/**
+ * this class writes the state of a graph to a checkpoint file and restores it from there.
+ * The file is mapped into memory and the graph writes its state directly into the mapping,
+ * so the operating system takes care of writing the pages and no copy on the heap is needed.
+ * The layout is fixed and big endian: a header of {@value #HEADER_SIZE} integers
+ * (magic number, version, tick, state hash, node count, street count, state size)
+ * followed by the state as written by {@link SimulationGraph#saveState(IntBuffer)}.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public final class Checkpoint {
+
+    /** the number that identifies a checkpoint file */
+    static final int MAGIC = 0x54534350;
+
+    /** the version of the layout of the file */
+    static final int VERSION = 1;
+
+    /** the number of integers of the header */
+    static final int HEADER_SIZE = 9;
+
+    /** the index of the tick in the header, stored as two integers */
+    private static final int TICK_INDEX = 2;
+
+    /** the index of the state hash in the header, stored as two integers */
+    private static final int HASH_INDEX = 4;
+
+    /** the index of the node count in the header */
+    private static final int NODE_COUNT_INDEX = 6;
+
+    /** the index of the street count in the header */
+    private static final int STREET_COUNT_INDEX = 7;
+
+    /** the index of the state size in the header */
+    private static final int STATE_SIZE_INDEX = 8;
+
+    /**
+     * private constructor because this is a utility class
+     */
+    private Checkpoint() {
+    }
+
+    /**
+     * method to write the state of a graph to a checkpoint file. An existing file is replaced.
+     * @param graph the graph
+     * @param path the path of the file
+     * @throws IOException if the file can not be written
+     */
+    public static void write(SimulationGraph graph, Path path) throws IOException {
+        int stateSize = graph.getStateSize();
+        long fileSize = (long) (HEADER_SIZE + stateSize) * Integer.BYTES;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("the state is too large for a checkpoint file");
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            IntBuffer file = mapping.asIntBuffer();
+
+            file.put(0, MAGIC);
+            file.put(1, VERSION);
+            putLong(file, TICK_INDEX, graph.getCurrentTick());
+            putLong(file, HASH_INDEX, graph.getStateHash());
+            file.put(NODE_COUNT_INDEX, graph.getNodeCount());
+            file.put(STREET_COUNT_INDEX, graph.getStreetCount());
+            file.put(STATE_SIZE_INDEX, stateSize);
+
+            graph.saveState(file.position(HEADER_SIZE).slice());
+            mapping.force();
+        }
+    }
+
+    /**
+     * method to restore the state of a graph from a checkpoint file.
+     * The file has to be written for a graph with the same topology. The state is first restored into a copy
+     * of the graph and compared to the stored state hash, so a damaged file does not change the graph.
+     * @param graph the graph
+     * @param path the path of the file
+     * @throws IOException if the file can not be read or does not fit the graph
+     */
+    public static void read(SimulationGraph graph, Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            throw new IOException(String.format("file %s does not exist.", path));
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE * Integer.BYTES || fileSize > Integer.MAX_VALUE) {
+                throw new IOException(String.format("%s is not a checkpoint file", path));
+            }
+            IntBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize).asIntBuffer();
+
+            if (file.get(0) != MAGIC || file.get(1) != VERSION) {
+                throw new IOException(String.format("%s is not a checkpoint file", path));
+            }
+            if (file.get(NODE_COUNT_INDEX) != graph.getNodeCount()
+                    || file.get(STREET_COUNT_INDEX) != graph.getStreetCount()) {
+                throw new IOException(String.format("%s was written for a different graph", path));
+            }
+            if (file.get(STATE_SIZE_INDEX) != file.capacity() - HEADER_SIZE) {
+                throw new IOException(String.format("%s is incomplete", path));
+            }
+
+            long tick = getLong(file, TICK_INDEX);
+            long stateHash = getLong(file, HASH_INDEX);
+            IntBuffer state = file.position(HEADER_SIZE).slice();
+
+            SimulationGraph check = graph.copyTopology();
+            try {
+                check.restoreState(tick, state);
+            } catch (RuntimeException e) {
+                throw new IOException(String.format("%s is damaged", path));
+            }
+            if (check.getStateHash() != stateHash) {
+                throw new IOException(String.format("%s is damaged", path));
+            }
+
+            graph.restoreState(tick, state);
+        }
+    }
+
+    /**
+     * method to write a long as two integers, the high bits first
+     * @param buffer the buffer to write to
+     * @param index the index of the first integer
+     * @param value the value to write
+     */
+    private static void putLong(IntBuffer buffer, int index, long value) {
+        buffer.put(index, (int) (value >>> Integer.SIZE));
+        buffer.put(index + 1, (int) value);
+    }
+
+    /**
+     * method to read a long written by {@link #putLong(IntBuffer, int, long)}
+     * @param buffer the buffer to read from
+     * @param index the index of the first integer
+     * @return the value
+     */
+    private static long getLong(IntBuffer buffer, int index) {
+        return ((long) buffer.get(index) << Integer.SIZE) | (buffer.get(index + 1) & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,79 @@
+package edu.kit.kastel.trafficsimulation.history;
+
+import java.nio.IntBuffer;
+
+/**
+ * this class represents a keyframe of the simulation.
+ * It stores the complete mutable state of a graph at a specific tick,
+ * either in a heap buffer or in a direct buffer outside of the heap.
+ * Once a keyframe was removed from the history it can be reused for a later tick,
+ * the buffer may then be larger than the state.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public final class Keyframe {
+
+    /** the tick the keyframe was taken at */
+    private long tick;
+
+    /** the state of the graph as written by SimulationGraph.saveState(IntBuffer) */
+    private final IntBuffer state;
+
+    /** true if the keyframe records a change of the graph outside of a tick */
+    private boolean modification;
+
+    /**
+     * constructor for a new keyframe
+     * @param tick the tick the keyframe was taken at
+     * @param state the state of the graph at this tick
+     * @param modification true if the keyframe records a change of the graph outside of a tick
+     */
+    public Keyframe(long tick, IntBuffer state, boolean modification) {
+        this.tick = tick;
+        this.state = state;
+        this.modification = modification;
+    }
+
+    /**
+     * method to reuse this keyframe for another tick. The buffer is kept and has to be written again.
+     * @param tick the tick the keyframe is taken at
+     * @param modification true if the keyframe records a change of the graph outside of a tick
+     */
+    public void reuse(long tick, boolean modification) {
+        this.tick = tick;
+        this.modification = modification;
+    }
+
+    /**
+     * method to check if the keyframe records a change of the graph outside of a tick
+     * @return true if the keyframe must not be thinned out
+     */
+    public boolean isModification() {
+        return modification;
+    }
+
+    /**
+     * method to get the tick the keyframe was taken at
+     * @return the tick of the keyframe
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * method to get the stored state of the graph
+     * @return the state of the graph
+     */
+    public IntBuffer getState() {
+        return state;
+    }
+
+    /**
+     * method to get the number of bytes the state of this keyframe uses
+     * @return the size of the keyframe in bytes
+     */
+    public long getSizeInBytes() {
+        return (long) state.capacity() * Integer.BYTES;
+    }
+}
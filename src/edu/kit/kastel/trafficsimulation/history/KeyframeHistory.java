@@ -0,0 +1,273 @@
+package edu.kit.kastel.trafficsimulation.history;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+
+/**
+ * this class keeps periodic keyframes of a graph so that the state of any past tick
+ * can be reconstructed by restoring the nearest keyframe and replaying the ticks after it.
+ * If the keyframes exceed the memory budget the history is thinned out. Keyframes are removed
+ * where the gap they leave is small compared to their age, so recent ticks stay densely covered
+ * while the spacing of old keyframes grows roughly logarithmically.
+ * The latest removed keyframe is kept and its buffer reused for the next keyframe,
+ * so once the budget is reached recording keyframes does not allocate anymore.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public class KeyframeHistory {
+
+    /** the divisor of the state size that gives the room left in a new buffer for a growing state */
+    private static final int STATE_HEADROOM_DIVISOR = 8;
+
+    /** the graph whose history is recorded */
+    private final SimulationGraph graph;
+
+    /** the number of ticks between two recorded keyframes */
+    private final int keyframeSpacing;
+
+    /** the maximum number of bytes all keyframes together may use */
+    private final long memoryBudget;
+
+    /** true if the keyframes are stored in direct buffers outside of the heap */
+    private final boolean offHeap;
+
+    /** all keyframes ordered by their tick */
+    private final List<Keyframe> keyframes = new ArrayList<>();
+
+    /** the latest removed keyframe whose buffer is reused, null if there is none */
+    private Keyframe spare;
+
+    /** the number of bytes all keyframes currently use */
+    private long usedBytes = 0;
+
+    /** the graph that is used to replay ticks, created when it is first needed */
+    private SimulationGraph replayGraph;
+
+    /**
+     * constructor for a new history. The current state of the graph is recorded as the first keyframe.
+     * @param graph the graph whose history is recorded
+     * @param keyframeSpacing the number of ticks between two keyframes
+     * @param memoryBudget the maximum number of bytes all keyframes together may use
+     * @param offHeap true if the keyframes should be stored outside of the heap
+     */
+    public KeyframeHistory(SimulationGraph graph, int keyframeSpacing, long memoryBudget, boolean offHeap) {
+        if (keyframeSpacing <= 0) {
+            throw new IllegalArgumentException("Error: the keyframe spacing has to be positive");
+        }
+        this.graph = graph;
+        this.keyframeSpacing = keyframeSpacing;
+        this.memoryBudget = memoryBudget;
+        this.offHeap = offHeap;
+
+        addKeyframe(false);
+    }
+
+    /**
+     * method to get the number of ticks between two recorded keyframes
+     * @return the keyframe spacing
+     */
+    public int getKeyframeSpacing() {
+        return keyframeSpacing;
+    }
+
+    /**
+     * method to check if the keyframes are stored outside of the heap
+     * @return true if the keyframes are stored in direct buffers
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * method to get the number of keyframes that are currently stored
+     * @return the number of keyframes
+     */
+    public int getKeyframeCount() {
+        return keyframes.size();
+    }
+
+    /**
+     * method to get the memory all keyframes use, on or off the heap, including the removed keyframe that is kept
+     * @return the number of bytes
+     */
+    public long getUsedBytes() {
+        if (spare == null) {
+            return usedBytes;
+        }
+        return usedBytes + spare.getSizeInBytes();
+    }
+
+    /**
+     * method to get the oldest tick that can still be reconstructed
+     * @return the tick of the oldest keyframe
+     */
+    public long getOldestAvailableTick() {
+        return keyframes.get(0).getTick();
+    }
+
+    /**
+     * method to get the tick the next regular keyframe is recorded at
+     * @return the next tick after the current tick of the graph that is a multiple of the keyframe spacing
+     */
+    public long getNextKeyframeTick() {
+        return (graph.getCurrentTick() / keyframeSpacing + 1) * keyframeSpacing;
+    }
+
+    /**
+     * method that has to be called after every tick of the graph.
+     * It records a new keyframe every {@code keyframeSpacing} ticks.
+     */
+    public void afterTick() {
+        if (graph.getCurrentTick() % keyframeSpacing == 0) {
+            addKeyframe(false);
+        }
+    }
+
+    /**
+     * method that has to be called after the state of the graph was changed outside of a tick,
+     * for example by adding or removing a car. The changed state replaces the keyframe of the current tick
+     * and is never thinned out, because replaying the ticks before it can not reproduce the change.
+     */
+    public void afterModification() {
+        Keyframe latest = keyframes.get(keyframes.size() - 1);
+        if (latest.getTick() == graph.getCurrentTick()) {
+            removeKeyframe(keyframes.size() - 1);
+        }
+        //the replay graph may already have replayed the current tick without the change
+        replayGraph = null;
+        addKeyframe(true);
+    }
+
+    /**
+     * method that has to be called after streets or nodes of the graph were added, removed or changed.
+     * The keyframes before the change can not be replayed on the changed graph,
+     * so they are dropped and the history restarts at the current tick.
+     */
+    public void afterTopologyChange() {
+        while (!keyframes.isEmpty()) {
+            removeKeyframe(keyframes.size() - 1);
+        }
+        replayGraph = null;
+        addKeyframe(false);
+    }
+
+    /**
+     * method to get a graph that is in the state the recorded graph was in at the given tick.
+     * The returned graph is only valid until the next call of this method.
+     * @param tick the tick to reconstruct, has to be between the oldest keyframe and the current tick
+     * @return a graph in the state of the given tick
+     */
+    public SimulationGraph getGraphAtTick(long tick) {
+        if (tick < getOldestAvailableTick() || tick > graph.getCurrentTick()) {
+            throw new IllegalArgumentException("Error: tick " + tick + " is not available in the history");
+        }
+
+        Keyframe keyframe = findKeyframeBefore(tick);
+
+        if (replayGraph == null) {
+            replayGraph = graph.copyTopology();
+            replayGraph.restoreState(keyframe.getTick(), keyframe.getState());
+        } else {
+            //the replay graph can continue from where it is if that is closer than the keyframe
+            long replayTick = replayGraph.getCurrentTick();
+            if (replayTick > tick || replayTick < keyframe.getTick()) {
+                replayGraph.restoreState(keyframe.getTick(), keyframe.getState());
+            }
+        }
+
+        while (replayGraph.getCurrentTick() < tick) {
+            replayGraph.tick();
+        }
+
+        return replayGraph;
+    }
+
+    /**
+     * method to find the latest keyframe that was taken at or before the given tick
+     * @param tick the tick to search for
+     * @return the latest keyframe at or before the tick
+     */
+    private Keyframe findKeyframeBefore(long tick) {
+        int low = 0;
+        int high = keyframes.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (keyframes.get(middle).getTick() <= tick) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return keyframes.get(low);
+    }
+
+    /**
+     * method to record the current state of the graph as a new keyframe
+     * and to thin out the history if it exceeds the memory budget
+     * @param modification true if the keyframe records a change outside of a tick and must not be thinned out
+     */
+    private void addKeyframe(boolean modification) {
+        int stateSize = graph.getStateSize();
+        Keyframe keyframe;
+        if (spare != null && spare.getState().capacity() >= stateSize) {
+            keyframe = spare;
+            keyframe.reuse(graph.getCurrentTick(), modification);
+        } else {
+            //the number of cars varies, so some room is left to let the buffer be reused after the next change
+            IntBuffer state = StateBuffers.allocate(stateSize + stateSize / STATE_HEADROOM_DIVISOR, offHeap);
+            keyframe = new Keyframe(graph.getCurrentTick(), state, modification);
+        }
+        spare = null;
+        graph.saveState(keyframe.getState());
+        keyframes.add(keyframe);
+        usedBytes += keyframe.getSizeInBytes();
+
+        while (usedBytes > memoryBudget && keyframes.size() > 1) {
+            removeKeyframe(selectKeyframeToRemove());
+        }
+    }
+
+    /**
+     * method to select the keyframe whose removal hurts the least.
+     * The first and the latest keyframe are only removed if there are no other keyframes.
+     * Otherwise the keyframe with the smallest resulting gap relative to its age is selected.
+     * Keyframes of modifications are skipped, if only those are left the oldest keyframe is removed.
+     * @return the index of the keyframe to remove
+     */
+    private int selectKeyframeToRemove() {
+        if (keyframes.size() <= 2) {
+            return 0;
+        }
+
+        long now = graph.getCurrentTick();
+        int bestIndex = 0;
+        double bestCost = Double.MAX_VALUE;
+        for (int i = 1; i < keyframes.size() - 1; i++) {
+            if (keyframes.get(i).isModification()) {
+                continue;
+            }
+            long gap = keyframes.get(i + 1).getTick() - keyframes.get(i - 1).getTick();
+            long age = now - keyframes.get(i).getTick() + 1;
+            double cost = (double) gap / age;
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestIndex = i;
+            }
+        }
+        return bestIndex;
+    }
+
+    /**
+     * method to remove a keyframe from the history
+     * @param index the index of the keyframe to remove
+     */
+    private void removeKeyframe(int index) {
+        Keyframe removed = keyframes.remove(index);
+        usedBytes -= removed.getSizeInBytes();
+        spare = removed;
+    }
+}
@@ -0,0 +1,35 @@
+package edu.kit.kastel.trafficsimulation.history;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * this class creates the buffers the state of a graph is stored in.
+ * Direct buffers live outside of the heap, so a large history does not increase the heap
+ * and is never copied by the garbage collector.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public final class StateBuffers {
+
+    /**
+     * private constructor because this is a utility class
+     */
+    private StateBuffers() {
+    }
+
+    /**
+     * method to create a buffer for a state
+     * @param size the number of integers of the state
+     * @param offHeap true if the buffer should be a direct buffer outside of the heap
+     * @return the new buffer
+     */
+    public static IntBuffer allocate(int size, boolean offHeap) {
+        if (!offHeap) {
+            return IntBuffer.allocate(size);
+        }
+        return ByteBuffer.allocateDirect(size * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+}
@@ -26,6 +26,18 @@ public final class SimulationFileLoader {
      * The filename for the simulation data representing cars.
      */
     public static final String FILENAME_CARS = "cars.sim";
+    /**
+     * The filename for the optional simulation data representing car sources.
+     */
+    public static final String FILENAME_SOURCES = "sources.sim";
+    /**
+     * The filename for the optional simulation data representing sinks.
+     */
+    public static final String FILENAME_SINKS = "sinks.sim";
+    /**
+     * The filename for the optional simulation data representing a tile repeated on a grid.
+     */
+    public static final String FILENAME_TILES = "tiles.sim";
 
 
     private final Path folderPath;
@@ -90,6 +102,54 @@ public List<String> loadCars() throws IOException {
     }
 
 
+    /**
+     * Loads the optional simulation file {@value FILENAME_SOURCES} and returns the lines as list of String.
+     *
+     * The returned value is never {@code null}. An empty list is returned, if the file is empty or does not exist.
+     *
+     * @return     the lines of the file as list of String.
+     *
+     * @throws     IOException  if the file points to a directory.
+     */
+    public List<String> loadSources() throws IOException {
+        return loadOptionalSimulationFile(FILENAME_SOURCES);
+    }
+
+    /**
+     * Loads the optional simulation file {@value FILENAME_SINKS} and returns the lines as list of String.
+     *
+     * The returned value is never {@code null}. An empty list is returned, if the file is empty or does not exist.
+     *
+     * @return     the lines of the file as list of String.
+     *
+     * @throws     IOException  if the file points to a directory.
+     */
+    public List<String> loadSinks() throws IOException {
+        return loadOptionalSimulationFile(FILENAME_SINKS);
+    }
+
+
+    /**
+     * Loads the optional simulation file {@value FILENAME_TILES} and returns the lines as list of String.
+     *
+     * The returned value is never {@code null}. An empty list is returned, if the file is empty or does not exist.
+     *
+     * @return     the lines of the file as list of String.
+     *
+     * @throws     IOException  if the file points to a directory.
+     */
+    public List<String> loadTiles() throws IOException {
+        return loadOptionalSimulationFile(FILENAME_TILES);
+    }
+
+
+    private List<String> loadOptionalSimulationFile(String fileName) throws IOException {
+        if (!this.folderPath.resolve(Path.of(fileName)).toFile().exists()) {
+            return List.of();
+        }
+        return loadSimulationFile(fileName);
+    }
+
     private List<String> loadSimulationFile(String fileName) throws IOException {
         final Path filePath = this.folderPath.resolve(Path.of(fileName));
         final File file = filePath.toFile();
@@ -0,0 +1,52 @@
+package edu.kit.kastel.trafficsimulation.memory;
+
+/**
+ * this enum lists the parts of a simulation a {@link MemoryReport} reports the footprint of.
+ * The car state, the street queues and the id map of the car table are counted on or off the heap,
+ * wherever the storage of the graph keeps them.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public enum MemoryCategory {
+
+    /** the car objects, including the pooled ones of removed cars, and the slots of the car table with their rows */
+    CAR_STATE("car state"),
+
+    /** the columns of the cars on every street and the buffers the next positions are computed in */
+    STREET_QUEUES("street queues"),
+
+    /** the street and node objects, the connected streets of every node and the arrays the tick iterates */
+    NODE_ADJACENCY("node adjacency"),
+
+    /** the maps from the ids of cars, streets and nodes to the objects and the free list of the car table */
+    ID_MAPS("id maps"),
+
+    /** the sliding windows of the traffic statistics of streets and nodes */
+    STATISTICS("statistics"),
+
+    /** the shortest path tables of the cars with a destination */
+    ROUTING("routing"),
+
+    /** the keyframes of the history, on or off the heap */
+    HISTORY("history");
+
+    /** the name of the category in the output of the memory command */
+    private final String label;
+
+    /**
+     * constructor for a category
+     * @param label the name of the category in the output of the memory command
+     */
+    MemoryCategory(String label) {
+        this.label = label;
+    }
+
+    /**
+     * method to get the name of the category in the output of the memory command
+     * @return the name
+     */
+    public String getLabel() {
+        return label;
+    }
+}
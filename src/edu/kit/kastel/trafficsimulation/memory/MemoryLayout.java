@@ -0,0 +1,88 @@
+package edu.kit.kastel.trafficsimulation.memory;
+
+/**
+ * this class computes how many bytes objects and arrays use on the heap of a 64-bit virtual machine
+ * with compressed object pointers, the default for heaps below 32 GiB.
+ * The sizes are computed from the number of fields and the length of arrays,
+ * so a footprint can be reported at any time without walking the heap.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public final class MemoryLayout {
+
+    /** the number of bytes of the header of an object */
+    public static final int OBJECT_HEADER_BYTES = 12;
+
+    /** the number of bytes of the header of an array, including its length */
+    public static final int ARRAY_HEADER_BYTES = 16;
+
+    /** the number of bytes of a compressed reference */
+    public static final int REFERENCE_BYTES = 4;
+
+    /** the number of bytes every object and array is padded to a multiple of */
+    public static final int ALIGNMENT = 8;
+
+    /** the number of bytes of an entry of a {@link java.util.TreeMap} with a boxed integer key */
+    public static final long TREE_MAP_ENTRY_BYTES = object(5 * REFERENCE_BYTES + 1) + object(Integer.BYTES);
+
+    /**
+     * private constructor because this is a utility class
+     */
+    private MemoryLayout() {
+    }
+
+    /**
+     * method to get the size of an object
+     * @param fieldBytes the number of bytes of all fields of the object
+     * @return the number of bytes the object uses
+     */
+    public static long object(long fieldBytes) {
+        return align(OBJECT_HEADER_BYTES + fieldBytes);
+    }
+
+    /**
+     * method to get the size of an int array
+     * @param length the length of the array
+     * @return the number of bytes the array uses
+     */
+    public static long intArray(int length) {
+        return align(ARRAY_HEADER_BYTES + (long) length * Integer.BYTES);
+    }
+
+    /**
+     * method to get the size of a long array
+     * @param length the length of the array
+     * @return the number of bytes the array uses
+     */
+    public static long longArray(int length) {
+        return align(ARRAY_HEADER_BYTES + (long) length * Long.BYTES);
+    }
+
+    /**
+     * method to get the size of a double array
+     * @param length the length of the array
+     * @return the number of bytes the array uses
+     */
+    public static long doubleArray(int length) {
+        return align(ARRAY_HEADER_BYTES + (long) length * Double.BYTES);
+    }
+
+    /**
+     * method to get the size of an array of references, without the objects it refers to
+     * @param length the length of the array
+     * @return the number of bytes the array uses
+     */
+    public static long referenceArray(int length) {
+        return align(ARRAY_HEADER_BYTES + (long) length * REFERENCE_BYTES);
+    }
+
+    /**
+     * method to round a size up to the alignment of objects
+     * @param bytes the size
+     * @return the padded size
+     */
+    private static long align(long bytes) {
+        return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
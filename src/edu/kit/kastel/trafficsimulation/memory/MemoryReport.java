@@ -0,0 +1,106 @@
+package edu.kit.kastel.trafficsimulation.memory;
+
+/**
+ * this class is the memory footprint of a simulation, split into {@link MemoryCategory categories}.
+ * It is either measured on a loaded graph from the sizes of its structures or estimated
+ * before a simulation is loaded from the number of its elements.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public class MemoryReport {
+
+    /** the number of bytes of every category, indexed by the ordinal of the category */
+    private final long[] bytes = new long[MemoryCategory.values().length];
+
+    /** the number of cars */
+    private final int carCount;
+
+    /** the number of streets */
+    private final int streetCount;
+
+    /** the number of nodes */
+    private final int nodeCount;
+
+    /**
+     * constructor for a new report without any bytes
+     * @param carCount the number of cars
+     * @param streetCount the number of streets
+     * @param nodeCount the number of nodes
+     */
+    public MemoryReport(int carCount, int streetCount, int nodeCount) {
+        this.carCount = carCount;
+        this.streetCount = streetCount;
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * method to add bytes to a category
+     * @param category the category
+     * @param categoryBytes the number of bytes
+     */
+    public void add(MemoryCategory category, long categoryBytes) {
+        bytes[category.ordinal()] += categoryBytes;
+    }
+
+    /**
+     * method to get the bytes of a category
+     * @param category the category
+     * @return the number of bytes
+     */
+    public long getBytes(MemoryCategory category) {
+        return bytes[category.ordinal()];
+    }
+
+    /**
+     * method to get the bytes of all categories
+     * @return the number of bytes
+     */
+    public long getTotalBytes() {
+        long total = 0;
+        for (long categoryBytes : bytes) {
+            total += categoryBytes;
+        }
+        return total;
+    }
+
+    /**
+     * method to get the average state of a car
+     * @return the bytes of the car state per car or 0 if there are no cars
+     */
+    public double getBytesPerCar() {
+        return carCount == 0 ? 0 : (double) getBytes(MemoryCategory.CAR_STATE) / carCount;
+    }
+
+    /**
+     * method to get the average queue of a street
+     * @return the bytes of the street queues per street or 0 if there are no streets
+     */
+    public double getBytesPerStreet() {
+        return streetCount == 0 ? 0 : (double) getBytes(MemoryCategory.STREET_QUEUES) / streetCount;
+    }
+
+    /**
+     * method to get the number of cars
+     * @return the number of cars
+     */
+    public int getCarCount() {
+        return carCount;
+    }
+
+    /**
+     * method to get the number of streets
+     * @return the number of streets
+     */
+    public int getStreetCount() {
+        return streetCount;
+    }
+
+    /**
+     * method to get the number of nodes
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+}
@@ -0,0 +1,83 @@
+package edu.kit.kastel.trafficsimulation.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * this class is the flight recorder event of a car that reached the end of its street
+ * but was not allowed to cross the node.
+ * It is disabled by default and only recorded when a recording enables it.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+@Name("edu.kit.kastel.trafficsimulation.BlockedCrossing")
+@Label("Blocked Crossing")
+@Category({"Traffic Simulation"})
+@Description("A car that wanted to cross a node but was not allowed to")
+@Enabled(false)
+@StackTrace(false)
+public class BlockedCrossingEvent extends Event {
+
+    /** the reason when the input street of the car has a red light */
+    public static final String RED_LIGHT = "red light";
+
+    /** the reason when the street the car wants to cross to has no space */
+    public static final String NO_SPACE = "no space";
+
+    /** the reason when the car already overtook or crossed in this tick */
+    public static final String ALREADY_CROSSED = "already crossed this tick";
+
+    /** the id of the node */
+    @Label("Node")
+    private int nodeId;
+
+    /** the id of the street the car is on */
+    @Label("Input Street")
+    private int inputStreetId;
+
+    /** the id of the car */
+    @Label("Car")
+    private int carId;
+
+    /** the reason the car was not allowed to cross */
+    @Label("Reason")
+    private String reason;
+
+    /**
+     * method to set the id of the node
+     * @param nodeId the id of the node
+     */
+    public void setNodeId(int nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * method to set the id of the street the car is on
+     * @param inputStreetId the id of the street
+     */
+    public void setInputStreetId(int inputStreetId) {
+        this.inputStreetId = inputStreetId;
+    }
+
+    /**
+     * method to set the id of the car
+     * @param carId the id of the car
+     */
+    public void setCarId(int carId) {
+        this.carId = carId;
+    }
+
+    /**
+     * method to set the reason the car was not allowed to cross
+     * @param reason one of {@link #RED_LIGHT}, {@link #NO_SPACE} and {@link #ALREADY_CROSSED}
+     */
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,58 @@
+package edu.kit.kastel.trafficsimulation.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * this class is the flight recorder event of one phase of a load command.
+ * It is disabled by default and only recorded when a recording enables it.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+@Name("edu.kit.kastel.trafficsimulation.LoadPhase")
+@Label("Load Phase")
+@Category({"Traffic Simulation"})
+@Description("Reading, parsing, validating or copying a cached simulation")
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public class LoadPhaseEvent extends Event {
+
+    /** the phase of reading the simulation files */
+    public static final String READ = "read";
+
+    /** the phase of parsing the lines and building the graph */
+    public static final String PARSE = "parse";
+
+    /** the phase of validating the graph */
+    public static final String VALIDATE = "validate";
+
+    /** the phase of creating the graph from a cached template instead of the other phases */
+    public static final String CACHED = "cached";
+
+    /** the folder the simulation is loaded from */
+    @Label("Path")
+    private String path;
+
+    /** the phase */
+    @Label("Phase")
+    private String phase;
+
+    /**
+     * constructor for a new event that starts timing immediately
+     * @param path the folder the simulation is loaded from
+     * @param phase one of {@link #READ}, {@link #PARSE}, {@link #VALIDATE} and {@link #CACHED}
+     */
+    public LoadPhaseEvent(String path, String phase) {
+        this.path = path;
+        this.phase = phase;
+        begin();
+    }
+}
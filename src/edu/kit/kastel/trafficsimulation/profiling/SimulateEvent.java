@@ -0,0 +1,51 @@
+package edu.kit.kastel.trafficsimulation.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * this class is the flight recorder event of one simulate command.
+ * It is disabled by default and only recorded when a recording enables it.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+@Name("edu.kit.kastel.trafficsimulation.Simulate")
+@Label("Simulate")
+@Category({"Traffic Simulation"})
+@Description("A simulate command that advanced the graph by a number of ticks")
+@Enabled(false)
+@Threshold("10 ms")
+@StackTrace(false)
+public class SimulateEvent extends Event {
+
+    /** the tick the command started at */
+    @Label("First Tick")
+    private long firstTick;
+
+    /** the number of simulated ticks */
+    @Label("Tick Count")
+    private long tickCount;
+
+    /**
+     * method to set the tick the command started at
+     * @param firstTick the tick before the first simulated tick
+     */
+    public void setFirstTick(long firstTick) {
+        this.firstTick = firstTick;
+    }
+
+    /**
+     * method to set the number of simulated ticks
+     * @param tickCount the number of ticks
+     */
+    public void setTickCount(long tickCount) {
+        this.tickCount = tickCount;
+    }
+}
@@ -0,0 +1,64 @@
+package edu.kit.kastel.trafficsimulation.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * this class is the flight recorder event of one tick of a graph.
+ * Streets that are advanced by a lookahead count their cars in the tick the lookahead started in.
+ * It is disabled by default and only recorded when a recording enables it.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+@Name("edu.kit.kastel.trafficsimulation.Tick")
+@Label("Tick")
+@Category({"Traffic Simulation"})
+@Description("One tick of the simulation graph")
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public class TickEvent extends Event {
+
+    /** the number of the tick */
+    @Label("Tick")
+    private long tick;
+
+    /** the number of cars that changed their position or street */
+    @Label("Cars Moved")
+    private long carsMoved;
+
+    /** the number of cars that crossed a node or left the graph */
+    @Label("Crossings")
+    private long crossings;
+
+    /**
+     * method to set the number of the tick
+     * @param tick the tick the graph is at after the tick
+     */
+    public void setTick(long tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * method to set the number of cars that changed their position or street
+     * @param carsMoved the number of moved cars
+     */
+    public void setCarsMoved(long carsMoved) {
+        this.carsMoved = carsMoved;
+    }
+
+    /**
+     * method to set the number of cars that crossed a node or left the graph
+     * @param crossings the number of crossings
+     */
+    public void setCrossings(long crossings) {
+        this.crossings = crossings;
+    }
+}
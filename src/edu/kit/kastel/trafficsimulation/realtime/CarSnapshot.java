@@ -0,0 +1,210 @@
+package edu.kit.kastel.trafficsimulation.realtime;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+import edu.kit.kastel.trafficsimulation.Car;
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+
+/**
+ * this class holds a copy of the street, position and speed of every car, taken after a tick.
+ * The simulation thread writes every tick into a second copy and then swaps the two copies,
+ * it only holds the lock for the swap. Readers never lock: they read optimistically and read again
+ * if the copies were swapped in the meantime, so a reader can not delay the next tick.
+ * Every copy stores the values by the slot of the car and maps the ids of the cars to their slots,
+ * so reading a car takes constant time however many cars there are.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public final class CarSnapshot {
+
+    /** the slot stored for an empty bucket of the id map */
+    static final int EMPTY = -1;
+
+    /** the index of the street of a car in the array filled by {@link #readCar(int, int[])} */
+    public static final int STREET_INDEX = 0;
+
+    /** the index of the position of a car in the array filled by {@link #readCar(int, int[])} */
+    public static final int POSITION_INDEX = 1;
+
+    /** the index of the speed of a car in the array filled by {@link #readCar(int, int[])} */
+    public static final int SPEED_INDEX = 2;
+
+    /** the length of the array filled by {@link #readCar(int, int[])} */
+    public static final int VALUE_COUNT = 3;
+
+    /** the value {@link #readValue(int, int)} returns for a car the copy does not contain */
+    public static final int NO_CAR = -1;
+
+    /** the lock whose stamps tell readers if the copies were swapped while they read */
+    private final StampedLock lock = new StampedLock();
+
+    /** the copy the readers read */
+    private Copy current = new Copy();
+
+    /** the copy the next capture is written to, readers that still read it fail their validation */
+    private Copy spare = new Copy();
+
+    /**
+     * method to replace the copy with the current state of a graph. Must only be called by one thread.
+     * @param graph the graph
+     */
+    public void capture(SimulationGraph graph) {
+        Copy copy = spare;
+        copy.fill(graph);
+        long stamp = lock.writeLock();
+        spare = current;
+        current = copy;
+        lock.unlockWrite(stamp);
+    }
+
+    /**
+     * method to read the state of a car from one consistent copy
+     * @param carId the id of the car
+     * @param target the array the street, position and speed of the car are written to,
+     *     at {@link #STREET_INDEX}, {@link #POSITION_INDEX} and {@link #SPEED_INDEX}
+     * @return true if the copy contains the car, false if it does not
+     */
+    public boolean readCar(int carId, int[] target) {
+        while (true) {
+            long stamp = lock.tryOptimisticRead();
+            Copy copy = current;
+            int[] streets = copy.streets;
+            int[] positions = copy.positions;
+            int[] speeds = copy.speeds;
+            int slot = copy.findSlot(carId);
+            //the arrays can be overwritten if the reader was overtaken, so the slot is checked against every array
+            boolean found = slot != EMPTY
+                    && slot < Math.min(streets.length, Math.min(positions.length, speeds.length));
+            int street = found ? streets[slot] : 0;
+            int position = found ? positions[slot] : 0;
+            int speed = found ? speeds[slot] : 0;
+            if (lock.validate(stamp)) {
+                if (found) {
+                    target[STREET_INDEX] = street;
+                    target[POSITION_INDEX] = position;
+                    target[SPEED_INDEX] = speed;
+                }
+                return found;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * method to read one value of a car from one consistent copy without an array
+     * @param carId the id of the car
+     * @param index the value to read, {@link #STREET_INDEX}, {@link #POSITION_INDEX} or {@link #SPEED_INDEX}
+     * @return the value or {@value #NO_CAR} if the copy does not contain the car, all values are not negative
+     */
+    public int readValue(int carId, int index) {
+        while (true) {
+            long stamp = lock.tryOptimisticRead();
+            Copy copy = current;
+            int[] values = index == STREET_INDEX ? copy.streets
+                    : index == POSITION_INDEX ? copy.positions : copy.speeds;
+            int slot = copy.findSlot(carId);
+            //the arrays can be overwritten if the reader was overtaken, so the slot is checked
+            int value = slot != EMPTY && slot < values.length ? values[slot] : NO_CAR;
+            if (lock.validate(stamp)) {
+                return value;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * this class is one copy of the state of the cars
+     */
+    private static final class Copy {
+
+        /** the street of the car in every slot of the car table */
+        private int[] streets = new int[0];
+
+        /** the position of the car in every slot */
+        private int[] positions = new int[0];
+
+        /** the speed of the car in every slot */
+        private int[] speeds = new int[0];
+
+        /** the ids stored in the buckets of the id map, the number of buckets is a power of two */
+        private int[] bucketIds = new int[0];
+
+        /** the slot stored in every bucket of the id map, {@value CarSnapshot#EMPTY} if the bucket is empty */
+        private int[] bucketSlots = new int[0];
+
+        /**
+         * method to overwrite the copy with the current state of a graph
+         * @param graph the graph
+         */
+        void fill(SimulationGraph graph) {
+            int limit = graph.getCarSlotLimit();
+            if (streets.length < limit) {
+                int capacity = Math.max(limit, streets.length * 2);
+                streets = new int[capacity];
+                positions = new int[capacity];
+                speeds = new int[capacity];
+            }
+            //at least two buckets per slot keep the probe sequences short
+            int bucketCount = Integer.highestOneBit(Math.max(limit, 2) - 1) << 2;
+            if (bucketSlots.length < bucketCount) {
+                bucketIds = new int[bucketCount];
+                bucketSlots = new int[bucketCount];
+            }
+            Arrays.fill(bucketSlots, EMPTY);
+
+            int mask = bucketSlots.length - 1;
+            for (int slot = 0; slot < limit; slot++) {
+                Car car = graph.getCarInSlot(slot);
+                if (car == null) {
+                    continue;
+                }
+                streets[slot] = car.getOnStreetId();
+                positions[slot] = car.getPositionOnStreet();
+                speeds[slot] = car.getCurrentSpeed();
+                int bucket = spread(car.getId()) & mask;
+                while (bucketSlots[bucket] != EMPTY) {
+                    bucket = (bucket + 1) & mask;
+                }
+                bucketIds[bucket] = car.getId();
+                bucketSlots[bucket] = slot;
+            }
+        }
+
+        /**
+         * method to find the slot of a car. A reader that was overtaken by a capture may see the buckets
+         * while they are written, so the search ends after every bucket was probed once.
+         * @param carId the id of the car
+         * @return the slot or {@value CarSnapshot#EMPTY} if the copy does not contain the car
+         */
+        int findSlot(int carId) {
+            int[] ids = bucketIds;
+            int[] slots = bucketSlots;
+            int bucketCount = Math.min(ids.length, slots.length);
+            int mask = bucketCount - 1;
+            int bucket = spread(carId) & mask;
+            for (int probe = 0; probe < bucketCount; probe++) {
+                int slot = slots[bucket];
+                if (slot == EMPTY) {
+                    return EMPTY;
+                }
+                if (ids[bucket] == carId) {
+                    return slot;
+                }
+                bucket = (bucket + 1) & mask;
+            }
+            return EMPTY;
+        }
+
+        /**
+         * method to spread the bits of an id so consecutive ids do not form long probe sequences
+         * @param id the id
+         * @return the spread id
+         */
+        private static int spread(int id) {
+            int hash = id * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package edu.kit.kastel.trafficsimulation.realtime;
+
+/**
+ * this enum lists what a paced run does when a tick took longer than its period
+ * and the deadlines of the following ticks have already passed.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public enum CatchUpPolicy {
+
+    /**
+     * the ticks whose deadlines have passed are not simulated and the run continues at the next deadline
+     * that is still ahead. The ticks stay aligned with the wall clock, but fewer ticks are simulated
+     */
+    SKIP,
+
+    /**
+     * the ticks whose deadlines have passed are simulated back to back until the run is on time again.
+     * Every tick is simulated, but for a short time faster than the tick rate
+     */
+    BURST
+}
@@ -0,0 +1,124 @@
+package edu.kit.kastel.trafficsimulation.realtime;
+
+/**
+ * this class counts latencies in nanoseconds in logarithmic buckets, so percentiles can be computed
+ * without storing every value. Values below {@value #LINEAR_LIMIT} nanoseconds get a bucket each,
+ * above that every power of two is split into {@value #SUB_BUCKETS} buckets,
+ * so a percentile is at most about three percent larger than the exact value.
+ * Recording a value does not allocate.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public final class LatencyHistogram {
+
+    /** the number of bits that select the bucket within a power of two */
+    static final int SUB_BUCKET_BITS = 5;
+
+    /** the number of buckets every power of two is split into */
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** the values below this limit are counted exactly */
+    static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+
+    /** the exponent of the smallest power of two that is split into buckets */
+    static final int FIRST_EXPONENT = SUB_BUCKET_BITS + 1;
+
+    /** the number of buckets, enough for every positive long */
+    static final int BUCKET_COUNT = LINEAR_LIMIT + (Long.SIZE - 1 - FIRST_EXPONENT) * SUB_BUCKETS;
+
+    /** the number of values in every bucket */
+    private final long[] counts = new long[BUCKET_COUNT];
+
+    /** the number of recorded values */
+    private long totalCount = 0;
+
+    /** the largest recorded value */
+    private long max = 0;
+
+    /**
+     * method to count a value
+     * @param nanos the value in nanoseconds, negative values are counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)]++;
+        totalCount++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * method to get the number of recorded values
+     * @return the number of values
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * method to get the largest recorded value
+     * @return the largest value in nanoseconds, 0 if no value was recorded
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * method to get the value that the given share of all recorded values does not exceed
+     * @param percentile the share in percent, between 0 and 100
+     * @return the largest value of the bucket the percentile falls into in nanoseconds,
+     *     never more than the largest recorded value, 0 if no value was recorded
+     */
+    public long getPercentile(double percentile) {
+        long rank = (long) Math.ceil(percentile / 100 * totalCount);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank && seen > 0) {
+                return Math.min(highestValueOf(bucket), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * method to create a copy of the histogram
+     * @return the copy
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        System.arraycopy(counts, 0, copy.counts, 0, BUCKET_COUNT);
+        copy.totalCount = totalCount;
+        copy.max = max;
+        return copy;
+    }
+
+    /**
+     * method to get the bucket a value is counted in
+     * @param value the value, not negative
+     * @return the index of the bucket
+     */
+    static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * method to get the largest value that is counted in a bucket
+     * @param bucket the index of the bucket
+     * @return the largest value of the bucket
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + FIRST_EXPONENT;
+        long subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
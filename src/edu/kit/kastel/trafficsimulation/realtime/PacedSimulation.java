@@ -0,0 +1,248 @@
+package edu.kit.kastel.trafficsimulation.realtime;
+
+import java.util.concurrent.locks.LockSupport;
+
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+
+/**
+ * this class simulates a graph at a fixed number of ticks per wall-clock second on a dedicated thread.
+ * Tick k is due at the start of the run plus k periods. The deadlines are computed from the start
+ * and not from the previous tick, so the schedule does not drift. The thread parks until shortly
+ * before a deadline and spins for the rest, which keeps the jitter of the start of a tick low.
+ * After every tick the state of the cars is copied into a {@link CarSnapshot}, so other threads can
+ * answer queries without touching the graph. The graph must not be used by other threads during the run.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public final class PacedSimulation {
+
+    /** the number of nanoseconds of a second */
+    static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /** the time before a deadline the thread stops parking and starts spinning, parking is less precise */
+    static final long SPIN_NANOS = 200_000L;
+
+    /** the name of the simulation thread */
+    static final String THREAD_NAME = "paced-simulation";
+
+    /** the graph that is simulated */
+    private final SimulationGraph graph;
+
+    /** the number of ticks per second */
+    private final int ticksPerSecond;
+
+    /** the number of deadlines of the run */
+    private final long ticks;
+
+    /** what the run does when a tick overran its period */
+    private final CatchUpPolicy policy;
+
+    /** the state of the cars after the latest tick */
+    private final CarSnapshot snapshot = new CarSnapshot();
+
+    /** the time from the deadline of every tick until it was finished */
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /** the thread that simulates the ticks */
+    private final Thread thread;
+
+    /** true while the thread simulates */
+    private volatile boolean running = true;
+
+    /** true if the run should stop before its last tick */
+    private volatile boolean stopRequested = false;
+
+    /** the time the run started at in nanoseconds of {@link System#nanoTime()} */
+    private long startNanos;
+
+    /** the time the run ended at, or the start while it is running */
+    private long endNanos;
+
+    /** the number of simulated ticks */
+    private long simulatedTicks = 0;
+
+    /** the number of ticks that finished after the deadline of the next tick */
+    private long missedDeadlines = 0;
+
+    /** the number of ticks that were not simulated because of {@link CatchUpPolicy#SKIP} */
+    private long skippedTicks = 0;
+
+    /**
+     * constructor for a new run, the run has to be started with {@link #start()}
+     * @param graph the graph that is simulated
+     * @param ticksPerSecond the number of ticks per second, at least 1
+     * @param ticks the number of deadlines of the run
+     * @param policy what the run does when a tick overran its period
+     */
+    public PacedSimulation(SimulationGraph graph, int ticksPerSecond, long ticks, CatchUpPolicy policy) {
+        if (ticksPerSecond <= 0) {
+            throw new IllegalArgumentException("Error: the tick rate has to be positive");
+        }
+        this.graph = graph;
+        this.ticksPerSecond = ticksPerSecond;
+        this.ticks = ticks;
+        this.policy = policy;
+        this.thread = new Thread(this::run, THREAD_NAME);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        snapshot.capture(graph);
+    }
+
+    /**
+     * method to start the simulation thread
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * method to stop the run after the current tick and wait for the simulation thread
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void stop() throws InterruptedException {
+        stopRequested = true;
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    /**
+     * method to check if the run is still simulating.
+     * Once this returns false all changes of the run are visible to the calling thread.
+     * @return true while the simulation thread runs
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * method to get the copy of the state of the cars after the latest tick
+     * @return the snapshot
+     */
+    public CarSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * method to get the number of ticks per second
+     * @return the tick rate
+     */
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * method to get what the run does when a tick overran its period
+     * @return the catch-up policy
+     */
+    public CatchUpPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * method to get the number of simulated ticks
+     * @return the number of ticks
+     */
+    public synchronized long getSimulatedTicks() {
+        return simulatedTicks;
+    }
+
+    /**
+     * method to get the number of ticks that finished after the deadline of the next tick
+     * @return the number of missed deadlines
+     */
+    public synchronized long getMissedDeadlines() {
+        return missedDeadlines;
+    }
+
+    /**
+     * method to get the number of ticks that were skipped to catch up
+     * @return the number of skipped ticks
+     */
+    public synchronized long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+    /**
+     * method to get the time since the start of the run, or the duration of the run if it ended
+     * @return the elapsed time in nanoseconds
+     */
+    public synchronized long getElapsedNanos() {
+        return (running ? System.nanoTime() : endNanos) - startNanos;
+    }
+
+    /**
+     * method to get a copy of the latencies of all ticks so far. The latency of a tick is the time
+     * from its deadline until it was finished, it includes the delay of the start and the duration of the tick.
+     * @return the copy of the latency histogram
+     */
+    public synchronized LatencyHistogram getLatencies() {
+        return latencies.copy();
+    }
+
+    /**
+     * method that is run by the simulation thread
+     */
+    private void run() {
+        synchronized (this) {
+            startNanos = System.nanoTime();
+        }
+        long nextTick = 1;
+        while (nextTick <= ticks && !stopRequested) {
+            long deadline = deadlineOf(nextTick);
+            waitUntil(deadline);
+            if (stopRequested) {
+                break;
+            }
+
+            graph.tick();
+            snapshot.capture(graph);
+            long finished = System.nanoTime();
+
+            long skip = 0;
+            boolean missed = finished > deadlineOf(nextTick + 1);
+            if (missed && policy == CatchUpPolicy.SKIP) {
+                //continue with the first deadline that is still ahead
+                long behind = (long) ((double) (finished - startNanos) * ticksPerSecond / NANOS_PER_SECOND);
+                skip = Math.min(behind, ticks) - nextTick;
+            }
+            synchronized (this) {
+                simulatedTicks++;
+                latencies.record(finished - deadline);
+                if (missed) {
+                    missedDeadlines++;
+                }
+                skippedTicks += skip;
+            }
+            nextTick += 1 + skip;
+        }
+        synchronized (this) {
+            endNanos = System.nanoTime();
+        }
+        running = false;
+    }
+
+    /**
+     * method to get the time a tick of the run is due at
+     * @param tick the number of the tick in the run, starting with 1
+     * @return the deadline in nanoseconds of {@link System#nanoTime()}
+     */
+    private long deadlineOf(long tick) {
+        return startNanos + tick * NANOS_PER_SECOND / ticksPerSecond;
+    }
+
+    /**
+     * method to wait until a deadline or until the run is stopped
+     * @param deadline the deadline in nanoseconds of {@link System#nanoTime()}
+     */
+    private void waitUntil(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        while (remaining > SPIN_NANOS && !stopRequested) {
+            LockSupport.parkNanos(remaining - SPIN_NANOS);
+            remaining = deadline - System.nanoTime();
+        }
+        while (System.nanoTime() < deadline && !stopRequested) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package edu.kit.kastel.trafficsimulation.replication;
+
+import java.io.PrintStream;
+
+import edu.kit.kastel.trafficsimulation.TrafficSimulation;
+
+/**
+ * this interface is the role a server plays in a pair of replicated processes.
+ * The server passes every command that changes the simulation to its role while it holds the lock
+ * that serializes these commands, instead of executing the command itself.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public interface Replication {
+
+    /**
+     * method to handle a command of a client that changes the simulation
+     * @param session the session of the client
+     * @param line the command line
+     * @param err the stream the error messages for the client are written to
+     * @return false if the session of the client should end
+     */
+    boolean execute(TrafficSimulation session, String line, PrintStream err);
+}
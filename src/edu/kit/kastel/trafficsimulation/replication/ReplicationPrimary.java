@@ -0,0 +1,371 @@
+package edu.kit.kastel.trafficsimulation.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import edu.kit.kastel.trafficsimulation.TrafficSimulation;
+
+/**
+ * this class is the primary of a pair of replicated processes.
+ * Because the simulation is deterministic a standby that executes the same commands in the same order
+ * reaches the same state, so only the commands that change the simulation are sent to it.
+ * Every command is sent to the standbys before it is executed, so they execute it at the same time,
+ * followed by the tick and the state hash after the command, which the standbys compare to their own.
+ * The client is answered when every standby acknowledged the command, so a standby has executed
+ * every command a client was answered for. A standby that connects later first receives the commands
+ * since the latest load and the commands before it that configure the engine for the loaded graph,
+ * all other commands are dropped from the log when a graph is loaded. Standbys that disconnect are dropped,
+ * and so are standbys that do not acknowledge a command in time, which are told so first,
+ * so they do not take over from a living primary.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public final class ReplicationPrimary implements Replication, Closeable {
+
+    /** the type of a frame with a command */
+    static final byte COMMAND_FRAME = 'C';
+
+    /** the type of a frame with the tick and the state hash after a command */
+    static final byte STATE_FRAME = 'S';
+
+    /** the type of the frame that tells a standby it was dropped because it did not acknowledge a command in time */
+    static final byte DISMISSED_FRAME = 'D';
+
+    /** the time in milliseconds a standby may take longer than the primary to acknowledge a command */
+    static final int ACKNOWLEDGEMENT_TIMEOUT_MILLIS = 10000;
+
+    /** the socket the primary accepts standbys on */
+    private final ServerSocket serverSocket;
+
+    /** the thread that accepts standbys */
+    private final Thread acceptThread;
+
+    /** the connected standbys */
+    private final List<StandbyLink> standbys = new ArrayList<>();
+
+    /** the commands a new standby has to execute with the state after them, in the order they were executed */
+    private final List<LoggedCommand> log = new ArrayList<>();
+
+    /** the number of the next command */
+    private long nextSequence = 0;
+
+    /**
+     * constructor for a new primary, standbys are accepted after {@link #start()}
+     * @param port the port to accept standbys on, 0 for any free port
+     * @throws IOException if the port can not be bound
+     */
+    public ReplicationPrimary(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        this.acceptThread = new Thread(this::acceptStandbys, "replication-primary");
+        this.acceptThread.setDaemon(true);
+    }
+
+    /**
+     * method to get the port the primary accepts standbys on
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * method to start accepting standbys on a background thread
+     */
+    public void start() {
+        acceptThread.start();
+    }
+
+    /**
+     * method to get the number of connected standbys
+     * @return the number of standbys
+     */
+    public synchronized int getStandbyCount() {
+        return standbys.size();
+    }
+
+    @Override
+    public synchronized boolean execute(TrafficSimulation session, String line, PrintStream err) {
+        long sequence = nextSequence++;
+        //the standbys execute the command while the primary does
+        Iterator<StandbyLink> iterator = standbys.iterator();
+        while (iterator.hasNext()) {
+            StandbyLink standby = iterator.next();
+            try {
+                standby.sendCommand(sequence, line);
+                standby.flush();
+            } catch (IOException exception) {
+                standby.close();
+                iterator.remove();
+            }
+        }
+
+        long loadCount = session.getLoadCount();
+        long start = System.nanoTime();
+        boolean running = session.executeCommand(line);
+        long duration = System.nanoTime() - start;
+        if (session.getLoadCount() != loadCount) {
+            truncateLog();
+        }
+        LoggedCommand command
+                = new LoggedCommand(sequence, line, session.getCurrentTick(), session.getStateHash(), duration, true);
+        log.add(command);
+
+        iterator = standbys.iterator();
+        while (iterator.hasNext()) {
+            StandbyLink standby = iterator.next();
+            try {
+                standby.sendState(sequence, command);
+                standby.flush();
+                standby.awaitAcknowledgement(sequence, duration);
+            } catch (SocketTimeoutException exception) {
+                standby.dismiss(sequence);
+                iterator.remove();
+            } catch (IOException exception) {
+                standby.close();
+                iterator.remove();
+            }
+        }
+        return running;
+    }
+
+    /**
+     * method to stop accepting standbys and disconnect the connected ones, which take over
+     * @throws IOException if the server socket can not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        serverSocket.close();
+        for (StandbyLink standby : standbys) {
+            standby.close();
+        }
+        standbys.clear();
+    }
+
+    /**
+     * method to drop the commands a new standby does not need after a graph was loaded. The commands that
+     * configure the engine are kept, but the state after them depends on the dropped commands,
+     * so it is not compared anymore.
+     */
+    private void truncateLog() {
+        List<LoggedCommand> kept = new ArrayList<>();
+        for (LoggedCommand command : log) {
+            if (TrafficSimulation.configuresEngine(command.line)) {
+                kept.add(new LoggedCommand(command.sequence, command.line, command.tick, command.stateHash,
+                        command.duration, false));
+            }
+        }
+        log.clear();
+        log.addAll(kept);
+    }
+
+    /**
+     * method to accept standbys until the primary is closed
+     */
+    private void acceptStandbys() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                addStandby(new StandbyLink(socket));
+            } catch (IOException exception) {
+                //the primary was closed or the standby disconnected before it was added
+            }
+        }
+    }
+
+    /**
+     * method to send all commands so far to a new standby and add it to the connected ones.
+     * The acknowledgements of these commands are read while waiting for the next command,
+     * which waits longer by the time the primary took to execute them.
+     * @param standby the new standby
+     */
+    private synchronized void addStandby(StandbyLink standby) {
+        try {
+            for (LoggedCommand command : log) {
+                standby.sendCommand(command.sequence, command.line);
+                if (command.checked) {
+                    standby.sendState(command.sequence, command);
+                }
+                standby.addBacklog(command.duration);
+            }
+            standby.flush();
+            standbys.add(standby);
+        } catch (IOException exception) {
+            standby.close();
+        }
+    }
+
+    /**
+     * this class is a command that changed the simulation with the state after it
+     */
+    private static final class LoggedCommand {
+
+        /** the number of the command */
+        private final long sequence;
+
+        /** the command line */
+        private final String line;
+
+        /** the current tick after the command */
+        private final long tick;
+
+        /** the state hash after the command */
+        private final long stateHash;
+
+        /** the time in nanoseconds the primary took to execute the command */
+        private final long duration;
+
+        /** true if a new standby compares its state after the command to the tick and the state hash */
+        private final boolean checked;
+
+        /**
+         * constructor for a new logged command
+         * @param sequence the number of the command
+         * @param line the command line
+         * @param tick the current tick after the command
+         * @param stateHash the state hash after the command
+         * @param duration the time in nanoseconds the primary took to execute the command
+         * @param checked true if a new standby compares its state after the command
+         */
+        LoggedCommand(long sequence, String line, long tick, long stateHash, long duration, boolean checked) {
+            this.sequence = sequence;
+            this.line = line;
+            this.tick = tick;
+            this.stateHash = stateHash;
+            this.duration = duration;
+            this.checked = checked;
+        }
+    }
+
+    /**
+     * this class is the connection to a standby
+     */
+    private static final class StandbyLink {
+
+        /** the socket of the standby */
+        private final Socket socket;
+
+        /** the acknowledgements of the standby */
+        private final DataInputStream in;
+
+        /** the frames to the standby */
+        private final DataOutputStream out;
+
+        /** the time in nanoseconds the primary took to execute the commands the standby was sent when it connected */
+        private long backlog = 0;
+
+        /**
+         * constructor for a new connection
+         * @param socket the socket of the standby
+         * @throws IOException if the streams of the socket can not be opened
+         */
+        StandbyLink(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        /**
+         * method to send a command
+         * @param sequence the number of the command
+         * @param line the command line
+         * @throws IOException if the standby disconnected
+         */
+        void sendCommand(long sequence, String line) throws IOException {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            out.writeByte(COMMAND_FRAME);
+            out.writeLong(sequence);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        /**
+         * method to send the state after a command
+         * @param sequence the number of the command
+         * @param command the command with the state after it
+         * @throws IOException if the standby disconnected
+         */
+        void sendState(long sequence, LoggedCommand command) throws IOException {
+            out.writeByte(STATE_FRAME);
+            out.writeLong(sequence);
+            out.writeLong(command.tick);
+            out.writeLong(command.stateHash);
+        }
+
+        /**
+         * method to send the buffered frames
+         * @throws IOException if the standby disconnected
+         */
+        void flush() throws IOException {
+            out.flush();
+        }
+
+        /**
+         * method to add the time the primary took to execute a command the standby still has to execute
+         * @param duration the time in nanoseconds
+         */
+        void addBacklog(long duration) {
+            backlog += duration;
+        }
+
+        /**
+         * method to wait until the standby executed a command. The standby executes the command
+         * at the same time as the primary, so it may take {@value #ACKNOWLEDGEMENT_TIMEOUT_MILLIS} milliseconds
+         * longer than the primary took, and longer by the backlog of a new standby.
+         * @param sequence the number of the command
+         * @param duration the time in nanoseconds the primary took to execute the command
+         * @throws SocketTimeoutException if the standby did not acknowledge the command in time
+         * @throws IOException if the standby disconnected
+         */
+        void awaitAcknowledgement(long sequence, long duration) throws IOException {
+            long timeout = ACKNOWLEDGEMENT_TIMEOUT_MILLIS + TimeUnit.NANOSECONDS.toMillis(duration + backlog);
+            socket.setSoTimeout((int) Math.min(timeout, Integer.MAX_VALUE));
+            while (in.readLong() < sequence) {
+                //acknowledgements of the commands a new standby was sent when it connected
+            }
+            backlog = 0;
+        }
+
+        /**
+         * method to tell the standby it is dropped and disconnect it. A standby that is only disconnected
+         * takes over, which it must not while the primary is alive.
+         * @param sequence the number of the command the standby did not acknowledge in time
+         */
+        void dismiss(long sequence) {
+            try {
+                out.writeByte(DISMISSED_FRAME);
+                out.writeLong(sequence);
+                out.flush();
+            } catch (IOException exception) {
+                //the standby is dropped anyway
+            }
+            close();
+        }
+
+        /**
+         * method to disconnect the standby
+         */
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException exception) {
+                //the standby is dropped anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package edu.kit.kastel.trafficsimulation.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import edu.kit.kastel.trafficsimulation.TrafficSimulation;
+
+/**
+ * this class is the standby of a pair of replicated processes. It executes the commands of a
+ * {@link ReplicationPrimary} in the same order and compares its tick and state hash to the primary's
+ * after every command. Clients of the standby can send reading commands at any time, they see the state
+ * between two commands of the primary. Commands that change the simulation are rejected
+ * until the primary is gone, from then on the standby accepts all commands.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public final class ReplicationStandby implements Replication, Closeable {
+
+    /** the error for a command that changes the simulation while the primary is alive */
+    public static final String STANDBY_ERROR
+            = "Error: this is a standby, commands that change the simulation have to be sent to the primary";
+
+    /** the error when the state of the standby does not match the state of the primary */
+    static final String DIVERGED_ERROR = "Error: replication: the state after command %s (%s) differs from the primary";
+
+    /** the error when the primary dropped the standby, which keeps rejecting the commands that change the simulation */
+    static final String DISMISSED_ERROR = "Error: replication: the primary dropped this standby at command %s";
+
+    /** the socket connected to the primary */
+    private final Socket socket;
+
+    /** the frames of the primary */
+    private final DataInputStream in;
+
+    /** the acknowledgements to the primary */
+    private final DataOutputStream out;
+
+    /** the session the commands of the primary are executed in, its output is discarded */
+    private final TrafficSimulation replay;
+
+    /** the lock that serializes the commands that change the simulation with the reading commands of clients */
+    private final ReadWriteLock commandLock;
+
+    /** the stream differences to the state of the primary are reported to */
+    private final PrintStream log;
+
+    /** true once the primary is gone and the standby accepts all commands */
+    private volatile boolean promoted = false;
+
+    /**
+     * constructor for a new standby that connects to its primary
+     * @param simulation the simulation the commands of the primary are executed on
+     * @param commandLock the lock of the server that serializes the commands that change the simulation
+     * @param primaryPort the port the primary accepts standbys on
+     * @param log the stream differences to the state of the primary are reported to
+     * @throws IOException if the primary can not be reached
+     */
+    public ReplicationStandby(TrafficSimulation simulation, ReadWriteLock commandLock, int primaryPort,
+            PrintStream log) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), primaryPort);
+        this.socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        this.replay = simulation.openSession(discard, discard);
+        this.commandLock = commandLock;
+        this.log = log;
+    }
+
+    /**
+     * method to execute the commands of the primary until it is gone. Afterwards the standby accepts all commands.
+     * If the primary dropped the standby because it did not acknowledge a command in time,
+     * the primary is still alive and the standby keeps rejecting the commands that change the simulation.
+     * @return true if the primary is gone and the standby accepts all commands
+     */
+    public boolean follow() {
+        String line = null;
+        try (socket) {
+            while (true) {
+                byte type = in.readByte();
+                long sequence = in.readLong();
+                if (type == ReplicationPrimary.COMMAND_FRAME) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    line = new String(bytes, StandardCharsets.UTF_8);
+                    apply(line);
+                } else if (type == ReplicationPrimary.STATE_FRAME) {
+                    long tick = in.readLong();
+                    long stateHash = in.readLong();
+                    //only this thread changes the simulation, so the state can be read without the lock
+                    if (tick != replay.getCurrentTick() || stateHash != replay.getStateHash()) {
+                        log.println(String.format(DIVERGED_ERROR, sequence, line));
+                    }
+                    out.writeLong(sequence);
+                    out.flush();
+                } else if (type == ReplicationPrimary.DISMISSED_FRAME) {
+                    log.println(String.format(DISMISSED_ERROR, sequence));
+                    return false;
+                } else {
+                    throw new IOException("unknown frame " + type);
+                }
+            }
+        } catch (IOException exception) {
+            //the primary is gone
+        }
+        promoted = true;
+        return true;
+    }
+
+    /**
+     * method to check if the primary is gone
+     * @return true if the standby accepts all commands
+     */
+    public boolean isPromoted() {
+        return promoted;
+    }
+
+    @Override
+    public boolean execute(TrafficSimulation session, String line, PrintStream err) {
+        if (!promoted) {
+            err.println(STANDBY_ERROR);
+            return true;
+        }
+        return session.executeCommand(line);
+    }
+
+    /**
+     * method to disconnect from the primary, the standby takes over
+     * @throws IOException if the socket can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * method to execute a command of the primary while no client reads the simulation
+     * @param line the command line
+     */
+    private void apply(String line) {
+        Lock lock = commandLock.writeLock();
+        lock.lock();
+        try {
+            replay.executeCommand(line);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
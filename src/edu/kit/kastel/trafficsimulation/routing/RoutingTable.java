@@ -0,0 +1,354 @@
+package edu.kit.kastel.trafficsimulation.routing;
+
+import java.util.Arrays;
+
+import edu.kit.kastel.trafficsimulation.Street;
+import edu.kit.kastel.trafficsimulation.StreetNodes.StreetNode;
+import edu.kit.kastel.trafficsimulation.memory.MemoryLayout;
+
+/**
+ * this class stores the next-hop tables that route cars to their destination.
+ * For every destination a shortest path tree is computed once with Dijkstra's algorithm
+ * on the reversed graph, using the travel time (length / maximum speed) of the streets as weights.
+ * The tree is stored as an int array that contains for every node the index of the output street
+ * a car has to take, so a routing decision is a single array lookup.
+ * Only the trees of the most recently used destinations are kept, so the memory stays bounded
+ * even for very large networks. The array of a slot is allocated when the slot is used the first time
+ * and reused for every later destination.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public final class RoutingTable {
+
+    /** the direction returned if there is no route to the destination */
+    public static final int NO_ROUTE = -1;
+
+    /** the default number of destinations the next-hop tables are kept for */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** the marker for a slot or destination without a counterpart */
+    private static final int NONE = -1;
+
+    /** the ids of all nodes in ascending order, the position of an id is the index of the node */
+    private final int[] nodeIds;
+
+    /** the first incoming edge of every node, edges of node i are in [incomingStart[i], incomingStart[i + 1]) */
+    private final int[] incomingStart;
+
+    /** the index of the node an incoming edge starts at */
+    private final int[] incomingFrom;
+
+    /** the index of an incoming edge in the output streets of the node it starts at */
+    private final int[] incomingDirection;
+
+    /** the travel time of an incoming edge */
+    private final double[] incomingCost;
+
+    /** the next-hop table of every slot, indexed by node index */
+    private final int[][] nextDirections;
+
+    /** the destination (node index) stored in a slot or {@link #NONE} */
+    private final int[] destinationOfSlot;
+
+    /** the slot the next-hop table of a destination (node index) is stored in or {@link #NONE} */
+    private final int[] slotOfDestination;
+
+    /** the slot that was used before a slot, towards the least recently used one */
+    private final int[] olderSlot;
+
+    /** the slot that was used after a slot, towards the most recently used one */
+    private final int[] newerSlot;
+
+    /** the most recently used slot */
+    private int newestSlot = NONE;
+
+    /** the least recently used slot */
+    private int oldestSlot = NONE;
+
+    /** the number of slots that contain a next-hop table */
+    private int usedSlots = 0;
+
+    /** the travel time from every node to the current destination, used by Dijkstra's algorithm */
+    private final double[] distance;
+
+    /** the binary heap of nodes ordered by distance, used by Dijkstra's algorithm */
+    private final int[] heap;
+
+    /** the position of every node in the heap or {@link #NONE}, used by Dijkstra's algorithm */
+    private final int[] heapPosition;
+
+    /** the number of nodes in the heap */
+    private int heapSize;
+
+    /**
+     * constructor for a new routing table. Assigns every node its routing index.
+     * @param nodes all nodes of the graph in ascending id order
+     * @param capacity the maximum number of destinations the next-hop tables are kept for
+     */
+    public RoutingTable(StreetNode[] nodes, int capacity) {
+        int nodeCount = nodes.length;
+        nodeIds = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodeIds[i] = nodes[i].getID();
+            nodes[i].setRoutingIndex(i);
+        }
+
+        //build the reversed graph in compressed form
+        incomingStart = new int[nodeCount + 1];
+        for (StreetNode node : nodes) {
+            for (int direction = 0; direction < node.outputStreetCount(); direction++) {
+                incomingStart[indexOf(node.getOutputStreet(direction).getEndNodeId()) + 1]++;
+            }
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            incomingStart[i + 1] += incomingStart[i];
+        }
+        int edgeCount = incomingStart[nodeCount];
+        incomingFrom = new int[edgeCount];
+        incomingDirection = new int[edgeCount];
+        incomingCost = new double[edgeCount];
+        int[] nextEdge = Arrays.copyOf(incomingStart, nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            for (int direction = 0; direction < nodes[i].outputStreetCount(); direction++) {
+                Street street = nodes[i].getOutputStreet(direction);
+                int edge = nextEdge[indexOf(street.getEndNodeId())]++;
+                incomingFrom[edge] = i;
+                incomingDirection[edge] = direction;
+                incomingCost[edge] = (double) street.getLength() / street.getMaxSpeed();
+            }
+        }
+
+        int slotCount = Math.max(1, Math.min(capacity, nodeCount));
+        nextDirections = new int[slotCount][];
+        destinationOfSlot = new int[slotCount];
+        olderSlot = new int[slotCount];
+        newerSlot = new int[slotCount];
+        slotOfDestination = new int[nodeCount];
+        Arrays.fill(slotOfDestination, NONE);
+
+        distance = new double[nodeCount];
+        heap = new int[nodeCount];
+        heapPosition = new int[nodeCount];
+    }
+
+    /**
+     * method to get the memory of the reversed graph, the next-hop tables computed so far
+     * and the buffers of the shortest path search
+     * @return the number of bytes
+     */
+    public long getFootprintBytes() {
+        int nodeCount = nodeIds.length;
+        int edgeCount = incomingFrom.length;
+        long bytes = 4 * MemoryLayout.intArray(nodeCount) + MemoryLayout.intArray(nodeCount + 1)
+                + MemoryLayout.doubleArray(nodeCount) + 2 * MemoryLayout.intArray(edgeCount)
+                + MemoryLayout.doubleArray(edgeCount) + 3 * MemoryLayout.intArray(destinationOfSlot.length)
+                + MemoryLayout.referenceArray(nextDirections.length);
+        for (int[] directions : nextDirections) {
+            if (directions != null) {
+                bytes += MemoryLayout.intArray(directions.length);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * method to get the index of a node
+     * @param nodeId the id of the node
+     * @return the index of the node or a negative number if there is no such node
+     */
+    public int indexOf(int nodeId) {
+        return Arrays.binarySearch(nodeIds, nodeId);
+    }
+
+    /**
+     * method to get the output street a car at a node has to take to reach its destination
+     * @param destinationId the id of the destination node
+     * @param nodeIndex the routing index of the node the car is at
+     * @return the index of the output street of the node or {@link #NO_ROUTE}
+     */
+    public int getNextDirection(int destinationId, int nodeIndex) {
+        int destination = indexOf(destinationId);
+        if (destination < 0) {
+            return NO_ROUTE;
+        }
+
+        int slot = slotOfDestination[destination];
+        if (slot == NONE) {
+            slot = load(destination);
+        } else if (slot != newestSlot) {
+            unlink(slot);
+            linkAsNewest(slot);
+        }
+
+        return nextDirections[slot][nodeIndex];
+    }
+
+    /**
+     * method to get the number of destinations whose next-hop tables are currently stored
+     * @return the number of stored next-hop tables
+     */
+    public int getStoredTableCount() {
+        return usedSlots;
+    }
+
+    /**
+     * method to compute the next-hop table of a destination,
+     * replacing the table of the least recently used destination if all slots are used
+     * @param destination the index of the destination node
+     * @return the slot the table was stored in
+     */
+    private int load(int destination) {
+        int slot;
+        if (usedSlots < nextDirections.length) {
+            slot = usedSlots++;
+            nextDirections[slot] = new int[nodeIds.length];
+        } else {
+            slot = oldestSlot;
+            unlink(slot);
+            slotOfDestination[destinationOfSlot[slot]] = NONE;
+        }
+
+        computeTree(destination, nextDirections[slot]);
+        destinationOfSlot[slot] = destination;
+        slotOfDestination[destination] = slot;
+        linkAsNewest(slot);
+        return slot;
+    }
+
+    /**
+     * method to compute the shortest path tree towards a destination
+     * @param destination the index of the destination node
+     * @param target the array the output street of every node is written to
+     */
+    private void computeTree(int destination, int[] target) {
+        Arrays.fill(target, NO_ROUTE);
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(heapPosition, NONE);
+        heapSize = 0;
+
+        distance[destination] = 0;
+        push(destination);
+
+        while (heapSize > 0) {
+            int node = pop();
+            for (int edge = incomingStart[node]; edge < incomingStart[node + 1]; edge++) {
+                int from = incomingFrom[edge];
+                double candidate = distance[node] + incomingCost[edge];
+                if (candidate < distance[from]) {
+                    distance[from] = candidate;
+                    target[from] = incomingDirection[edge];
+                    if (heapPosition[from] == NONE) {
+                        push(from);
+                    } else if (heapPosition[from] >= 0) {
+                        siftUp(heapPosition[from]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * method to add a node to the heap
+     * @param node the index of the node
+     */
+    private void push(int node) {
+        heap[heapSize] = node;
+        heapPosition[node] = heapSize;
+        heapSize++;
+        siftUp(heapSize - 1);
+    }
+
+    /**
+     * method to remove the node with the smallest distance from the heap
+     * @return the index of the node
+     */
+    private int pop() {
+        int node = heap[0];
+        heapSize--;
+        heap[0] = heap[heapSize];
+        heapPosition[heap[0]] = 0;
+        siftDown(0);
+        //a settled node is never added again because its distance cannot decrease anymore
+        heapPosition[node] = Integer.MIN_VALUE;
+        return node;
+    }
+
+    /**
+     * method to move a heap entry up until its parent is not larger
+     * @param position the position of the entry in the heap
+     */
+    private void siftUp(int position) {
+        int node = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (distance[heap[parent]] <= distance[node]) {
+                break;
+            }
+            heap[position] = heap[parent];
+            heapPosition[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = node;
+        heapPosition[node] = position;
+    }
+
+    /**
+     * method to move a heap entry down until no child is smaller
+     * @param position the position of the entry in the heap
+     */
+    private void siftDown(int position) {
+        int node = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && distance[heap[child + 1]] < distance[heap[child]]) {
+                child++;
+            }
+            if (distance[heap[child]] >= distance[node]) {
+                break;
+            }
+            heap[position] = heap[child];
+            heapPosition[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = node;
+        heapPosition[node] = position;
+    }
+
+    /**
+     * method to remove a slot from the usage order
+     * @param slot the slot to remove
+     */
+    private void unlink(int slot) {
+        int older = olderSlot[slot];
+        int newer = newerSlot[slot];
+        if (older == NONE) {
+            oldestSlot = newer;
+        } else {
+            newerSlot[older] = newer;
+        }
+        if (newer == NONE) {
+            newestSlot = older;
+        } else {
+            olderSlot[newer] = older;
+        }
+    }
+
+    /**
+     * method to add a slot as the most recently used one to the usage order
+     * @param slot the slot to add
+     */
+    private void linkAsNewest(int slot) {
+        olderSlot[slot] = newestSlot;
+        newerSlot[slot] = NONE;
+        if (newestSlot == NONE) {
+            oldestSlot = slot;
+        } else {
+            newerSlot[newestSlot] = slot;
+        }
+        newestSlot = slot;
+    }
+}
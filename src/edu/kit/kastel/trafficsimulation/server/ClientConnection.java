@@ -0,0 +1,199 @@
+package edu.kit.kastel.trafficsimulation.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import edu.kit.kastel.trafficsimulation.TrafficSimulation;
+import edu.kit.kastel.trafficsimulation.replication.Replication;
+
+/**
+ * this class handles the commands of one client of a {@link SimulationServer}.
+ * A connection starts in text mode: every line is a command and the output is written back as text.
+ * Clients may send many commands without waiting for their output, the output is only flushed
+ * when no further input is waiting, so pipelined commands are answered in one write.
+ * The command {@value #BINARY_MODE_COMMAND} switches the connection to binary frames:
+ * a request is a 4 byte big-endian length followed by that many bytes of UTF-8 command lines,
+ * the response is a 4 byte big-endian length followed by the output of all commands of the request.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+final class ClientConnection implements Runnable {
+
+    /** the command that switches the connection to binary frames */
+    static final String BINARY_MODE_COMMAND = "mode binary";
+
+    /** the largest request frame in bytes that is accepted */
+    static final int MAX_FRAME_LENGTH = 1 << 20;
+
+    /** the socket of the client */
+    private final Socket socket;
+
+    /** the lock that serializes modifying commands */
+    private final ReadWriteLock commandLock;
+
+    /** the role of the server in a pair of replicated processes, null if it is not replicated */
+    private final Replication replication;
+
+    /** the stream the output and the error messages of the session are written to */
+    private final PrintStream stream;
+
+    /** the buffer the output of the commands is collected in */
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    /** the session that executes the commands of this client */
+    private final TrafficSimulation session;
+
+    /**
+     * constructor for a new connection
+     * @param socket the socket of the client
+     * @param simulation the simulation the session of the client is opened on
+     * @param commandLock the lock that serializes modifying commands
+     * @param replication the role of the server in a pair of replicated processes, null if it is not replicated
+     */
+    ClientConnection(Socket socket, TrafficSimulation simulation, ReadWriteLock commandLock,
+            Replication replication) {
+        this.socket = socket;
+        this.commandLock = commandLock;
+        this.replication = replication;
+        this.stream = new PrintStream(output, false, StandardCharsets.UTF_8);
+        this.session = simulation.openSession(stream, stream);
+    }
+
+    /**
+     * method to handle the commands of the client until it disconnects or quits
+     */
+    @Override
+    public void run() {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            if (runTextMode(in, out)) {
+                runBinaryMode(in, out);
+            }
+        } catch (IOException exception) {
+            //the client disconnected, nothing is left to clean up
+        }
+    }
+
+    /**
+     * method to handle text commands
+     * @param in the input of the client
+     * @param out the output to the client
+     * @return true if the client switched to binary mode, false if it disconnected or quit
+     * @throws IOException if reading or writing fails
+     */
+    private boolean runTextMode(DataInputStream in, DataOutputStream out) throws IOException {
+        while (true) {
+            String line = readLine(in);
+            if (line == null) {
+                return false;
+            }
+            if (line.equals(BINARY_MODE_COMMAND)) {
+                out.flush();
+                return true;
+            }
+            boolean running = execute(line);
+            output.writeTo(out);
+            output.reset();
+            if (!running) {
+                out.flush();
+                return false;
+            }
+            if (in.available() == 0) {
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * method to handle binary frames
+     * @param in the input of the client
+     * @param out the output to the client
+     * @throws IOException if reading or writing fails or a frame is too large
+     */
+    private void runBinaryMode(DataInputStream in, DataOutputStream out) throws IOException {
+        while (true) {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException exception) {
+                return;
+            }
+            if (length < 0 || length > MAX_FRAME_LENGTH) {
+                throw new IOException("invalid frame length " + length);
+            }
+            byte[] request = new byte[length];
+            in.readFully(request);
+
+            boolean running = true;
+            for (String line : new String(request, StandardCharsets.UTF_8).split("\r?\n")) {
+                if (!line.isEmpty() && running) {
+                    running = execute(line);
+                }
+            }
+            out.writeInt(output.size());
+            output.writeTo(out);
+            output.reset();
+            if (!running) {
+                out.flush();
+                return;
+            }
+            if (in.available() == 0) {
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * method to execute a command while holding the matching lock.
+     * Commands that change the simulation are passed to the replication if the server is replicated.
+     * @param line the command line
+     * @return false if the command was quit
+     */
+    private boolean execute(String line) {
+        Lock lock = TrafficSimulation.isReadOnlyCommand(line) ? commandLock.readLock() : commandLock.writeLock();
+        lock.lock();
+        try {
+            if (replication != null && TrafficSimulation.changesSimulation(line)) {
+                return replication.execute(session, line, stream);
+            }
+            return session.executeCommand(line);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * method to read a line of UTF-8 text
+     * @param in the input to read from
+     * @return the line without its line break or null if the input ended before any character
+     * @throws IOException if reading fails
+     */
+    private static String readLine(DataInputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int next = in.read();
+        if (next < 0) {
+            return null;
+        }
+        while (next >= 0 && next != '\n') {
+            if (line.size() == MAX_FRAME_LENGTH) {
+                throw new IOException("line too long");
+            }
+            line.write(next);
+            next = in.read();
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+}
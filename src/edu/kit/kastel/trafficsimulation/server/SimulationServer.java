@@ -0,0 +1,125 @@
+package edu.kit.kastel.trafficsimulation.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import edu.kit.kastel.trafficsimulation.TrafficSimulation;
+import edu.kit.kastel.trafficsimulation.replication.Replication;
+
+/**
+ * this class is a server for the command protocol of the traffic simulation.
+ * It listens on the loopback interface and handles every client on its own thread,
+ * a virtual thread if the runtime supports them. All clients share one simulation.
+ * Commands that modify the simulation are executed one after another,
+ * commands that only read it are executed at the same time.
+ * A server that is part of a pair of replicated processes passes the commands that change the simulation
+ * to its {@link Replication} instead of executing them itself.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public final class SimulationServer implements Closeable {
+
+    /** the socket the server accepts connections on */
+    private final ServerSocket serverSocket;
+
+    /** the simulation whose sessions execute the commands of the clients */
+    private final TrafficSimulation simulation;
+
+    /** the lock that serializes modifying commands and lets reading commands run at the same time */
+    private final ReadWriteLock commandLock = new ReentrantReadWriteLock();
+
+    /** the executor that runs one task per connection */
+    private final ExecutorService connectionExecutor = newConnectionExecutor();
+
+    /** the role of the server in a pair of replicated processes, null if it is not replicated */
+    private volatile Replication replication;
+
+    /**
+     * constructor for a new server
+     * @param simulation the simulation the commands of the clients are executed on
+     * @param port the port to listen on, 0 for any free port
+     * @throws IOException if the port can not be bound
+     */
+    public SimulationServer(TrafficSimulation simulation, int port) throws IOException {
+        this.simulation = simulation;
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * method to get the port the server listens on
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * method to get the lock that serializes the commands that change the simulation
+     * @return the lock, its write lock is held while such a command is executed
+     */
+    public ReadWriteLock getCommandLock() {
+        return commandLock;
+    }
+
+    /**
+     * method to set the role of the server in a pair of replicated processes, for the connections accepted afterwards
+     * @param replication the role or null to execute all commands directly
+     */
+    public void setReplication(Replication replication) {
+        this.replication = replication;
+    }
+
+    /**
+     * method to accept connections until the server is closed
+     * @throws IOException if accepting a connection fails for another reason than closing the server
+     */
+    public void serve() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException exception) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw exception;
+            }
+            socket.setTcpNoDelay(true);
+            connectionExecutor.execute(new ClientConnection(socket, simulation, commandLock, replication));
+        }
+    }
+
+    /**
+     * method to stop accepting connections. Open connections are finished by their clients.
+     * @throws IOException if the server socket can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        connectionExecutor.shutdown();
+        serverSocket.close();
+    }
+
+    /**
+     * method to create an executor that starts a virtual thread per task if the runtime has them
+     * and a cached pool of platform threads otherwise
+     * @return the executor
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException exception) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package edu.kit.kastel.trafficsimulation.speed;
+
+/**
+ * this class computes the new speeds of cars one car at a time.
+ * It is used if the vector API is not available.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public final class ScalarSpeedUpdate implements SpeedUpdate {
+
+    @Override
+    public void computeSpeeds(int[] speeds, int[] accelerations, int[] wantedSpeeds, int count, int maxSpeed,
+            int[] newSpeeds) {
+        for (int i = 0; i < count; i++) {
+            newSpeeds[i] = Math.min(speeds[i] + accelerations[i], Math.min(wantedSpeeds[i], maxSpeed));
+        }
+    }
+}
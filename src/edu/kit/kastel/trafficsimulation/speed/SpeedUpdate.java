@@ -0,0 +1,44 @@
+package edu.kit.kastel.trafficsimulation.speed;
+
+import edu.kit.kastel.trafficsimulation.storage.IntBlock;
+
+/**
+ * this interface describes the speed phase of a street update.
+ * It computes {@code min(speed + acceleration, min(wantedSpeed, maxSpeed))} for every car of a street.
+ * The arrays are at least {@code count} rounded up to a multiple of {@link SpeedUpdates#getColumnAlignment()} long,
+ * an implementation may compute and write the values after {@code count} up to that length.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public interface SpeedUpdate {
+
+    /**
+     * method to compute the new speed of the first {@code count} cars
+     * @param speeds the current speeds of the cars
+     * @param accelerations the accelerations of the cars
+     * @param wantedSpeeds the speeds the cars want to drive at
+     * @param count the number of cars
+     * @param maxSpeed the speed limit of the street
+     * @param newSpeeds the array the new speeds are written to
+     */
+    void computeSpeeds(int[] speeds, int[] accelerations, int[] wantedSpeeds, int count, int maxSpeed,
+            int[] newSpeeds);
+
+    /**
+     * method to compute the new speed of the first {@code count} cars whose columns are stored in blocks,
+     * used for the columns of the off-heap storage. It reads and writes the blocks directly, one car at a time.
+     * @param speeds the current speeds of the cars
+     * @param accelerations the accelerations of the cars
+     * @param wantedSpeeds the speeds the cars want to drive at
+     * @param count the number of cars
+     * @param maxSpeed the speed limit of the street
+     * @param newSpeeds the block the new speeds are written to
+     */
+    default void computeSpeeds(IntBlock speeds, IntBlock accelerations, IntBlock wantedSpeeds, int count,
+            int maxSpeed, IntBlock newSpeeds) {
+        for (int i = 0; i < count; i++) {
+            newSpeeds.set(i, Math.min(speeds.get(i) + accelerations.get(i), Math.min(wantedSpeeds.get(i), maxSpeed)));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package edu.kit.kastel.trafficsimulation.speed;
+
+/**
+ * this class selects the implementation of the speed phase.
+ * The vector implementation is not part of the default build, it is compiled separately from the source root
+ * {@code src-incubator} (see the README). It is only loaded if its class is on the class path and the module
+ * {@code jdk.incubator.vector} is part of the running JVM (start it with {@code --add-modules jdk.incubator.vector}),
+ * otherwise the scalar one is used.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public final class SpeedUpdates {
+
+    /** the name of the module containing the vector API */
+    static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    /** the name of the class using the vector API, it is loaded by name so the default build does not need it */
+    static final String VECTOR_IMPLEMENTATION = "edu.kit.kastel.trafficsimulation.speed.VectorSpeedUpdate";
+
+    /**
+     * the number of values the columns of the vector implementation are padded to a multiple of,
+     * the number of int lanes of the widest vector it uses
+     */
+    static final int VECTOR_COLUMN_ALIGNMENT = 16;
+
+    /** the best implementation available in the running JVM */
+    private static final SpeedUpdate BEST = loadBest();
+
+    /**
+     * private constructor because this is a utility class
+     */
+    private SpeedUpdates() {
+    }
+
+    /**
+     * method to get the fastest available implementation of the speed phase
+     * @return the vector implementation if the vector API is available, the scalar one otherwise
+     */
+    public static SpeedUpdate best() {
+        return BEST;
+    }
+
+    /**
+     * method to check if the vector implementation is available
+     * @return true if the vector API can be used
+     */
+    public static boolean isVectorAvailable() {
+        return !(BEST instanceof ScalarSpeedUpdate);
+    }
+
+    /**
+     * method to get the number of values the car columns have to be padded to a multiple of.
+     * The vector implementation computes whole vectors past the last car instead of computing the rest one at a time,
+     * so its loop runs on every street and the optimizing compiler never sees the vector calls as rare.
+     * @return the alignment of the vector implementation if it is available, 1 otherwise
+     */
+    public static int getColumnAlignment() {
+        return isVectorAvailable() ? VECTOR_COLUMN_ALIGNMENT : 1;
+    }
+
+    /**
+     * method to load the vector implementation if its module and its class are present
+     * @return the vector implementation or the scalar one if it can not be loaded
+     */
+    private static SpeedUpdate loadBest() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return new ScalarSpeedUpdate();
+        }
+        try {
+            return (SpeedUpdate) Class.forName(VECTOR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarSpeedUpdate();
+        }
+    }
+}
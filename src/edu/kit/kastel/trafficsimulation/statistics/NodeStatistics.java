@@ -0,0 +1,97 @@
+package edu.kit.kastel.trafficsimulation.statistics;
+
+import edu.kit.kastel.trafficsimulation.memory.MemoryLayout;
+
+/**
+ * this class collects the traffic statistics of a node over the last N ticks.
+ * The streets ending in the node report every car that crossed it and every car that wanted to
+ * cross but was not allowed to, so every value is available in constant time.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public final class NodeStatistics {
+
+    /** the number of cars that crossed the node in each tick */
+    private final StatisticsWindow crossings;
+
+    /** the number of cars that wanted to cross the node but were blocked in each tick */
+    private final StatisticsWindow blockedCrossings;
+
+    /** the number of cars that crossed the node in the current tick */
+    private int crossingsThisTick = 0;
+
+    /** the number of cars that were blocked in the current tick */
+    private int blockedCrossingsThisTick = 0;
+
+    /** the memory new statistics of a node use: two windows that are still empty and two int fields */
+    public static final long EMPTY_FOOTPRINT_BYTES
+            = MemoryLayout.object(2 * MemoryLayout.REFERENCE_BYTES + 2 * Integer.BYTES)
+            + 2 * StatisticsWindow.EMPTY_FOOTPRINT_BYTES;
+
+    /**
+     * method to get the memory the statistics of the node currently use
+     * @return the number of bytes
+     */
+    public long getFootprintBytes() {
+        return MemoryLayout.object(2 * MemoryLayout.REFERENCE_BYTES + 2 * Integer.BYTES)
+                + crossings.getFootprintBytes() + blockedCrossings.getFootprintBytes();
+    }
+
+    /**
+     * constructor for new empty statistics
+     * @param windowSize the number of ticks the statistics cover
+     */
+    public NodeStatistics(int windowSize) {
+        crossings = new StatisticsWindow(windowSize);
+        blockedCrossings = new StatisticsWindow(windowSize);
+    }
+
+    /**
+     * method to count a car that crossed the node in the current tick
+     */
+    public void countCrossing() {
+        crossingsThisTick++;
+    }
+
+    /**
+     * method to count a car that wanted to cross the node in the current tick but was not allowed to
+     */
+    public void countBlockedCrossing() {
+        blockedCrossingsThisTick++;
+    }
+
+    /**
+     * method to finish the current tick
+     */
+    public void endTick() {
+        crossings.add(crossingsThisTick);
+        blockedCrossings.add(blockedCrossingsThisTick);
+        crossingsThisTick = 0;
+        blockedCrossingsThisTick = 0;
+    }
+
+    /**
+     * method to get the number of ticks the statistics currently cover
+     * @return the number of ticks
+     */
+    public int getTickCount() {
+        return crossings.getValueCount();
+    }
+
+    /**
+     * method to get the average number of cars crossing the node per tick
+     * @return the throughput in cars per tick
+     */
+    public double getThroughput() {
+        return crossings.getAverage();
+    }
+
+    /**
+     * method to get the average number of cars that were blocked at the node per tick
+     * @return the blocked crossings per tick
+     */
+    public double getAverageBlockedCrossings() {
+        return blockedCrossings.getAverage();
+    }
+}
@@ -0,0 +1,109 @@
+package edu.kit.kastel.trafficsimulation.statistics;
+
+import edu.kit.kastel.trafficsimulation.memory.MemoryLayout;
+
+/**
+ * this class stores the values of one metric for the last N ticks in a ring buffer.
+ * The sum of the stored values is kept up to date when a value is added,
+ * so the sum and the average over the window are available in constant time.
+ * The ring buffer is only allocated when the first value that is not 0 is added, because
+ * most streets and nodes of a large network never see traffic and their windows only contain zeros.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public final class StatisticsWindow {
+
+    /** the number of ticks the window covers */
+    private final int size;
+
+    /** the values of the last ticks, the oldest value is overwritten first, null while all values are 0 */
+    private long[] values;
+
+    /** the index the next value is written to */
+    private int nextIndex = 0;
+
+    /** the number of values that were added, at most the size of the window */
+    private int valueCount = 0;
+
+    /** the sum of all values in the window */
+    private long sum = 0;
+
+    /** the memory a window without its array uses: a reference field, three int fields and a long field */
+    public static final long EMPTY_FOOTPRINT_BYTES
+            = MemoryLayout.object(MemoryLayout.REFERENCE_BYTES + 3 * Integer.BYTES + Long.BYTES);
+
+    /**
+     * method to get the memory a window uses once its array is allocated
+     * @param size the number of ticks the window covers
+     * @return the number of bytes
+     */
+    public static long footprintBytes(int size) {
+        return EMPTY_FOOTPRINT_BYTES + MemoryLayout.longArray(size);
+    }
+
+    /**
+     * method to get the memory the window currently uses
+     * @return the number of bytes
+     */
+    public long getFootprintBytes() {
+        return values == null ? EMPTY_FOOTPRINT_BYTES : footprintBytes(size);
+    }
+
+    /**
+     * constructor for a new empty window
+     * @param size the number of ticks the window covers
+     */
+    public StatisticsWindow(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Error: the size of a statistics window has to be positive");
+        }
+        this.size = size;
+    }
+
+    /**
+     * method to add the value of the latest tick. If the window is full the oldest value is removed.
+     * @param value the value of the latest tick
+     */
+    public void add(long value) {
+        if (values == null && value != 0) {
+            //all values added so far were 0, which is exactly what a new array contains
+            values = new long[size];
+        }
+        if (values != null) {
+            sum += value - values[nextIndex];
+            values[nextIndex] = value;
+        }
+        nextIndex++;
+        if (nextIndex == size) {
+            nextIndex = 0;
+        }
+        if (valueCount < size) {
+            valueCount++;
+        }
+    }
+
+    /**
+     * method to get the sum of all values in the window
+     * @return the sum of the values
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * method to get the number of ticks that are currently in the window
+     * @return the number of values
+     */
+    public int getValueCount() {
+        return valueCount;
+    }
+
+    /**
+     * method to get the average value per tick in the window
+     * @return the average or 0 if no value was added yet
+     */
+    public double getAverage() {
+        return valueCount == 0 ? 0 : (double) sum / valueCount;
+    }
+}
@@ -0,0 +1,116 @@
+package edu.kit.kastel.trafficsimulation.statistics;
+
+import edu.kit.kastel.trafficsimulation.memory.MemoryLayout;
+
+/**
+ * this class collects the traffic statistics of a street over the last N ticks.
+ * The street reports the cars leaving it while it updates and its occupancy, speed sum and
+ * number of stopped cars at the end of every tick, so every value is available in constant time.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public final class StreetStatistics {
+
+    /** the number of cars on the street at the end of each tick */
+    private final StatisticsWindow occupancy;
+
+    /** the sum of the speeds of all cars on the street at the end of each tick */
+    private final StatisticsWindow speedSum;
+
+    /** the number of cars with speed 0 at the end of each tick */
+    private final StatisticsWindow queueLength;
+
+    /** the number of cars that left the street in each tick */
+    private final StatisticsWindow throughput;
+
+    /** the number of cars that left the street in the current tick */
+    private int exitsThisTick = 0;
+
+    /** the memory new statistics of a street use: four windows that are still empty and an int field */
+    public static final long EMPTY_FOOTPRINT_BYTES
+            = MemoryLayout.object(4 * MemoryLayout.REFERENCE_BYTES + Integer.BYTES)
+            + 4 * StatisticsWindow.EMPTY_FOOTPRINT_BYTES;
+
+    /**
+     * method to get the memory the statistics of the street currently use
+     * @return the number of bytes
+     */
+    public long getFootprintBytes() {
+        return MemoryLayout.object(4 * MemoryLayout.REFERENCE_BYTES + Integer.BYTES) + occupancy.getFootprintBytes()
+                + speedSum.getFootprintBytes() + queueLength.getFootprintBytes() + throughput.getFootprintBytes();
+    }
+
+    /**
+     * constructor for new empty statistics
+     * @param windowSize the number of ticks the statistics cover
+     */
+    public StreetStatistics(int windowSize) {
+        occupancy = new StatisticsWindow(windowSize);
+        speedSum = new StatisticsWindow(windowSize);
+        queueLength = new StatisticsWindow(windowSize);
+        throughput = new StatisticsWindow(windowSize);
+    }
+
+    /**
+     * method to count a car that left the street in the current tick
+     */
+    public void countExit() {
+        exitsThisTick++;
+    }
+
+    /**
+     * method to finish the current tick
+     * @param carCount the number of cars on the street
+     * @param carSpeedSum the sum of the speeds of all cars on the street
+     * @param stoppedCarCount the number of cars on the street with speed 0
+     */
+    public void endTick(int carCount, long carSpeedSum, int stoppedCarCount) {
+        occupancy.add(carCount);
+        speedSum.add(carSpeedSum);
+        queueLength.add(stoppedCarCount);
+        throughput.add(exitsThisTick);
+        exitsThisTick = 0;
+    }
+
+    /**
+     * method to get the number of ticks the statistics currently cover
+     * @return the number of ticks
+     */
+    public int getTickCount() {
+        return occupancy.getValueCount();
+    }
+
+    /**
+     * method to get the average number of cars on the street
+     * @return the average occupancy
+     */
+    public double getAverageOccupancy() {
+        return occupancy.getAverage();
+    }
+
+    /**
+     * method to get the average speed of the cars on the street
+     * @return the mean speed of all cars over all ticks of the window, 0 if there were no cars
+     */
+    public double getMeanSpeed() {
+        long carTicks = occupancy.getSum();
+        return carTicks == 0 ? 0 : (double) speedSum.getSum() / carTicks;
+    }
+
+    /**
+     * method to get the average number of stopped cars on the street
+     * @return the average queue length
+     */
+    public double getAverageQueueLength() {
+        return queueLength.getAverage();
+    }
+
+    /**
+     * method to get the average number of cars leaving the street per tick
+     * @return the throughput in cars per tick
+     */
+    public double getThroughput() {
+        return throughput.getAverage();
+    }
+}
@@ -0,0 +1,72 @@
+package edu.kit.kastel.trafficsimulation.storage;
+
+import edu.kit.kastel.trafficsimulation.memory.MemoryLayout;
+
+/**
+ * this class is a block of integers on the heap, backed by an int array.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+final class HeapIntBlock implements IntBlock {
+
+    /** the number of bytes a block object uses without its array: one reference */
+    static final long FOOTPRINT_BYTES = MemoryLayout.object(MemoryLayout.REFERENCE_BYTES);
+
+    /** the integers of the block */
+    private final int[] values;
+
+    /**
+     * constructor for a new block
+     * @param size the number of integers
+     */
+    HeapIntBlock(int size) {
+        this.values = new int[size];
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public int get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public void set(int index, int value) {
+        values[index] = value;
+    }
+
+    @Override
+    public void copy(int from, IntBlock target, int to, int count) {
+        int[] targetValues = target.array();
+        if (targetValues != null) {
+            System.arraycopy(values, from, targetValues, to, count);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            target.set(to + i, values[from + i]);
+        }
+    }
+
+    @Override
+    public int[] array() {
+        return values;
+    }
+
+    @Override
+    public long getFootprintBytes() {
+        return footprintBytes(values.length);
+    }
+
+    /**
+     * method to get the memory a block of a size uses on the heap
+     * @param size the number of integers
+     * @return the number of bytes
+     */
+    static long footprintBytes(int size) {
+        return FOOTPRINT_BYTES + MemoryLayout.intArray(size);
+    }
+}
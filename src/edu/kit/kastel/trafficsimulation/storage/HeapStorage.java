@@ -0,0 +1,28 @@
+package edu.kit.kastel.trafficsimulation.storage;
+
+/**
+ * this class stores blocks of integers in int arrays on the heap. It is the default storage.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+final class HeapStorage implements Storage {
+
+    /** the block all callers share if they allocate a block of size 0 */
+    private static final IntBlock EMPTY = new HeapIntBlock(0);
+
+    @Override
+    public IntBlock allocate(int size) {
+        return size == 0 ? EMPTY : new HeapIntBlock(size);
+    }
+
+    @Override
+    public long footprintBytes(int size) {
+        return HeapIntBlock.footprintBytes(size);
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return false;
+    }
+}
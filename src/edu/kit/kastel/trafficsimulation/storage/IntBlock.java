@@ -0,0 +1,54 @@
+package edu.kit.kastel.trafficsimulation.storage;
+
+/**
+ * this interface describes a fixed number of integers the cars of a graph are stored in, on or off the heap.
+ * The columns of the street queues and the rows of the car table are blocks, so the tick reads and writes them
+ * the same way whichever {@link Storage} holds them. Blocks are created by a storage and never change their size.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public interface IntBlock {
+
+    /**
+     * method to get the number of integers of the block
+     * @return the size of the block
+     */
+    int size();
+
+    /**
+     * method to read an integer
+     * @param index the index of the integer, smaller than {@link #size()}
+     * @return the integer
+     */
+    int get(int index);
+
+    /**
+     * method to write an integer
+     * @param index the index of the integer, smaller than {@link #size()}
+     * @param value the new value
+     */
+    void set(int index, int value);
+
+    /**
+     * method to copy integers into a block like {@link System#arraycopy(Object, int, Object, int, int)},
+     * the ranges may overlap if the target is this block. A target of another storage is written one at a time.
+     * @param from the index of the first integer to copy
+     * @param target the block to copy to
+     * @param to the index in the target the first integer is copied to
+     * @param count the number of integers to copy
+     */
+    void copy(int from, IntBlock target, int to, int count);
+
+    /**
+     * method to get the array of a block on the heap, so the speed phase can use the array kernels
+     * @return the array holding the integers or null if the block is not on the heap
+     */
+    int[] array();
+
+    /**
+     * method to get the memory the block uses
+     * @return the number of bytes, on or off the heap
+     */
+    long getFootprintBytes();
+}
@@ -0,0 +1,34 @@
+package edu.kit.kastel.trafficsimulation.storage;
+
+/**
+ * this interface describes where the state of the cars of a graph is stored.
+ * The heap storage keeps it in int arrays, the off-heap storage in native memory that the garbage collector
+ * never scans or copies, so a graph with tens of millions of cars does not need a heap of the same size.
+ * Use {@link Storages} to get an instance.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public interface Storage {
+
+    /**
+     * method to allocate a block of integers that are all 0.
+     * A block of size 0 is shared by all callers, so empty queues do not use memory of their own.
+     * @param size the number of integers
+     * @return the new block
+     */
+    IntBlock allocate(int size);
+
+    /**
+     * method to get the memory a block of this storage uses, see {@link IntBlock#getFootprintBytes()}
+     * @param size the number of integers of the block
+     * @return the number of bytes, on or off the heap
+     */
+    long footprintBytes(int size);
+
+    /**
+     * method to check if the blocks of this storage live outside of the heap
+     * @return true for the off-heap storage
+     */
+    boolean isOffHeap();
+}
@@ -0,0 +1,80 @@
+package edu.kit.kastel.trafficsimulation.storage;
+
+/**
+ * this class selects the storage of the cars. The off-heap storage is not part of the default build,
+ * it is compiled separately from the source root {@code src-incubator} (see the README). It is only available
+ * if its class is on the class path and the module {@code jdk.incubator.foreign} is part of the running JVM
+ * (start it with {@code --add-modules jdk.incubator.foreign}).
+ * It is only loaded when it is asked for, so a simulation on the heap only ever sees one kind of block.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public final class Storages {
+
+    /** the name of the module containing the foreign memory API */
+    static final String FOREIGN_MODULE = "jdk.incubator.foreign";
+
+    /** the name of the class using the foreign memory API, loaded by name so the default build does not need it */
+    static final String FOREIGN_IMPLEMENTATION = "edu.kit.kastel.trafficsimulation.storage.ForeignStorage";
+
+    /** the storage on the heap */
+    private static final Storage HEAP = new HeapStorage();
+
+    /**
+     * private constructor because this is a utility class
+     */
+    private Storages() {
+    }
+
+    /**
+     * method to get the storage on the heap
+     * @return the heap storage
+     */
+    public static Storage heap() {
+        return HEAP;
+    }
+
+    /**
+     * method to get the storage outside of the heap
+     * @return the off-heap storage or null if the foreign memory API is not available
+     */
+    public static Storage offHeap() {
+        return OffHeapHolder.OFF_HEAP;
+    }
+
+    /**
+     * method to check if the off-heap storage is available
+     * @return true if the foreign memory API can be used
+     */
+    public static boolean isOffHeapAvailable() {
+        return offHeap() != null;
+    }
+
+    /**
+     * method to load the off-heap storage if its module and its class are present
+     * @return the off-heap storage or null if it can not be loaded
+     */
+    private static Storage loadOffHeap() {
+        if (ModuleLayer.boot().findModule(FOREIGN_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            return (Storage) Class.forName(FOREIGN_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * this class holds the off-heap storage, so it is only loaded the first time it is asked for
+     *
+     * @author uxler
+     * @version 1.0
+     */
+    private static final class OffHeapHolder {
+
+        /** the off-heap storage or null if it is not available */
+        private static final Storage OFF_HEAP = loadOffHeap();
+    }
+}
@@ -0,0 +1,26 @@
+package edu.kit.kastel.trafficsimulation.stream;
+
+/**
+ * this enum lists what a subscription does when the simulation produces batches faster than its subscriber
+ * consumes them and the buffer of the subscription is full.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public enum BackpressurePolicy {
+
+    /** the simulation thread waits until the subscriber has consumed a batch, no change is lost */
+    BLOCK,
+
+    /**
+     * the oldest buffered batch is dropped. The subscriber can see gaps between the ticks of two batches
+     * and has to query the positions of the cars again if it needs a complete picture
+     */
+    DROP_TO_LATEST,
+
+    /**
+     * the new batch is merged into the newest buffered batch, which then covers several ticks
+     * and holds the latest state of every car that changed in any of them. No change is lost
+     */
+    COALESCE
+}
@@ -0,0 +1,52 @@
+package edu.kit.kastel.trafficsimulation.stream;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * this class keeps released batches so that the simulation thread can reuse them instead of allocating new ones.
+ * Batches are released on the threads of the subscribers, so the pool is thread safe.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+final class BatchPool {
+
+    /** the maximum number of batches that are kept, further released batches are left to the garbage collector */
+    static final int MAX_POOLED_BATCHES = 64;
+
+    /** the released batches */
+    private final ConcurrentLinkedQueue<ChangeBatch> batches = new ConcurrentLinkedQueue<>();
+
+    /** the number of batches in {@link #batches} */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * method to get an empty batch
+     * @param tick the tick the batch belongs to
+     * @param references the number of subscriptions that have to release the batch before it is reused
+     * @return a reused or new batch
+     */
+    ChangeBatch acquire(long tick, int references) {
+        ChangeBatch batch = batches.poll();
+        if (batch == null) {
+            batch = new ChangeBatch(this);
+        } else {
+            size.decrementAndGet();
+        }
+        batch.reset(tick, references);
+        return batch;
+    }
+
+    /**
+     * method to give a batch that is not referenced anymore back to the pool
+     * @param batch the batch
+     */
+    void recycle(ChangeBatch batch) {
+        if (size.incrementAndGet() > MAX_POOLED_BATCHES) {
+            size.decrementAndGet();
+            return;
+        }
+        batches.offer(batch);
+    }
+}
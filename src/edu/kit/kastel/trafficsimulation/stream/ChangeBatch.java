@@ -0,0 +1,298 @@
+package edu.kit.kastel.trafficsimulation.stream;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * this class holds the changes of one or more ticks: every car whose street, position or speed changed with its
+ * new state and every crossing whose green phase switched to another input street.
+ * Batches are pooled. A subscriber calls {@link #release()} when it does not need a batch anymore,
+ * a batch that is never released is simply left to the garbage collector.
+ * A batch must not be read after it was released.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public final class ChangeBatch {
+
+    /** the street id of a car that left the graph */
+    public static final int LEFT_GRAPH = -1;
+
+    /** the initial number of cars and crossings a batch can hold */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** the pool the batch returns to when it is released */
+    private final BatchPool pool;
+
+    /** the number of subscriptions that still have to release the batch */
+    private final AtomicInteger references = new AtomicInteger();
+
+    /** the first tick the batch covers */
+    private long firstTick;
+
+    /** the last tick the batch covers */
+    private long lastTick;
+
+    /** the number of changed cars */
+    private int carCount;
+
+    /** the ids of the changed cars */
+    private int[] carIds = new int[INITIAL_CAPACITY];
+
+    /** the streets the changed cars are on, {@link #LEFT_GRAPH} for cars that left */
+    private int[] streetIds = new int[INITIAL_CAPACITY];
+
+    /** the positions of the changed cars on their streets */
+    private int[] positions = new int[INITIAL_CAPACITY];
+
+    /** the speeds of the changed cars */
+    private int[] speeds = new int[INITIAL_CAPACITY];
+
+    /** the number of changed crossings */
+    private int lightCount;
+
+    /** the ids of the crossings whose green phase changed */
+    private int[] nodeIds = new int[INITIAL_CAPACITY];
+
+    /** the index of the input street that has the green phase now, for every changed crossing */
+    private int[] greenInputIndices = new int[INITIAL_CAPACITY];
+
+    /** the index of every car and crossing in the arrays, only built when batches are merged */
+    private Map<Long, Integer> mergeIndex;
+
+    /**
+     * constructor for a new empty batch
+     * @param pool the pool the batch returns to when it is released
+     */
+    ChangeBatch(BatchPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * method to get the first tick the batch covers
+     * @return the first tick, it is smaller than the last tick if ticks were coalesced
+     */
+    public long getFirstTick() {
+        return firstTick;
+    }
+
+    /**
+     * method to get the last tick the batch covers, the state of the changed cars is the state after this tick
+     * @return the last tick
+     */
+    public long getLastTick() {
+        return lastTick;
+    }
+
+    /**
+     * method to get the number of changed cars
+     * @return the number of changed cars
+     */
+    public int getCarCount() {
+        return carCount;
+    }
+
+    /**
+     * method to get the id of a changed car
+     * @param index the index of the change, smaller than {@link #getCarCount()}
+     * @return the id of the car
+     */
+    public int getCarId(int index) {
+        return carIds[index];
+    }
+
+    /**
+     * method to get the street a changed car is on
+     * @param index the index of the change, smaller than {@link #getCarCount()}
+     * @return the id of the street or {@link #LEFT_GRAPH} if the car left the graph
+     */
+    public int getStreetId(int index) {
+        return streetIds[index];
+    }
+
+    /**
+     * method to get the position of a changed car on its street
+     * @param index the index of the change, smaller than {@link #getCarCount()}
+     * @return the position of the car
+     */
+    public int getPosition(int index) {
+        return positions[index];
+    }
+
+    /**
+     * method to get the speed of a changed car
+     * @param index the index of the change, smaller than {@link #getCarCount()}
+     * @return the speed of the car
+     */
+    public int getSpeed(int index) {
+        return speeds[index];
+    }
+
+    /**
+     * method to get the number of crossings whose green phase changed
+     * @return the number of changed crossings
+     */
+    public int getLightChangeCount() {
+        return lightCount;
+    }
+
+    /**
+     * method to get the id of a crossing whose green phase changed
+     * @param index the index of the change, smaller than {@link #getLightChangeCount()}
+     * @return the id of the crossing
+     */
+    public int getNodeId(int index) {
+        return nodeIds[index];
+    }
+
+    /**
+     * method to get the input street that has the green phase now
+     * @param index the index of the change, smaller than {@link #getLightChangeCount()}
+     * @return the index of the input street in the order the input streets were added
+     */
+    public int getGreenInputIndex(int index) {
+        return greenInputIndices[index];
+    }
+
+    /**
+     * method to give the batch back. It is reused when every subscription it was delivered to released it.
+     */
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            pool.recycle(this);
+        }
+    }
+
+    /**
+     * method to check if other subscriptions still reference the batch
+     * @return true if the batch must not be changed
+     */
+    boolean isShared() {
+        return references.get() > 1;
+    }
+
+    /**
+     * method to empty the batch before it is filled again
+     * @param tick the tick the batch belongs to
+     * @param referenceCount the number of subscriptions that have to release the batch
+     */
+    void reset(long tick, int referenceCount) {
+        firstTick = tick;
+        lastTick = tick;
+        carCount = 0;
+        lightCount = 0;
+        mergeIndex = null;
+        references.set(referenceCount);
+    }
+
+    /**
+     * method to add a changed car
+     * @param carId the id of the car
+     * @param streetId the street the car is on or {@link #LEFT_GRAPH}
+     * @param position the position of the car on the street
+     * @param speed the speed of the car
+     */
+    void addCar(int carId, int streetId, int position, int speed) {
+        if (carCount == carIds.length) {
+            int capacity = carCount * 2;
+            carIds = Arrays.copyOf(carIds, capacity);
+            streetIds = Arrays.copyOf(streetIds, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            speeds = Arrays.copyOf(speeds, capacity);
+        }
+        carIds[carCount] = carId;
+        streetIds[carCount] = streetId;
+        positions[carCount] = position;
+        speeds[carCount] = speed;
+        carCount++;
+    }
+
+    /**
+     * method to add a crossing whose green phase changed
+     * @param nodeId the id of the crossing
+     * @param greenInputIndex the index of the input street that has the green phase now
+     */
+    void addLight(int nodeId, int greenInputIndex) {
+        if (lightCount == nodeIds.length) {
+            nodeIds = Arrays.copyOf(nodeIds, lightCount * 2);
+            greenInputIndices = Arrays.copyOf(greenInputIndices, lightCount * 2);
+        }
+        nodeIds[lightCount] = nodeId;
+        greenInputIndices[lightCount] = greenInputIndex;
+        lightCount++;
+    }
+
+    /**
+     * method to replace the content of this batch with a copy of another batch
+     * @param other the batch to copy
+     */
+    void copyFrom(ChangeBatch other) {
+        carCount = 0;
+        lightCount = 0;
+        mergeIndex = null;
+        firstTick = other.firstTick;
+        lastTick = other.lastTick;
+        for (int i = 0; i < other.carCount; i++) {
+            addCar(other.carIds[i], other.streetIds[i], other.positions[i], other.speeds[i]);
+        }
+        for (int i = 0; i < other.lightCount; i++) {
+            addLight(other.nodeIds[i], other.greenInputIndices[i]);
+        }
+    }
+
+    /**
+     * method to merge the changes of a newer batch into this batch.
+     * Cars and crossings that changed in both keep the state of the newer batch.
+     * @param newer the batch of the following ticks
+     */
+    void mergeFrom(ChangeBatch newer) {
+        if (mergeIndex == null) {
+            mergeIndex = new HashMap<>();
+            for (int i = 0; i < carCount; i++) {
+                mergeIndex.put(carKey(carIds[i]), i);
+            }
+            for (int i = 0; i < lightCount; i++) {
+                mergeIndex.put(lightKey(nodeIds[i]), i);
+            }
+        }
+        lastTick = newer.lastTick;
+        for (int i = 0; i < newer.carCount; i++) {
+            Integer index = mergeIndex.putIfAbsent(carKey(newer.carIds[i]), carCount);
+            if (index == null) {
+                addCar(newer.carIds[i], newer.streetIds[i], newer.positions[i], newer.speeds[i]);
+            } else {
+                streetIds[index] = newer.streetIds[i];
+                positions[index] = newer.positions[i];
+                speeds[index] = newer.speeds[i];
+            }
+        }
+        for (int i = 0; i < newer.lightCount; i++) {
+            Integer index = mergeIndex.putIfAbsent(lightKey(newer.nodeIds[i]), lightCount);
+            if (index == null) {
+                addLight(newer.nodeIds[i], newer.greenInputIndices[i]);
+            } else {
+                greenInputIndices[index] = newer.greenInputIndices[i];
+            }
+        }
+    }
+
+    /**
+     * method to get the key of a car in the merge index
+     * @param carId the id of the car
+     * @return the key
+     */
+    private static long carKey(int carId) {
+        return carId;
+    }
+
+    /**
+     * method to get the key of a crossing in the merge index, it never collides with the key of a car
+     * @param nodeId the id of the crossing
+     * @return the key
+     */
+    private static long lightKey(int nodeId) {
+        return (1L << 32) | nodeId;
+    }
+}
@@ -0,0 +1,350 @@
+package edu.kit.kastel.trafficsimulation.stream;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+
+import edu.kit.kastel.trafficsimulation.Car;
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+import edu.kit.kastel.trafficsimulation.StreetNodes.StreetNode;
+
+/**
+ * this class publishes the changes of a graph once per tick.
+ * After every tick the cars and crossings of the graph are compared with a snapshot of the previous tick,
+ * and a batch with the cars whose street, position or speed changed and the crossings whose green phase
+ * switched is offered to every subscription. Changes made between two ticks, like injected cars or
+ * restored states, are part of the batch of the following tick. The first batch of every subscriber
+ * holds the complete state of the graph.
+ * The batch of a tick is shared by all subscriptions and reused after all of them released it.
+ * While subscriptions exist the graph is simulated tick by tick, because streets advanced by
+ * the lookahead would be seen ahead of the tick of the batch.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public class ChangePublisher implements Flow.Publisher<ChangeBatch>, AutoCloseable {
+
+    /** the number of batches a subscription buffers if no capacity is given */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /** the marker for a slot of the snapshot without a car */
+    private static final int NO_CAR = -1;
+
+    /** the subscriptions of a publisher without subscribers */
+    private static final ChangeSubscription[] NO_SUBSCRIPTIONS = new ChangeSubscription[0];
+
+    /** the graph whose changes are published */
+    private final SimulationGraph graph;
+
+    /** the executor the batches are delivered on */
+    private final Executor executor;
+
+    /** the pool of the batches */
+    private final BatchPool pool = new BatchPool();
+
+    /**
+     * the current subscriptions. The array is replaced on every change and never modified,
+     * so the simulation thread reads the same subscriptions for the whole tick
+     */
+    private volatile ChangeSubscription[] subscriptions = NO_SUBSCRIPTIONS;
+
+    /** true if the snapshot is the state of the graph after the previous tick */
+    private boolean tracking = false;
+
+    /** true if the publisher was closed */
+    private volatile boolean closed = false;
+
+    /** the id of the car in every slot of the car table at the previous tick, {@link #NO_CAR} if it was empty */
+    private int[] slotCarIds = new int[0];
+
+    /** the street of the car in every slot at the previous tick */
+    private int[] slotStreetIds = new int[0];
+
+    /** the position of the car in every slot at the previous tick */
+    private int[] slotPositions = new int[0];
+
+    /** the speed of the car in every slot at the previous tick */
+    private int[] slotSpeeds = new int[0];
+
+    /** the ids of the nodes at the previous tick */
+    private int[] nodeIds = new int[0];
+
+    /** the input street with the green phase of every node at the previous tick */
+    private int[] greenInputIndices = new int[0];
+
+    /** the ids of cars that were not found in their slot anymore and may have left the graph */
+    private int[] missingCarIds = new int[16];
+
+    /**
+     * constructor for a new publisher that delivers on the common fork join pool.
+     * The publisher has to be attached with {@link SimulationGraph#setChangePublisher(ChangePublisher)}.
+     * @param graph the graph whose changes are published
+     */
+    public ChangePublisher(SimulationGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * constructor for a new publisher.
+     * The publisher has to be attached with {@link SimulationGraph#setChangePublisher(ChangePublisher)}.
+     * @param graph the graph whose changes are published
+     * @param executor the executor the batches are delivered on
+     */
+    public ChangePublisher(SimulationGraph graph, Executor executor) {
+        this.graph = graph;
+        this.executor = executor;
+    }
+
+    /**
+     * method to subscribe with the {@link BackpressurePolicy#COALESCE} policy and the default capacity.
+     * A slow subscriber then receives merged batches and never stalls the simulation thread,
+     * {@link BackpressurePolicy#BLOCK} has to be chosen explicitly.
+     * @param subscriber the subscriber
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ChangeBatch> subscriber) {
+        subscribe(subscriber, BackpressurePolicy.COALESCE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * method to subscribe with a backpressure policy
+     * @param subscriber the subscriber
+     * @param policy what happens when the subscriber is slower than the simulation
+     * @param capacity the maximum number of batches buffered for the subscriber, at least 1
+     */
+    public void subscribe(Flow.Subscriber<? super ChangeBatch> subscriber, BackpressurePolicy policy, int capacity) {
+        ChangeSubscription subscription
+                = new ChangeSubscription(this, subscriber, policy, Math.max(1, capacity), executor, pool);
+        subscriber.onSubscribe(subscription);
+        synchronized (this) {
+            if (!closed) {
+                ChangeSubscription[] added = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+                added[added.length - 1] = subscription;
+                subscriptions = added;
+                return;
+            }
+        }
+        subscription.complete();
+    }
+
+    /**
+     * method to check if any subscriber is listening
+     * @return true if there are subscriptions
+     */
+    public boolean hasSubscribers() {
+        return subscriptions.length > 0;
+    }
+
+    /**
+     * method to end all subscriptions. The buffered batches are still delivered before the subscribers complete.
+     */
+    @Override
+    public void close() {
+        ChangeSubscription[] closedSubscriptions;
+        synchronized (this) {
+            closed = true;
+            closedSubscriptions = subscriptions;
+            subscriptions = NO_SUBSCRIPTIONS;
+        }
+        for (ChangeSubscription subscription : closedSubscriptions) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * method to remove a cancelled subscription
+     * @param subscription the subscription
+     */
+    synchronized void remove(ChangeSubscription subscription) {
+        ChangeSubscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                ChangeSubscription[] removed = Arrays.copyOf(current, current.length - 1);
+                System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+                subscriptions = removed;
+                return;
+            }
+        }
+    }
+
+    /**
+     * method that has to be called on the simulation thread after every tick of the graph.
+     * It compares the graph with the snapshot and offers the changes to every subscription.
+     * The batches are counted and offered for the same subscriptions, a subscriber that subscribes
+     * during the tick gets its first batch after the next tick.
+     */
+    public void afterTick() {
+        ChangeSubscription[] current = subscriptions;
+        if (current.length == 0) {
+            tracking = false;
+            return;
+        }
+        long tick = graph.getCurrentTick();
+
+        int deltaCount = 0;
+        int fullCount = 0;
+        for (ChangeSubscription subscription : current) {
+            if (subscription.needsFullState() || !tracking) {
+                fullCount++;
+            } else {
+                deltaCount++;
+            }
+        }
+
+        ChangeBatch delta = null;
+        if (deltaCount > 0) {
+            delta = pool.acquire(tick, deltaCount);
+            collectCarChanges(delta);
+            collectLightChanges(delta);
+        }
+        ChangeBatch full = null;
+        if (fullCount > 0) {
+            full = pool.acquire(tick, fullCount);
+            collectFullState(full);
+        }
+        tracking = true;
+
+        for (ChangeSubscription subscription : current) {
+            if (full != null && (subscription.needsFullState() || delta == null)) {
+                subscription.offer(full, true);
+            } else if (delta != null) {
+                subscription.offer(delta, false);
+            }
+        }
+    }
+
+    /**
+     * method to compare every car with the snapshot, add the changed cars to a batch and update the snapshot
+     * @param batch the batch
+     */
+    private void collectCarChanges(ChangeBatch batch) {
+        int slotLimit = graph.getCarSlotLimit();
+        int snapshotLimit = slotCarIds.length;
+        ensureSnapshotCapacity(slotLimit);
+        int missingCount = 0;
+
+        for (int slot = 0; slot < Math.max(slotLimit, snapshotLimit); slot++) {
+            Car car = slot < slotLimit ? graph.getCarInSlot(slot) : null;
+            int previousId = slotCarIds[slot];
+            if (car == null) {
+                if (previousId != NO_CAR) {
+                    missingCount = addMissingCar(previousId, missingCount);
+                    slotCarIds[slot] = NO_CAR;
+                }
+                continue;
+            }
+
+            int id = car.getId();
+            int streetId = car.getOnStreetId();
+            int position = car.getPositionOnStreet();
+            int speed = car.getCurrentSpeed();
+            if (id != previousId) {
+                if (previousId != NO_CAR) {
+                    missingCount = addMissingCar(previousId, missingCount);
+                }
+            } else if (streetId == slotStreetIds[slot] && position == slotPositions[slot]
+                    && speed == slotSpeeds[slot]) {
+                continue;
+            }
+            batch.addCar(id, streetId, position, speed);
+            storeSlot(slot, id, streetId, position, speed);
+        }
+
+        //a car that moved to another slot was already added as changed, the others left the graph
+        for (int i = 0; i < missingCount; i++) {
+            if (!graph.containsCar(missingCarIds[i])) {
+                batch.addCar(missingCarIds[i], ChangeBatch.LEFT_GRAPH, 0, 0);
+            }
+        }
+    }
+
+    /**
+     * method to compare the green phase of every node with the snapshot, add the changed crossings to a batch
+     * and update the snapshot
+     * @param batch the batch
+     */
+    private void collectLightChanges(ChangeBatch batch) {
+        int index = 0;
+        boolean sameNodes = nodeIds.length == graph.getNodeCount();
+        if (!sameNodes) {
+            nodeIds = new int[graph.getNodeCount()];
+            greenInputIndices = new int[graph.getNodeCount()];
+        }
+        for (StreetNode node : graph.getNodes()) {
+            int green = node.getGreenInputIndex();
+            boolean changed = !sameNodes || nodeIds[index] != node.getID() || greenInputIndices[index] != green;
+            if (changed && green != StreetNode.NO_TRAFFIC_LIGHTS) {
+                batch.addLight(node.getID(), green);
+            }
+            nodeIds[index] = node.getID();
+            greenInputIndices[index] = green;
+            index++;
+        }
+    }
+
+    /**
+     * method to add every car and crossing to a batch and to take a new snapshot
+     * @param batch the batch
+     */
+    private void collectFullState(ChangeBatch batch) {
+        int slotLimit = graph.getCarSlotLimit();
+        slotCarIds = new int[0];
+        ensureSnapshotCapacity(slotLimit);
+        for (int slot = 0; slot < slotLimit; slot++) {
+            Car car = graph.getCarInSlot(slot);
+            if (car == null) {
+                continue;
+            }
+            batch.addCar(car.getId(), car.getOnStreetId(), car.getPositionOnStreet(), car.getCurrentSpeed());
+            storeSlot(slot, car.getId(), car.getOnStreetId(), car.getPositionOnStreet(), car.getCurrentSpeed());
+        }
+        nodeIds = new int[0];
+        collectLightChanges(batch);
+    }
+
+    /**
+     * method to make sure the snapshot has a given number of slots, new slots are empty
+     * @param slotCount the number of slots
+     */
+    private void ensureSnapshotCapacity(int slotCount) {
+        if (slotCarIds.length >= slotCount) {
+            return;
+        }
+        int oldLength = slotCarIds.length;
+        slotCarIds = Arrays.copyOf(slotCarIds, slotCount);
+        Arrays.fill(slotCarIds, oldLength, slotCount, NO_CAR);
+        slotStreetIds = Arrays.copyOf(slotStreetIds, slotCount);
+        slotPositions = Arrays.copyOf(slotPositions, slotCount);
+        slotSpeeds = Arrays.copyOf(slotSpeeds, slotCount);
+    }
+
+    /**
+     * method to store the state of a car in a slot of the snapshot
+     * @param slot the slot
+     * @param id the id of the car
+     * @param streetId the street of the car
+     * @param position the position of the car
+     * @param speed the speed of the car
+     */
+    private void storeSlot(int slot, int id, int streetId, int position, int speed) {
+        slotCarIds[slot] = id;
+        slotStreetIds[slot] = streetId;
+        slotPositions[slot] = position;
+        slotSpeeds[slot] = speed;
+    }
+
+    /**
+     * method to remember a car that was not found in its slot anymore
+     * @param id the id of the car
+     * @param missingCount the number of remembered cars
+     * @return the new number of remembered cars
+     */
+    private int addMissingCar(int id, int missingCount) {
+        if (missingCount == missingCarIds.length) {
+            missingCarIds = Arrays.copyOf(missingCarIds, missingCount * 2);
+        }
+        missingCarIds[missingCount] = id;
+        return missingCount + 1;
+    }
+}
@@ -0,0 +1,227 @@
+package edu.kit.kastel.trafficsimulation.stream;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * this class is the subscription of one subscriber of a {@link ChangePublisher}.
+ * The simulation thread offers batches to a bounded buffer, and the batches are delivered on the executor
+ * of the publisher as the subscriber requests them. What happens when the buffer is full is decided by the
+ * {@link BackpressurePolicy} of the subscription.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+final class ChangeSubscription implements Flow.Subscription {
+
+    /** the error when the subscriber requests a non-positive number of batches */
+    static final String INVALID_REQUEST_ERROR = "Error: the number of requested batches has to be positive";
+
+    /** the publisher the subscription belongs to */
+    private final ChangePublisher publisher;
+
+    /** the subscriber */
+    private final Flow.Subscriber<? super ChangeBatch> subscriber;
+
+    /** what happens when the buffer is full */
+    private final BackpressurePolicy policy;
+
+    /** the maximum number of buffered batches */
+    private final int capacity;
+
+    /** the executor the batches are delivered on */
+    private final Executor executor;
+
+    /** the pool private copies of shared batches are taken from when batches are coalesced */
+    private final BatchPool pool;
+
+    /** the batches that were offered but not delivered yet */
+    private final ArrayDeque<ChangeBatch> buffer = new ArrayDeque<>();
+
+    /** the number of batches the subscriber requested but did not get yet */
+    private long demand = 0;
+
+    /** true if a delivery task is running or scheduled */
+    private boolean draining = false;
+
+    /** true if the subscription was cancelled or the subscriber got an error */
+    private boolean cancelled = false;
+
+    /** true if the publisher was closed and no more batches are offered */
+    private boolean completed = false;
+
+    /** true if the subscriber still needs the complete state of the graph as its first batch */
+    private boolean needsFullState = true;
+
+    /**
+     * constructor for a new subscription
+     * @param publisher the publisher the subscription belongs to
+     * @param subscriber the subscriber
+     * @param policy what happens when the buffer is full
+     * @param capacity the maximum number of buffered batches, at least 1
+     * @param executor the executor the batches are delivered on
+     * @param pool the pool of the publisher
+     */
+    ChangeSubscription(ChangePublisher publisher, Flow.Subscriber<? super ChangeBatch> subscriber,
+            BackpressurePolicy policy, int capacity, Executor executor, BatchPool pool) {
+        this.publisher = publisher;
+        this.subscriber = subscriber;
+        this.policy = policy;
+        this.capacity = capacity;
+        this.executor = executor;
+        this.pool = pool;
+    }
+
+    /**
+     * method to check if the subscriber still needs the complete state of the graph as its first batch
+     * @return true if the next batch has to hold every car and crossing
+     */
+    boolean needsFullState() {
+        return needsFullState;
+    }
+
+    /**
+     * method to offer a batch to the subscription. It is called on the simulation thread.
+     * The subscription owns one reference of the batch and releases it if the batch is dropped or merged.
+     * @param batch the batch
+     * @param fullState true if the batch holds the complete state of the graph
+     */
+    synchronized void offer(ChangeBatch batch, boolean fullState) {
+        if (fullState) {
+            needsFullState = false;
+        }
+        if (policy == BackpressurePolicy.BLOCK) {
+            while (buffer.size() >= capacity && !cancelled) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (cancelled) {
+            batch.release();
+            return;
+        }
+
+        if (buffer.size() >= capacity) {
+            if (policy == BackpressurePolicy.COALESCE) {
+                ChangeBatch newest = buffer.peekLast();
+                if (newest.isShared()) {
+                    //other subscriptions still read the batch, so the merge goes into a private copy
+                    ChangeBatch copy = pool.acquire(newest.getFirstTick(), 1);
+                    copy.copyFrom(newest);
+                    buffer.pollLast();
+                    buffer.addLast(copy);
+                    newest.release();
+                    newest = copy;
+                }
+                newest.mergeFrom(batch);
+                batch.release();
+                return;
+            }
+            //drop to latest, or block was interrupted
+            buffer.pollFirst().release();
+        }
+        buffer.addLast(batch);
+        scheduleDrain();
+    }
+
+    /**
+     * method to tell the subscription that no more batches follow. The buffered batches are still delivered.
+     */
+    synchronized void complete() {
+        completed = true;
+        scheduleDrain();
+    }
+
+    /**
+     * method to request more batches
+     * @param n the number of batches
+     */
+    @Override
+    public void request(long n) {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            if (n > 0) {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                scheduleDrain();
+                return;
+            }
+        }
+        cancel();
+        subscriber.onError(new IllegalArgumentException(INVALID_REQUEST_ERROR));
+    }
+
+    /**
+     * method to cancel the subscription. Buffered batches are released and a blocked simulation thread continues.
+     */
+    @Override
+    public void cancel() {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            while (!buffer.isEmpty()) {
+                buffer.pollFirst().release();
+            }
+            notifyAll();
+        }
+        publisher.remove(this);
+    }
+
+    /**
+     * method to start a delivery task if there is something to deliver and none is running
+     */
+    private void scheduleDrain() {
+        if (draining || cancelled) {
+            return;
+        }
+        boolean deliverable = demand > 0 && !buffer.isEmpty();
+        if (deliverable || completed && buffer.isEmpty()) {
+            draining = true;
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * method to deliver buffered batches as long as the subscriber has demand, runs on the executor
+     */
+    private void drain() {
+        while (true) {
+            ChangeBatch batch;
+            synchronized (this) {
+                if (cancelled) {
+                    draining = false;
+                    return;
+                }
+                if (buffer.isEmpty() && completed) {
+                    cancelled = true;
+                    draining = false;
+                    break;
+                }
+                if (buffer.isEmpty() || demand == 0) {
+                    draining = false;
+                    return;
+                }
+                batch = buffer.pollFirst();
+                demand--;
+                //a simulation thread waiting for space can continue
+                notifyAll();
+            }
+            try {
+                subscriber.onNext(batch);
+            } catch (RuntimeException e) {
+                cancel();
+                subscriber.onError(e);
+                return;
+            }
+        }
+        subscriber.onComplete();
+    }
+}
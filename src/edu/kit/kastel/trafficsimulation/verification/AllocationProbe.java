@@ -0,0 +1,423 @@
+package edu.kit.kastel.trafficsimulation.verification;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedObject;
+import jdk.jfr.consumer.RecordingStream;
+
+import edu.kit.kastel.trafficsimulation.SimulationEngine;
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+import edu.kit.kastel.trafficsimulation.speed.SpeedUpdates;
+
+/**
+ * this class checks that a tick does not allocate memory once the simulation is warmed up.
+ * It loads the shipped scenarios and random generated ones with {@link SimulationEngine#load(String)},
+ * like the load command does, and measures the bytes the current thread allocated during the measured ticks
+ * with the thread allocation counter of the JVM. Every scenario is measured with the default settings of the engine
+ * and again with a keyframe history whose budget is reached during the warm up, so its keyframes are recycled.
+ * The vector speed phase and the flight recorder events of a simulation and of a tick allocate on every call
+ * that does not run the optimizing compiler's code, so a measurement without allocations can only come from that code.
+ * A measurement that allocated only counts if the optimizing compiler compiled these methods on their own,
+ * which every call that is not inlined uses, and neither that code nor code they were inlined into
+ * changed during the measurement.
+ * The probe follows the compilations with the flight recorder and marks every measurement with an event to check this,
+ * otherwise the measurement is repeated. A scenario is not measured and fails if that does not happen in time.
+ * The process exits with status 1 if any scenario allocated memory.
+ * 
+ * Usage: {@code AllocationProbe <folder with scenario folders> [synthetic scenario count]}
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public class AllocationProbe {
+
+    /**
+     * the number of ticks simulated one at a time before measuring, so buffers reach their size
+     * and the JIT compiles the code that runs once per call as well as the tick
+     */
+    static final int WARMUP_TICKS = 20000;
+
+    /**
+     * the minimum time in milliseconds the warm up then simulates in steps of {@link #MEASURED_TICKS},
+     * so the JIT compiles the tick again for the long steps that are measured
+     */
+    static final long WARMUP_MILLIS = 1000;
+
+    /** the number of ticks that are measured */
+    static final int MEASURED_TICKS = 2000;
+
+    /** the maximum time in milliseconds the measurements are repeated until the speed phase stays compiled */
+    static final long COMPILE_TIMEOUT_MILLIS = 60000;
+
+    /** the maximum time in milliseconds the flight recorder may take to deliver the event of a measurement */
+    static final long DELIVERY_TIMEOUT_MILLIS = 10000;
+
+    /** the flight recorder event of a finished compilation */
+    static final String COMPILATION_EVENT = "jdk.Compilation";
+
+    /** the flight recorder event of compiled code that was thrown away */
+    static final String DEOPTIMIZATION_EVENT = "jdk.Deoptimization";
+
+    /** the flight recorder event of a method that was inlined into a compilation or not */
+    static final String INLINING_EVENT = "jdk.CompilerInlining";
+
+    /** the name of the flight recorder event that marks a measurement */
+    static final String MEASUREMENT_EVENT = "edu.kit.kastel.trafficsimulation.AllocationMeasurement";
+
+    /** the action of a deoptimization that keeps the compiled code */
+    static final String KEEP_CODE_ACTION = "none";
+
+    /** the compile level of the optimizing compiler, only its code uses vector instructions without allocating */
+    static final int OPTIMIZED_LEVEL = 4;
+
+    /** the name and descriptor of the method of the vector speed phase */
+    static final String SPEED_METHOD = "computeSpeeds([I[I[III[I)V";
+
+    /** the name and descriptor of the method of the graph that creates the flight recorder event of a simulation */
+    static final String SIMULATE_METHOD = "simulate(J)V";
+
+    /** the name and descriptor of the method of the graph that creates the flight recorder event of a tick */
+    static final String TICK_METHOD = "tick(J)V";
+
+    /** the number of ticks between two keyframes of the measured history */
+    static final int HISTORY_SPACING = 10;
+
+    /** the memory budget of the measured history in bytes, it is reached long before the warm up ends */
+    static final long HISTORY_BUDGET = 64 * 1024;
+
+    /** the suffix of the name of a scenario that is measured with a history */
+    static final String HISTORY_SUFFIX = " with history";
+
+    /** the number of synthetic scenarios if none is given */
+    static final int DEFAULT_SYNTHETIC_SCENARIOS = 20;
+
+    /** the number of nodes of a synthetic scenario */
+    static final int SYNTHETIC_NODES = 200;
+
+    /** the maximum street length of a synthetic scenario */
+    static final int SYNTHETIC_MAX_LENGTH = 1000;
+
+    /** the number of cars of a synthetic scenario */
+    static final int SYNTHETIC_CARS = 5000;
+
+    /** the output for every measured scenario */
+    static final String RESULT_MESSAGE = "%s: %s bytes allocated in %s ticks (%s bytes per tick)";
+
+    /** the output for a scenario that was not measured because the methods were not compiled */
+    static final String NOT_COMPILED_MESSAGE
+            = "%s: not measured, %s did not stay compiled by the optimizing compiler for a measurement";
+
+    /** the usage message */
+    static final String USAGE_MESSAGE = "Usage: AllocationProbe <folder with scenario folders> [synthetic count]";
+
+    /** the thread bean used to read the allocation counter */
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    /** the methods that have to be compiled as class name, a dot, the method name and the descriptor */
+    private final Set<String> compiledMethods = new HashSet<>();
+
+    /** the stream of compilations and deoptimizations, null if the flight recorder is not available */
+    private final RecordingStream compilations;
+
+    /** the running compilations that inlined one of the methods, only used by the thread of the stream */
+    private final Set<Integer> inliningCompilations = new HashSet<>();
+
+    /** the methods compiled on their own by the optimizing compiler by compile id, only used by the stream */
+    private final Map<Integer, String> methodCompilations = new HashMap<>();
+
+    /** the optimizing compiler's code one of the methods was inlined into, only used by the thread of the stream */
+    private final Set<Integer> inlinedCompilations = new HashSet<>();
+
+    /** the time the code containing one of the methods last changed, only used by the thread of the stream */
+    private Instant lastChange = Instant.MIN;
+
+    /** for every delivered measurement true if the methods were compiled on their own for all of it */
+    private final BlockingQueue<Boolean> measurements = new LinkedBlockingQueue<>();
+
+    /**
+     * constructor for a new probe. It starts following the compilations of the methods that only allocate
+     * in code of the lower tiers.
+     */
+    public AllocationProbe() {
+        threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        compiledMethods.add(SimulationGraph.class.getName() + "." + SIMULATE_METHOD);
+        compiledMethods.add(SimulationGraph.class.getName() + "." + TICK_METHOD);
+        if (SpeedUpdates.isVectorAvailable()) {
+            compiledMethods.add(SpeedUpdates.best().getClass().getName() + "." + SPEED_METHOD);
+        }
+        if (FlightRecorder.isAvailable()) {
+            compilations = new RecordingStream();
+            compilations.enable(COMPILATION_EVENT).withThreshold(Duration.ZERO);
+            compilations.enable(DEOPTIMIZATION_EVENT);
+            compilations.enable(INLINING_EVENT);
+            compilations.enable(MeasurementEvent.class);
+            compilations.onEvent(COMPILATION_EVENT, this::compiled);
+            compilations.onEvent(DEOPTIMIZATION_EVENT, this::deoptimized);
+            compilations.onEvent(INLINING_EVENT, this::inlined);
+            compilations.onEvent(MEASUREMENT_EVENT, this::measured);
+            compilations.startAsync();
+        } else {
+            compilations = null;
+        }
+    }
+
+    /**
+     * the main method of the probe
+     * @param args the folder containing the scenario folders and optionally the number of synthetic scenarios
+     * @throws IOException if a scenario can not be read
+     * @throws InterruptedException if the thread is interrupted while waiting for the flight recorder
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println(USAGE_MESSAGE);
+            System.exit(2);
+        }
+        int syntheticCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SYNTHETIC_SCENARIOS;
+
+        AllocationProbe probe = new AllocationProbe();
+        boolean allocationFree = true;
+        try {
+
+            File[] folders = new File(args[0]).listFiles(File::isDirectory);
+            if (folders != null) {
+                for (File folder : folders) {
+                    allocationFree &= probe.check(folder.getName(), folder.getPath());
+                }
+            }
+            for (int seed = 0; seed < syntheticCount; seed++) {
+                Scenario scenario = new ScenarioGenerator(seed).generate(SYNTHETIC_NODES, SYNTHETIC_MAX_LENGTH,
+                        SYNTHETIC_CARS);
+                Path folder = Files.createTempDirectory("allocation-probe");
+                try {
+                    scenario.write(folder.toString());
+                    allocationFree &= probe.check("synthetic-" + seed, folder.toString());
+                } finally {
+                    deleteFolder(folder);
+                }
+            }
+        } finally {
+            probe.close();
+        }
+
+        if (!allocationFree) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * method to measure the allocations of the ticks of a scenario with the default settings of the engine
+     * and with a history and print the results
+     * @param name the name of the scenario
+     * @param folderPath the folder of the simulation files of the scenario
+     * @return true if the measured ticks did not allocate in both settings
+     * @throws IOException if the files of the scenario can not be read
+     * @throws InterruptedException if the thread is interrupted while waiting for the flight recorder
+     */
+    public boolean check(String name, String folderPath) throws IOException, InterruptedException {
+        SimulationEngine engine = new SimulationEngine();
+        engine.load(folderPath);
+        boolean allocationFree = report(name, measure(engine));
+
+        engine = new SimulationEngine();
+        engine.setHistory(HISTORY_SPACING, HISTORY_BUDGET, false);
+        engine.load(folderPath);
+        return report(name + HISTORY_SUFFIX, measure(engine)) && allocationFree;
+    }
+
+    /**
+     * method to print the result of a measurement
+     * @param name the name of the scenario
+     * @param allocatedBytes the number of allocated bytes or -1 if the methods were not compiled
+     * @return true if the measured ticks did not allocate
+     */
+    private boolean report(String name, long allocatedBytes) {
+        if (allocatedBytes < 0) {
+            System.out.println(String.format(NOT_COMPILED_MESSAGE, name, String.join(" or ", compiledMethods)));
+            return false;
+        }
+        System.out.println(String.format(RESULT_MESSAGE, name, allocatedBytes, MEASURED_TICKS,
+                (double) allocatedBytes / MEASURED_TICKS));
+        return allocatedBytes == 0;
+    }
+
+    /**
+     * method to warm up the loaded graph of an engine and measure the bytes allocated while stepping it afterwards.
+     * A measurement that allocated is repeated until the methods were compiled for all of it.
+     * @param engine the engine with a loaded graph
+     * @return the number of allocated bytes, corrected by the cost of reading the counter,
+     *     or -1 if the measurements allocated and the methods did not stay compiled in time
+     * @throws InterruptedException if the thread is interrupted while waiting for the flight recorder
+     */
+    public long measure(SimulationEngine engine) throws InterruptedException {
+        for (int i = 0; i < WARMUP_TICKS; i++) {
+            engine.step(1);
+        }
+        long warmupEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WARMUP_MILLIS);
+        while (System.nanoTime() < warmupEnd) {
+            engine.step(MEASURED_TICKS);
+        }
+
+        long compileEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(COMPILE_TIMEOUT_MILLIS);
+        while (System.nanoTime() < compileEnd) {
+            MeasurementEvent event = new MeasurementEvent();
+            long allocatedBytes = measureOnce(engine, event);
+            if (allocatedBytes == 0 || compilations == null || isCompiledThroughout()) {
+                return allocatedBytes;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * method to measure the bytes allocated while stepping the graph of an engine once
+     * @param engine the engine with a loaded graph
+     * @param event the event that marks the measurement, created before it so it is not counted
+     * @return the number of allocated bytes, corrected by the cost of reading the counter
+     */
+    private long measureOnce(SimulationEngine engine, MeasurementEvent event) {
+        //a measurement whose event came too late must not be mistaken for this one
+        measurements.clear();
+        long threadId = Thread.currentThread().getId();
+
+        //reading the counter might allocate itself, so this is measured first and subtracted
+        long counterStart = threadBean.getThreadAllocatedBytes(threadId);
+        long counterOverhead = threadBean.getThreadAllocatedBytes(threadId) - counterStart;
+
+        event.begin();
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+        engine.step(MEASURED_TICKS);
+        long end = threadBean.getThreadAllocatedBytes(threadId);
+        event.commit();
+
+        return Math.max(0, end - start - counterOverhead);
+    }
+
+    /**
+     * method to wait until the flight recorder delivered the event of the latest measurement
+     * @return true if the methods were compiled on their own and their code did not change during the measurement
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private boolean isCompiledThroughout() throws InterruptedException {
+        Boolean compiled = measurements.poll(DELIVERY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        return compiled != null && compiled;
+    }
+
+    /**
+     * method to stop following the compilations
+     */
+    public void close() {
+        if (compilations != null) {
+            compilations.close();
+        }
+    }
+
+    /**
+     * method to delete a folder with the generated simulation files
+     * @param folder the folder
+     * @throws IOException if a file can not be deleted
+     */
+    private static void deleteFolder(Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * method called by the flight recorder when a method was compiled
+     * @param event the compilation event
+     */
+    private void compiled(RecordedEvent event) {
+        int compileId = event.getInt("compileId");
+        boolean inlined = inliningCompilations.remove(compileId);
+        if (event.getInt("compileLevel") != OPTIMIZED_LEVEL || !event.getBoolean("succeded")) {
+            return;
+        }
+        if (inlined) {
+            inlinedCompilations.add(compileId);
+            lastChange = event.getEndTime();
+        }        RecordedMethod method = event.getValue("method");
+        //the code of an on-stack replacement is only used by the call that was running when it was compiled
+        if (method != null && !event.getBoolean("isOsr")) {
+            String methodName = method.getType().getName() + "." + method.getName() + method.getDescriptor();
+            if (compiledMethods.contains(methodName)) {
+                methodCompilations.put(compileId, methodName);
+                lastChange = event.getEndTime();
+            }
+        }
+    }
+
+    /**
+     * method called by the flight recorder when a compilation tried to inline a method
+     * @param event the inlining event
+     */
+    private void inlined(RecordedEvent event) {
+        RecordedObject callee = event.getValue("callee");
+        if (event.getBoolean("succeeded") && compiledMethods.contains(callee.getString("type").replace('/', '.')
+                + "." + callee.getString("name") + callee.getString("descriptor"))) {
+            inliningCompilations.add(event.getInt("compileId"));
+        }
+    }
+
+    /**
+     * method called by the flight recorder when compiled code was thrown away
+     * @param event the deoptimization event
+     */
+    private void deoptimized(RecordedEvent event) {
+        int compileId = event.getInt("compileId");
+        if (!methodCompilations.containsKey(compileId) && !inlinedCompilations.contains(compileId)) {
+            return;
+        }
+        //even if the code is kept the deoptimized call continues in the interpreter
+        lastChange = event.getStartTime();
+        if (!event.getString("action").equals(KEEP_CODE_ACTION)) {
+            methodCompilations.remove(compileId);
+            inlinedCompilations.remove(compileId);
+        }
+    }
+
+    /**
+     * method called by the flight recorder when a measurement ended
+     * @param event the measurement event
+     */
+    private void measured(RecordedEvent event) {
+        boolean compiled = new HashSet<>(methodCompilations.values()).containsAll(compiledMethods);
+        measurements.add(compiled && lastChange.isBefore(event.getStartTime()));
+    }
+
+    /**
+     * this class is the flight recorder event that marks a measurement, so it can be ordered among the compilations
+     * 
+     * @author uxler
+     * @version 1.0
+     */
+    @Name(MEASUREMENT_EVENT)
+    @Label("Allocation Measurement")
+    @StackTrace(false)
+    static final class MeasurementEvent extends Event {
+    }
+}
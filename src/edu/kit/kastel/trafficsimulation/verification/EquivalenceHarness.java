@@ -0,0 +1,233 @@
+package edu.kit.kastel.trafficsimulation.verification;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+import edu.kit.kastel.trafficsimulation.StreetNodes.StreetNode;
+import edu.kit.kastel.trafficsimulation.speed.ScalarSpeedUpdate;
+import edu.kit.kastel.trafficsimulation.speed.SpeedUpdates;
+import edu.kit.kastel.trafficsimulation.storage.Storages;
+
+/**
+ * this class runs the reference engine and a candidate engine side by side on random scenarios.
+ * After every tick the incrementally maintained state hash of the candidate is compared with the hash
+ * of the reference. On the first difference the states are compared in detail to find the street
+ * and car (or node) that diverged.
+ * 
+ * Usage: {@code EquivalenceHarness <scenario count> <ticks> [first seed] [candidate options...]}
+ * The candidate options select the engine configuration that is compared with the reference:
+ * {@code scalar} forces the scalar speed phase, {@code vector} requires the vectorised one,
+ * {@code locality} arranges streets and cars in breadth-first order of the network,
+ * {@code offheap} moves the car table and the car columns into native memory,
+ * {@code lookahead} advances the candidate with {@link SimulationGraph#simulate(long)} in chunks of
+ * {@value #LOOKAHEAD_CHUNK_TICKS} ticks, so streets are advanced on their own, and compares at the end of every chunk.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public class EquivalenceHarness {
+
+    /** the maximum number of nodes of a generated scenario */
+    static final int MAX_NODES = 24;
+
+    /** the maximum length of a street in a generated scenario */
+    static final int MAX_STREET_LENGTH = 400;
+
+    /** the maximum number of cars of a generated scenario */
+    static final int MAX_CARS = 300;
+
+    /** the number of ticks the candidate is advanced at once with the lookahead option */
+    static final int LOOKAHEAD_CHUNK_TICKS = 64;
+
+    /** the option that advances the candidate in chunks */
+    static final String LOOKAHEAD_OPTION = "lookahead";
+
+    /** the output when all scenarios behaved identically */
+    static final String SUCCESS_MESSAGE = "OK: %s scenarios with %s ticks each behaved identically";
+
+    /** the output when the engines diverged */
+    static final String DIVERGENCE_MESSAGE = "DIVERGENCE in scenario with seed %s %s";
+
+    /** the usage message */
+    static final String USAGE_MESSAGE
+            = "Usage: EquivalenceHarness <scenario count> <ticks> [first seed] [candidate options...]";
+
+    /** the error when a candidate option is not known or not available */
+    static final String UNKNOWN_OPTION_ERROR = "Error: candidate option \"%s\" is not available";
+
+    /** the configuration that is applied to every candidate graph after it is built */
+    private final Consumer<SimulationGraph> candidateConfiguration;
+
+    /** the number of ticks the candidate is advanced at once between two comparisons */
+    private int chunkTicks = 1;
+
+    /**
+     * constructor for a new harness
+     * @param candidateConfiguration the configuration that turns a freshly built graph into the candidate engine
+     */
+    public EquivalenceHarness(Consumer<SimulationGraph> candidateConfiguration) {
+        this.candidateConfiguration = candidateConfiguration;
+    }
+
+    /**
+     * the main method of the harness
+     * @param args the scenario count, the number of ticks and optionally the first seed
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println(USAGE_MESSAGE);
+            System.exit(2);
+        }
+        int scenarioCount = Integer.parseInt(args[0]);
+        int ticks = Integer.parseInt(args[1]);
+        long firstSeed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        Consumer<SimulationGraph> configuration = graph -> { };
+        int chunkTicks = 1;
+        for (int i = 3; i < args.length; i++) {
+            if (args[i].equals(LOOKAHEAD_OPTION)) {
+                chunkTicks = LOOKAHEAD_CHUNK_TICKS;
+                continue;
+            }
+            Consumer<SimulationGraph> option = parseCandidateOption(args[i]);
+            if (option == null) {
+                System.err.println(String.format(UNKNOWN_OPTION_ERROR, args[i]));
+                System.exit(2);
+            }
+            configuration = configuration.andThen(option);
+        }
+
+        EquivalenceHarness harness = new EquivalenceHarness(configuration);
+        harness.setChunkTicks(chunkTicks);
+        for (long seed = firstSeed; seed < firstSeed + scenarioCount; seed++) {
+            String divergence = harness.run(seed, ticks);
+            if (divergence != null) {
+                System.out.println(divergence);
+                System.exit(1);
+            }
+        }
+        System.out.println(String.format(SUCCESS_MESSAGE, scenarioCount, ticks));
+    }
+
+    /**
+     * method to set the number of ticks the candidate is advanced at once between two comparisons.
+     * With more than one tick the candidate is advanced with {@link SimulationGraph#simulate(long)}.
+     * @param chunkTicks the number of ticks per comparison, at least 1
+     */
+    public void setChunkTicks(int chunkTicks) {
+        this.chunkTicks = chunkTicks;
+    }
+
+    /**
+     * method to get the configuration belonging to a candidate option
+     * @param option the name of the option
+     * @return the configuration or null if the option is not known or not available
+     */
+    static Consumer<SimulationGraph> parseCandidateOption(String option) {
+        switch (option) {
+            case "scalar":
+                return graph -> graph.setSpeedUpdate(new ScalarSpeedUpdate());
+            case "vector":
+                return SpeedUpdates.isVectorAvailable() ? graph -> graph.setSpeedUpdate(SpeedUpdates.best()) : null;
+            case "locality":
+                return graph -> graph.setLocalityOrder(true);
+            case "offheap":
+                return Storages.isOffHeapAvailable() ? graph -> graph.setStorage(Storages.offHeap()) : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * method to generate a scenario from a seed and run both engines on it
+     * @param seed the seed of the scenario
+     * @param ticks the number of ticks to simulate
+     * @return a description of the first divergence or null if the engines behaved identically
+     */
+    public String run(long seed, int ticks) {
+        ScenarioGenerator generator = new ScenarioGenerator(seed);
+        int nodeCount = 1 + Math.floorMod(seed * 7, MAX_NODES);
+        int carCount = Math.floorMod(seed * 31, MAX_CARS);
+        Scenario scenario = generator.generate(nodeCount, MAX_STREET_LENGTH, carCount);
+
+        String divergence = compare(scenario, ticks);
+        if (divergence == null) {
+            return null;
+        }
+        return String.format(DIVERGENCE_MESSAGE, seed, divergence);
+    }
+
+    /**
+     * method to run both engines on a scenario
+     * @param scenario the scenario
+     * @param ticks the number of ticks to simulate
+     * @return a description of the first divergence including its tick or null if the engines behaved identically
+     */
+    public String compare(Scenario scenario, int ticks) {
+        ReferenceEngine reference = new ReferenceEngine(scenario);
+        SimulationGraph candidate = scenario.buildGraph();
+        candidateConfiguration.accept(candidate);
+
+        for (int tick = 0; tick <= ticks; tick += chunkTicks) {
+            if (tick > 0) {
+                for (int i = 0; i < chunkTicks; i++) {
+                    reference.tick();
+                }
+                if (chunkTicks == 1) {
+                    candidate.tick();
+                } else {
+                    candidate.simulate(chunkTicks);
+                }
+            }
+            if (reference.stateHash() != candidate.getStateHash()) {
+                return String.format("at tick %s: %s", tick, describeDivergence(reference, candidate));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * method to find the first street (in id order) with a car whose state differs, or the first node that differs
+     * @param reference the reference engine
+     * @param candidate the candidate engine
+     * @return a description of the difference
+     */
+    private String describeDivergence(ReferenceEngine reference, SimulationGraph candidate) {
+        for (int streetId : reference.getStreetIds()) {
+            for (int carId : reference.getCarIdsOnStreet(streetId)) {
+                int[] expected = reference.getCarState(carId);
+                int[] actual = {candidate.getCarOnStreetId(carId), candidate.getCarPosition(carId),
+                    candidate.getCarSpeed(carId), candidate.getCarById(carId).getWantedDirection()};
+                if (!Arrays.equals(expected, actual)) {
+                    return String.format("street %s car %s expected %s but was %s", streetId, carId,
+                            describeCar(expected), describeCar(actual));
+                }
+            }
+        }
+
+        int[] actual = new int[StreetNode.STATE_SIZE];
+        for (int nodeId : reference.getNodeIds()) {
+            int[] expected = reference.getNodeState(nodeId);
+            candidate.getNodeById(nodeId).saveState(IntBuffer.wrap(actual), 0);
+            if (!Arrays.equals(expected, actual)) {
+                return String.format("node %s expected phase %s/%s but was %s/%s", nodeId,
+                        expected[0], expected[1], actual[0], actual[1]);
+            }
+        }
+
+        return String.format("state hash differs (incremental %s, recomputed %s) but all cars and nodes are equal",
+                candidate.getStateHash(), candidate.computeStateHash());
+    }
+
+    /**
+     * method to describe the state of a car
+     * @param state {street, position, speed, wanted direction}
+     * @return the description
+     */
+    private static String describeCar(int[] state) {
+        return String.format("(street %s, position %s, speed %s, direction %s)", state[0], state[1], state[2],
+                state[3]);
+    }
+}
@@ -0,0 +1,186 @@
+package edu.kit.kastel.trafficsimulation.verification;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import edu.kit.kastel.trafficsimulation.Car;
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+
+/**
+ * this class reports how far the mesoscopic mode deviates from the exact car following.
+ * Every scenario is simulated twice side by side, once exactly and once with all streets of at least
+ * the given length simulated as queues, and after every tick the two graphs are compared:
+ * how many cars of the exact graph are on the same street in the mesoscopic one, how far apart
+ * their positions are, how many crossings happened and how fast the cars drove on average.
+ * Afterwards both modes are timed on fresh graphs with {@link SimulationGraph#simulate(long)}.
+ *
+ * Usage: {@code FidelityReport <min length> <ticks> <scenario folder>...}
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public class FidelityReport {
+
+    /** the number of ticks simulated before timing, so the JIT compiles the tick */
+    static final int WARMUP_TICKS = 200;
+
+    /** the number of times the timed simulation is repeated, the fastest run counts */
+    static final int TIMING_RUNS = 5;
+
+    /** the first line of the report */
+    static final String HEADER_MESSAGE = "scenario: mesoscopic streets, same street, position error, "
+            + "crossings exact/mesoscopic, mean speed exact/mesoscopic, time exact/mesoscopic";
+
+    /** the line of the report for one scenario */
+    static final String RESULT_MESSAGE = "%s: %s/%s streets, %.1f%% on same street, %.1f m position error, "
+            + "crossings %s/%s (%+.1f%%), mean speed %.2f/%.2f (%+.1f%%), %.2f/%.2f ms per tick (%.1fx)";
+
+    /** the usage message */
+    static final String USAGE_MESSAGE = "Usage: FidelityReport <min length> <ticks> <scenario folder>...";
+
+    /** the number of ticks every scenario is simulated */
+    private final int ticks;
+
+    /** the minimum length of the streets that are simulated as queues */
+    private final int minLength;
+
+    /**
+     * constructor for a new report
+     * @param minLength the minimum length of the streets that are simulated as queues
+     * @param ticks the number of ticks every scenario is simulated
+     */
+    public FidelityReport(int minLength, int ticks) {
+        this.minLength = minLength;
+        this.ticks = ticks;
+    }
+
+    /**
+     * the main method of the report
+     * @param args the minimum length, the number of ticks and the scenario folders
+     * @throws IOException if a scenario can not be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println(USAGE_MESSAGE);
+            System.exit(2);
+        }
+
+        FidelityReport report = new FidelityReport(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+        System.out.println(HEADER_MESSAGE);
+        for (int i = 2; i < args.length; i++) {
+            System.out.println(report.compare(args[i]));
+        }
+    }
+
+    /**
+     * method to compare the two modes on a scenario
+     * @param folderPath the folder with the simulation files of the scenario
+     * @return the line of the report
+     * @throws IOException if the scenario can not be read
+     */
+    public String compare(String folderPath) throws IOException {
+        Scenario scenario = Scenario.load(folderPath);
+        SimulationGraph exact = scenario.buildGraph();
+        SimulationGraph mesoscopic = scenario.buildGraph();
+        mesoscopic.setMesoscopicMinLength(minLength);
+
+        int mesoscopicStreets = 0;
+        for (int[] street : scenario.getStreets()) {
+            if (street[2] >= minLength) {
+                mesoscopicStreets++;
+            }
+        }
+
+        long comparedCars = 0;
+        long sameStreetCars = 0;
+        long positionError = 0;
+        double exactSpeedSum = 0;
+        double mesoscopicSpeedSum = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            exact.tick();
+            mesoscopic.tick();
+            exactSpeedSum += meanSpeed(exact);
+            mesoscopicSpeedSum += meanSpeed(mesoscopic);
+
+            for (int slot = 0; slot < exact.getCarSlotLimit(); slot++) {
+                Car car = exact.getCarInSlot(slot);
+                if (car == null) {
+                    continue;
+                }
+                comparedCars++;
+                if (mesoscopic.containsCar(car.getId())
+                        && mesoscopic.getCarOnStreetId(car.getId()) == car.getOnStreetId()) {
+                    sameStreetCars++;
+                    positionError += Math.abs(mesoscopic.getCarPosition(car.getId()) - car.getPositionOnStreet());
+                }
+            }
+        }
+
+        double exactMillis = timePerTick(scenario, SimulationGraph.NO_MESOSCOPIC_STREETS);
+        double mesoscopicMillis = timePerTick(scenario, minLength);
+
+        return String.format(Locale.ROOT, RESULT_MESSAGE, folderPath, mesoscopicStreets, scenario.getStreets().size(),
+                percentage(sameStreetCars, comparedCars), sameStreetCars == 0 ? 0.0 : (double) positionError / sameStreetCars,
+                exact.getCrossingCount(), mesoscopic.getCrossingCount(),
+                relativeError(mesoscopic.getCrossingCount(), exact.getCrossingCount()),
+                exactSpeedSum / ticks, mesoscopicSpeedSum / ticks, relativeError(mesoscopicSpeedSum, exactSpeedSum),
+                exactMillis, mesoscopicMillis, exactMillis / mesoscopicMillis);
+    }
+
+    /**
+     * method to measure how long a tick of a scenario takes
+     * @param scenario the scenario
+     * @param graphMinLength the minimum length of the streets that are simulated as queues
+     * @return the milliseconds per tick of the fastest run
+     */
+    private double timePerTick(Scenario scenario, int graphMinLength) {
+        double best = Double.MAX_VALUE;
+        for (int run = 0; run < TIMING_RUNS; run++) {
+            SimulationGraph graph = scenario.buildGraph();
+            graph.setMesoscopicMinLength(graphMinLength);
+            graph.simulate(WARMUP_TICKS);
+            long start = System.nanoTime();
+            graph.simulate(ticks);
+            best = Math.min(best, (System.nanoTime() - start) / 1e6 / ticks);
+        }
+        return best;
+    }
+
+    /**
+     * method to get the mean speed of all cars of a graph
+     * @param graph the graph
+     * @return the mean speed or 0 if there are no cars
+     */
+    private static double meanSpeed(SimulationGraph graph) {
+        long speedSum = 0;
+        int count = 0;
+        for (int slot = 0; slot < graph.getCarSlotLimit(); slot++) {
+            Car car = graph.getCarInSlot(slot);
+            if (car != null) {
+                speedSum += car.getCurrentSpeed();
+                count++;
+            }
+        }
+        return count == 0 ? 0 : (double) speedSum / count;
+    }
+
+    /**
+     * method to get a part of a whole in percent
+     * @param part the part
+     * @param whole the whole
+     * @return the percentage or 100 if the whole is 0
+     */
+    private static double percentage(long part, long whole) {
+        return whole == 0 ? 100 : 100.0 * part / whole;
+    }
+
+    /**
+     * method to get the relative deviation of an approximation from the exact value in percent
+     * @param approximation the approximated value
+     * @param exact the exact value
+     * @return the deviation in percent or 0 if the exact value is 0
+     */
+    private static double relativeError(double approximation, double exact) {
+        return exact == 0 ? 0 : 100 * (approximation - exact) / exact;
+    }
+}
@@ -0,0 +1,360 @@
+package edu.kit.kastel.trafficsimulation.verification;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import edu.kit.kastel.trafficsimulation.StateHash;
+
+/**
+ * this class is a frozen, deliberately simple implementation of the simulation rules.
+ * It follows the original implementation of the tick step for step (cars stored in a TreeMap per street,
+ * streets updated in id order) and must not be optimised. Faster engines are checked against it.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public class ReferenceEngine {
+
+    /** the minimum distance a car must keep to the next car */
+    static final int CAR_MINIMUM_DISTANCE = 10;
+
+    /** the number of directions a car cycles through */
+    static final int DIRECTION_COUNT = 4;
+
+    /** all nodes mapped to their ids */
+    private final NavigableMap<Integer, ReferenceNode> nodes = new TreeMap<>();
+
+    /** all streets mapped to their ids */
+    private final NavigableMap<Integer, ReferenceStreet> streets = new TreeMap<>();
+
+    /** all cars mapped to their ids in the order they were added */
+    private final Map<Integer, ReferenceCar> cars = new LinkedHashMap<>();
+
+    /**
+     * constructor that builds the reference engine from a scenario
+     * @param scenario the scenario to simulate
+     */
+    public ReferenceEngine(Scenario scenario) {
+        for (int[] node : scenario.getNodes()) {
+            nodes.put(node[0], new ReferenceNode(node[0], node[1]));
+        }
+        List<int[]> streetList = scenario.getStreets();
+        for (int id = 0; id < streetList.size(); id++) {
+            int[] street = streetList.get(id);
+            streets.put(id, new ReferenceStreet(id, street[1], street[2], street[3] == 2, street[4]));
+            nodes.get(street[0]).outputStreets.add(id);
+            nodes.get(street[1]).inputStreets.add(id);
+        }
+        for (int[] car : scenario.getCars()) {
+            ReferenceCar referenceCar = new ReferenceCar(car[0], car[3], car[2]);
+            cars.put(car[0], referenceCar);
+            ReferenceStreet street = streets.get(car[1]);
+            Integer lastPosition = street.cars.isEmpty() ? null : street.cars.firstKey();
+            referenceCar.position = lastPosition == null ? street.length : lastPosition - CAR_MINIMUM_DISTANCE;
+            referenceCar.streetId = street.id;
+            street.cars.put(referenceCar.position, referenceCar.id);
+        }
+    }
+
+    /**
+     * method to simulate one tick
+     */
+    public void tick() {
+        for (ReferenceNode node : nodes.values()) {
+            node.tick();
+        }
+        for (ReferenceCar car : cars.values()) {
+            car.alreadyCrossed = false;
+        }
+        for (ReferenceStreet street : streets.values()) {
+            street.update();
+        }
+    }
+
+    /**
+     * method to compute the state hash of all cars and nodes
+     * @return the state hash
+     */
+    public long stateHash() {
+        long hash = 0;
+        for (ReferenceCar car : cars.values()) {
+            hash += StateHash.ofCar(car.id, car.streetId, car.position, car.speed, car.direction);
+        }
+        for (ReferenceNode node : nodes.values()) {
+            hash += StateHash.ofNode(node.id, node.greenPhaseIndicator, node.greenPhaseTimer);
+        }
+        return hash;
+    }
+
+    /**
+     * method to get the ids of all streets in id order
+     * @return the street ids
+     */
+    public List<Integer> getStreetIds() {
+        return new ArrayList<>(streets.keySet());
+    }
+
+    /**
+     * method to get the ids of the cars on a street in the order they are updated (front car first)
+     * @param streetId the id of the street
+     * @return the car ids
+     */
+    public List<Integer> getCarIdsOnStreet(int streetId) {
+        return new ArrayList<>(streets.get(streetId).cars.descendingMap().values());
+    }
+
+    /**
+     * method to get the ids of all nodes in id order
+     * @return the node ids
+     */
+    public List<Integer> getNodeIds() {
+        return new ArrayList<>(nodes.keySet());
+    }
+
+    /**
+     * method to get the state of a car
+     * @param carId the id of the car
+     * @return {street, position, speed, wanted direction}
+     */
+    public int[] getCarState(int carId) {
+        ReferenceCar car = cars.get(carId);
+        return new int[] {car.streetId, car.position, car.speed, car.direction};
+    }
+
+    /**
+     * method to get the state of a node
+     * @param nodeId the id of the node
+     * @return {green phase indicator, green phase timer}
+     */
+    public int[] getNodeState(int nodeId) {
+        ReferenceNode node = nodes.get(nodeId);
+        return new int[] {node.greenPhaseIndicator, node.greenPhaseTimer};
+    }
+
+    /**
+     * a car of the reference engine
+     */
+    private static final class ReferenceCar {
+        /** the id of the car */
+        private final int id;
+        /** the acceleration of the car */
+        private final int acceleration;
+        /** the speed the car wants to drive at */
+        private final int wantedSpeed;
+        /** the current speed */
+        private int speed;
+        /** the direction the car wants to go to */
+        private int direction;
+        /** the meters left to drive in this tick */
+        private int metersLeft;
+        /** whether the car already crossed a node or overtook in this tick */
+        private boolean alreadyCrossed;
+        /** the position on the street */
+        private int position;
+        /** the id of the street */
+        private int streetId;
+
+        /**
+         * constructor of a reference car
+         * @param id the id
+         * @param acceleration the acceleration
+         * @param wantedSpeed the wanted speed
+         */
+        private ReferenceCar(int id, int acceleration, int wantedSpeed) {
+            this.id = id;
+            this.acceleration = acceleration;
+            this.wantedSpeed = wantedSpeed;
+        }
+    }
+
+    /**
+     * a node (crossing or roundabout) of the reference engine
+     */
+    private final class ReferenceNode {
+        /** the id of the node */
+        private final int id;
+        /** the green phase duration, 0 for a roundabout */
+        private final int greenPhaseDuration;
+        /** the index of the input street that is green */
+        private int greenPhaseIndicator;
+        /** the timer of the current green phase */
+        private int greenPhaseTimer;
+        /** the ids of the input streets */
+        private final List<Integer> inputStreets = new ArrayList<>();
+        /** the ids of the output streets */
+        private final List<Integer> outputStreets = new ArrayList<>();
+
+        /**
+         * constructor of a reference node
+         * @param id the id
+         * @param greenPhaseDuration the green phase duration, 0 for a roundabout
+         */
+        private ReferenceNode(int id, int greenPhaseDuration) {
+            this.id = id;
+            this.greenPhaseDuration = greenPhaseDuration;
+        }
+
+        /**
+         * advances the traffic light of a crossing
+         */
+        private void tick() {
+            if (greenPhaseDuration == 0) {
+                return;
+            }
+            greenPhaseTimer++;
+            if (greenPhaseTimer != greenPhaseDuration) {
+                return;
+            }
+            greenPhaseTimer = 0;
+            greenPhaseIndicator++;
+            if (greenPhaseIndicator >= inputStreets.size()) {
+                greenPhaseIndicator = 0;
+            }
+        }
+
+        /**
+         * returns the street a car may cross to
+         * @param inputStreetId the street the car is on
+         * @param direction the direction the car wants to go to
+         * @return the street or null if the car may not cross
+         */
+        private ReferenceStreet allowedStreet(int inputStreetId, int direction) {
+            if (greenPhaseDuration != 0 && inputStreets.indexOf(inputStreetId) != greenPhaseIndicator) {
+                return null;
+            }
+            ReferenceStreet output = streets.get(outputStreets.get(direction % outputStreets.size()));
+            return output.hasSpace() ? output : null;
+        }
+    }
+
+    /**
+     * a street of the reference engine
+     */
+    private final class ReferenceStreet {
+        /** the id of the street */
+        private final int id;
+        /** the id of the end node */
+        private final int endNodeId;
+        /** the length of the street */
+        private final int length;
+        /** whether cars may overtake */
+        private final boolean overtakeable;
+        /** the speed limit */
+        private final int maxSpeed;
+        /** the cars on the street, position mapped to car id */
+        private NavigableMap<Integer, Integer> cars = new TreeMap<>();
+
+        /**
+         * constructor of a reference street
+         * @param id the id
+         * @param endNodeId the id of the end node
+         * @param length the length
+         * @param overtakeable whether cars may overtake
+         * @param maxSpeed the speed limit
+         */
+        private ReferenceStreet(int id, int endNodeId, int length, boolean overtakeable, int maxSpeed) {
+            this.id = id;
+            this.endNodeId = endNodeId;
+            this.length = length;
+            this.overtakeable = overtakeable;
+            this.maxSpeed = maxSpeed;
+        }
+
+        /**
+         * returns whether a car can drive in
+         * @return true if there is space at the beginning of the street
+         */
+        private boolean hasSpace() {
+            return cars.isEmpty() || cars.firstKey() >= CAR_MINIMUM_DISTANCE;
+        }
+
+        /**
+         * lets a car drive in at the beginning of the street
+         * @param car the car
+         */
+        private void driveIn(ReferenceCar car) {
+            int maxNewPosition = cars.isEmpty() ? length : cars.firstKey() - CAR_MINIMUM_DISTANCE;
+            int newPosition = Math.min(car.metersLeft, maxNewPosition);
+            car.metersLeft -= newPosition;
+            car.position = newPosition;
+            car.streetId = id;
+            car.alreadyCrossed = true;
+            cars.put(newPosition, car.id);
+        }
+
+        /**
+         * moves all cars of the street, exactly like the original Street.updateCarPositions
+         */
+        private void update() {
+            NavigableMap<Integer, Integer> updated = new TreeMap<>();
+            Entry<Integer, Integer> entry;
+            while ((entry = cars.pollLastEntry()) != null) {
+                int initialPosition = entry.getKey();
+                ReferenceCar car = ReferenceEngine.this.cars.get(entry.getValue());
+                if (car.alreadyCrossed) {
+                    updated.put(initialPosition, car.id);
+                    continue;
+                }
+                int initialStreetId = car.streetId;
+
+                car.speed = Math.min(car.speed + car.acceleration, Math.min(car.wantedSpeed, maxSpeed));
+                car.metersLeft = car.speed;
+
+                boolean noNextCar = false;
+                Integer nextCarPosition = updated.higherKey(initialPosition);
+                if (nextCarPosition == null) {
+                    nextCarPosition = length;
+                    noNextCar = true;
+                }
+                Integer secondNextCarPosition = updated.higherKey(nextCarPosition);
+                if (secondNextCarPosition == null) {
+                    secondNextCarPosition = length;
+                }
+
+                int newPosition;
+                boolean enoughSpaceAfter = secondNextCarPosition - nextCarPosition >= CAR_MINIMUM_DISTANCE * 2;
+                boolean fastEnough = car.speed >= nextCarPosition - initialPosition + CAR_MINIMUM_DISTANCE;
+                boolean overtakes = overtakeable && enoughSpaceAfter && fastEnough;
+                int furthestPosBySpeed = initialPosition + car.speed;
+                if (overtakes) {
+                    newPosition = Math.min(furthestPosBySpeed, secondNextCarPosition - CAR_MINIMUM_DISTANCE);
+                    car.alreadyCrossed = true;
+                } else if (noNextCar) {
+                    newPosition = Math.min(furthestPosBySpeed, length);
+                } else {
+                    newPosition = Math.min(furthestPosBySpeed, nextCarPosition - CAR_MINIMUM_DISTANCE);
+                }
+
+                if (nextCarPosition - initialPosition == CAR_MINIMUM_DISTANCE && !noNextCar && !overtakes) {
+                    car.speed = 0;
+                }
+
+                car.metersLeft -= newPosition - initialPosition;
+                car.position = newPosition;
+
+                if (newPosition == length && car.metersLeft > 0) {
+                    ReferenceStreet target = nodes.get(endNodeId).allowedStreet(id, car.direction);
+                    if (target != null && !car.alreadyCrossed) {
+                        car.direction = (car.direction + 1) % DIRECTION_COUNT;
+                        car.alreadyCrossed = true;
+                        target.driveIn(car);
+                    } else {
+                        updated.put(newPosition, car.id);
+                    }
+                } else {
+                    updated.put(newPosition, car.id);
+                }
+                if ((car.position == initialPosition && car.streetId == initialStreetId)
+                        || (initialPosition == length && car.position == 0)) {
+                    car.speed = 0;
+                }
+            }
+            cars = updated;
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package edu.kit.kastel.trafficsimulation.verification;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+import edu.kit.kastel.trafficsimulation.speed.SpeedUpdates;
+import edu.kit.kastel.trafficsimulation.storage.Storages;
+
+/**
+ * this class measures the throughput of the engine on generated networks of several sizes.
+ * For every size a network is generated and written as simulation files, then it is read with the file loader
+ * and simulated directly on the graph under every engine configuration and thread count.
+ * The engine itself runs on one thread, so a thread count of N simulates N independent copies of the network
+ * at the same time, which shows how the throughput of one machine scales.
+ * The results are written to a CSV file and compared with a baseline CSV file, the process exits with
+ * status 1 if the ticks per second of any run dropped below the baseline by more than the threshold.
+ *
+ * Usage: {@code ScalingBenchmark <csv file> [sizes=10000,100000] [ticks=100] [configurations=scalar,vector]
+ * [threads=1,4] [baseline=<csv file>] [threshold=0.1]}
+ * A configuration combines the candidate options of the {@link EquivalenceHarness} with {@code +},
+ * for example {@code vector+locality}. The option {@code tick} simulates tick by tick without the lookahead.
+ *
+ * @author uxler
+ * @version 1.0
+ */
+public class ScalingBenchmark {
+
+    /** the numbers of cars that are measured if no sizes are given */
+    static final String DEFAULT_SIZES = "10000,100000,1000000,10000000";
+
+    /** the number of measured ticks if none is given */
+    static final String DEFAULT_TICKS = "100";
+
+    /** the thread counts if none are given */
+    static final String DEFAULT_THREADS = "1";
+
+    /** the relative drop of ticks per second that counts as a regression if no threshold is given */
+    static final String DEFAULT_THRESHOLD = "0.1";
+
+    /** the number of ticks simulated before measuring, so the JIT compiles the tick */
+    static final int WARMUP_TICKS = 20;
+
+    /** the number of cars per node of a generated network */
+    static final int CARS_PER_NODE = 40;
+
+    /** the maximum street length of a generated network */
+    static final int MAX_STREET_LENGTH = 1000;
+
+    /** the seed of the generated networks */
+    static final long SEED = 1;
+
+    /** the option of a configuration that simulates tick by tick */
+    static final String TICK_OPTION = "tick";
+
+    /** the separator of the options of a configuration */
+    static final String OPTION_SEPARATOR = "+";
+
+    /** the number of bytes of a mebibyte */
+    static final long BYTES_PER_MIB = 1024 * 1024;
+
+    /** the first line of the CSV file */
+    static final String CSV_HEADER
+            = "cars,configuration,threads,load_ms,ticks,ticks_per_sec,car_updates_per_sec,peak_heap_mib,gc_ms";
+
+    /** the format of a line of the CSV file */
+    static final String CSV_LINE = "%s,%s,%s,%s,%s,%.2f,%.0f,%s,%s";
+
+    /** the output for every run */
+    static final String RESULT_MESSAGE
+            = "%s cars, %s, %s threads: %.1f ticks/s, %.0f car updates/s, load %s ms, peak heap %s MiB, gc %s ms";
+
+    /** the output for a run that is slower than its baseline */
+    static final String REGRESSION_MESSAGE = "REGRESSION %s cars, %s, %s threads: %.1f ticks/s, baseline %.1f ticks/s";
+
+    /** the usage message */
+    static final String USAGE_MESSAGE = "Usage: ScalingBenchmark <csv file> [sizes=10000,100000] [ticks=100] "
+            + "[configurations=scalar,vector] [threads=1,4] [baseline=<csv file>] [threshold=0.1]";
+
+    /** the error when an argument is not known */
+    static final String UNKNOWN_ARGUMENT_ERROR = "Error: argument \"%s\" is not known";
+
+    /** the error when a configuration option is not known or not available */
+    static final String UNKNOWN_OPTION_ERROR = "Error: configuration option \"%s\" is not available";
+
+    /** the number of measured ticks */
+    private final int ticks;
+
+    /** the ticks per second of the baseline by the key of the run */
+    private final Map<String, Double> baseline;
+
+    /** the relative drop of ticks per second that counts as a regression */
+    private final double threshold;
+
+    /** the lines of the CSV file */
+    private final List<String> csvLines = new ArrayList<>();
+
+    /** the number of runs that were slower than their baseline */
+    private int regressions = 0;
+
+    /**
+     * constructor for a new benchmark
+     * @param ticks the number of measured ticks
+     * @param baseline the ticks per second of the baseline by the key of the run
+     * @param threshold the relative drop of ticks per second that counts as a regression
+     */
+    public ScalingBenchmark(int ticks, Map<String, Double> baseline, double threshold) {
+        this.ticks = ticks;
+        this.baseline = baseline;
+        this.threshold = threshold;
+        csvLines.add(CSV_HEADER);
+    }
+
+    /**
+     * the main method of the benchmark
+     * @param args the CSV file to write and the optional arguments
+     * @throws IOException if a file can not be read or written
+     * @throws InterruptedException if the benchmark is interrupted
+     * @throws ExecutionException if a simulation failed
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length < 1) {
+            System.err.println(USAGE_MESSAGE);
+            System.exit(2);
+        }
+
+        Map<String, String> arguments = new HashMap<>();
+        arguments.put("sizes", DEFAULT_SIZES);
+        arguments.put("ticks", DEFAULT_TICKS);
+        arguments.put("configurations", defaultConfigurations());
+        arguments.put("threads", DEFAULT_THREADS);
+        arguments.put("threshold", DEFAULT_THRESHOLD);
+        for (int i = 1; i < args.length; i++) {
+            String[] keyValue = args[i].split("=", 2);
+            if (keyValue.length != 2 || !arguments.containsKey(keyValue[0]) && !keyValue[0].equals("baseline")) {
+                System.err.println(String.format(UNKNOWN_ARGUMENT_ERROR, args[i]));
+                System.exit(2);
+            }
+            arguments.put(keyValue[0], keyValue[1]);
+        }
+
+        String[] configurations = arguments.get("configurations").split(",");
+        for (String configuration : configurations) {
+            if (parseConfiguration(configuration) == null) {
+                System.exit(2);
+            }
+        }
+
+        Map<String, Double> baseline = arguments.containsKey("baseline")
+                ? readBaseline(Path.of(arguments.get("baseline"))) : Map.of();
+        ScalingBenchmark benchmark = new ScalingBenchmark(Integer.parseInt(arguments.get("ticks")), baseline,
+                Double.parseDouble(arguments.get("threshold")));
+
+        for (String size : arguments.get("sizes").split(",")) {
+            int carCount = Integer.parseInt(size);
+            Path folder = Files.createTempDirectory("scaling-benchmark");
+            try {
+                Scenario scenario = new ScenarioGenerator(SEED).generate(Math.max(2, carCount / CARS_PER_NODE),
+                        MAX_STREET_LENGTH, carCount);
+                scenario.write(folder.toString());
+                //the scenario is read again from the files, so it does not have to stay in memory
+                scenario = null;
+
+                for (String configuration : configurations) {
+                    for (String threads : arguments.get("threads").split(",")) {
+                        benchmark.run(folder, configuration, Integer.parseInt(threads));
+                    }
+                }
+            } finally {
+                deleteFolder(folder);
+            }
+        }
+
+        Files.write(Path.of(args[0]), benchmark.csvLines);
+        if (benchmark.regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * method to get the configurations that are measured if none are given
+     * @return the configurations separated by commas
+     */
+    static String defaultConfigurations() {
+        String configurations = "scalar,scalar+tick,scalar+locality";
+        if (SpeedUpdates.isVectorAvailable()) {
+            configurations += ",vector,vector+locality";
+        }
+        if (Storages.isOffHeapAvailable()) {
+            configurations += ",scalar+offheap";
+        }
+        return configurations;
+    }
+
+    /**
+     * method to get the graph configuration belonging to a configuration.
+     * The option {@code tick} is not part of it, it changes how the graph is simulated.
+     * @param configuration the options of the configuration separated by {@value #OPTION_SEPARATOR}
+     * @return the graph configuration or null if an option is not known or not available
+     */
+    static Consumer<SimulationGraph> parseConfiguration(String configuration) {
+        Consumer<SimulationGraph> result = graph -> { };
+        for (String option : configuration.split("\\" + OPTION_SEPARATOR)) {
+            if (option.equals(TICK_OPTION)) {
+                continue;
+            }
+            Consumer<SimulationGraph> optionConfiguration = EquivalenceHarness.parseCandidateOption(option);
+            if (optionConfiguration == null) {
+                System.err.println(String.format(UNKNOWN_OPTION_ERROR, option));
+                return null;
+            }
+            result = result.andThen(optionConfiguration);
+        }
+        return result;
+    }
+
+    /**
+     * method to load the network of a folder once per thread and measure the simulation
+     * @param folder the folder containing the simulation files
+     * @param configuration the configuration of the graphs
+     * @param threads the number of graphs that are simulated at the same time
+     * @throws IOException if the simulation files can not be read
+     * @throws InterruptedException if the benchmark is interrupted
+     * @throws ExecutionException if a simulation failed
+     */
+    public void run(Path folder, String configuration, int threads)
+            throws IOException, InterruptedException, ExecutionException {
+        boolean tickByTick = List.of(configuration.split("\\" + OPTION_SEPARATOR)).contains(TICK_OPTION);
+        Consumer<SimulationGraph> graphConfiguration = parseConfiguration(configuration);
+
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        long gcTimeBefore = totalGcTime();
+
+        long loadStart = System.nanoTime();
+        SimulationGraph[] graphs = new SimulationGraph[threads];
+        for (int i = 0; i < threads; i++) {
+            graphs[i] = Scenario.load(folder.toString()).buildGraph();
+            graphConfiguration.accept(graphs[i]);
+        }
+        long loadMillis = (System.nanoTime() - loadStart) / threads / 1_000_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            simulateAll(executor, graphs, WARMUP_TICKS, tickByTick);
+            long start = System.nanoTime();
+            simulateAll(executor, graphs, ticks, tickByTick);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long carCount = 0;
+            for (SimulationGraph graph : graphs) {
+                carCount += graph.getCarCount();
+            }
+            double ticksPerSecond = ticks / seconds;
+            double carUpdatesPerSecond = carCount * ticksPerSecond;
+            long peakHeapMib = peakHeapBytes() / BYTES_PER_MIB;
+            long gcMillis = totalGcTime() - gcTimeBefore;
+            long size = graphs[0].getCarCount();
+
+            System.out.println(String.format(Locale.ROOT, RESULT_MESSAGE, size, configuration, threads,
+                    ticksPerSecond, carUpdatesPerSecond, loadMillis, peakHeapMib, gcMillis));
+            csvLines.add(String.format(Locale.ROOT, CSV_LINE, size, configuration, threads, loadMillis, ticks,
+                    ticksPerSecond, carUpdatesPerSecond, peakHeapMib, gcMillis));
+
+            Double baselineTicksPerSecond = baseline.get(key(size, configuration, threads));
+            if (baselineTicksPerSecond != null && ticksPerSecond < baselineTicksPerSecond * (1 - threshold)) {
+                regressions++;
+                System.out.println(String.format(Locale.ROOT, REGRESSION_MESSAGE, size, configuration, threads,
+                        ticksPerSecond, baselineTicksPerSecond));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * method to simulate all graphs at the same time, every graph on its own thread
+     * @param executor the executor with one thread per graph
+     * @param graphs the graphs
+     * @param tickCount the number of ticks to simulate
+     * @param tickByTick true if the graphs are simulated tick by tick instead of with the lookahead
+     * @throws InterruptedException if the benchmark is interrupted
+     * @throws ExecutionException if a simulation failed
+     */
+    private static void simulateAll(ExecutorService executor, SimulationGraph[] graphs, int tickCount,
+            boolean tickByTick) throws InterruptedException, ExecutionException {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (SimulationGraph graph : graphs) {
+            tasks.add(() -> {
+                if (tickByTick) {
+                    for (int i = 0; i < tickCount; i++) {
+                        graph.tick();
+                    }
+                } else {
+                    graph.simulate(tickCount);
+                }
+                return null;
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+    }
+
+    /**
+     * method to get the key of a run in the baseline
+     * @param cars the number of cars
+     * @param configuration the configuration
+     * @param threads the number of threads
+     * @return the key of the run
+     */
+    private static String key(long cars, String configuration, int threads) {
+        return cars + "," + configuration + "," + threads;
+    }
+
+    /**
+     * method to read the ticks per second of every run of a CSV file written by this benchmark
+     * @param file the CSV file
+     * @return the ticks per second by the key of the run
+     * @throws IOException if the file can not be read
+     */
+    static Map<String, Double> readBaseline(Path file) throws IOException {
+        Map<String, Double> baseline = new HashMap<>();
+        List<String> lines = Files.readAllLines(file);
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split(",");
+            baseline.put(key(Long.parseLong(fields[0]), fields[1], Integer.parseInt(fields[2])),
+                    Double.parseDouble(fields[5]));
+        }
+        return baseline;
+    }
+
+    /**
+     * method to get the total time all garbage collectors spent collecting
+     * @return the collection time in milliseconds
+     */
+    private static long totalGcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * method to get the peak usage of the heap since the peaks were reset
+     * @return the sum of the peak usages of all heap pools in bytes
+     */
+    private static long peakHeapBytes() {
+        long bytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                bytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * method to delete a folder with the generated simulation files
+     * @param folder the folder
+     * @throws IOException if a file can not be deleted
+     */
+    private static void deleteFolder(Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package edu.kit.kastel.trafficsimulation.verification;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.kit.kastel.trafficsimulation.Car;
+import edu.kit.kastel.trafficsimulation.CarSource;
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+import edu.kit.kastel.trafficsimulation.io.SimulationFileLoader;
+
+/**
+ * this class describes a scenario independently of any engine.
+ * It stores the same information as the three .sim files and can build a fresh graph from it.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public class Scenario {
+
+    /** the number of integers that describe a node (id, green phase duration) */
+    static final int NODE_FIELDS = 2;
+
+    /** the number of integers that describe a street (start node, end node, length, type, max speed) */
+    static final int STREET_FIELDS = 5;
+
+    /** the number of integers that describe a car (id, street, wanted speed, acceleration, destination) */
+    static final int CAR_FIELDS = 5;
+
+    /** the number of integers that describe a source (street, interval, wanted speed, acceleration, destination) */
+    static final int SOURCE_FIELDS = 5;
+
+    /** all nodes in the order they are added */
+    private final List<int[]> nodes = new ArrayList<>();
+
+    /** all streets in the order they are added, the index in this list is the id of the street */
+    private final List<int[]> streets = new ArrayList<>();
+
+    /** all cars in the order they are added */
+    private final List<int[]> cars = new ArrayList<>();
+
+    /** all sources as {street, interval, wanted speed, acceleration, destination} */
+    private final List<int[]> sources = new ArrayList<>();
+
+    /** the ids of all sink nodes */
+    private final List<Integer> sinks = new ArrayList<>();
+
+    /**
+     * method to read a scenario from a folder containing the three .sim files and the optional sources and sinks.
+     * The files are expected to be valid, they are not checked like the load command does.
+     * @param folderPath the path of the folder
+     * @return the scenario
+     * @throws IOException if the folder or one of the files can not be read
+     */
+    public static Scenario load(String folderPath) throws IOException {
+        SimulationFileLoader loader = new SimulationFileLoader(folderPath);
+        Scenario scenario = new Scenario();
+        for (String line : loader.loadCrossings()) {
+            String[] subStrings = line.split(":|t");
+            scenario.addNode(Integer.parseInt(subStrings[0]), Integer.parseInt(subStrings[1]));
+        }
+        for (String line : loader.loadStreets()) {
+            String[] subStrings = line.split("-->|:|m,|x,|max");
+            scenario.addStreet(Integer.parseInt(subStrings[0]), Integer.parseInt(subStrings[1]),
+                    Integer.parseInt(subStrings[2]), Integer.parseInt(subStrings[3]), Integer.parseInt(subStrings[4]));
+        }
+        for (String line : loader.loadCars()) {
+            String[] subStrings = line.split(",");
+            int destination = subStrings.length == CAR_FIELDS ? Integer.parseInt(subStrings[4]) : Car.NO_DESTINATION;
+            scenario.addCar(Integer.parseInt(subStrings[0]), Integer.parseInt(subStrings[1]),
+                    Integer.parseInt(subStrings[2]), Integer.parseInt(subStrings[3]), destination);
+        }
+        for (String line : loader.loadSources()) {
+            String[] subStrings = line.split(":|t,|,");
+            int destination = subStrings.length == SOURCE_FIELDS ? Integer.parseInt(subStrings[4]) : Car.NO_DESTINATION;
+            scenario.addSource(Integer.parseInt(subStrings[0]), Integer.parseInt(subStrings[1]),
+                    Integer.parseInt(subStrings[2]), Integer.parseInt(subStrings[3]), destination);
+        }
+        for (String line : loader.loadSinks()) {
+            scenario.addSink(Integer.parseInt(line));
+        }
+        return scenario;
+    }
+
+    /**
+     * method to add a node to the scenario
+     * @param id the id of the node
+     * @param greenPhaseDuration the duration of the green phase, 0 for a roundabout
+     */
+    public void addNode(int id, int greenPhaseDuration) {
+        nodes.add(new int[] {id, greenPhaseDuration});
+    }
+
+    /**
+     * method to add a street to the scenario
+     * @param startNode the id of the node the street starts at
+     * @param endNode the id of the node the street ends at
+     * @param length the length of the street
+     * @param type the type of the street (1 = only one lane, 2 = two lanes)
+     * @param maxSpeed the maximum speed allowed on the street
+     * @return the id the street gets
+     */
+    public int addStreet(int startNode, int endNode, int length, int type, int maxSpeed) {
+        streets.add(new int[] {startNode, endNode, length, type, maxSpeed});
+        return streets.size() - 1;
+    }
+
+    /**
+     * method to add a car to the scenario
+     * @param id the id of the car
+     * @param streetId the id of the street the car starts on
+     * @param wantedSpeed the speed the car wants to drive at
+     * @param acceleration the acceleration of the car
+     */
+    public void addCar(int id, int streetId, int wantedSpeed, int acceleration) {
+        addCar(id, streetId, wantedSpeed, acceleration, Car.NO_DESTINATION);
+    }
+
+    /**
+     * method to add a car that is routed to a destination to the scenario
+     * @param id the id of the car
+     * @param streetId the id of the street the car starts on
+     * @param wantedSpeed the speed the car wants to drive at
+     * @param acceleration the acceleration of the car
+     * @param destination the id of the destination node or {@link Car#NO_DESTINATION}
+     */
+    public void addCar(int id, int streetId, int wantedSpeed, int acceleration, int destination) {
+        cars.add(new int[] {id, streetId, wantedSpeed, acceleration, destination});
+    }
+
+    /**
+     * method to add a source that lets new cars enter a street to the scenario
+     * @param streetId the id of the street the cars enter
+     * @param interval the number of ticks between two cars
+     * @param wantedSpeed the speed the new cars want to drive at
+     * @param acceleration the acceleration of the new cars
+     * @param destination the destination of the new cars or {@link Car#NO_DESTINATION}
+     */
+    public void addSource(int streetId, int interval, int wantedSpeed, int acceleration, int destination) {
+        sources.add(new int[] {streetId, interval, wantedSpeed, acceleration, destination});
+    }
+
+    /**
+     * method to mark a node of the scenario as a sink where cars leave the graph
+     * @param nodeId the id of the node
+     */
+    public void addSink(int nodeId) {
+        sinks.add(nodeId);
+    }
+
+    /**
+     * method to get all nodes as {id, green phase duration}
+     * @return the nodes of the scenario
+     */
+    public List<int[]> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * method to get all streets as {start node, end node, length, type, max speed}
+     * @return the streets of the scenario, the index is the id of the street
+     */
+    public List<int[]> getStreets() {
+        return streets;
+    }
+
+    /**
+     * method to get all cars as {id, street, wanted speed, acceleration, destination}
+     * @return the cars of the scenario
+     */
+    public List<int[]> getCars() {
+        return cars;
+    }
+
+    /**
+     * method to build a new graph from the scenario
+     * @return the new graph
+     */
+    public SimulationGraph buildGraph() {
+        SimulationGraph graph = new SimulationGraph();
+        for (int[] node : nodes) {
+            graph.addNode(node[0], node[1]);
+        }
+        for (int[] street : streets) {
+            graph.addStreet(street[0], street[1], street[2], street[3], street[4]);
+        }
+        for (int[] car : cars) {
+            Car newCar = Car.create(car[0], car[3], car[2]);
+            newCar.setDestination(car[4]);
+            graph.addCarToStreet(car[1], newCar);
+        }
+        for (int[] source : sources) {
+            graph.addSource(new CarSource(source[0], source[1], source[2], source[3], source[4]));
+        }
+        for (int sink : sinks) {
+            graph.getNodeById(sink).setSink(true);
+        }
+        return graph;
+    }
+
+    /**
+     * method to write the scenario as simulation files into a folder, so it can be read by the load command
+     * @param folderPath the path of the folder, it is created if it does not exist
+     * @throws IOException if a file can not be written
+     */
+    public void write(String folderPath) throws IOException {
+        Path folder = Path.of(folderPath);
+        Files.createDirectories(folder);
+        Files.write(folder.resolve(SimulationFileLoader.FILENAME_CROSSINGS), toCrossingLines());
+        Files.write(folder.resolve(SimulationFileLoader.FILENAME_STREETS), toStreetLines());
+        Files.write(folder.resolve(SimulationFileLoader.FILENAME_CARS), toCarLines());
+        if (!sources.isEmpty()) {
+            Files.write(folder.resolve(SimulationFileLoader.FILENAME_SOURCES), toSourceLines());
+        }
+        if (!sinks.isEmpty()) {
+            List<String> sinkLines = new ArrayList<>();
+            for (int sink : sinks) {
+                sinkLines.add(String.valueOf(sink));
+            }
+            Files.write(folder.resolve(SimulationFileLoader.FILENAME_SINKS), sinkLines);
+        }
+    }
+
+    /**
+     * method to get the lines of the "crossings.sim" file describing this scenario
+     * @return the lines of the crossings file
+     */
+    public List<String> toCrossingLines() {
+        List<String> lines = new ArrayList<>();
+        for (int[] node : nodes) {
+            lines.add(node[0] + ":" + node[1] + "t");
+        }
+        return lines;
+    }
+
+    /**
+     * method to get the lines of the "streets.sim" file describing this scenario
+     * @return the lines of the streets file
+     */
+    public List<String> toStreetLines() {
+        List<String> lines = new ArrayList<>();
+        for (int[] street : streets) {
+            lines.add(street[0] + "-->" + street[1] + ":" + street[2] + "m," + street[3] + "x," + street[4] + "max");
+        }
+        return lines;
+    }
+
+    /**
+     * method to get the lines of the "cars.sim" file describing this scenario
+     * @return the lines of the cars file
+     */
+    public List<String> toCarLines() {
+        List<String> lines = new ArrayList<>();
+        for (int[] car : cars) {
+            String line = car[0] + "," + car[1] + "," + car[2] + "," + car[3];
+            lines.add(car[4] == Car.NO_DESTINATION ? line : line + "," + car[4]);
+        }
+        return lines;
+    }
+
+    /**
+     * method to get the lines of the "sources.sim" file describing this scenario
+     * @return the lines of the sources file
+     */
+    public List<String> toSourceLines() {
+        List<String> lines = new ArrayList<>();
+        for (int[] source : sources) {
+            String line = source[0] + ":" + source[1] + "t," + source[2] + "," + source[3];
+            lines.add(source[4] == Car.NO_DESTINATION ? line : line + "," + source[4]);
+        }
+        return lines;
+    }
+}
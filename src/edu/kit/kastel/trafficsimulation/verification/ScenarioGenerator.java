@@ -0,0 +1,130 @@
+package edu.kit.kastel.trafficsimulation.verification;
+
+import java.util.Random;
+
+/**
+ * this class generates random but valid scenarios.
+ * Every node gets between one and four input and output streets, every street has a random
+ * length, lane count and speed limit and the cars are distributed randomly over the streets.
+ * The same seed always generates the same scenario.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public class ScenarioGenerator {
+
+    /** the maximum number of input or output streets of a node */
+    static final int MAX_STREETS_PER_NODE = 4;
+
+    /** the minimum length of a street */
+    static final int MIN_LENGTH = 10;
+
+    /** the minimum speed limit of a street */
+    static final int MIN_SPEED_LIMIT = 5;
+
+    /** the maximum speed limit of a street */
+    static final int MAX_SPEED_LIMIT = 40;
+
+    /** the minimum speed a car wants to have */
+    static final int MIN_WANTED_SPEED = 20;
+
+    /** the maximum speed a car wants to have */
+    static final int MAX_WANTED_SPEED = 40;
+
+    /** the maximum acceleration of a car */
+    static final int MAX_ACCELERATION = 10;
+
+    /** the maximum green phase duration of a generated crossing */
+    static final int MAX_GREEN_PHASE_DURATION = 6;
+
+    /** the distance two cars have to keep */
+    static final int CAR_DISTANCE = 10;
+
+    /** the maximum number of attempts to place all cars before giving up */
+    static final int PLACEMENT_ATTEMPTS_PER_CAR = 8;
+
+    /** the random number generator of this generator */
+    private final Random random;
+
+    /**
+     * constructor for a new generator
+     * @param seed the seed of the random number generator
+     */
+    public ScenarioGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * method to generate a new scenario.
+     * The nodes are first connected in a ring so that every node has an input and an output street,
+     * then random additional streets (including the occasional loop) are added.
+     * @param nodeCount the number of nodes, at least 1
+     * @param maxLength the maximum length of a street
+     * @param carCount the number of cars that should be placed, fewer are placed if the streets are full
+     * @return the generated scenario
+     */
+    public Scenario generate(int nodeCount, int maxLength, int carCount) {
+        Scenario scenario = new Scenario();
+
+        int[] inputCount = new int[nodeCount];
+        int[] outputCount = new int[nodeCount];
+        int[] streetCarCount = new int[nodeCount * MAX_STREETS_PER_NODE];
+
+        for (int node = 0; node < nodeCount; node++) {
+            boolean roundabout = random.nextBoolean();
+            scenario.addNode(node, roundabout ? 0 : 1 + random.nextInt(MAX_GREEN_PHASE_DURATION));
+        }
+
+        for (int node = 0; node < nodeCount; node++) {
+            int target = (node + 1) % nodeCount;
+            addRandomStreet(scenario, node, target, maxLength);
+            outputCount[node]++;
+            inputCount[target]++;
+        }
+
+        int extraStreets = random.nextInt(nodeCount * 2 + 1);
+        for (int i = 0; i < extraStreets; i++) {
+            int start = random.nextInt(nodeCount);
+            int end = random.nextInt(nodeCount);
+            if (outputCount[start] >= MAX_STREETS_PER_NODE || inputCount[end] >= MAX_STREETS_PER_NODE) {
+                continue;
+            }
+            addRandomStreet(scenario, start, end, maxLength);
+            outputCount[start]++;
+            inputCount[end]++;
+        }
+
+        int streetCount = scenario.getStreets().size();
+        int carId = 0;
+        int attempts = carCount * PLACEMENT_ATTEMPTS_PER_CAR;
+        while (carId < carCount && attempts-- > 0) {
+            int street = random.nextInt(streetCount);
+            //cars are added from the end of the street backwards with a distance of 10 meters
+            int length = scenario.getStreets().get(street)[2];
+            int lastPosition = length - (streetCarCount[street] - 1) * CAR_DISTANCE;
+            if (streetCarCount[street] > 0 && lastPosition < CAR_DISTANCE) {
+                continue;
+            }
+            int wantedSpeed = MIN_WANTED_SPEED + random.nextInt(MAX_WANTED_SPEED - MIN_WANTED_SPEED + 1);
+            int acceleration = 1 + random.nextInt(MAX_ACCELERATION);
+            scenario.addCar(carId++, street, wantedSpeed, acceleration);
+            streetCarCount[street]++;
+        }
+
+        return scenario;
+    }
+
+    /**
+     * method to add a street with random length, type and speed limit
+     * @param scenario the scenario to add the street to
+     * @param start the id of the start node
+     * @param end the id of the end node
+     * @param maxLength the maximum length of the street
+     */
+    private void addRandomStreet(Scenario scenario, int start, int end, int maxLength) {
+        int length = MIN_LENGTH + random.nextInt(Math.max(1, maxLength - MIN_LENGTH + 1));
+        int type = 1 + random.nextInt(2);
+        int maxSpeed = MIN_SPEED_LIMIT + random.nextInt(MAX_SPEED_LIMIT - MIN_SPEED_LIMIT + 1);
+        scenario.addStreet(start, end, length, type, maxSpeed);
+    }
+}
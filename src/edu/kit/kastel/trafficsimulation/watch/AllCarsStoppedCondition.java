@@ -0,0 +1,63 @@
+package edu.kit.kastel.trafficsimulation.watch;
+
+import edu.kit.kastel.trafficsimulation.Car;
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+
+/**
+ * this class is the condition that all cars of the graph stand still.
+ * The moving cars are counted once at the start, afterwards the count follows the speed changes,
+ * so the condition is checked in constant time.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public class AllCarsStoppedCondition extends StopCondition {
+
+    /** the number of cars with a speed other than 0 */
+    private int movingCars;
+
+    /**
+     * method to count the moving cars of the graph
+     * @param graph the graph the condition watches
+     */
+    @Override
+    public void start(SimulationGraph graph) {
+        movingCars = graph.countMovingCars();
+    }
+
+    /**
+     * method to check if no car is moving
+     * @return true if all cars stand still
+     */
+    @Override
+    public boolean isMet() {
+        return movingCars == 0;
+    }
+
+    /**
+     * method to count a car that started or stopped moving
+     * @param car the car
+     * @param oldSpeed the speed at the beginning of the tick
+     * @param newSpeed the speed at the end of the tick
+     */
+    @Override
+    public void carChangedSpeed(Car car, int oldSpeed, int newSpeed) {
+        if (oldSpeed == 0) {
+            movingCars++;
+        } else if (newSpeed == 0) {
+            movingCars--;
+        }
+    }
+
+    /**
+     * method to forget a moving car that left the graph
+     * @param car the car
+     * @param speed the speed the car had at the beginning of the tick
+     */
+    @Override
+    public void carLeftGraph(Car car, int speed) {
+        if (speed != 0) {
+            movingCars--;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package edu.kit.kastel.trafficsimulation.watch;
+
+import edu.kit.kastel.trafficsimulation.Car;
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+import edu.kit.kastel.trafficsimulation.Street;
+
+/**
+ * this class is the condition that a car reaches a street or is on it at the end of a tick.
+ * The car does not have to exist yet, it may enter the graph at a source later.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public class CarOnStreetCondition extends StopCondition {
+
+    /** the id of the car */
+    private final int carId;
+
+    /** the id of the street */
+    private final int streetId;
+
+    /**
+     * constructor for a new condition
+     * @param carId the id of the car
+     * @param streetId the id of the street the car has to reach
+     */
+    public CarOnStreetCondition(int carId, int streetId) {
+        this.carId = carId;
+        this.streetId = streetId;
+    }
+
+    /** true if the car is currently on the street */
+    private boolean onStreet;
+
+    /**
+     * method to check if the car is on the street when the simulation starts
+     * @param graph the graph the condition watches
+     */
+    @Override
+    public void start(SimulationGraph graph) {
+        onStreet = graph.containsCar(carId) && graph.getCarOnStreetId(carId) == streetId;
+    }
+
+    /**
+     * method to check if the car reached the street or is still on it
+     * @return true if the car entered the street or is on it
+     */
+    @Override
+    public boolean isMet() {
+        return super.isMet() || onStreet;
+    }
+
+    /**
+     * method to follow the car from street to street
+     * @param car the car
+     * @param street the street the car entered
+     */
+    @Override
+    public void carEnteredStreet(Car car, Street street) {
+        if (car.getId() == carId) {
+            onStreet = street.getId() == streetId;
+            if (onStreet) {
+                fire();
+            }
+        }
+    }
+
+    /**
+     * method to notice that the car left the graph
+     * @param car the car
+     * @param speed the speed the car had at the beginning of the tick
+     */
+    @Override
+    public void carLeftGraph(Car car, int speed) {
+        if (car.getId() == carId) {
+            onStreet = false;
+        }
+    }
+}
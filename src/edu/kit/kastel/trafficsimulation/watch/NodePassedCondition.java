@@ -0,0 +1,52 @@
+package edu.kit.kastel.trafficsimulation.watch;
+
+import edu.kit.kastel.trafficsimulation.Car;
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+import edu.kit.kastel.trafficsimulation.StreetNodes.StreetNode;
+
+/**
+ * this class is the condition that a number of cars crossed a node since the condition was started.
+ * Cars that leave the graph at a sink node count as crossing it.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public class NodePassedCondition extends StopCondition {
+
+    /** the id of the node */
+    private final int nodeId;
+
+    /** the number of cars that still have to cross the node */
+    private long remainingCars;
+
+    /**
+     * constructor for a new condition
+     * @param nodeId the id of the node
+     * @param carCount the number of cars that have to cross the node, positive
+     */
+    public NodePassedCondition(int nodeId, long carCount) {
+        this.nodeId = nodeId;
+        this.remainingCars = carCount;
+    }
+
+    /**
+     * method to start counting, no car has crossed the node yet
+     * @param graph the graph the condition watches
+     */
+    @Override
+    public void start(SimulationGraph graph) {
+        //no car has crossed the node yet
+    }
+
+    /**
+     * method to count a car that crossed the node
+     * @param car the car
+     * @param node the node
+     */
+    @Override
+    public void carCrossedNode(Car car, StreetNode node) {
+        if (node.getID() == nodeId && --remainingCars == 0) {
+            fire();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package edu.kit.kastel.trafficsimulation.watch;
+
+import edu.kit.kastel.trafficsimulation.Car;
+import edu.kit.kastel.trafficsimulation.Street;
+import edu.kit.kastel.trafficsimulation.StreetNodes.StreetNode;
+
+/**
+ * this interface describes an observer of the events of a running simulation.
+ * The streets call it only when an event happens, so a watcher never has to scan the cars.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public interface SimulationWatcher {
+
+    /**
+     * method called when a car enters a street, by crossing a node or at a source
+     * @param car the car
+     * @param street the street the car entered
+     */
+    void carEnteredStreet(Car car, Street street);
+
+    /**
+     * method called when a car crosses a node or leaves the graph at a sink node
+     * @param car the car
+     * @param node the node
+     */
+    void carCrossedNode(Car car, StreetNode node);
+
+    /**
+     * method called when the speed of a car changed during a tick
+     * @param car the car
+     * @param oldSpeed the speed at the beginning of the tick
+     * @param newSpeed the speed at the end of the tick
+     */
+    void carChangedSpeed(Car car, int oldSpeed, int newSpeed);
+
+    /**
+     * method called when a car leaves the graph at a sink
+     * @param car the car
+     * @param speed the speed the car had at the beginning of the tick
+     */
+    void carLeftGraph(Car car, int speed);
+}
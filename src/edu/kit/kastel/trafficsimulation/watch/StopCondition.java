@@ -0,0 +1,82 @@
+package edu.kit.kastel.trafficsimulation.watch;
+
+import edu.kit.kastel.trafficsimulation.Car;
+import edu.kit.kastel.trafficsimulation.SimulationGraph;
+import edu.kit.kastel.trafficsimulation.Street;
+import edu.kit.kastel.trafficsimulation.StreetNodes.StreetNode;
+
+/**
+ * this class is the superclass of all conditions that stop a simulation.
+ * A condition is a watcher that ignores all events by default and marks itself as met
+ * when an event it depends on fulfils it, so checking it after a tick takes constant time.
+ * 
+ * @author uxler
+ * @version 1.0
+ */
+public abstract class StopCondition implements SimulationWatcher {
+
+    /** true if the condition was fulfilled */
+    private boolean met = false;
+
+    /**
+     * method to check if the condition was fulfilled, called after every tick
+     * @return true if the condition was fulfilled
+     */
+    public boolean isMet() {
+        return met;
+    }
+
+    /**
+     * method to mark the condition as fulfilled
+     */
+    protected void fire() {
+        met = true;
+    }
+
+    /**
+     * method to evaluate the condition once on the current state of the graph before the first tick
+     * @param graph the graph the condition watches
+     */
+    public abstract void start(SimulationGraph graph);
+
+    /**
+     * method that ignores a car entering a street
+     * @param car the car
+     * @param street the street the car entered
+     */
+    @Override
+    public void carEnteredStreet(Car car, Street street) {
+        //do nothing. the condition does not depend on this event
+    }
+
+    /**
+     * method that ignores a car crossing a node
+     * @param car the car
+     * @param node the node
+     */
+    @Override
+    public void carCrossedNode(Car car, StreetNode node) {
+        //do nothing. the condition does not depend on this event
+    }
+
+    /**
+     * method that ignores a speed change
+     * @param car the car
+     * @param oldSpeed the speed at the beginning of the tick
+     * @param newSpeed the speed at the end of the tick
+     */
+    @Override
+    public void carChangedSpeed(Car car, int oldSpeed, int newSpeed) {
+        //do nothing. the condition does not depend on this event
+    }
+
+    /**
+     * method that ignores a car leaving the graph
+     * @param car the car
+     * @param speed the speed the car had at the beginning of the tick
+     */
+    @Override
+    public void carLeftGraph(Car car, int speed) {
+        //do nothing. the condition does not depend on this event
+    }
+}